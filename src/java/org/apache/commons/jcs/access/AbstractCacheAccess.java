@@ -21,6 +21,10 @@ package org.apache.commons.jcs.access;
 
 import java.io.IOException;
 import java.io.Serializable;
+import java.util.concurrent.Callable;
+import java.util.concurrent.Future;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.ThreadPoolExecutor;
 
 import org.apache.commons.jcs.access.behavior.ICacheAccessManagement;
 import org.apache.commons.jcs.access.exception.CacheException;
@@ -28,6 +32,7 @@ import org.apache.commons.jcs.engine.behavior.ICompositeCacheAttributes;
 import org.apache.commons.jcs.engine.behavior.IElementAttributes;
 import org.apache.commons.jcs.engine.control.CompositeCache;
 import org.apache.commons.jcs.engine.stats.behavior.ICacheStats;
+import org.apache.commons.jcs.utils.threadpool.ThreadPoolManager;
 
 /**
  * This class provides the common methods for all types of access to the cache.
@@ -43,6 +48,12 @@ import org.apache.commons.jcs.engine.stats.behavior.ICacheStats;
 public abstract class AbstractCacheAccess<K extends Serializable, V extends Serializable>
     implements ICacheAccessManagement
 {
+    /**
+     * Name of the thread pool that runs the asynchronous access methods. It can be configured in
+     * the cache.ccf like any other pool, e.g. thread_pool.cache_access_async.maximumPoolSize=50
+     */
+    public static final String ASYNC_THREAD_POOL_NAME = "cache_access_async";
+
     /**
      * The cache that a given instance of this class provides access to.
      * <p>
@@ -187,4 +198,35 @@ public abstract class AbstractCacheAccess<K extends Serializable, V extends Seri
         }
         return numFreed;
     }
+
+    /**
+     * Hands the task to the asynchronous access pool. The caller does not wait for the task, not
+     * even when it falls through to a slow auxiliary.
+     * <p>
+     * @param task the cache operation
+     * @return a future holding the outcome of the task
+     */
+    protected static <T> Future<T> submitAsync( Callable<T> task )
+    {
+        ThreadPoolExecutor pool = ThreadPoolManager.getInstance().getPool( ASYNC_THREAD_POOL_NAME );
+        if ( pool == null )
+        {
+            return runNow( task );
+        }
+        return pool.submit( task );
+    }
+
+    /**
+     * Runs the task on the calling thread. This is used when the answer is already in memory and
+     * a trip through the pool would cost more than the operation itself.
+     * <p>
+     * @param task the cache operation
+     * @return a completed future holding the outcome of the task
+     */
+    protected static <T> Future<T> runNow( Callable<T> task )
+    {
+        FutureTask<T> future = new FutureTask<T>( task );
+        future.run();
+        return future;
+    }
 }
@@ -21,9 +21,13 @@ package org.apache.commons.jcs.access;
 
 import java.io.IOException;
 import java.io.Serializable;
+import java.util.ArrayList;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.Future;
 
 import org.apache.commons.jcs.access.behavior.ICacheAccess;
 import org.apache.commons.jcs.access.exception.CacheException;
@@ -33,6 +37,7 @@ import org.apache.commons.jcs.access.exception.ObjectExistsException;
 import org.apache.commons.jcs.engine.CacheElement;
 import org.apache.commons.jcs.engine.behavior.ICacheElement;
 import org.apache.commons.jcs.engine.behavior.IElementAttributes;
+import org.apache.commons.jcs.engine.behavior.IValueMerger;
 import org.apache.commons.jcs.engine.control.CompositeCache;
 import org.apache.commons.logging.Log;
 import org.apache.commons.logging.LogFactory;
@@ -78,6 +83,67 @@ public class CacheAccess<K extends Serializable, V extends Serializable>
         return ( element != null ) ? element.getVal() : null;
     }
 
+    /**
+     * Retrieve an object from the cache region without blocking on the auxiliaries. If the object
+     * is in memory the returned future is already complete. Otherwise the lookup runs on the
+     * asynchronous access pool.
+     * <p>
+     * @param name Key the object is stored as
+     * @return a future holding the object if found or null
+     */
+    public Future<V> getAsync( final K name )
+    {
+        Callable<V> task = new Callable<V>()
+        {
+            public V call()
+            {
+                return get( name );
+            }
+        };
+
+        if ( isInMemory( name ) )
+        {
+            return runNow( task );
+        }
+        return submitAsync( task );
+    }
+
+    /**
+     * Retrieve an object from the cache region, loading it with the given loader on a miss. The
+     * loaded object is put into the region with the default element attributes. While a load for
+     * a key is running, other callers asking for the same key wait for it instead of starting
+     * their own.
+     * <p>
+     * @param name Key the object is stored as
+     * @param loader produces the object on a miss
+     * @return The cached or loaded object, or null if the loader returned null
+     * @throws CacheException if the loader or the put fails
+     */
+    public V get( K name, Callable<V> loader )
+        throws CacheException
+    {
+        if ( name == null )
+        {
+            throw new InvalidArgumentException( "Key must not be null" );
+        }
+
+        if ( loader == null )
+        {
+            throw new InvalidArgumentException( "Loader must not be null" );
+        }
+
+        try
+        {
+            ICacheElement<K, V> element = this.cacheControl.get( name, loader );
+
+            return ( element != null ) ? element.getVal() : null;
+        }
+        catch ( IOException e )
+        {
+            throw new CacheException( e );
+        }
+    }
+
     /**
      * Retrieve matching objects from the cache region this instance provides access to.
      * <p>
@@ -145,6 +211,40 @@ public class CacheAccess<K extends Serializable, V extends Serializable>
         return this.cacheControl.getMultiple( names );
     }
 
+    /**
+     * Get multiple elements from the cache without blocking on the auxiliaries. If all of the keys
+     * are in memory the returned future is already complete.
+     * <p>
+     * @param names set of Serializable cache keys
+     * @return a future holding a map of K key to ICacheElement<K, V> element
+     */
+    public Future<Map<K, ICacheElement<K, V>>> getCacheElementsAsync( final Set<K> names )
+    {
+        Callable<Map<K, ICacheElement<K, V>>> task = new Callable<Map<K, ICacheElement<K, V>>>()
+        {
+            public Map<K, ICacheElement<K, V>> call()
+            {
+                return getCacheElements( names );
+            }
+        };
+
+        boolean allInMemory = true;
+        for ( K name : names )
+        {
+            if ( !isInMemory( name ) )
+            {
+                allInMemory = false;
+                break;
+            }
+        }
+
+        if ( allInMemory )
+        {
+            return runNow( task );
+        }
+        return submitAsync( task );
+    }
+
     /**
      * Get multiple elements from the cache based on a set of cache keys.
      * <p>
@@ -180,12 +280,166 @@ public class CacheAccess<K extends Serializable, V extends Serializable>
     public void putSafe( K key, V value )
         throws CacheException
     {
-        if ( this.cacheControl.get( key ) != null )
+        if ( putIfAbsent( key, value ) != null )
         {
             throw new ObjectExistsException( "putSafe failed.  Object exists in the cache for key [" + key
                 + "].  Remove first or use a non-safe put to override the value." );
         }
-        put( key, value );
+    }
+
+    /**
+     * Puts the object with the region's default attributes only if no value is cached for the
+     * key. The check and the put are atomic per key within this JVM.
+     * <p>
+     * @param key
+     * @param value
+     * @return the value already cached, or null if the object was put
+     * @throws CacheException
+     */
+    public V putIfAbsent( K key, V value )
+        throws CacheException
+    {
+        try
+        {
+            ICacheElement<K, V> current = this.cacheControl.putIfAbsent( createElement( key, value ) );
+
+            return ( current != null ) ? current.getVal() : null;
+        }
+        catch ( IOException e )
+        {
+            throw new CacheException( e );
+        }
+    }
+
+    /**
+     * Replaces the value for the key with the new one, using the region's default attributes,
+     * only if the cached value equals the old one.
+     * <p>
+     * @param key
+     * @param oldValue
+     * @param newValue
+     * @return true if the value was replaced
+     * @throws CacheException
+     */
+    public boolean replace( K key, V oldValue, V newValue )
+        throws CacheException
+    {
+        if ( oldValue == null )
+        {
+            throw new InvalidArgumentException( "Old value must not be null" );
+        }
+
+        try
+        {
+            return this.cacheControl.replace( oldValue, createElement( key, newValue ) );
+        }
+        catch ( IOException e )
+        {
+            throw new CacheException( e );
+        }
+    }
+
+    /**
+     * Returns the cached value for the key, or computes and puts one with the region's default
+     * attributes. The computed value is only put if the key is still absent once it is ready.
+     * The loader runs without the key locked and may use other keys of this region.
+     * <p>
+     * @param key
+     * @param loader
+     * @return the current or computed value, or null if the loader returned null
+     * @throws CacheException if the loader or the put fails
+     */
+    public V computeIfAbsent( K key, Callable<V> loader )
+        throws CacheException
+    {
+        if ( key == null )
+        {
+            throw new InvalidArgumentException( "Key must not be null" );
+        }
+
+        if ( loader == null )
+        {
+            throw new InvalidArgumentException( "Loader must not be null" );
+        }
+
+        try
+        {
+            ICacheElement<K, V> element = this.cacheControl.computeIfAbsent( key, loader );
+
+            return ( element != null ) ? element.getVal() : null;
+        }
+        catch ( IOException e )
+        {
+            throw new CacheException( e );
+        }
+    }
+
+    /**
+     * Puts the value if nothing is cached for the key, otherwise puts the merger's result. A
+     * merged value keeps the attributes of the element it replaces. The merger runs without the
+     * key locked and is called again if the value changed meanwhile, so it should have no side
+     * effects.
+     * <p>
+     * @param key
+     * @param value
+     * @param merger
+     * @return the value now cached, or null if the merger removed it
+     * @throws CacheException if the merger or the put fails
+     */
+    public V merge( K key, V value, IValueMerger<V> merger )
+        throws CacheException
+    {
+        if ( key == null )
+        {
+            throw new InvalidArgumentException( "Key must not be null" );
+        }
+
+        if ( value == null )
+        {
+            throw new InvalidArgumentException( "Value must not be null" );
+        }
+
+        if ( merger == null )
+        {
+            throw new InvalidArgumentException( "Merger must not be null" );
+        }
+
+        try
+        {
+            ICacheElement<K, V> element = this.cacheControl.merge( key, value, merger );
+
+            return ( element != null ) ? element.getVal() : null;
+        }
+        catch ( IOException e )
+        {
+            throw new CacheException( e );
+        }
+    }
+
+    /**
+     * Creates an element with a copy of the region's default attributes.
+     * <p>
+     * @param key
+     * @param value
+     * @return the element
+     * @throws InvalidArgumentException if the key or the value is null
+     */
+    private CacheElement<K, V> createElement( K key, V value )
+        throws InvalidArgumentException
+    {
+        if ( key == null )
+        {
+            throw new InvalidArgumentException( "Key must not be null" );
+        }
+
+        if ( value == null )
+        {
+            throw new InvalidArgumentException( "Value must not be null" );
+        }
+
+        CacheElement<K, V> ce = new CacheElement<K, V>( this.cacheControl.getCacheName(), key, value );
+        ce.setElementAttributes( this.cacheControl.getElementAttributes() );
+        return ce;
     }
 
     /**
@@ -242,6 +496,68 @@ public class CacheAccess<K extends Serializable, V extends Serializable>
         }
     }
 
+    /**
+     * Puts the object on the asynchronous access pool. Validation failures and other
+     * CacheExceptions surface as the cause of the ExecutionException thrown by the future.
+     * <p>
+     * @param name Key object will be stored with
+     * @param obj Object to store
+     * @return a future that completes once the put is done
+     */
+    public Future<Void> putAsync( final K name, final V obj )
+    {
+        return submitAsync( new Callable<Void>()
+        {
+            public Void call()
+                throws CacheException
+            {
+                put( name, obj );
+                return null;
+            }
+        } );
+    }
+
+    /**
+     * Puts all of the entries with a copy of the region's default attributes each. The elements
+     * are handed to the cache as one batch, so each auxiliary gets a single updateMultiple call.
+     * <p>
+     * If a key or a value is null, an InvalidArgumentException is thrown and nothing is put.
+     * <p>
+     * @param entries
+     * @throws CacheException
+     */
+    public void putAll( Map<K, V> entries )
+        throws CacheException
+    {
+        List<ICacheElement<K, V>> cacheElements = new ArrayList<ICacheElement<K, V>>( entries.size() );
+        for ( Map.Entry<K, V> entry : entries.entrySet() )
+        {
+            if ( entry.getKey() == null )
+            {
+                throw new InvalidArgumentException( "Key must not be null" );
+            }
+
+            if ( entry.getValue() == null )
+            {
+                throw new InvalidArgumentException( "Value must not be null" );
+            }
+
+            CacheElement<K, V> ce = new CacheElement<K, V>( this.cacheControl.getCacheName(), entry.getKey(),
+                                                            entry.getValue() );
+            ce.setElementAttributes( this.cacheControl.getElementAttributes() );
+            cacheElements.add( ce );
+        }
+
+        try
+        {
+            this.cacheControl.updateMultiple( cacheElements );
+        }
+        catch ( IOException e )
+        {
+            throw new CacheException( e );
+        }
+    }
+
     /**
      * Removes a single item by name.
      * <p>
@@ -254,6 +570,61 @@ public class CacheAccess<K extends Serializable, V extends Serializable>
         this.cacheControl.remove( name );
     }
 
+    /**
+     * Removes all of the keys. They are handed to the cache as one batch, so each auxiliary gets a
+     * single removeMultiple call.
+     * <p>
+     * @param names
+     * @throws CacheException
+     */
+    public void removeAll( Set<K> names )
+        throws CacheException
+    {
+        this.cacheControl.removeMultiple( names );
+    }
+
+    /**
+     * Removes a single item by name on the asynchronous access pool.
+     * <p>
+     * @param name the name of the item to remove.
+     * @return a future that completes once the item is removed
+     */
+    public Future<Void> removeAsync( final K name )
+    {
+        return submitAsync( new Callable<Void>()
+        {
+            public Void call()
+                throws CacheException
+            {
+                remove( name );
+                return null;
+            }
+        } );
+    }
+
+    /**
+     * Checks the memory cache without touching the element's position or last access time.
+     * <p>
+     * @param name
+     * @return true if the memory cache currently holds the key
+     */
+    private boolean isInMemory( K name )
+    {
+        if ( name == null )
+        {
+            return false;
+        }
+
+        try
+        {
+            return this.cacheControl.getMemoryCache().getQuiet( name ) != null;
+        }
+        catch ( IOException e )
+        {
+            return false;
+        }
+    }
+
     /**
      * Reset attributes for a particular element in the cache. NOTE: this method is currently not
      * implemented.
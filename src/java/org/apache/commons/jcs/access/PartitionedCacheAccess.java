@@ -25,6 +25,8 @@ import java.util.HashMap;
 import java.util.HashSet;
 import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.Future;
 
 import org.apache.commons.jcs.JCS;
 import org.apache.commons.jcs.access.behavior.ICacheAccess;
@@ -33,6 +35,7 @@ import org.apache.commons.jcs.access.exception.ConfigurationException;
 import org.apache.commons.jcs.engine.behavior.ICacheElement;
 import org.apache.commons.jcs.engine.behavior.ICompositeCacheAttributes;
 import org.apache.commons.jcs.engine.behavior.IElementAttributes;
+import org.apache.commons.jcs.engine.behavior.IValueMerger;
 import org.apache.commons.jcs.engine.stats.behavior.ICacheStats;
 import org.apache.commons.jcs.utils.props.AbstractPropertyContainer;
 import org.apache.commons.logging.Log;
@@ -142,6 +145,112 @@ public class PartitionedCacheAccess<K extends Serializable, V extends Serializab
         partitions[partition].putSafe( key, object );
     }
 
+    /**
+     * Calls putIfAbsent on the appropriate cache partition.
+     * <p>
+     * @param key
+     * @param object
+     * @return the value already cached, or null if the object was put
+     * @throws CacheException
+     */
+    public V putIfAbsent( K key, V object )
+        throws CacheException
+    {
+        if ( key == null || object == null )
+        {
+            log.warn( "Bad input key [" + key + "].  Cannot putIfAbsent null into the cache." );
+            return null;
+        }
+
+        if (!ensureInit())
+        {
+            return null;
+        }
+
+        int partition = getPartitionNumberForKey( key );
+        return partitions[partition].putIfAbsent( key, object );
+    }
+
+    /**
+     * Calls replace on the appropriate cache partition.
+     * <p>
+     * @param key
+     * @param oldValue
+     * @param newValue
+     * @return true if the value was replaced
+     * @throws CacheException
+     */
+    public boolean replace( K key, V oldValue, V newValue )
+        throws CacheException
+    {
+        if ( key == null || oldValue == null || newValue == null )
+        {
+            log.warn( "Bad input key [" + key + "].  Cannot replace null in the cache." );
+            return false;
+        }
+
+        if (!ensureInit())
+        {
+            return false;
+        }
+
+        int partition = getPartitionNumberForKey( key );
+        return partitions[partition].replace( key, oldValue, newValue );
+    }
+
+    /**
+     * Calls computeIfAbsent on the appropriate cache partition.
+     * <p>
+     * @param key
+     * @param loader
+     * @return the current or computed value
+     * @throws CacheException
+     */
+    public V computeIfAbsent( K key, Callable<V> loader )
+        throws CacheException
+    {
+        if ( key == null )
+        {
+            log.warn( "Input key is null." );
+            return null;
+        }
+
+        if (!ensureInit())
+        {
+            return null;
+        }
+
+        int partition = getPartitionNumberForKey( key );
+        return partitions[partition].computeIfAbsent( key, loader );
+    }
+
+    /**
+     * Calls merge on the appropriate cache partition.
+     * <p>
+     * @param key
+     * @param object
+     * @param merger
+     * @return the value now cached, or null if it was removed
+     * @throws CacheException
+     */
+    public V merge( K key, V object, IValueMerger<V> merger )
+        throws CacheException
+    {
+        if ( key == null || object == null )
+        {
+            log.warn( "Bad input key [" + key + "].  Cannot merge null into the cache." );
+            return null;
+        }
+
+        if (!ensureInit())
+        {
+            return null;
+        }
+
+        int partition = getPartitionNumberForKey( key );
+        return partitions[partition].merge( key, object, merger );
+    }
+
     /**
      * Puts the value into the appropriate cache partition.
      * <p>
@@ -201,6 +310,57 @@ public class PartitionedCacheAccess<K extends Serializable, V extends Serializab
         return partitions[partition].get( key );
     }
 
+    /**
+     * Gets the object for the key from the desired partition, loading it there on a miss.
+     * <p>
+     * @param key key
+     * @param loader produces the value on a miss
+     * @return result, null if the key is null or the loader returned null.
+     * @throws CacheException if the loader fails
+     */
+    public V get( K key, Callable<V> loader )
+        throws CacheException
+    {
+        if ( key == null )
+        {
+            log.warn( "Input key is null." );
+            return null;
+        }
+
+        if (!ensureInit())
+        {
+            return null;
+        }
+
+        int partition = getPartitionNumberForKey( key );
+
+        return partitions[partition].get( key, loader );
+    }
+
+    /**
+     * Gets the object for the key from the desired partition without blocking on its auxiliaries.
+     * <p>
+     * @param key key
+     * @return a future holding the result, null if not found.
+     */
+    public Future<V> getAsync( final K key )
+    {
+        if ( key == null || !ensureInit() )
+        {
+            return AbstractCacheAccess.runNow( new Callable<V>()
+            {
+                public V call()
+                {
+                    return get( key );
+                }
+            } );
+        }
+
+        int partition = getPartitionNumberForKey( key );
+
+        return partitions[partition].getAsync( key );
+    }
+
     /**
      * Gets the ICacheElement<K, V> (the wrapped object) for the key from the desired partition.
      * <p>
@@ -268,6 +428,23 @@ public class PartitionedCacheAccess<K extends Serializable, V extends Serializab
         return result;
     }
 
+    /**
+     * Runs getCacheElements on the asynchronous access pool.
+     * <p>
+     * @param names
+     * @return a future holding the map of keys to ICacheElement
+     */
+    public Future<Map<K, ICacheElement<K, V>>> getCacheElementsAsync( final Set<K> names )
+    {
+        return AbstractCacheAccess.submitAsync( new Callable<Map<K, ICacheElement<K, V>>>()
+        {
+            public Map<K, ICacheElement<K, V>> call()
+            {
+                return getCacheElements( names );
+            }
+        } );
+    }
+
     /**
      * This is tricky. Do we need to get from all the partitions?
      * <p>
@@ -358,6 +535,145 @@ public class PartitionedCacheAccess<K extends Serializable, V extends Serializab
         }
     }
 
+    /**
+     * Divides the entries by partition and puts each part into its partition as one batch.
+     * <p>
+     * @param entries
+     * @throws CacheException
+     */
+    public void putAll( Map<K, V> entries )
+        throws CacheException
+    {
+        if ( entries == null )
+        {
+            log.warn( "Bad input entries cannot be null." );
+            return;
+        }
+
+        if (!ensureInit())
+        {
+            return;
+        }
+
+        @SuppressWarnings({ "unchecked", "rawtypes" }) // No generic arrays in java
+        Map<K, V>[] dividedEntries = new Map[this.getNumberOfPartitions()];
+
+        for ( Map.Entry<K, V> entry : entries.entrySet() )
+        {
+            int partition = getPartitionNumberForKey( entry.getKey() );
+            if ( dividedEntries[partition] == null )
+            {
+                dividedEntries[partition] = new HashMap<K, V>();
+            }
+            dividedEntries[partition].put( entry.getKey(), entry.getValue() );
+        }
+
+        for ( int i = 0; i < partitions.length; i++ )
+        {
+            if ( dividedEntries[i] != null )
+            {
+                try
+                {
+                    partitions[i].putAll( dividedEntries[i] );
+                }
+                catch ( CacheException e )
+                {
+                    log.error( "Problem putting " + dividedEntries[i].size() + " values in cache [" + partitions[i] + "]" );
+                    throw ( e );
+                }
+            }
+        }
+    }
+
+    /**
+     * Divides the keys by partition and removes each part from its partition as one batch.
+     * <p>
+     * @param names
+     * @throws CacheException
+     */
+    public void removeAll( Set<K> names )
+        throws CacheException
+    {
+        if ( names == null )
+        {
+            log.warn( "Bad input names cannot be null." );
+            return;
+        }
+
+        if (!ensureInit())
+        {
+            return;
+        }
+
+        @SuppressWarnings({ "unchecked", "rawtypes" }) // No generic arrays in java
+        Set<K>[] dividedNames = new Set[this.getNumberOfPartitions()];
+
+        for ( K key : names )
+        {
+            int partition = getPartitionNumberForKey( key );
+            if ( dividedNames[partition] == null )
+            {
+                dividedNames[partition] = new HashSet<K>();
+            }
+            dividedNames[partition].add( key );
+        }
+
+        for ( int i = 0; i < partitions.length; i++ )
+        {
+            if ( dividedNames[i] != null )
+            {
+                try
+                {
+                    partitions[i].removeAll( dividedNames[i] );
+                }
+                catch ( CacheException e )
+                {
+                    log.error( "Problem removing " + dividedNames[i].size() + " values in cache [" + partitions[i] + "]" );
+                    throw ( e );
+                }
+            }
+        }
+    }
+
+    /**
+     * Runs put on the asynchronous access pool.
+     * <p>
+     * @param key key
+     * @param object object
+     * @return a future that completes once the put is done
+     */
+    public Future<Void> putAsync( final K key, final V object )
+    {
+        return AbstractCacheAccess.submitAsync( new Callable<Void>()
+        {
+            public Void call()
+                throws CacheException
+            {
+                put( key, object );
+                return null;
+            }
+        } );
+    }
+
+    /**
+     * Runs remove on the asynchronous access pool.
+     * <p>
+     * @param key
+     * @return a future that completes once the item is removed
+     */
+    public Future<Void> removeAsync( final K key )
+    {
+        return AbstractCacheAccess.submitAsync( new Callable<Void>()
+        {
+            public Void call()
+                throws CacheException
+            {
+                remove( key );
+                return null;
+            }
+        } );
+    }
+
     /**
      * Calls free on each partition.
      * <p>
@@ -625,13 +941,19 @@ public class PartitionedCacheAccess<K extends Serializable, V extends Serializab
     }
 
     /**
-     * This can be overridden for special purposes.
+     * This can be overridden for special purposes. Integral number keys are used as they are,
+     * without going through their string form.
      * <p>
      * @param key key
      * @return long
      */
     public long getNumericValueForKey( K key )
     {
+        if ( key instanceof Long || key instanceof Integer || key instanceof Short || key instanceof Byte )
+        {
+            return ( (Number) key ).longValue();
+        }
+
         String keyString = key.toString();
         long keyNum = -1;
         try
@@ -22,10 +22,13 @@ package org.apache.commons.jcs.access.behavior;
 import java.io.Serializable;
 import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.Future;
 
 import org.apache.commons.jcs.access.exception.CacheException;
 import org.apache.commons.jcs.engine.behavior.ICacheElement;
 import org.apache.commons.jcs.engine.behavior.IElementAttributes;
+import org.apache.commons.jcs.engine.behavior.IValueMerger;
 
 /**
  * ICacheAccess defines the behavior for client access.
@@ -41,6 +44,81 @@ public interface ICacheAccess<K extends Serializable, V extends Serializable>
      */
     V get( K name );
 
+    /**
+     * Asynchronous get. Memory hits complete before the method returns. Anything that has to go
+     * to an auxiliary is looked up on a pool thread, so the caller is never blocked by a disk,
+     * lateral or remote round trip.
+     * <p>
+     * @param name
+     * @return a future holding the object, or null if not found.
+     */
+    Future<V> getAsync( K name );
+
+    /**
+     * Read-through get. If the object is not cached the loader is called and its result is put
+     * into the region. Concurrent misses on the same key call the loader only once; the other
+     * callers wait for that result.
+     * <p>
+     * @param name
+     * @param loader produces the value on a miss. A null result is not cached.
+     * @return the cached or loaded object, or null if the loader returned null
+     * @throws CacheException if the loader fails
+     */
+    V get( K name, Callable<V> loader )
+        throws CacheException;
+
+    /**
+     * Puts the object only if the region holds no value for the name. The check and the put are
+     * atomic per key within this JVM.
+     * <p>
+     * @param name
+     * @param obj
+     * @return the value already cached, or null if the object was put
+     * @throws CacheException
+     */
+    V putIfAbsent( K name, V obj )
+        throws CacheException;
+
+    /**
+     * Replaces the value for the name only if it currently equals the old value. The comparison
+     * and the put are atomic per key within this JVM.
+     * <p>
+     * @param name
+     * @param oldValue
+     * @param newValue
+     * @return true if the value was replaced
+     * @throws CacheException
+     */
+    boolean replace( K name, V oldValue, V newValue )
+        throws CacheException;
+
+    /**
+     * Returns the cached value for the name, or computes and puts one if there is none. The
+     * computed value is only put if the name is still absent when it is ready, within this JVM.
+     * <p>
+     * @param name
+     * @param loader computes the value. A null result is not cached.
+     * @return the current or computed value
+     * @throws CacheException if the loader or the put fails
+     */
+    V computeIfAbsent( K name, Callable<V> loader )
+        throws CacheException;
+
+    /**
+     * Puts the value if the region holds none for the name, otherwise puts the result of merging
+     * the current value with it. A null result from the merger removes the name. No concurrent
+     * update of the name within this JVM is lost, the merger is called again if the value
+     * changed while it ran.
+     * <p>
+     * @param name
+     * @param value
+     * @param merger
+     * @return the value now cached, or null if it was removed
+     * @throws CacheException if the merger or the put fails
+     */
+    V merge( K name, V value, IValueMerger<V> merger )
+        throws CacheException;
+
     /**
      * Retrieve matching objects from the cache region this instance provides access to.
      * <p>
@@ -80,6 +158,26 @@ public interface ICacheAccess<K extends Serializable, V extends Serializable>
     void put( K name, V obj, IElementAttributes attr )
         throws CacheException;
 
+    /**
+     * Asynchronous put. The put runs on a pool thread. Any CacheException is reported through the
+     * returned future.
+     * <p>
+     * @param name
+     * @param obj
+     * @return a future that completes when the element has been put
+     */
+    Future<Void> putAsync( K name, V obj );
+
+    /**
+     * Puts all of the entries in the map into the region with the default element attributes.
+     * The auxiliaries receive the entries as one batch.
+     * <p>
+     * @param entries
+     * @throws CacheException
+     */
+    void putAll( Map<K, V> entries )
+        throws CacheException;
+
     /**
      * This method returns the ICacheElement<K, V> wrapper which provides access to element info and other
      * attributes.
@@ -117,6 +215,15 @@ public interface ICacheAccess<K extends Serializable, V extends Serializable>
      */
     Map<K, ICacheElement<K, V>> getCacheElements( Set<K> names );
 
+    /**
+     * Asynchronous version of getCacheElements. If every key is in memory the result is computed
+     * before the method returns, otherwise the lookup runs on a pool thread.
+     * <p>
+     * @param names set of Object cache keys
+     * @return a future holding the map of Object key to ICacheElement<K, V> element
+     */
+    Future<Map<K, ICacheElement<K, V>>> getCacheElementsAsync( Set<K> names );
+
     /**
      * Get multiple elements from the cache based on a set of cache keys.
      * <p>
@@ -146,6 +253,24 @@ public interface ICacheAccess<K extends Serializable, V extends Serializable>
     void remove( K name )
         throws CacheException;
 
+    /**
+     * Asynchronous remove. The removal runs on a pool thread. Any CacheException is reported
+     * through the returned future.
+     * <p>
+     * @param name
+     * @return a future that completes when the element has been removed
+     */
+    Future<Void> removeAsync( K name );
+
+    /**
+     * Removes all of the keys from the region. The auxiliaries receive the keys as one batch.
+     * <p>
+     * @param names
+     * @throws CacheException
+     */
+    void removeAll( Set<K> names )
+        throws CacheException;
+
     /**
      * Reset the attributes on the object matching this key name.
      * <p>
@@ -1,6 +1,9 @@
 package org.apache.commons.jcs.auxiliary;
 
+import java.io.IOException;
 import java.io.Serializable;
+import java.util.List;
+import java.util.Set;
 
 import org.apache.commons.jcs.engine.behavior.ICacheElement;
 import org.apache.commons.jcs.engine.behavior.IElementSerializer;
@@ -27,6 +30,36 @@ public abstract class AbstractAuxiliaryCache<K extends Serializable, V extends S
     /** Key matcher used by the getMatching API */
     protected IKeyMatcher<K> keyMatcher = new KeyMatcherPatternImpl<K>();
 
+    /**
+     * Puts the items one at a time. Auxiliaries that can write a batch at once override this.
+     * <p>
+     * @param cacheElements
+     * @throws IOException
+     */
+    public void updateMultiple( List<ICacheElement<K, V>> cacheElements )
+        throws IOException
+    {
+        for ( ICacheElement<K, V> cacheElement : cacheElements )
+        {
+            update( cacheElement );
+        }
+    }
+
+    /**
+     * Removes the keys one at a time. Auxiliaries that can remove a batch at once override this.
+     * <p>
+     * @param keys
+     * @throws IOException
+     */
+    public void removeMultiple( Set<K> keys )
+        throws IOException
+    {
+        for ( K key : keys )
+        {
+            remove( key );
+        }
+    }
+
     /**
      * Logs an event if an event logger is configured.
      * <p>
@@ -2,6 +2,9 @@ package org.apache.commons.jcs.auxiliary;
 
 import java.io.IOException;
 import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
 import java.util.Map;
 import java.util.Set;
 
@@ -62,6 +65,56 @@ public abstract class AbstractAuxiliaryCacheEventLogging<K extends Serializable,
     protected abstract void processUpdate( ICacheElement<K, V> cacheElement )
         throws IOException;
 
+    /**
+     * Puts a batch of items into the cache.
+     * <p>
+     * @param cacheElements
+     * @throws IOException
+     */
+    @Override
+    public void updateMultiple( List<ICacheElement<K, V>> cacheElements )
+        throws IOException
+    {
+        updateMultipleWithEventLogging( cacheElements );
+    }
+
+    /**
+     * Puts a batch of items into the cache. Wrapped in logging.
+     * <p>
+     * @param cacheElements
+     * @throws IOException
+     */
+    protected final void updateMultipleWithEventLogging( List<ICacheElement<K, V>> cacheElements )
+        throws IOException
+    {
+        ICacheEvent<Serializable> cacheEvent = createICacheEvent( getCacheName(), toLoggable( cacheElements ),
+                                                    ICacheEventLogger.UPDATEMULTIPLE_EVENT );
+        try
+        {
+            processUpdateMultiple( cacheElements );
+        }
+        finally
+        {
+            logICacheEvent( cacheEvent );
+        }
+    }
+
+    /**
+     * Implementation of updateMultiple. By default this puts the items one at a time.
+     * Auxiliaries that can write a batch at once override it.
+     * <p>
+     * @param cacheElements
+     * @throws IOException
+     */
+    protected void processUpdateMultiple( List<ICacheElement<K, V>> cacheElements )
+        throws IOException
+    {
+        for ( ICacheElement<K, V> cacheElement : cacheElements )
+        {
+            processUpdate( cacheElement );
+        }
+    }
+
     /**
      * Gets the item from the cache.
      * <p>
@@ -131,7 +184,7 @@ public abstract class AbstractAuxiliaryCacheEventLogging<K extends Serializable,
     protected final Map<K, ICacheElement<K, V>> getMultipleWithEventLogging(Set<K> keys )
         throws IOException
     {
-        ICacheEvent<Serializable> cacheEvent = createICacheEvent( getCacheName(), (Serializable) keys,
+        ICacheEvent<Serializable> cacheEvent = createICacheEvent( getCacheName(), toLoggable( keys ),
                                                     ICacheEventLogger.GETMULTIPLE_EVENT );
         try
         {
@@ -251,6 +304,56 @@ public abstract class AbstractAuxiliaryCacheEventLogging<K extends Serializable,
     protected abstract boolean processRemove( K key )
         throws IOException;
 
+    /**
+     * Removes a batch of items from the cache.
+     * <p>
+     * @param keys
+     * @throws IOException
+     */
+    @Override
+    public void removeMultiple( Set<K> keys )
+        throws IOException
+    {
+        removeMultipleWithEventLogging( keys );
+    }
+
+    /**
+     * Removes a batch of items from the cache. Wrapped in logging.
+     * <p>
+     * @param keys
+     * @throws IOException
+     */
+    protected final void removeMultipleWithEventLogging( Set<K> keys )
+        throws IOException
+    {
+        ICacheEvent<Serializable> cacheEvent = createICacheEvent( getCacheName(), toLoggable( keys ),
+                                                    ICacheEventLogger.REMOVEMULTIPLE_EVENT );
+        try
+        {
+            processRemoveMultiple( keys );
+        }
+        finally
+        {
+            logICacheEvent( cacheEvent );
+        }
+    }
+
+    /**
+     * Implementation of removeMultiple. By default this removes the keys one at a time.
+     * Auxiliaries that can remove a batch at once override it.
+     * <p>
+     * @param keys
+     * @throws IOException
+     */
+    protected void processRemoveMultiple( Set<K> keys )
+        throws IOException
+    {
+        for ( K key : keys )
+        {
+            processRemove( key );
+        }
+    }
+
     /**
      * Removes all from the region. Wraps the removeAll in event logs.
      * <p>
@@ -327,4 +430,28 @@ public abstract class AbstractAuxiliaryCacheEventLogging<K extends Serializable,
      */
     protected abstract void processDispose()
         throws IOException;
+
+    /**
+     * The event log needs a serializable key. Sets that are not serializable, such as the key set
+     * of a map, are copied.
+     * <p>
+     * @param keys
+     * @return the keys, or a serializable copy of them
+     */
+    private static Serializable toLoggable( Set<?> keys )
+    {
+        return keys instanceof Serializable ? (Serializable) keys : new HashSet<Object>( keys );
+    }
+
+    /**
+     * The event log needs a serializable key. Lists that are not serializable, such as a sub
+     * list, are copied.
+     * <p>
+     * @param items
+     * @return the items, or a serializable copy of them
+     */
+    private static Serializable toLoggable( List<?> items )
+    {
+        return items instanceof Serializable ? (Serializable) items : new ArrayList<Object>( items );
+    }
 }
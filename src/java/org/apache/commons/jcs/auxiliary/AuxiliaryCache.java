@@ -21,9 +21,11 @@ package org.apache.commons.jcs.auxiliary;
 
 import java.io.IOException;
 import java.io.Serializable;
+import java.util.List;
 import java.util.Set;
 
 import org.apache.commons.jcs.engine.behavior.ICache;
+import org.apache.commons.jcs.engine.behavior.ICacheElement;
 import org.apache.commons.jcs.engine.behavior.IElementSerializer;
 import org.apache.commons.jcs.engine.logging.behavior.ICacheEventLogger;
 import org.apache.commons.jcs.engine.stats.behavior.IStats;
@@ -48,6 +50,24 @@ public interface AuxiliaryCache<K extends Serializable, V extends Serializable>
      */
     Set<K> getKeySet() throws IOException;
 
+    /**
+     * Puts a batch of items into the cache. Auxiliaries that can write several items at once, in
+     * a single disk write, statement batch or network call, do so. The others put them one at a
+     * time.
+     * <p>
+     * @param cacheElements the items to put
+     * @throws IOException if access to the auxiliary cache fails
+     */
+    void updateMultiple( List<ICacheElement<K, V>> cacheElements ) throws IOException;
+
+    /**
+     * Removes a batch of items from the cache, in one operation if the auxiliary supports it.
+     * <p>
+     * @param keys the keys to remove
+     * @throws IOException if access to the auxiliary cache fails
+     */
+    void removeMultiple( Set<K> keys ) throws IOException;
+
     /**
      * @return the historical and statistical data for a region's auxiliary cache.
      */
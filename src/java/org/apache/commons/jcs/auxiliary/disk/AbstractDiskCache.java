@@ -37,6 +37,7 @@ import org.apache.commons.jcs.engine.CacheEventQueueFactory;
 import org.apache.commons.jcs.engine.CacheInfo;
 import org.apache.commons.jcs.engine.CacheStatus;
 import org.apache.commons.jcs.engine.behavior.ICache;
+import org.apache.commons.jcs.engine.behavior.ICacheBulkListener;
 import org.apache.commons.jcs.engine.behavior.ICacheElement;
 import org.apache.commons.jcs.engine.behavior.ICacheEventQueue;
 import org.apache.commons.jcs.engine.behavior.ICacheListener;
@@ -213,6 +214,49 @@ public abstract class AbstractDiskCache<K extends Serializable, V extends Serial
         }
     }
 
+    /**
+     * Adds the provided elements to purgatory and queues a single event to write them. The event
+     * listener writes all the elements that are still spoolable in one call to
+     * processUpdateMultiple.
+     * <p>
+     * @param cacheElements
+     * @throws IOException
+     */
+    @Override
+    public final void updateMultiple( List<ICacheElement<K, V>> cacheElements )
+        throws IOException
+    {
+        if ( log.isDebugEnabled() )
+        {
+            log.debug( "Putting " + cacheElements.size() + " elements in purgatory, cacheName: " + cacheName );
+        }
+
+        try
+        {
+            List<ICacheElement<K, V>> pes = new ArrayList<ICacheElement<K, V>>( cacheElements.size() );
+
+            synchronized ( purgatory )
+            {
+                for ( ICacheElement<K, V> cacheElement : cacheElements )
+                {
+                    PurgatoryElement<K, V> pe = new PurgatoryElement<K, V>( cacheElement );
+                    pe.setSpoolable( true );
+                    purgatory.put( pe.getKey(), pe );
+                    pes.add( pe );
+                }
+            }
+
+            // Queue the batch for serialization
+            cacheEventQueue.addPutMultipleEvent( pes );
+        }
+        catch ( IOException ex )
+        {
+            log.error( "Problem adding put multiple event to queue.", ex );
+
+            cacheEventQueue.destroy();
+        }
+    }
+
     /**
      * Check to see if the item is in purgatory. If so, return it. If not, check to see if we have
      * it on disk.
@@ -413,6 +457,44 @@ public abstract class AbstractDiskCache<K extends Serializable, V extends Serial
         return false;
     }
 
+    /**
+     * Removes the keys from purgatory, so that queued writes for them are skipped, and then from
+     * the persistent store in one call to processRemoveMultiple.
+     * <p>
+     * @param keys
+     * @throws IOException
+     */
+    @Override
+    public final void removeMultiple( Set<K> keys )
+        throws IOException
+    {
+        List<PurgatoryElement<K, V>> pes = new ArrayList<PurgatoryElement<K, V>>();
+
+        synchronized ( purgatory )
+        {
+            for ( K key : keys )
+            {
+                PurgatoryElement<K, V> pe = purgatory.remove( key );
+                if ( pe != null )
+                {
+                    pes.add( pe );
+                }
+            }
+        }
+
+        for ( PurgatoryElement<K, V> pe : pes )
+        {
+            // waits for a write of the element that is in progress
+            synchronized ( pe.getCacheElement() )
+            {
+                pe.setSpoolable( false );
+            }
+        }
+
+        // Remove from persistent store immediately
+        doRemoveMultiple( keys );
+    }
+
     /**
      * @throws IOException
      * @see org.apache.commons.jcs.engine.behavior.ICache#removeAll
@@ -591,7 +673,7 @@ public abstract class AbstractDiskCache<K extends Serializable, V extends Serial
      * parent class.
      */
     protected class MyCacheListener
-        implements ICacheListener<K, V>
+        implements ICacheBulkListener<K, V>
     {
         /** Id of the listener */
         private long listenerId = 0;
@@ -702,6 +784,111 @@ public abstract class AbstractDiskCache<K extends Serializable, V extends Serial
             }
         }
 
+        /**
+         * Writes the elements of a batch that are still in purgatory and spoolable with one call
+         * to the child's implementation. Elements removed while the batch was being written are
+         * removed from the store again afterwards.
+         * <p>
+         * @param elements
+         * @throws IOException
+         * @see ICacheBulkListener#handlePutMultiple
+         */
+        public void handlePutMultiple( List<ICacheElement<K, V>> elements )
+            throws IOException
+        {
+            if ( !alive )
+            {
+                synchronized ( purgatory )
+                {
+                    for ( ICacheElement<K, V> element : elements )
+                    {
+                        if ( purgatory.get( element.getKey() ) == element )
+                        {
+                            purgatory.remove( element.getKey() );
+                        }
+                    }
+                }
+                return;
+            }
+
+            List<ICacheElement<K, V>> toWrite = new ArrayList<ICacheElement<K, V>>( elements.size() );
+            List<PurgatoryElement<K, V>> written = new ArrayList<PurgatoryElement<K, V>>( elements.size() );
+
+            removeAllLock.readLock().lock();
+            try
+            {
+                synchronized ( purgatory )
+                {
+                    for ( ICacheElement<K, V> element : elements )
+                    {
+                        if ( element instanceof PurgatoryElement )
+                        {
+                            PurgatoryElement<K, V> pe = (PurgatoryElement<K, V>) element;
+                            // If the element has already been removed from purgatory do nothing
+                            if ( purgatory.get( pe.getKey() ) == pe && pe.isSpoolable() )
+                            {
+                                toWrite.add( pe.getCacheElement() );
+                                written.add( pe );
+                            }
+                        }
+                        else
+                        {
+                            toWrite.add( element );
+                        }
+                    }
+                }
+
+                if ( !toWrite.isEmpty() )
+                {
+                    doUpdateMultiple( toWrite );
+                }
+            }
+            finally
+            {
+                removeAllLock.readLock().unlock();
+            }
+
+            for ( PurgatoryElement<K, V> pe : written )
+            {
+                boolean removed;
+                synchronized ( pe.getCacheElement() )
+                {
+                    removed = !pe.isSpoolable();
+                }
+
+                if ( removed )
+                {
+                    // a remove came in while the batch was being written
+                    doRemove( pe.getKey() );
+                }
+                else
+                {
+                    synchronized ( purgatory )
+                    {
+                        if ( purgatory.get( pe.getKey() ) == pe )
+                        {
+                            purgatory.remove( pe.getKey() );
+                        }
+                    }
+                }
+            }
+        }
+
+        /**
+         * @param cacheName
+         * @param keys
+         * @throws IOException
+         * @see ICacheBulkListener#handleRemoveMultiple
+         */
+        public void handleRemoveMultiple( String cacheName, Set<K> keys )
+            throws IOException
+        {
+            if ( alive )
+            {
+                doRemoveMultiple( keys );
+            }
+        }
+
         /**
          * @param cacheName
          * @param key
@@ -807,6 +994,30 @@ public abstract class AbstractDiskCache<K extends Serializable, V extends Serial
         super.updateWithEventLogging( cacheElement );
     }
 
+    /**
+     * Add a batch of cache elements to the persistent store.
+     * <p>
+     * @param cacheElements
+     * @throws IOException
+     */
+    protected final void doUpdateMultiple( List<ICacheElement<K, V>> cacheElements )
+        throws IOException
+    {
+        super.updateMultipleWithEventLogging( cacheElements );
+    }
+
+    /**
+     * Remove a batch of objects from the persistent store.
+     * <p>
+     * @param keys
+     * @throws IOException
+     */
+    protected final void doRemoveMultiple( Set<K> keys )
+        throws IOException
+    {
+        super.removeMultipleWithEventLogging( keys );
+    }
+
     /**
      * Remove an object from the persistent store if found.
      * <p>
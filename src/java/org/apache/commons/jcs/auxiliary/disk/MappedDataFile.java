@@ -0,0 +1,218 @@
+package org.apache.commons.jcs.auxiliary.disk;
+
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+import java.io.EOFException;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+
+/**
+ * Serves reads of a disk cache data file from read only memory mappings instead of channel reads.
+ * <p>
+ * The file is mapped in segments of a fixed size, each the first time it is read. A segment at the
+ * end of the file is mapped up to the length the file had then, and mapped again when a read goes
+ * past that, so the file can keep growing through the channel. Writes made through the channel are
+ * seen through the mappings. Reads that cross a segment boundary are put together from both.
+ * <p>
+ * The owner must call {@link #reset()} after shrinking the file and must not read while it does:
+ * touching a mapping past the end of the file can crash the JVM. Mappings are released by the
+ * garbage collector, so each segment takes address space, but not heap, until then.
+ */
+public class MappedDataFile
+{
+    /** The logger */
+    private static final Log log = LogFactory.getLog( MappedDataFile.class );
+
+    /** Default segment size, 64 MB */
+    public static final int DEFAULT_SEGMENT_SIZE_BYTES = 64 * 1024 * 1024;
+
+    /** The channel of the data file */
+    private final FileChannel fc;
+
+    /** The size of each segment */
+    private final int segmentSizeBytes;
+
+    /** The mapped segments, null where not mapped yet. Replaced as a whole when it has to grow. */
+    private volatile MappedByteBuffer[] segments = new MappedByteBuffer[0];
+
+    /** How many times a segment was mapped */
+    private final AtomicLong mapCount = new AtomicLong();
+
+    /**
+     * @param fc the channel of the data file
+     */
+    public MappedDataFile( FileChannel fc )
+    {
+        this( fc, DEFAULT_SEGMENT_SIZE_BYTES );
+    }
+
+    /**
+     * @param fc the channel of the data file
+     * @param segmentSizeBytes the size of each mapping
+     */
+    public MappedDataFile( FileChannel fc, int segmentSizeBytes )
+    {
+        this.fc = fc;
+        this.segmentSizeBytes = segmentSizeBytes;
+    }
+
+    /**
+     * Reads a big endian int.
+     * <p>
+     * @param position in the file
+     * @return the int at the position
+     * @throws EOFException if the file ends before the int
+     * @throws IOException
+     */
+    public int readInt( long position )
+        throws IOException
+    {
+        int offset = (int) ( position % segmentSizeBytes );
+        if ( offset <= segmentSizeBytes - 4 )
+        {
+            return segment( position, 4 ).getInt( offset );
+        }
+        return ByteBuffer.wrap( read( position, 4 ) ).getInt();
+    }
+
+    /**
+     * Copies bytes out of the mappings.
+     * <p>
+     * @param position in the file
+     * @param length the number of bytes
+     * @return the bytes
+     * @throws EOFException if the file ends before the last byte
+     * @throws IOException
+     */
+    public byte[] read( long position, int length )
+        throws IOException
+    {
+        byte[] data = new byte[length];
+        int done = 0;
+        while ( done < length )
+        {
+            long at = position + done;
+            int offset = (int) ( at % segmentSizeBytes );
+            int count = Math.min( length - done, segmentSizeBytes - offset );
+
+            // the buffer is shared, so copy through a duplicate with its own position
+            ByteBuffer source = segment( at, count ).duplicate();
+            source.position( offset );
+            source.get( data, done, count );
+            done += count;
+        }
+        return data;
+    }
+
+    /**
+     * Drops all the mappings. Call this after the file was truncated.
+     */
+    public synchronized void reset()
+    {
+        segments = new MappedByteBuffer[0];
+    }
+
+    /**
+     * @return how many times a segment was mapped
+     */
+    public long getMapCount()
+    {
+        return mapCount.get();
+    }
+
+    /**
+     * Gets the segment holding the position, mapping it if it is not mapped or too short.
+     * <p>
+     * @param position in the file
+     * @param count bytes needed from the position, within the segment
+     * @return the segment
+     * @throws IOException
+     */
+    private MappedByteBuffer segment( long position, int count )
+        throws IOException
+    {
+        long index = position / segmentSizeBytes;
+        int end = (int) ( position % segmentSizeBytes ) + count;
+
+        MappedByteBuffer[] current = segments;
+        if ( index < current.length )
+        {
+            MappedByteBuffer segment = current[(int) index];
+            if ( segment != null && segment.capacity() >= end )
+            {
+                return segment;
+            }
+        }
+        return map( (int) index, end );
+    }
+
+    /**
+     * Maps the segment up to the end of the file or the end of the segment.
+     * <p>
+     * @param index of the segment
+     * @param end bytes needed from the start of the segment
+     * @return the segment
+     * @throws IOException
+     */
+    private synchronized MappedByteBuffer map( int index, int end )
+        throws IOException
+    {
+        MappedByteBuffer[] current = segments;
+        if ( index < current.length && current[index] != null && current[index].capacity() >= end )
+        {
+            // mapped by another thread
+            return current[index];
+        }
+
+        long start = (long) index * segmentSizeBytes;
+        long size = Math.min( segmentSizeBytes, fc.size() - start );
+        if ( size < end )
+        {
+            throw new EOFException( "Read past the end of the file at " + ( start + end ) );
+        }
+
+        MappedByteBuffer segment = fc.map( FileChannel.MapMode.READ_ONLY, start, size );
+        mapCount.incrementAndGet();
+        if ( log.isDebugEnabled() )
+        {
+            log.debug( "Mapped segment " + index + ", " + size + " bytes" );
+        }
+
+        MappedByteBuffer[] updated = current;
+        if ( index >= current.length )
+        {
+            updated = new MappedByteBuffer[index + 1];
+            System.arraycopy( current, 0, updated, 0, current.length );
+        }
+        else
+        {
+            updated = current.clone();
+        }
+        updated[index] = segment;
+        segments = updated;
+        return segment;
+    }
+}
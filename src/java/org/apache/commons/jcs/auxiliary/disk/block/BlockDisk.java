@@ -20,6 +20,7 @@ package org.apache.commons.jcs.auxiliary.disk.block;
  */
 
 import java.io.ByteArrayOutputStream;
+import java.io.EOFException;
 import java.io.File;
 import java.io.FileNotFoundException;
 import java.io.IOException;
@@ -27,12 +28,14 @@ import java.io.RandomAccessFile;
 import java.io.Serializable;
 import java.nio.ByteBuffer;
 import java.nio.channels.FileChannel;
+import java.util.ArrayList;
+import java.util.List;
 import java.util.concurrent.atomic.AtomicInteger;
 import java.util.concurrent.atomic.AtomicLong;
 
+import org.apache.commons.jcs.auxiliary.disk.MappedDataFile;
 import org.apache.commons.jcs.engine.behavior.IElementSerializer;
 import org.apache.commons.jcs.utils.serialization.StandardSerializer;
-import org.apache.commons.jcs.utils.struct.SingleLinkedList;
 import org.apache.commons.logging.Log;
 import org.apache.commons.logging.LogFactory;
 
@@ -52,7 +55,7 @@ public class BlockDisk
     // N.B. 4 bytes is the size used for ByteBuffer.putInt(int value) and ByteBuffer.getInt()
 
     /** defaults to 4kb */
-    private static final int DEFAULT_BLOCK_SIZE_BYTES = 4 * 1024;
+    static final int DEFAULT_BLOCK_SIZE_BYTES = 4 * 1024;
 
     /** Size of the blocks */
     private int blockSizeBytes;
@@ -64,7 +67,7 @@ public class BlockDisk
     private final AtomicInteger numberOfBlocks = new AtomicInteger(0);
 
     /** Empty blocks that can be reused. */
-    private final SingleLinkedList<Integer> emptyBlocks = new SingleLinkedList<Integer>();
+    private final FreeBlockBitmap emptyBlocks = new FreeBlockBitmap();
 
     /** The serializer. */
     protected IElementSerializer elementSerializer;
@@ -81,6 +84,27 @@ public class BlockDisk
     /** How many items have we put to disk */
     private final AtomicLong putCount = new AtomicLong(0);
 
+    /** When writes are forced to the device */
+    private BlockDiskCacheAttributes.Durability durability = BlockDiskCacheAttributes.Durability.PER_WRITE;
+
+    /** Counts the writes, so a force can tell which writes it covers */
+    private final AtomicLong writeSequence = new AtomicLong(0);
+
+    /** The last write covered by a force. Guarded by forceLock. */
+    private long forcedSequence = 0;
+
+    /** Only one thread forces at a time; the others wait and usually find their write covered */
+    private final Object forceLock = new Object();
+
+    /** How many times the channel was forced */
+    private final AtomicLong forceCount = new AtomicLong(0);
+
+    /** Serves the reads from memory mappings, null when reads go through the channel */
+    private volatile MappedDataFile mappedFile;
+
+    /** Gathering writes go through the position of the channel, so only one may run at a time */
+    private final Object positionLock = new Object();
+
     /**
      * Constructor for the Disk object
      * <p>
@@ -129,10 +153,18 @@ public class BlockDisk
 
         this.blockSizeBytes = blockSizeBytes;
         this.elementSerializer = elementSerializer;
+
+        // new blocks go after the ones already in the file
+        long existingBlocks = ( file.length() + blockSizeBytes - 1 ) / blockSizeBytes;
+        this.numberOfBlocks.set( (int) existingBlocks );
     }
 
     /**
      * Allocate a given number of blocks from the available set
+     * <p>
+     * Empty blocks are used first, in ascending order, as one run if there is one near the end of
+     * the last allocation. Any blocks still needed are taken together at the end of the file, so
+     * they form one run.
      *
      * @param numBlocksNeeded
      * @return an array of allocated blocks
@@ -142,15 +174,15 @@ public class BlockDisk
         assert numBlocksNeeded >= 1;
 
         int[] blocks = new int[numBlocksNeeded];
-        // get them from the empty list or take the next one
-        for (int i = 0; i < numBlocksNeeded; i++)
+        int taken = emptyBlocks.allocate( blocks, numBlocksNeeded );
+
+        if ( taken < numBlocksNeeded )
         {
-            Integer emptyBlock = emptyBlocks.takeFirst();
-            if (emptyBlock == null)
+            int first = numberOfBlocks.getAndAdd( numBlocksNeeded - taken );
+            for ( int i = taken; i < numBlocksNeeded; i++ )
             {
-                emptyBlock = numberOfBlocks.getAndIncrement();
+                blocks[i] = first + i - taken;
             }
-            blocks[i] = emptyBlock;
         }
 
         return blocks;
@@ -165,8 +197,9 @@ public class BlockDisk
      * <li>Determine the number of blocks needed.</li>
      * <li>Look for free blocks in the emptyBlock list.</li>
      * <li>If there were not enough in the empty list. Take the nextBlock and increment it.</li>
-     * <li>If the data will not fit in one block, create sub arrays.</li>
-     * <li>Write the subarrays to disk.</li>
+     * <li>If the data will not fit in one block, split it into chunks.</li>
+     * <li>Write the chunks to disk, with one gathering write for each run of blocks that follow
+     * each other in the file.</li>
      * <li>If the process fails we should decrement the block count if we took from it.</li>
      * </ol>
      * @param object
@@ -175,10 +208,142 @@ public class BlockDisk
      */
     protected int[] write( Serializable object )
         throws IOException
+    {
+        int[] blocks = writeUnsynced( object );
+
+        sync();
+
+        return blocks;
+    }
+
+    /**
+     * Writes the object like {@link #write(Serializable)}, but leaves the force to a later call
+     * to {@link #sync()}. Callers that hold a lock while writing should sync after releasing it,
+     * so that concurrent writers can share one force.
+     * <p>
+     * @param object
+     * @return the blocks we used.
+     * @throws IOException
+     */
+    protected int[] writeUnsynced( Serializable object )
+        throws IOException
     {
         // serialize the object
         byte[] data = elementSerializer.serialize(object);
 
+        int[] blocks = writeBlocks( data );
+
+        writeSequence.incrementAndGet();
+
+        return blocks;
+    }
+
+    /**
+     * Writes a batch of objects the same way as {@link #write(Serializable)}, but syncs only
+     * once, after the last one.
+     * <p>
+     * @param objects
+     * @return the blocks used by each object, in the same order
+     * @throws IOException
+     */
+    protected List<int[]> writeMultiple( List<? extends Serializable> objects )
+        throws IOException
+    {
+        List<int[]> blocks = writeMultipleUnsynced( objects );
+
+        sync();
+
+        return blocks;
+    }
+
+    /**
+     * Writes a batch of objects like {@link #writeMultiple(List)}, but leaves the force to a
+     * later call to {@link #sync()}.
+     * <p>
+     * @param objects
+     * @return the blocks used by each object, in the same order
+     * @throws IOException
+     */
+    protected List<int[]> writeMultipleUnsynced( List<? extends Serializable> objects )
+        throws IOException
+    {
+        List<int[]> blocks = new ArrayList<int[]>( objects.size() );
+
+        for ( Serializable object : objects )
+        {
+            blocks.add( writeBlocks( elementSerializer.serialize( object ) ) );
+        }
+
+        writeSequence.incrementAndGet();
+
+        return blocks;
+    }
+
+    /**
+     * Makes the writes done so far durable if the durability is PER_WRITE. Otherwise they are left
+     * to {@link #flush()}.
+     * <p>
+     * Concurrent callers commit as a group: one of them forces the channel while the others wait,
+     * and those whose writes were covered by that force return without forcing again.
+     * <p>
+     * @throws IOException
+     */
+    protected void sync()
+        throws IOException
+    {
+        if ( durability == BlockDiskCacheAttributes.Durability.PER_WRITE )
+        {
+            forceUpTo( writeSequence.get() );
+        }
+    }
+
+    /**
+     * Forces the channel if anything was written since the last force, whatever the durability.
+     * The interval flusher and close call this.
+     * <p>
+     * @throws IOException
+     */
+    protected void flush()
+        throws IOException
+    {
+        forceUpTo( writeSequence.get() );
+    }
+
+    /**
+     * Forces the channel unless a force that started after the given write already happened.
+     * <p>
+     * @param sequence the last write that has to be durable
+     * @throws IOException
+     */
+    private void forceUpTo( long sequence )
+        throws IOException
+    {
+        synchronized ( forceLock )
+        {
+            if ( forcedSequence >= sequence )
+            {
+                return;
+            }
+
+            // every write up to here has reached the channel
+            long covered = writeSequence.get();
+            fc.force(false);
+            forceCount.incrementAndGet();
+            forcedSequence = covered;
+        }
+    }
+
+    /**
+     * Allocates the blocks for the serialized data and writes the chunks to them. Does not force
+     * the channel.
+     * <p>
+     * @param data the serialized object
+     * @return the blocks we used.
+     * @throws IOException
+     */
+    private int[] writeBlocks( byte[] data )
+        throws IOException
+    {
         if ( log.isDebugEnabled() )
         {
             log.debug( "write, total pre-chunking data.length = " + data.length );
@@ -200,32 +365,74 @@ public class BlockDisk
 
         int offset = 0;
         final int maxChunkSize = blockSizeBytes - HEADER_SIZE_BYTES;
-        ByteBuffer headerBuffer = ByteBuffer.allocate(HEADER_SIZE_BYTES);
 
-        for (int i = 0; i < numBlocksNeeded; i++)
+        int start = 0;
+        while ( start < numBlocksNeeded )
         {
-            headerBuffer.clear();
-            int length = Math.min(maxChunkSize, data.length - offset);
-            headerBuffer.putInt(length);
+            int end = getRunEnd( blocks, start );
+
+            // only the last chunk can be short, so the headers and chunks of a run are contiguous
+            ByteBuffer[] buffers = new ByteBuffer[( end - start ) * 2];
+            for ( int i = start; i < end; i++ )
+            {
+                int length = Math.min( maxChunkSize, data.length - offset );
+                ByteBuffer headerBuffer = ByteBuffer.allocate( HEADER_SIZE_BYTES );
+                headerBuffer.putInt( length );
+                headerBuffer.flip();
+                buffers[( i - start ) * 2] = headerBuffer;
+                buffers[( i - start ) * 2 + 1] = ByteBuffer.wrap( data, offset, length );
+                offset += length;
+            }
 
-            ByteBuffer dataBuffer = ByteBuffer.wrap(data, offset, length);
+            writeRun( calculateByteOffsetForBlock( blocks[start] ), buffers );
 
-            long position = calculateByteOffsetForBlock(blocks[i]);
-            // write the header
-            headerBuffer.flip();
-            int written = fc.write(headerBuffer, position);
-            assert written == HEADER_SIZE_BYTES;
+            start = end;
+        }
 
-            //write the data
-            written = fc.write(dataBuffer, position + HEADER_SIZE_BYTES);
-            assert written == length;
+        return blocks;
+    }
 
-            offset += length;
+    /**
+     * Writes the buffers one after the other from the position with a gathering write.
+     * <p>
+     * @param position where the first buffer goes
+     * @param buffers the headers and chunks of a run of blocks
+     * @throws IOException
+     */
+    private void writeRun( long position, ByteBuffer[] buffers )
+        throws IOException
+    {
+        long remaining = 0;
+        for ( ByteBuffer buffer : buffers )
+        {
+            remaining += buffer.remaining();
         }
 
-        fc.force(false);
+        synchronized ( positionLock )
+        {
+            fc.position( position );
+            while ( remaining > 0 )
+            {
+                remaining -= fc.write( buffers );
+            }
+        }
+    }
 
-        return blocks;
+    /**
+     * Finds the end of the run of blocks that follow each other in the file.
+     * <p>
+     * @param blocks
+     * @param start the index of the first block of the run
+     * @return the index after the last block of the run
+     */
+    private static int getRunEnd( int[] blocks, int start )
+    {
+        int end = start + 1;
+        while ( end < blocks.length && blocks[end] == blocks[end - 1] + 1 )
+        {
+            end++;
+        }
+        return end;
     }
 
     /**
@@ -284,12 +491,14 @@ public class BlockDisk
         }
         else
         {
-            ByteArrayOutputStream baos = new ByteArrayOutputStream(getBlockSizeBytes());
-            // get all the blocks into data
-            for ( short i = 0; i < blockNumbers.length; i++ )
+            ByteArrayOutputStream baos = new ByteArrayOutputStream( blockNumbers.length * getBlockSizeBytes() );
+            // get all the blocks into data, a run of blocks at a time
+            int start = 0;
+            while ( start < blockNumbers.length )
             {
-                byte[] chunk = readBlock( blockNumbers[i] );
-                baos.write(chunk);
+                int end = getRunEnd( blockNumbers, start );
+                readRun( blockNumbers, start, end, baos );
+                start = end;
             }
 
             data = baos.toByteArray();
@@ -317,13 +526,19 @@ public class BlockDisk
     private byte[] readBlock( int block )
         throws IOException
     {
+        MappedDataFile mapped = mappedFile;
+        if ( mapped != null )
+        {
+            return readMappedBlock( mapped, block );
+        }
+
         int datalen = 0;
 
         String message = null;
         boolean corrupted = false;
         long fileLength = fc.size();
 
-        int position = calculateByteOffsetForBlock( block );
+        long position = calculateByteOffsetForBlock( block );
 //        if ( position > fileLength )
 //        {
 //            corrupted = true;
@@ -355,6 +570,82 @@ public class BlockDisk
         return data.array();
     }
 
+    /**
+     * Reads the occupied data of a run of blocks that follow each other in the file. The channel
+     * is read once for the whole run. Memory mapped reads are not coalesced, they do not make a
+     * system call per block.
+     * <p>
+     * @param blockNumbers
+     * @param start the index of the first block of the run
+     * @param end the index after the last block of the run
+     * @param out receives the data of the blocks in order
+     * @throws IOException
+     */
+    private void readRun( int[] blockNumbers, int start, int end, ByteArrayOutputStream out )
+        throws IOException
+    {
+        if ( mappedFile != null || end - start == 1 )
+        {
+            for ( int i = start; i < end; i++ )
+            {
+                out.write( readBlock( blockNumbers[i] ) );
+            }
+            return;
+        }
+
+        long position = calculateByteOffsetForBlock( blockNumbers[start] );
+        // the last block of the file is only as long as its data
+        long length = Math.min( (long) ( end - start ) * blockSizeBytes, fc.size() - position );
+        ByteBuffer buffer = ByteBuffer.allocate( (int) Math.max( length, 0 ) );
+        while ( buffer.hasRemaining() && fc.read( buffer, position + buffer.position() ) > 0 )
+        {
+            // keep reading until the run is complete
+        }
+        int read = buffer.position();
+
+        for ( int i = 0; i < end - start; i++ )
+        {
+            int offset = i * blockSizeBytes;
+            int datalen = offset + HEADER_SIZE_BYTES <= read ? buffer.getInt( offset ) : -1;
+            if ( datalen < 0 || datalen > blockSizeBytes - HEADER_SIZE_BYTES
+                || offset + HEADER_SIZE_BYTES + datalen > read )
+            {
+                log.warn( "\n The file is corrupt: " + "\n Record " + ( position + offset ) + " exceeds file length." );
+                throw new IOException( "The File Is Corrupt, need to reset" );
+            }
+            out.write( buffer.array(), offset + HEADER_SIZE_BYTES, datalen );
+        }
+    }
+
+    /**
+     * Reads the occupied data in a block from the memory mappings. The header is checked against
+     * the block size instead of the file length, which would take a system call.
+     * <p>
+     * @param mapped
+     * @param block
+     * @return byte[]
+     * @throws IOException
+     */
+    private byte[] readMappedBlock( MappedDataFile mapped, int block )
+        throws IOException
+    {
+        long position = calculateByteOffsetForBlock( block );
+        try
+        {
+            int datalen = mapped.readInt( position );
+            if ( datalen < 0 || datalen > blockSizeBytes - HEADER_SIZE_BYTES )
+            {
+                throw new EOFException( "Record " + position + " has an invalid length " + datalen );
+            }
+            return mapped.read( position + HEADER_SIZE_BYTES, datalen );
+        }
+        catch ( EOFException e )
+        {
+            log.warn( "\n The file is corrupt: " + "\n " + e.getMessage() );
+            throw new IOException( "The File Is Corrupt, need to reset" );
+        }
+    }
+
     /**
      * Add these blocks to the emptyBlock list.
      * <p>
@@ -364,22 +655,41 @@ public class BlockDisk
     {
         if ( blocksToFree != null )
         {
-            for ( short i = 0; i < blocksToFree.length; i++ )
-            {
-                emptyBlocks.addLast( Integer.valueOf( blocksToFree[i] ) );
-            }
+            emptyBlocks.free( blocksToFree );
         }
     }
 
     /**
-     * Calculates the file offset for a particular block.
+     * The map of the empty blocks, so it can be saved with the keys.
+     * <p>
+     * @return the live map of the empty blocks
+     */
+    protected FreeBlockBitmap getEmptyBlockMap()
+    {
+        return emptyBlocks;
+    }
+
+    /**
+     * Replaces the empty blocks with a map that was saved with the keys. Blocks past the end of
+     * the file are left out.
+     * <p>
+     * @param saved
+     */
+    protected void loadEmptyBlocks( FreeBlockBitmap saved )
+    {
+        emptyBlocks.load( saved, numberOfBlocks.get() );
+    }
+
+    /**
+     * Calculates the file offset for a particular block. The offset is a long, so files can grow
+     * past 2 GB.
      * <p>
      * @param block
      * @return the offset for this block
      */
-    protected int calculateByteOffsetForBlock( int block )
+    protected long calculateByteOffsetForBlock( int block )
     {
-        return block * blockSizeBytes;
+        return (long) block * blockSizeBytes;
     }
 
     /**
@@ -422,13 +732,15 @@ public class BlockDisk
     }
 
     /**
-     * Closes the file.
+     * Forces any writes that are not durable yet and closes the file. This is the one force
+     * made with durability NONE.
      * <p>
      * @exception IOException
      */
     protected void close()
         throws IOException
     {
+        flush();
         fc.close();
     }
 
@@ -444,6 +756,51 @@ public class BlockDisk
         this.emptyBlocks.clear();
         fc.truncate(0);
         fc.force(true);
+        MappedDataFile mapped = mappedFile;
+        if ( mapped != null )
+        {
+            mapped.reset();
+        }
+    }
+
+    /**
+     * @param durability when writes are forced to the device
+     */
+    protected void setDurability( BlockDiskCacheAttributes.Durability durability )
+    {
+        this.durability = durability;
+    }
+
+    /**
+     * @return when writes are forced to the device
+     */
+    protected BlockDiskCacheAttributes.Durability getDurability()
+    {
+        return durability;
+    }
+
+    /**
+     * @param memoryMappedReads whether reads are served from memory mappings of the file
+     */
+    protected void setMemoryMappedReads( boolean memoryMappedReads )
+    {
+        this.mappedFile = memoryMappedReads ? new MappedDataFile( fc ) : null;
+    }
+
+    /**
+     * @return whether reads are served from memory mappings of the file
+     */
+    protected boolean isMemoryMappedReads()
+    {
+        return mappedFile != null;
+    }
+
+    /**
+     * @return how many times the channel was forced
+     */
+    protected long getForceCount()
+    {
+        return forceCount.get();
     }
 
     /**
@@ -501,6 +858,8 @@ public class BlockDisk
         buf.append( "\n  Put Count [" + this.putCount + "]" );
         buf.append( "\n  Average Size [" + getAveragePutSizeBytes() + "]" );
         buf.append( "\n  Empty Blocks [" + this.getEmptyBlocks() + "]" );
+        buf.append( "\n  Durability [" + this.durability + "]" );
+        buf.append( "\n  Force Count [" + this.forceCount + "]" );
         try
         {
             buf.append( "\n  Length [" + length() + "]" );
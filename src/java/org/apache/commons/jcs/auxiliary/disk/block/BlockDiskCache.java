@@ -27,10 +27,12 @@ import java.util.Arrays;
 import java.util.HashMap;
 import java.util.HashSet;
 import java.util.Iterator;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
 import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.locks.ReentrantReadWriteLock;
 
@@ -87,6 +89,9 @@ public class BlockDiskCache<K extends Serializable, V extends Serializable>
      */
     private final ReentrantReadWriteLock storageLock = new ReentrantReadWriteLock();
 
+    /** Forces the data file at the durability interval, if the durability is INTERVAL */
+    private ScheduledFuture<?> flusherFuture;
+
     /**
      * Constructs the BlockDisk after setting up the root directory.
      * <p>
@@ -138,6 +143,8 @@ public class BlockDiskCache<K extends Serializable, V extends Serializable>
             {
                 this.dataFile = new BlockDisk( new File( rootDirectory, fileName + ".data" ), getElementSerializer() );
             }
+            this.dataFile.setDurability( this.blockDiskCacheAttributes.getDurability() );
+            this.dataFile.setMemoryMappedReads( this.blockDiskCacheAttributes.isMemoryMappedReads() );
 
             keyStore = new BlockDiskKeyStore<K>( this.blockDiskCacheAttributes, this );
 
@@ -183,6 +190,59 @@ public class BlockDiskCache<K extends Serializable, V extends Serializable>
                     this.blockDiskCacheAttributes.getKeyPersistenceIntervalSeconds(),
                     TimeUnit.SECONDS);
         }
+
+        // one force per interval for all the writes made in it
+        if ( this.blockDiskCacheAttributes.getDurability() == BlockDiskCacheAttributes.Durability.INTERVAL
+            && this.blockDiskCacheAttributes.getDurabilityIntervalMillis() > 0 )
+        {
+            flusherFuture = scheduledExecutor.scheduleWithFixedDelay(
+                    new Runnable()
+                    {
+                        public void run()
+                        {
+                            flushDataFile();
+                        }
+                    },
+                    this.blockDiskCacheAttributes.getDurabilityIntervalMillis(),
+                    this.blockDiskCacheAttributes.getDurabilityIntervalMillis(),
+                    TimeUnit.MILLISECONDS);
+        }
+    }
+
+    /**
+     * Forces whatever was written to the data file since the last force.
+     */
+    protected void flushDataFile()
+    {
+        if ( !alive )
+        {
+            return;
+        }
+
+        try
+        {
+            this.dataFile.flush();
+        }
+        catch ( IOException e )
+        {
+            log.error( logCacheName + "Failure flushing the data file", e );
+        }
+    }
+
+    /**
+     * Makes the data written so far durable, as the durability asks. Called after the write lock
+     * is released, so that concurrent puts can share one force.
+     */
+    private void syncDataFile()
+    {
+        try
+        {
+            this.dataFile.sync();
+        }
+        catch ( IOException e )
+        {
+            log.error( logCacheName + "Failure forcing the data file", e );
+        }
     }
 
     /**
@@ -383,6 +443,7 @@ public class BlockDiskCache<K extends Serializable, V extends Serializable>
         }
 
         int[] old = null;
+        boolean written = false;
 
         // make sure this only locks for one particular cache region
         storageLock.writeLock().lock();
@@ -396,7 +457,8 @@ public class BlockDiskCache<K extends Serializable, V extends Serializable>
                 this.dataFile.freeBlocks( old );
             }
 
-            int[] blocks = this.dataFile.write( element );
+            int[] blocks = this.dataFile.writeUnsynced( element );
+            written = true;
 
             this.keyStore.put( element.getKey(), blocks );
 
@@ -414,12 +476,93 @@ public class BlockDiskCache<K extends Serializable, V extends Serializable>
             storageLock.writeLock().unlock();
         }
 
+        if ( written )
+        {
+            syncDataFile();
+        }
+
         if ( log.isDebugEnabled() )
         {
             log.debug( logCacheName + "Storing element on disk, key: " + element.getKey() );
         }
     }
 
+    /**
+     * Writes a batch of elements under a single write lock. The block disk syncs the file once
+     * for the whole batch, after the lock is released.
+     * <p>
+     * @param cacheElements
+     */
+    @Override
+    protected void processUpdateMultiple( List<ICacheElement<K, V>> cacheElements )
+    {
+        if ( !alive )
+        {
+            if ( log.isDebugEnabled() )
+            {
+                log.debug( logCacheName + "No longer alive; aborting put of " + cacheElements.size() + " elements" );
+            }
+            return;
+        }
+
+        // the last element wins if a key is in the batch more than once
+        Map<K, ICacheElement<K, V>> elements = new LinkedHashMap<K, ICacheElement<K, V>>();
+        for ( ICacheElement<K, V> element : cacheElements )
+        {
+            elements.put( element.getKey(), element );
+        }
+
+        // make sure this only locks for one particular cache region
+        storageLock.writeLock().lock();
+
+        try
+        {
+            for ( K key : elements.keySet() )
+            {
+                int[] old = this.keyStore.get( key );
+
+                if ( old != null )
+                {
+                    this.dataFile.freeBlocks( old );
+                }
+            }
+
+            List<int[]> blocks = null;
+            try
+            {
+                blocks = this.dataFile.writeMultipleUnsynced( new ArrayList<ICacheElement<K, V>>( elements.values() ) );
+            }
+            catch ( IOException e )
+            {
+                log.error( logCacheName + "Failure updating " + elements.size() + " elements", e );
+
+                // the old blocks of these keys may have been reused
+                for ( K key : elements.keySet() )
+                {
+                    this.keyStore.remove( key );
+                }
+                return;
+            }
+
+            Iterator<int[]> it = blocks.iterator();
+            for ( K key : elements.keySet() )
+            {
+                this.keyStore.put( key, it.next() );
+            }
+
+            if ( log.isDebugEnabled() )
+            {
+                log.debug( logCacheName + "Put " + elements.size() + " elements to file [" + fileName + "]" );
+            }
+        }
+        finally
+        {
+            storageLock.writeLock().unlock();
+        }
+
+        syncDataFile();
+    }
+
     /**
      * Returns true if the removal was successful; or false if there is nothing to remove. Current
      * implementation always result in a disk orphan.
@@ -448,65 +591,57 @@ public class BlockDiskCache<K extends Serializable, V extends Serializable>
 
         try
         {
-            if ( key instanceof String && key.toString().endsWith( CacheConstants.NAME_COMPONENT_DELIMITER ) )
-            {
-                // remove all keys of the same name group.
-                Iterator<Map.Entry<K, int[]>> iter = this.keyStore.entrySet().iterator();
+            removed = performRemoval( key );
+        }
+        catch ( Exception e )
+        {
+            log.error( logCacheName + "Problem removing element.", e );
+            reset = true;
+        }
+        finally
+        {
+            storageLock.writeLock().unlock();
+        }
 
-                while ( iter.hasNext() )
-                {
-                    Map.Entry<K, int[]> entry = iter.next();
-                    K k = entry.getKey();
+        if ( reset )
+        {
+            reset();
+        }
 
-                    if ( k instanceof String && k.toString().startsWith( key.toString() ) )
-                    {
-                        int[] ded = this.keyStore.get( key );
-                        this.dataFile.freeBlocks( ded );
-                        iter.remove();
-                        removed = true;
-                        // TODO this needs to update the remove count separately
-                    }
-                }
-            }
-            else if ( key instanceof GroupAttrName && ((GroupAttrName<?>)key).attrName == null )
-            {
-                // remove all keys of the same name hierarchy.
-                Iterator<Map.Entry<K, int[]>> iter = this.keyStore.entrySet().iterator();
-                while ( iter.hasNext() )
-                {
-                    Map.Entry<K, int[]> entry = iter.next();
-                    K k = entry.getKey();
+        return removed;
+    }
 
-                    if ( k instanceof GroupAttrName &&
-                        ((GroupAttrName<?>)k).groupId.equals(((GroupAttrName<?>)key).groupId))
-                    {
-                        int[] ded = this.keyStore.get( key );
-                        this.dataFile.freeBlocks( ded );
-                        iter.remove();
-                        removed = true;
-                    }
-                }
-            }
-            else
+    /**
+     * Removes a batch of keys under a single write lock.
+     * <p>
+     * @param keys
+     */
+    @Override
+    protected void processRemoveMultiple( Set<K> keys )
+    {
+        if ( !alive )
+        {
+            if ( log.isDebugEnabled() )
             {
-                // remove single item.
-                int[] ded = this.keyStore.remove( key );
-                removed = ( ded != null );
-                if ( ded != null )
-                {
-                    this.dataFile.freeBlocks( ded );
-                }
+                log.debug( logCacheName + "No longer alive so not removing " + keys.size() + " keys" );
+            }
+            return;
+        }
 
-                if ( log.isDebugEnabled() )
-                {
-                    log.debug( logCacheName + "Disk removal: Removed from key hash, key [" + key + "] removed = "
-                        + removed );
-                }
+        boolean reset = false;
+
+        storageLock.writeLock().lock();
+
+        try
+        {
+            for ( K key : keys )
+            {
+                performRemoval( key );
             }
         }
         catch ( Exception e )
         {
-            log.error( logCacheName + "Problem removing element.", e );
+            log.error( logCacheName + "Problem removing elements.", e );
             reset = true;
         }
         finally
@@ -518,6 +653,74 @@ public class BlockDiskCache<K extends Serializable, V extends Serializable>
         {
             reset();
         }
+    }
+
+    /**
+     * Removes the key, or all the keys it stands for if it is a partial or group key, from the key
+     * store and frees their blocks. Must be called with the write lock held.
+     * <p>
+     * @param key
+     * @return true if removed anything
+     */
+    private boolean performRemoval( K key )
+    {
+        boolean removed = false;
+
+        if ( key instanceof String && key.toString().endsWith( CacheConstants.NAME_COMPONENT_DELIMITER ) )
+        {
+            // remove all keys of the same name group.
+            Iterator<Map.Entry<K, int[]>> iter = this.keyStore.entrySet().iterator();
+
+            while ( iter.hasNext() )
+            {
+                Map.Entry<K, int[]> entry = iter.next();
+                K k = entry.getKey();
+
+                if ( k instanceof String && k.toString().startsWith( key.toString() ) )
+                {
+                    int[] ded = this.keyStore.get( key );
+                    this.dataFile.freeBlocks( ded );
+                    iter.remove();
+                    removed = true;
+                    // TODO this needs to update the remove count separately
+                }
+            }
+        }
+        else if ( key instanceof GroupAttrName && ((GroupAttrName<?>)key).attrName == null )
+        {
+            // remove all keys of the same name hierarchy.
+            Iterator<Map.Entry<K, int[]>> iter = this.keyStore.entrySet().iterator();
+            while ( iter.hasNext() )
+            {
+                Map.Entry<K, int[]> entry = iter.next();
+                K k = entry.getKey();
+
+                if ( k instanceof GroupAttrName &&
+                    ((GroupAttrName<?>)k).groupId.equals(((GroupAttrName<?>)key).groupId))
+                {
+                    int[] ded = this.keyStore.get( key );
+                    this.dataFile.freeBlocks( ded );
+                    iter.remove();
+                    removed = true;
+                }
+            }
+        }
+        else
+        {
+            // remove single item.
+            int[] ded = this.keyStore.remove( key );
+            removed = ( ded != null );
+            if ( ded != null )
+            {
+                this.dataFile.freeBlocks( ded );
+            }
+
+            if ( log.isDebugEnabled() )
+            {
+                log.debug( logCacheName + "Disk removal: Removed from key hash, key [" + key + "] removed = "
+                    + removed );
+            }
+        }
 
         return removed;
     }
@@ -582,6 +785,11 @@ public class BlockDiskCache<K extends Serializable, V extends Serializable>
             log.error( logCacheName + "Not alive and dispose was called, filename: " + fileName );
             return;
         }
+        if ( flusherFuture != null )
+        {
+            flusherFuture.cancel( false );
+        }
+
         storageLock.writeLock().lock();
         try
         {
@@ -673,6 +881,24 @@ public class BlockDiskCache<K extends Serializable, V extends Serializable>
         this.dataFile.freeBlocks( blocksToFree );
     }
 
+    /**
+     * @return the map of the empty blocks of the data file, saved with the keys
+     */
+    protected FreeBlockBitmap getEmptyBlockMap()
+    {
+        return this.dataFile.getEmptyBlockMap();
+    }
+
+    /**
+     * Restores the empty blocks of the data file from a map saved with the keys.
+     * <p>
+     * @param saved
+     */
+    protected void loadEmptyBlocks( FreeBlockBitmap saved )
+    {
+        this.dataFile.loadEmptyBlocks( saved );
+    }
+
     /**
      * Gets basic stats for the disk cache.
      * <p>
@@ -749,6 +975,16 @@ public class BlockDiskCache<K extends Serializable, V extends Serializable>
         se.setData( "" + this.dataFile.getEmptyBlocks() );
         elems.add( se );
 
+        se = new StatElement();
+        se.setName( "Durability" );
+        se.setData( "" + this.dataFile.getDurability() );
+        elems.add( se );
+
+        se = new StatElement();
+        se.setName( "Force Count" );
+        se.setData( "" + this.dataFile.getForceCount() );
+        elems.add( se );
+
         // get the stats from the super too
         // get as array, convert to list, add list to our outer list
         IStats sStats = super.getStatistics();
@@ -32,6 +32,22 @@ public class BlockDiskCacheAttributes
     /** Don't change */
     private static final long serialVersionUID = 6568840097657265989L;
 
+    /** When the data written to the block disk is forced to the device. */
+    public enum Durability
+    {
+        /** Never forced while the cache runs, only when it is closed. Left to the OS. */
+        NONE,
+
+        /** Forced by a background flusher every DurabilityIntervalMillis. */
+        INTERVAL,
+
+        /**
+         * Each put returns once its data is forced. Concurrent puts share a force. This is the
+         * default.
+         */
+        PER_WRITE
+    }
+
     /** The size per block in bytes. */
     private int blockSizeBytes;
 
@@ -47,6 +63,18 @@ public class BlockDiskCacheAttributes
     /** The keys will be persisted at this interval.  -1 mean never. */
     private long keyPersistenceIntervalSeconds = DEFAULT_KEY_PERSISTENCE_INTERVAL_SECONDS;
 
+    /** When writes are forced to the device. */
+    private Durability durability = Durability.PER_WRITE;
+
+    /** How often the INTERVAL flusher runs. */
+    private static final long DEFAULT_DURABILITY_INTERVAL_MILLIS = 1000;
+
+    /** The INTERVAL flusher runs at this interval. */
+    private long durabilityIntervalMillis = DEFAULT_DURABILITY_INTERVAL_MILLIS;
+
+    /** Should reads be served from memory mappings of the data file. */
+    private boolean memoryMappedReads = false;
+
     /**
      * The size of the blocks. All blocks are the same size.
      * <p>
@@ -97,6 +125,83 @@ public class BlockDiskCacheAttributes
         return keyPersistenceIntervalSeconds;
     }
 
+    /**
+     * By default this is PER_WRITE.
+     * <p>
+     * @param durability when writes are forced to the device
+     */
+    public void setDurability( Durability durability )
+    {
+        this.durability = durability;
+    }
+
+    /**
+     * Translates the name to the durability.
+     * <p>
+     * The allowed values are NONE, INTERVAL and PER_WRITE.
+     * <p>
+     * @param durabilityName
+     */
+    public void setDurabilityName( String durabilityName )
+    {
+        if ( durabilityName != null )
+        {
+            String name = durabilityName.toUpperCase().trim();
+            if ( name.startsWith( "NONE" ) )
+            {
+                this.setDurability( Durability.NONE );
+            }
+            else if ( name.startsWith( "INTERVAL" ) )
+            {
+                this.setDurability( Durability.INTERVAL );
+            }
+            else if ( name.startsWith( "PER_WRITE" ) )
+            {
+                this.setDurability( Durability.PER_WRITE );
+            }
+        }
+    }
+
+    /**
+     * @return when writes are forced to the device
+     */
+    public Durability getDurability()
+    {
+        return durability;
+    }
+
+    /**
+     * @param durabilityIntervalMillis how often the INTERVAL flusher runs
+     */
+    public void setDurabilityIntervalMillis( long durabilityIntervalMillis )
+    {
+        this.durabilityIntervalMillis = durabilityIntervalMillis;
+    }
+
+    /**
+     * @return how often the INTERVAL flusher runs
+     */
+    public long getDurabilityIntervalMillis()
+    {
+        return durabilityIntervalMillis;
+    }
+
+    /**
+     * @param memoryMappedReads whether reads are served from memory mappings of the data file
+     */
+    public void setMemoryMappedReads( boolean memoryMappedReads )
+    {
+        this.memoryMappedReads = memoryMappedReads;
+    }
+
+    /**
+     * @return whether reads are served from memory mappings of the data file
+     */
+    public boolean isMemoryMappedReads()
+    {
+        return memoryMappedReads;
+    }
+
     /**
      * Write out the values for debugging purposes.
      * <p>
@@ -112,6 +217,9 @@ public class BlockDiskCacheAttributes
         str.append( "\n MaxPurgatorySize [" + this.getMaxPurgatorySize() + "]" );
         str.append( "\n BlockSizeBytes [" + this.getBlockSizeBytes() + "]" );
         str.append( "\n KeyPersistenceIntervalSeconds [" + this.getKeyPersistenceIntervalSeconds() + "]" );
+        str.append( "\n Durability [" + this.getDurability() + "]" );
+        str.append( "\n DurabilityIntervalMillis [" + this.getDurabilityIntervalMillis() + "]" );
+        str.append( "\n MemoryMappedReads [" + this.isMemoryMappedReads() + "]" );
         return str.toString();
     }
 }
@@ -48,6 +48,14 @@ public class BlockDiskKeyStore<K extends Serializable>
     /** The logger */
     protected static final Log log = LogFactory.getLog( BlockDiskKeyStore.class );
 
+    /**
+     * The version of the key and data file format. Version 1 files have no header; version 2
+     * files start with a {@link KeyFileHeader} and their data file is addressed with 64 bit
+     * offsets. Both read the same, but version 1 data files cannot grow past 2 GB. Version 3 files
+     * end with the {@link FreeBlockBitmap} of the data file.
+     */
+    public static final int FORMAT_VERSION = 3;
+
     /** Attributes governing the behavior of the block disk cache. */
     private final BlockDiskCacheAttributes blockDiskCacheAttributes;
 
@@ -69,6 +77,9 @@ public class BlockDiskKeyStore<K extends Serializable>
     /** we need this so we can communicate free blocks to the data store when keys fall off the LRU */
     protected final BlockDiskCache<K, ?> blockDiskCache;
 
+    /** The block size of the data file the blocks refer to */
+    private final int blockSizeBytes;
+
     /**
      * Set the configuration options.
      * <p>
@@ -83,6 +94,8 @@ public class BlockDiskKeyStore<K extends Serializable>
         this.fileName = this.blockDiskCacheAttributes.getCacheName();
         this.maxKeySize = cacheAttributes.getMaxKeySize();
         this.blockDiskCache = blockDiskCache;
+        this.blockSizeBytes = cacheAttributes.getBlockSizeBytes() > 0
+            ? cacheAttributes.getBlockSizeBytes() : BlockDisk.DEFAULT_BLOCK_SIZE_BYTES;
 
         String rootDirName = cacheAttributes.getDiskPath();
         File rootDirectory = new File( rootDirName );
@@ -112,8 +125,9 @@ public class BlockDiskKeyStore<K extends Serializable>
     }
 
     /**
-     * Saves key file to disk. This gets the LRUMap entry set and write the entries out one by one
-     * after putting them in a wrapper.
+     * Saves key file to disk. This writes a header with the format version and the block size,
+     * then gets the LRUMap entry set and write the entries out one by one after putting them in a
+     * wrapper. The map of the empty blocks comes last, so the free space is known after a restart.
      */
     protected void saveKeys()
     {
@@ -134,6 +148,8 @@ public class BlockDiskKeyStore<K extends Serializable>
                 ObjectOutputStream oos = new ObjectOutputStream( bos );
                 try
                 {
+                    oos.writeObject( new KeyFileHeader( FORMAT_VERSION, blockSizeBytes ) );
+
                     // don't need to synchronize, since the underlying collection makes a copy
                     for (Map.Entry<K, int[]> entry : keyHash.entrySet())
                     {
@@ -143,6 +159,12 @@ public class BlockDiskKeyStore<K extends Serializable>
                         // stream these out in the loop.
                         oos.writeObject( descriptor );
                     }
+
+                    // after the keys, so blocks freed while they were written are in it
+                    if ( blockDiskCache != null )
+                    {
+                        oos.writeObject( blockDiskCache.getEmptyBlockMap() );
+                    }
                 }
                 finally
                 {
@@ -213,6 +235,9 @@ public class BlockDiskKeyStore<K extends Serializable>
     /**
      * Loads the keys from the .key file. The keys are stored individually on disk. They are added
      * one by one to an LRUMap..
+     * <p>
+     * Files without a header are read as version 1. Files of a newer version, or written for
+     * another block size, are not loaded, so the cache starts empty.
      */
     protected void loadKeys()
     {
@@ -227,6 +252,7 @@ public class BlockDiskKeyStore<K extends Serializable>
             initKeyMap();
 
             HashMap<K, int[]> keys = new HashMap<K, int[]>();
+            FreeBlockBitmap emptyBlocks = null;
 
             synchronized (keyFile)
             {
@@ -237,8 +263,23 @@ public class BlockDiskKeyStore<K extends Serializable>
                 {
                     while ( true )
                     {
+                        Object read = ois.readObject();
+                        if ( read instanceof KeyFileHeader )
+                        {
+                            if ( !isCompatible( (KeyFileHeader) read ) )
+                            {
+                                return;
+                            }
+                            continue;
+                        }
+                        if ( read instanceof FreeBlockBitmap )
+                        {
+                            emptyBlocks = (FreeBlockBitmap) read;
+                            continue;
+                        }
+
                         @SuppressWarnings("unchecked") // Need to cast from Object
-                        BlockDiskElementDescriptor<K> descriptor = (BlockDiskElementDescriptor<K>) ois.readObject();
+                        BlockDiskElementDescriptor<K> descriptor = (BlockDiskElementDescriptor<K>) read;
                         if ( descriptor != null )
                         {
                             keys.put( descriptor.getKey(), descriptor.getBlocks() );
@@ -255,6 +296,11 @@ public class BlockDiskKeyStore<K extends Serializable>
                 }
             }
 
+            if ( emptyBlocks != null && blockDiskCache != null )
+            {
+                restoreEmptyBlocks( emptyBlocks, keys );
+            }
+
             if ( !keys.isEmpty() )
             {
                 keyHash.putAll( keys );
@@ -277,6 +323,63 @@ public class BlockDiskKeyStore<K extends Serializable>
         }
     }
 
+    /**
+     * Hands the saved map of the empty blocks to the data file. Keys may have been put while the
+     * file was saved, so the blocks of the loaded keys are marked as used again. Blocks freed
+     * while the file was saved may be missing from the map; they stay unused until the next
+     * reset, as all freed blocks did before the map was saved.
+     * <p>
+     * @param emptyBlocks the saved map
+     * @param keys the loaded keys
+     */
+    private void restoreEmptyBlocks( FreeBlockBitmap emptyBlocks, Map<K, int[]> keys )
+    {
+        blockDiskCache.loadEmptyBlocks( emptyBlocks );
+
+        FreeBlockBitmap live = blockDiskCache.getEmptyBlockMap();
+        int inUse = 0;
+        for ( int[] blocks : keys.values() )
+        {
+            for ( int block : blocks )
+            {
+                if ( live.take( block ) )
+                {
+                    inUse++;
+                }
+            }
+        }
+
+        if ( inUse > 0 && log.isInfoEnabled() )
+        {
+            log.info( logCacheName + inUse + " blocks of the saved empty block map are used by keys" );
+        }
+        if ( log.isInfoEnabled() )
+        {
+            log.info( logCacheName + "Loaded " + live.size() + " empty blocks" );
+        }
+    }
+
+    /**
+     * @param header
+     * @return true if the keys after the header can be used with this data file
+     */
+    private boolean isCompatible( KeyFileHeader header )
+    {
+        if ( header.formatVersion > FORMAT_VERSION )
+        {
+            log.warn( logCacheName + "Key file [" + fileName + "] has format version " + header.formatVersion
+                + ", newer than " + FORMAT_VERSION + "; ignoring it" );
+            return false;
+        }
+        if ( header.blockSizeBytes != blockSizeBytes )
+        {
+            log.warn( logCacheName + "Key file [" + fileName + "] was written for blocks of " + header.blockSizeBytes
+                + " bytes, not " + blockSizeBytes + "; ignoring it" );
+            return false;
+        }
+        return true;
+    }
+
     /**
      * Gets the entry set.
      * <p>
@@ -340,6 +443,32 @@ public class BlockDiskKeyStore<K extends Serializable>
         return this.keyHash.remove( key );
     }
 
+    /**
+     * The first object in the key file. It says how to read the rest and which data files it fits.
+     */
+    static final class KeyFileHeader
+        implements Serializable
+    {
+        /** Don't change */
+        private static final long serialVersionUID = -3312440325727466914L;
+
+        /** The format version */
+        final int formatVersion;
+
+        /** The block size of the data file */
+        final int blockSizeBytes;
+
+        /**
+         * @param formatVersion
+         * @param blockSizeBytes
+         */
+        KeyFileHeader( int formatVersion, int blockSizeBytes )
+        {
+            this.formatVersion = formatVersion;
+            this.blockSizeBytes = blockSizeBytes;
+        }
+    }
+
     /**
      * Class for recycling and lru. This implements the LRU overflow callback, so we can mark the
      * blocks as free.
@@ -0,0 +1,315 @@
+package org.apache.commons.jcs.auxiliary.disk.block;
+
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+import java.io.IOException;
+import java.io.ObjectOutputStream;
+import java.io.Serializable;
+import java.util.Arrays;
+
+/**
+ * The free blocks of a block disk data file, one bit per block.
+ * <p>
+ * A million free blocks take 128 KB, where a list of boxed block numbers would take tens of
+ * megabytes. Allocation is next fit: it looks for a run of free blocks that follow each other,
+ * starting where the last allocation ended, and gives up on the run after a bounded distance, in
+ * which case it takes the first free blocks it finds. Neither allocating nor freeing creates
+ * objects, and empty stretches of the map are skipped 64 blocks at a time.
+ * <p>
+ * The map is serializable so it can be saved with the keys. All methods are synchronized.
+ */
+public class FreeBlockBitmap
+    implements Serializable
+{
+    /** Don't change */
+    private static final long serialVersionUID = 6230863578815470294L;
+
+    /** How far past the cursor a run is looked for before taking scattered blocks */
+    private static final int MAX_RUN_SEARCH_BLOCKS = 64 * 1024;
+
+    /** One bit per block, set if the block is free */
+    private long[] words = new long[16];
+
+    /** The number of bits set */
+    private int freeCount = 0;
+
+    /** Where the next search starts */
+    private int cursor = 0;
+
+    /**
+     * Marks the block as free.
+     * <p>
+     * @param block
+     */
+    public synchronized void free( int block )
+    {
+        ensureCapacity( block );
+        long mask = 1L << block;
+        if ( ( words[block >>> 6] & mask ) == 0 )
+        {
+            words[block >>> 6] |= mask;
+            freeCount++;
+        }
+    }
+
+    /**
+     * Marks the blocks as free.
+     * <p>
+     * @param blocks
+     */
+    public synchronized void free( int[] blocks )
+    {
+        for ( int block : blocks )
+        {
+            free( block );
+        }
+    }
+
+    /**
+     * Marks a block as used.
+     * <p>
+     * @param block
+     * @return true if the block was free
+     */
+    public synchronized boolean take( int block )
+    {
+        if ( block < 0 || block >>> 6 >= words.length )
+        {
+            return false;
+        }
+        long mask = 1L << block;
+        if ( ( words[block >>> 6] & mask ) == 0 )
+        {
+            return false;
+        }
+        words[block >>> 6] &= ~mask;
+        freeCount--;
+        return true;
+    }
+
+    /**
+     * Takes up to count free blocks, in ascending order. If there is a run of count free blocks
+     * near the cursor, that run is taken.
+     * <p>
+     * @param blocks receives the block numbers from index 0
+     * @param count the number of blocks wanted
+     * @return the number of blocks taken, less than count if there were not enough free
+     */
+    public synchronized int allocate( int[] blocks, int count )
+    {
+        int n = Math.min( count, freeCount );
+        if ( n == 0 )
+        {
+            return 0;
+        }
+
+        int start = findRun( n );
+        if ( start >= 0 )
+        {
+            for ( int i = 0; i < n; i++ )
+            {
+                blocks[i] = start + i;
+                take( start + i );
+            }
+        }
+        else
+        {
+            // no run nearby, take the first free blocks from the cursor on
+            int block = cursor;
+            for ( int i = 0; i < n; i++ )
+            {
+                block = nextFree( block );
+                if ( block < 0 )
+                {
+                    block = nextFree( 0 );
+                }
+                blocks[i] = block;
+                take( block );
+                block++;
+            }
+            Arrays.sort( blocks, 0, n );
+        }
+
+        cursor = blocks[n - 1] + 1;
+        return n;
+    }
+
+    /**
+     * @return the number of free blocks
+     */
+    public synchronized int size()
+    {
+        return freeCount;
+    }
+
+    /**
+     * Marks all the blocks as used.
+     */
+    public synchronized void clear()
+    {
+        Arrays.fill( words, 0 );
+        freeCount = 0;
+        cursor = 0;
+    }
+
+    /**
+     * Replaces the free blocks with those of another map, leaving out the blocks that are not in
+     * the file.
+     * <p>
+     * @param other a map that was saved with the keys
+     * @param numberOfBlocks the number of blocks in the file
+     */
+    public synchronized void load( FreeBlockBitmap other, int numberOfBlocks )
+    {
+        long[] source;
+        synchronized ( other )
+        {
+            source = other.words.clone();
+        }
+
+        clear();
+        for ( int u = 0; u < source.length; u++ )
+        {
+            long word = source[u];
+            while ( word != 0 )
+            {
+                int block = ( u << 6 ) + Long.numberOfTrailingZeros( word );
+                if ( block >= numberOfBlocks )
+                {
+                    return;
+                }
+                free( block );
+                word &= word - 1;
+            }
+        }
+    }
+
+    /**
+     * Looks for a run of free blocks from the cursor, wrapping to the start of the map once.
+     * <p>
+     * @param n the length of the run
+     * @return the first block of the run, or -1 if none was found within the search distance
+     */
+    private int findRun( int n )
+    {
+        int capacity = words.length << 6;
+        int from = cursor < capacity ? cursor : 0;
+        boolean wrapped = false;
+        int runStart = -1;
+        int runLength = 0;
+
+        int block = nextFree( from );
+        while ( true )
+        {
+            if ( block < 0 || ( wrapped && block >= from ) )
+            {
+                if ( wrapped )
+                {
+                    return -1;
+                }
+                // runs do not go across the end of the map
+                wrapped = true;
+                runStart = -1;
+                block = nextFree( 0 );
+                continue;
+            }
+
+            int distance = wrapped ? capacity - from + block : block - from;
+            if ( distance > MAX_RUN_SEARCH_BLOCKS )
+            {
+                return -1;
+            }
+
+            if ( runStart >= 0 && block == runStart + runLength )
+            {
+                runLength++;
+            }
+            else
+            {
+                runStart = block;
+                runLength = 1;
+            }
+            if ( runLength == n )
+            {
+                return runStart;
+            }
+
+            block = nextFree( block + 1 );
+        }
+    }
+
+    /**
+     * @param from the first block to look at
+     * @return the first free block at or after from, or -1
+     */
+    private int nextFree( int from )
+    {
+        int u = from >>> 6;
+        if ( u >= words.length )
+        {
+            return -1;
+        }
+        long word = words[u] & ( -1L << from );
+        while ( word == 0 )
+        {
+            if ( ++u == words.length )
+            {
+                return -1;
+            }
+            word = words[u];
+        }
+        return ( u << 6 ) + Long.numberOfTrailingZeros( word );
+    }
+
+    /**
+     * Grows the map so it has a bit for the block.
+     * <p>
+     * @param block
+     */
+    private void ensureCapacity( int block )
+    {
+        int needed = ( block >>> 6 ) + 1;
+        if ( needed > words.length )
+        {
+            words = Arrays.copyOf( words, Math.max( words.length * 2, needed ) );
+        }
+    }
+
+    /**
+     * Holds the lock while the map is written, so it is consistent.
+     * <p>
+     * @param out
+     * @throws IOException
+     */
+    private synchronized void writeObject( ObjectOutputStream out )
+        throws IOException
+    {
+        out.defaultWriteObject();
+    }
+
+    /**
+     * @return the number of free blocks and the cursor
+     */
+    @Override
+    public synchronized String toString()
+    {
+        return "FreeBlockBitmap freeCount [" + freeCount + "] cursor [" + cursor + "]";
+    }
+}
@@ -19,6 +19,7 @@ package org.apache.commons.jcs.auxiliary.disk.indexed;
  * under the License.
  */
 
+import java.io.EOFException;
 import java.io.File;
 import java.io.FileNotFoundException;
 import java.io.IOException;
@@ -26,7 +27,9 @@ import java.io.RandomAccessFile;
 import java.io.Serializable;
 import java.nio.ByteBuffer;
 import java.nio.channels.FileChannel;
+import java.util.List;
 
+import org.apache.commons.jcs.auxiliary.disk.MappedDataFile;
 import org.apache.commons.jcs.engine.behavior.IElementSerializer;
 import org.apache.commons.jcs.utils.serialization.StandardSerializer;
 import org.apache.commons.logging.Log;
@@ -50,6 +53,9 @@ class IndexedDisk
     /** The data file. */
     private final FileChannel fc;
 
+    /** The memory mappings used for reads, or null if reads go through the channel. */
+    private volatile MappedDataFile mappedFile;
+
     /**
      * Constructor for the Disk object
      * <p>
@@ -80,6 +86,12 @@ class IndexedDisk
     protected <T extends Serializable> T readObject( IndexedDiskElementDescriptor ded )
         throws IOException, ClassNotFoundException
     {
+        MappedDataFile mapped = mappedFile;
+        if ( mapped != null )
+        {
+            return elementSerializer.<T>deSerialize( readMapped( mapped, ded ) );
+        }
+
         String message = null;
         boolean corrupted = false;
         long fileLength = fc.size();
@@ -119,6 +131,37 @@ class IndexedDisk
         return elementSerializer.deSerialize( data.array() );
     }
 
+    /**
+     * Reads the record from the memory mappings. The header is checked against the descriptor; a
+     * record that runs past the end of the file shows up as an EOFException from the mappings.
+     * <p>
+     * @param mapped
+     * @param ded
+     * @return the serialized bytes of the record
+     * @throws IOException
+     */
+    private byte[] readMapped( MappedDataFile mapped, IndexedDiskElementDescriptor ded )
+        throws IOException
+    {
+        String message;
+        try
+        {
+            int datalen = mapped.readInt( ded.pos );
+            if ( ded.len == datalen )
+            {
+                return mapped.read( ded.pos + HEADER_SIZE_BYTES, ded.len );
+            }
+            message = "Record " + ded + " does not match data length on disk (" + datalen + ")";
+        }
+        catch ( EOFException e )
+        {
+            message = "Record " + ded + " exceeds file length.";
+        }
+
+        log.warn( "\n The file is corrupt: " + "\n " + message );
+        throw new IOException( "The File Is Corrupt, need to reset" );
+    }
+
     /**
      * Moves the data stored from one position to another. The descriptor's position is updated.
      * <p>
@@ -152,9 +195,17 @@ class IndexedDisk
         {
             // chunk it
             int chunkSize = Math.min( remaining, buffer.capacity() );
-            fc.read(buffer, readPos);
+            // only read the chunk, the bytes after it may belong to a record that is moved next
+            buffer.limit( chunkSize );
+            while ( buffer.hasRemaining() && fc.read( buffer, readPos + buffer.position() ) > 0 )
+            {
+                // keep reading until the chunk is complete
+            }
             buffer.flip();
-            fc.write(buffer, writePos);
+            while ( buffer.hasRemaining() )
+            {
+                fc.write( buffer, writePos + buffer.position() );
+            }
             buffer.clear();
 
             writePos += chunkSize;
@@ -198,6 +249,72 @@ class IndexedDisk
         return written == data.length;
     }
 
+    /**
+     * Writes a batch of byte arrays to the positions of their descriptors and forces the channel
+     * once at the end. Descriptors that follow each other in the list and in the file are written
+     * with a single call.
+     * <p>
+     * @param deds the descriptors, in the same order as the data
+     * @param data the byte arrays to write
+     * @return true if all the bytes were written
+     * @throws IOException
+     */
+    protected boolean write( List<IndexedDiskElementDescriptor> deds, List<byte[]> data )
+        throws IOException
+    {
+        boolean complete = true;
+        int start = 0;
+        while ( start < deds.size() )
+        {
+            // find the run of descriptors that are contiguous in the file
+            long pos = deds.get( start ).pos;
+            long next = pos;
+            int size = 0;
+            int end = start;
+            while ( end < deds.size() && deds.get( end ).pos == next )
+            {
+                if ( data.get( end ).length != deds.get( end ).len )
+                {
+                    throw new IOException( "Mismatched descriptor and data lengths" );
+                }
+                size += HEADER_SIZE_BYTES + data.get( end ).length;
+                next += HEADER_SIZE_BYTES + data.get( end ).length;
+                end++;
+            }
+
+            if ( log.isTraceEnabled() )
+            {
+                log.trace( "write> pos=" + pos + ", elements=" + ( end - start ) + ", bytes=" + size );
+            }
+
+            ByteBuffer buffer = ByteBuffer.allocate( size );
+            for ( int i = start; i < end; i++ )
+            {
+                buffer.putInt( data.get( i ).length );
+                buffer.put( data.get( i ) );
+            }
+            buffer.flip();
+
+            int written = 0;
+            while ( buffer.hasRemaining() )
+            {
+                int count = fc.write( buffer, pos + written );
+                if ( count <= 0 )
+                {
+                    break;
+                }
+                written += count;
+            }
+            complete = complete && written == size;
+
+            start = end;
+        }
+
+        fc.force( true );
+
+        return complete;
+    }
+
     /**
      * Serializes the object and write it out to the given position.
      * <p>
@@ -250,6 +367,11 @@ class IndexedDisk
         {
             log.debug( "Resetting Indexed File [" + filepath + "]" );
         }
+        MappedDataFile mapped = mappedFile;
+        if ( mapped != null )
+        {
+            mapped.reset();
+        }
         fc.truncate(0);
         fc.force(true);
     }
@@ -267,9 +389,30 @@ class IndexedDisk
         {
             log.info( "Truncating file [" + filepath + "] to " + length );
         }
+        MappedDataFile mapped = mappedFile;
+        if ( mapped != null )
+        {
+            mapped.reset();
+        }
         fc.truncate( length );
     }
 
+    /**
+     * @param memoryMappedReads whether reads are served from memory mappings of the file
+     */
+    protected void setMemoryMappedReads( boolean memoryMappedReads )
+    {
+        this.mappedFile = memoryMappedReads ? new MappedDataFile( fc ) : null;
+    }
+
+    /**
+     * @return whether reads are served from memory mappings of the file
+     */
+    protected boolean isMemoryMappedReads()
+    {
+        return mappedFile != null;
+    }
+
     /**
      * This is used for debugging.
      * <p>
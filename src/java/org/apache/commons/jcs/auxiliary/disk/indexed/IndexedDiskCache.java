@@ -30,6 +30,7 @@ import java.util.ConcurrentModificationException;
 import java.util.HashMap;
 import java.util.HashSet;
 import java.util.Iterator;
+import java.util.LinkedHashMap;
 import java.util.LinkedList;
 import java.util.List;
 import java.util.Map;
@@ -51,6 +52,7 @@ import org.apache.commons.jcs.engine.stats.StatElement;
 import org.apache.commons.jcs.engine.stats.Stats;
 import org.apache.commons.jcs.engine.stats.behavior.IStatElement;
 import org.apache.commons.jcs.engine.stats.behavior.IStats;
+import org.apache.commons.jcs.utils.struct.LongKeyMap;
 import org.apache.commons.jcs.utils.struct.SortedPreferentialArray;
 import org.apache.commons.jcs.utils.timing.ElapsedTimer;
 import org.apache.commons.logging.Log;
@@ -232,6 +234,7 @@ public class IndexedDiskCache<K extends Serializable, V extends Serializable>
         throws FileNotFoundException, IOException, InterruptedException
     {
         this.dataFile = new IndexedDisk( new File( rafDir, fileName + ".data" ), getElementSerializer() );
+        this.dataFile.setMemoryMappedReads( cattr.isMemoryMappedReads() );
 
         this.keyFile = new IndexedDisk( new File( rafDir, fileName + ".key" ), getElementSerializer() );
 
@@ -524,56 +527,7 @@ public class IndexedDiskCache<K extends Serializable, V extends Serializable>
             {
                 old = keyHash.get( ce.getKey() );
 
-                // Item with the same key already exists in file.
-                // Try to reuse the location if possible.
-                if ( old != null && data.length <= old.len )
-                {
-                    // Reuse the old ded. The defrag relies on ded updates by reference, not
-                    // replacement.
-                    ded = old;
-                    ded.len = data.length;
-                }
-                else
-                {
-                    // we need this to compare in the recycle bin
-                    ded = new IndexedDiskElementDescriptor( dataFile.length(), data.length );
-
-                    if ( doRecycle )
-                    {
-                        IndexedDiskElementDescriptor rep = recycle
-                            .takeNearestLargerOrEqual( ded );
-                        if ( rep != null )
-                        {
-                            ded = rep;
-                            ded.len = data.length;
-                            recycleCnt++;
-                            this.adjustBytesFree( ded, false );
-                            if ( log.isDebugEnabled() )
-                            {
-                                log.debug( logCacheName + "using recycled ded " + ded.pos + " rep.len = " + rep.len
-                                    + " ded.len = " + ded.len );
-                            }
-                        }
-                    }
-
-                    // Put it in the map
-                    keyHash.put( ce.getKey(), ded );
-
-                    if ( queueInput )
-                    {
-                        queuedPutList.add( ded );
-                        if ( log.isDebugEnabled() )
-                        {
-                            log.debug( logCacheName + "added to queued put list." + queuedPutList.size() );
-                        }
-                    }
-
-                    // add the old slot to the recycle bin
-                    if ( old != null )
-                    {
-                        addToRecycleBin( old );
-                    }
-                }
+                ded = allocate( ce.getKey(), data.length, dataFile.length() );
 
                 dataFile.write( ded, data );
             }
@@ -604,6 +558,158 @@ public class IndexedDiskCache<K extends Serializable, V extends Serializable>
         }
     }
 
+    /**
+     * Writes a batch of elements. They are serialized before the storage lock is taken, placed
+     * under a single write lock, and written with one call to the data file, which coalesces the
+     * elements appended at the end of the file and forces the channel once.
+     * <p>
+     * @param cacheElements
+     */
+    @Override
+    protected void processUpdateMultiple( List<ICacheElement<K, V>> cacheElements )
+    {
+        if ( !alive )
+        {
+            log.error( logCacheName + "No longer alive; aborting put of " + cacheElements.size() + " elements" );
+            return;
+        }
+
+        // the last element wins if a key is in the batch more than once
+        Map<K, byte[]> serialized = new LinkedHashMap<K, byte[]>();
+
+        for ( ICacheElement<K, V> ce : cacheElements )
+        {
+            try
+            {
+                serialized.put( ce.getKey(), getElementSerializer().serialize( ce ) );
+            }
+            catch ( ConcurrentModificationException cme )
+            {
+                // do nothing, this means it has gone back to memory mid
+                // serialization
+                if ( log.isDebugEnabled() )
+                {
+                    log.debug( logCacheName + "Caught ConcurrentModificationException." + cme );
+                }
+            }
+            catch ( Exception e )
+            {
+                log.error( logCacheName + "Failure serializing element, key: " + ce.getKey(), e );
+            }
+        }
+
+        if ( serialized.isEmpty() )
+        {
+            return;
+        }
+
+        List<K> keys = new ArrayList<K>( serialized.keySet() );
+        List<byte[]> data = new ArrayList<byte[]>( serialized.values() );
+        List<IndexedDiskElementDescriptor> deds = new ArrayList<IndexedDiskElementDescriptor>( keys.size() );
+
+        storageLock.writeLock().lock();
+        try
+        {
+            long endOfFile = dataFile.length();
+            for ( int i = 0; i < keys.size(); i++ )
+            {
+                int length = data.get( i ).length;
+                IndexedDiskElementDescriptor ded = allocate( keys.get( i ), length, endOfFile );
+                if ( ded.pos == endOfFile )
+                {
+                    endOfFile += IndexedDisk.HEADER_SIZE_BYTES + length;
+                }
+                deds.add( ded );
+            }
+
+            dataFile.write( deds, data );
+
+            if ( log.isDebugEnabled() )
+            {
+                log.debug( logCacheName + "Put " + keys.size() + " elements to file: " + fileName );
+            }
+        }
+        catch ( Exception e )
+        {
+            log.error( logCacheName + "Failure updating " + keys.size() + " elements", e );
+        }
+        finally
+        {
+            storageLock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Finds the place in the file for the data of a key and updates the key map. The old slot of
+     * the key is reused when the data fits, otherwise a slot is taken from the recycle bin or the
+     * data goes to the given end of the file. Must be called with the write lock held.
+     * <p>
+     * @param key
+     * @param length the length of the serialized element
+     * @param endOfFile where a new slot starts
+     * @return the descriptor to write the data to
+     */
+    private IndexedDiskElementDescriptor allocate( K key, int length, long endOfFile )
+    {
+        IndexedDiskElementDescriptor ded = null;
+
+        // old element with same key
+        IndexedDiskElementDescriptor old = keyHash.get( key );
+
+        // Item with the same key already exists in file.
+        // Try to reuse the location if possible.
+        if ( old != null && length <= old.len )
+        {
+            // Reuse the old ded. The defrag relies on ded updates by reference, not
+            // replacement.
+            ded = old;
+            ded.len = length;
+        }
+        else
+        {
+            // we need this to compare in the recycle bin
+            ded = new IndexedDiskElementDescriptor( endOfFile, length );
+
+            if ( doRecycle )
+            {
+                IndexedDiskElementDescriptor rep = recycle
+                    .takeNearestLargerOrEqual( ded );
+                if ( rep != null )
+                {
+                    ded = rep;
+                    ded.len = length;
+                    recycleCnt++;
+                    this.adjustBytesFree( ded, false );
+                    if ( log.isDebugEnabled() )
+                    {
+                        log.debug( logCacheName + "using recycled ded " + ded.pos + " rep.len = " + rep.len
+                            + " ded.len = " + ded.len );
+                    }
+                }
+            }
+
+            // Put it in the map
+            keyHash.put( key, ded );
+
+            if ( queueInput )
+            {
+                queuedPutList.add( ded );
+                if ( log.isDebugEnabled() )
+                {
+                    log.debug( logCacheName + "added to queued put list." + queuedPutList.size() );
+                }
+            }
+
+            // add the old slot to the recycle bin
+            if ( old != null )
+            {
+                addToRecycleBin( old );
+            }
+        }
+
+        return ded;
+    }
+
     /**
      * Gets the key, then goes to disk to get the object.
      * <p>
@@ -827,6 +933,74 @@ public class IndexedDiskCache<K extends Serializable, V extends Serializable>
         return removed;
     }
 
+    /**
+     * Removes a batch of keys under a single write lock.
+     * <p>
+     * @param keys
+     */
+    @Override
+    protected void processRemoveMultiple( Set<K> keys )
+    {
+        if ( !alive )
+        {
+            log.error( logCacheName + "No longer alive so not removing " + keys.size() + " keys" );
+            return;
+        }
+
+        boolean reset = false;
+        int removedCount = 0;
+        storageLock.writeLock().lock();
+        try
+        {
+            for ( K key : keys )
+            {
+                if ( key == null )
+                {
+                    continue;
+                }
+
+                boolean removed;
+                if ( key instanceof String && key.toString().endsWith( CacheConstants.NAME_COMPONENT_DELIMITER ) )
+                {
+                    removed = performPartialKeyRemoval( (String) key );
+                }
+                else if ( key instanceof GroupAttrName && ((GroupAttrName<?>)key).attrName == null )
+                {
+                    removed = performGroupRemoval( ((GroupAttrName<?>)key).groupId );
+                }
+                else
+                {
+                    removed = performSingleKeyRemoval( key );
+                }
+
+                if ( removed )
+                {
+                    removedCount++;
+                }
+            }
+        }
+        catch ( Exception e )
+        {
+            log.error( logCacheName + "Problem removing elements.", e );
+            reset = true;
+        }
+        finally
+        {
+            storageLock.writeLock().unlock();
+        }
+
+        if ( reset )
+        {
+            reset();
+        }
+
+        // this increments the remove count once per removed key
+        for ( int i = 0; i < removedCount; i++ )
+        {
+            doOptimizeRealTime();
+        }
+    }
+
     /**
      * Iterates over the keyset. Builds a list of matches. Removes all the keys in the list. Does
      * not remove via the iterator, since the map impl may not support it.
@@ -978,6 +1152,7 @@ public class IndexedDiskCache<K extends Serializable, V extends Serializable>
             keyFileTemp.delete();
 
             dataFile = new IndexedDisk( new File( rafDir, fileName + ".data" ), getElementSerializer() );
+            dataFile.setMemoryMappedReads( this.cattr.isMemoryMappedReads() );
 
             keyFile = new IndexedDisk( new File( rafDir, fileName + ".key" ), getElementSerializer() );
 
@@ -1015,7 +1190,15 @@ public class IndexedDiskCache<K extends Serializable, V extends Serializable>
     private void initializeKeyMap()
     {
         keyHash = null;
-        if ( maxKeySize >= 0 )
+        if ( cattr.isLongKeys() )
+        {
+            keyHash = createLongKeyMap();
+            if ( log.isInfoEnabled() )
+            {
+                log.info( logCacheName + "Using a long key map, maxKeySize: '" + maxKeySize + "'" );
+            }
+        }
+        else if ( maxKeySize >= 0 )
         {
             keyHash = new LRUMap( maxKeySize );
             if ( log.isInfoEnabled() )
@@ -1035,6 +1218,27 @@ public class IndexedDiskCache<K extends Serializable, V extends Serializable>
         }
     }
 
+    /**
+     * Creates a primitive long key map, bounded by the maxKeySize if it is not negative. The keys
+     * of the region must all be Longs.
+     * <p>
+     * @return the key map
+     */
+    @SuppressWarnings("unchecked") // the region promises Long keys
+    private Map<K, IndexedDiskElementDescriptor> createLongKeyMap()
+    {
+        Map<Long, IndexedDiskElementDescriptor> map;
+        if ( maxKeySize >= 0 )
+        {
+            map = new LongKeyLRUMap( maxKeySize );
+        }
+        else
+        {
+            map = new LongKeyMap<IndexedDiskElementDescriptor>();
+        }
+        return (Map<K, IndexedDiskElementDescriptor>) (Map<?, ?>) map;
+    }
+
     /**
      * Dispose of the disk cache in a background thread. Joins against this thread to put a cap on
      * the disposal time.
@@ -1746,4 +1950,39 @@ public class IndexedDiskCache<K extends Serializable, V extends Serializable>
             doOptimizeRealTime();
         }
     }
+
+    /**
+     * Class for recycling and lru for long keys. This keeps the keys in primitive arrays.
+     */
+    public class LongKeyLRUMap
+        extends LongKeyMap<IndexedDiskElementDescriptor>
+    {
+        /**
+         * @param maxKeySize
+         */
+        public LongKeyLRUMap( int maxKeySize )
+        {
+            super( maxKeySize );
+        }
+
+        /**
+         * The least recently used key was dropped. We will store the position and size of the
+         * spot on disk in the recycle bin.
+         * <p>
+         * @param key
+         * @param value
+         */
+        @Override
+        protected void processRemovedLRU( long key, IndexedDiskElementDescriptor value )
+        {
+            addToRecycleBin( value );
+            if ( log.isDebugEnabled() )
+            {
+                log.debug( logCacheName + "Removing key: [" + key + "] from key store." );
+                log.debug( logCacheName + "Key store size: [" + this.size() + "]." );
+            }
+
+            doOptimizeRealTime();
+        }
+    }
 }
@@ -60,6 +60,18 @@ public class IndexedDiskCacheAttributes
     /** Should we clear the disk on startup. If true the congtents of disk are cleared. */
     private boolean clearDiskOnStartup = DEFAULT_CLEAR_DISK_ON_STARTUP;
 
+    /** Are all the keys Longs. */
+    public static final boolean DEFAULT_LONG_KEYS = false;
+
+    /** If true the keys are kept in a primitive long map. Only for regions whose keys are all Longs. */
+    private boolean longKeys = DEFAULT_LONG_KEYS;
+
+    /** Should reads be served from memory mappings of the data file. */
+    public static final boolean DEFAULT_MEMORY_MAPPED_READS = false;
+
+    /** If true the data file is read through memory mappings instead of channel reads. */
+    private boolean memoryMappedReads = DEFAULT_MEMORY_MAPPED_READS;
+
     /**
      * Constructor for the DiskCacheAttributes object
      */
@@ -165,6 +177,38 @@ public class IndexedDiskCacheAttributes
         return clearDiskOnStartup;
     }
 
+    /**
+     * @param longKeys whether all the keys are Longs
+     */
+    public void setLongKeys( boolean longKeys )
+    {
+        this.longKeys = longKeys;
+    }
+
+    /**
+     * @return whether all the keys are Longs
+     */
+    public boolean isLongKeys()
+    {
+        return longKeys;
+    }
+
+    /**
+     * @param memoryMappedReads whether reads are served from memory mappings of the data file
+     */
+    public void setMemoryMappedReads( boolean memoryMappedReads )
+    {
+        this.memoryMappedReads = memoryMappedReads;
+    }
+
+    /**
+     * @return whether reads are served from memory mappings of the data file
+     */
+    public boolean isMemoryMappedReads()
+    {
+        return memoryMappedReads;
+    }
+
     /**
      * Returns a copy of the attributes.
      * <p>
@@ -202,6 +246,8 @@ public class IndexedDiskCacheAttributes
         str.append( "\n shutdownSpoolTimeLimit  = " + shutdownSpoolTimeLimit );
         str.append( "\n optimizeOnShutdown  = " + optimizeOnShutdown );
         str.append( "\n clearDiskOnStartup  = " + clearDiskOnStartup );
+        str.append( "\n longKeys  = " + longKeys );
+        str.append( "\n memoryMappedReads  = " + memoryMappedReads );
         return str.toString();
     }
 }
@@ -326,32 +326,8 @@ public class JDBCDiskCache<K extends Serializable, V extends Serializable>
         boolean exists = false;
         try
         {
-            String sqlI = "insert into "
-                + getJdbcDiskCacheAttributes().getTableName()
-                + " (CACHE_KEY, REGION, ELEMENT, MAX_LIFE_SECONDS, IS_ETERNAL, CREATE_TIME, UPDATE_TIME_SECONDS, SYSTEM_EXPIRE_TIME_SECONDS) "
-                + " values (?, ?, ?, ?, ?, ?, ?, ?)";
-
-            PreparedStatement psInsert = con.prepareStatement( sqlI );
-            psInsert.setString( 1, (String) ce.getKey() );
-            psInsert.setString( 2, this.getCacheName() );
-            psInsert.setBytes( 3, element );
-            psInsert.setLong( 4, ce.getElementAttributes().getMaxLifeSeconds() );
-            if ( ce.getElementAttributes().getIsEternal() )
-            {
-                psInsert.setString( 5, "T" );
-            }
-            else
-            {
-                psInsert.setString( 5, "F" );
-            }
-            Timestamp createTime = new Timestamp( ce.getElementAttributes().getCreateTime() );
-            psInsert.setTimestamp( 6, createTime );
-
-            long now = System.currentTimeMillis() / 1000;
-            psInsert.setLong( 7, now );
-
-            long expireTime = now + ce.getElementAttributes().getMaxLifeSeconds();
-            psInsert.setLong( 8, expireTime );
+            PreparedStatement psInsert = con.prepareStatement( getInsertSql() );
+            setInsertParameters( psInsert, ce, element );
 
             psInsert.execute();
             psInsert.close();
@@ -379,6 +355,185 @@ public class JDBCDiskCache<K extends Serializable, V extends Serializable>
         return exists;
     }
 
+    /**
+     * @return the sql used to insert a row
+     */
+    private String getInsertSql()
+    {
+        return "insert into "
+            + getJdbcDiskCacheAttributes().getTableName()
+            + " (CACHE_KEY, REGION, ELEMENT, MAX_LIFE_SECONDS, IS_ETERNAL, CREATE_TIME, UPDATE_TIME_SECONDS, SYSTEM_EXPIRE_TIME_SECONDS) "
+            + " values (?, ?, ?, ?, ?, ?, ?, ?)";
+    }
+
+    /**
+     * Sets the parameters of the insert statement for the element.
+     * <p>
+     * @param psInsert
+     * @param ce
+     * @param element the serialized element
+     * @throws SQLException
+     */
+    private void setInsertParameters( PreparedStatement psInsert, ICacheElement<K, V> ce, byte[] element )
+        throws SQLException
+    {
+        psInsert.setString( 1, (String) ce.getKey() );
+        psInsert.setString( 2, this.getCacheName() );
+        psInsert.setBytes( 3, element );
+        psInsert.setLong( 4, ce.getElementAttributes().getMaxLifeSeconds() );
+        if ( ce.getElementAttributes().getIsEternal() )
+        {
+            psInsert.setString( 5, "T" );
+        }
+        else
+        {
+            psInsert.setString( 5, "F" );
+        }
+        Timestamp createTime = new Timestamp( ce.getElementAttributes().getCreateTime() );
+        psInsert.setTimestamp( 6, createTime );
+
+        long now = System.currentTimeMillis() / 1000;
+        psInsert.setLong( 7, now );
+
+        long expireTime = now + ce.getElementAttributes().getMaxLifeSeconds();
+        psInsert.setLong( 8, expireTime );
+    }
+
+    /**
+     * Writes a batch of elements over one connection. In a single transaction, the rows for the
+     * keys are deleted with one statement batch and the elements are inserted with another. If the
+     * batch fails, it is rolled back and the elements are inserted or updated one at a time.
+     * <p>
+     * @param cacheElements
+     */
+    @Override
+    protected void processUpdateMultiple( List<ICacheElement<K, V>> cacheElements )
+    {
+        List<ICacheElement<K, V>> toWrite = new ArrayList<ICacheElement<K, V>>( cacheElements.size() );
+        List<byte[]> serialized = new ArrayList<byte[]>( cacheElements.size() );
+
+        for ( ICacheElement<K, V> ce : cacheElements )
+        {
+            incrementUpdateCount();
+            try
+            {
+                serialized.add( getElementSerializer().serialize( ce ) );
+                toWrite.add( ce );
+            }
+            catch ( IOException e )
+            {
+                log.error( "Could not serialize element", e );
+            }
+        }
+
+        if ( toWrite.isEmpty() )
+        {
+            return;
+        }
+
+        if ( log.isDebugEnabled() )
+        {
+            log.debug( "Putting " + toWrite.size() + " elements on disk." );
+        }
+
+        Connection con;
+        try
+        {
+            con = getPoolAccess().getConnection();
+        }
+        catch ( SQLException e )
+        {
+            log.error( "Problem getting connection.", e );
+            return;
+        }
+
+        try
+        {
+            boolean batched = false;
+            try
+            {
+                boolean autoCommit = con.getAutoCommit();
+                con.setAutoCommit( false );
+                try
+                {
+                    String sqlD = "delete from " + getJdbcDiskCacheAttributes().getTableName()
+                        + " where REGION = ? and CACHE_KEY = ?";
+                    PreparedStatement psDelete = con.prepareStatement( sqlD );
+                    try
+                    {
+                        for ( ICacheElement<K, V> ce : toWrite )
+                        {
+                            psDelete.setString( 1, this.getCacheName() );
+                            psDelete.setString( 2, (String) ce.getKey() );
+                            psDelete.addBatch();
+                        }
+                        psDelete.executeBatch();
+                    }
+                    finally
+                    {
+                        psDelete.close();
+                    }
+
+                    PreparedStatement psInsert = con.prepareStatement( getInsertSql() );
+                    try
+                    {
+                        for ( int i = 0; i < toWrite.size(); i++ )
+                        {
+                            setInsertParameters( psInsert, toWrite.get( i ), serialized.get( i ) );
+                            psInsert.addBatch();
+                        }
+                        psInsert.executeBatch();
+                    }
+                    finally
+                    {
+                        psInsert.close();
+                    }
+
+                    con.commit();
+                    batched = true;
+                    alive = true;
+                }
+                catch ( SQLException e )
+                {
+                    log.warn( "Batch update failed, updating elements one at a time.", e );
+                    con.rollback();
+                }
+                finally
+                {
+                    con.setAutoCommit( autoCommit );
+                }
+            }
+            catch ( SQLException e )
+            {
+                log.error( "Problem running batch update.", e );
+            }
+
+            if ( !batched )
+            {
+                for ( int i = 0; i < toWrite.size(); i++ )
+                {
+                    insertOrUpdate( toWrite.get( i ), con, serialized.get( i ) );
+                }
+            }
+        }
+        finally
+        {
+            try
+            {
+                con.close();
+            }
+            catch ( SQLException e )
+            {
+                log.error( "Problem closing connection.", e );
+            }
+        }
+
+        if ( log.isDebugEnabled() )
+        {
+            log.debug( "Update Count [" + updateCount + "]" );
+        }
+    }
+
     /**
      * This updates a row in the database.
      * <p>
@@ -799,6 +954,82 @@ public class JDBCDiskCache<K extends Serializable, V extends Serializable>
         return false;
     }
 
+    /**
+     * Deletes a batch of keys over one connection with a single statement batch. Partial keys are
+     * removed one at a time.
+     * <p>
+     * @param keys
+     */
+    @Override
+    protected void processRemoveMultiple( Set<K> keys )
+    {
+        List<K> singleKeys = new ArrayList<K>( keys.size() );
+        for ( K key : keys )
+        {
+            if ( key instanceof String && key.toString().endsWith( CacheConstants.NAME_COMPONENT_DELIMITER ) )
+            {
+                processRemove( key );
+            }
+            else
+            {
+                singleKeys.add( key );
+            }
+        }
+
+        if ( singleKeys.isEmpty() )
+        {
+            return;
+        }
+
+        String sql = "delete from " + getJdbcDiskCacheAttributes().getTableName()
+            + " where REGION = ? and CACHE_KEY = ?";
+
+        try
+        {
+            Connection con = getPoolAccess().getConnection();
+            PreparedStatement psDelete = null;
+            try
+            {
+                psDelete = con.prepareStatement( sql );
+                for ( K key : singleKeys )
+                {
+                    psDelete.setString( 1, this.getCacheName() );
+                    psDelete.setString( 2, key.toString() );
+                    psDelete.addBatch();
+                }
+
+                psDelete.executeBatch();
+
+                alive = true;
+            }
+            catch ( SQLException e )
+            {
+                log.error( "Problem running batch delete. sql [" + sql + "]", e );
+                alive = false;
+            }
+            finally
+            {
+                try
+                {
+                    if ( psDelete != null )
+                    {
+                        psDelete.close();
+                    }
+                    con.close();
+                }
+                catch ( SQLException e1 )
+                {
+                    log.error( "Problem closing statement.", e1 );
+                }
+            }
+        }
+        catch ( Exception e )
+        {
+            log.error( "Problem updating cache.", e );
+            reset();
+        }
+    }
+
     /**
      * This should remove all elements. The auxiliary can be configured to forbid this behavior. If
      * remove all is not allowed, the method balks.
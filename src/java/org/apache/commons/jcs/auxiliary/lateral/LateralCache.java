@@ -23,6 +23,7 @@ import java.io.IOException;
 import java.io.Serializable;
 import java.util.Collections;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
 import java.util.Set;
 
@@ -120,6 +121,30 @@ public class LateralCache<K extends Serializable, V extends Serializable>
         }
     }
 
+    /**
+     * Sends a batch of puts to the lateral service in one call.
+     * <p>
+     * @param cacheElements
+     * @throws IOException
+     */
+    @Override
+    protected void processUpdateMultiple( List<ICacheElement<K, V>> cacheElements )
+        throws IOException
+    {
+        try
+        {
+            if ( log.isDebugEnabled() )
+            {
+                log.debug( "updateMultiple: lateral = [" + lateralCacheService + "], elements = " + cacheElements.size() );
+            }
+            lateralCacheService.updateMultiple( cacheElements, LateralCacheInfo.listenerId );
+        }
+        catch ( Exception ex )
+        {
+            handleException( ex, "Failed to put " + cacheElements.size() + " elements to " + cacheName + "@" + lateralCacheAttributes );
+        }
+    }
+
     /**
      * The performance costs are too great. It is not recommended that you enable lateral gets.
      * <p>
@@ -252,6 +277,31 @@ public class LateralCache<K extends Serializable, V extends Serializable>
         return false;
     }
 
+    /**
+     * Sends a batch of removes to the lateral service in one call.
+     * <p>
+     * @param keys
+     * @throws IOException
+     */
+    @Override
+    protected void processRemoveMultiple( Set<K> keys )
+        throws IOException
+    {
+        if ( log.isDebugEnabled() )
+        {
+            log.debug( "removing keys:" + keys );
+        }
+
+        try
+        {
+            lateralCacheService.removeMultiple( cacheName, keys, LateralCacheInfo.listenerId );
+        }
+        catch ( Exception ex )
+        {
+            handleException( ex, "Failed to remove " + keys + " from " + lateralCacheAttributes.getCacheName() + "@" + lateralCacheAttributes );
+        }
+    }
+
     /**
      * Synchronously removeAll from the remote cache; if failed, replace the remote handle with a
      * zombie.
@@ -124,6 +124,28 @@ public class LateralCacheNoWait<K extends Serializable, V extends Serializable>
         }
     }
 
+    /**
+     * Adds a single put event for the batch to the queue.
+     * <p>
+     * @param cacheElements
+     * @throws IOException
+     */
+    @Override
+    public void updateMultiple( List<ICacheElement<K, V>> cacheElements )
+        throws IOException
+    {
+        putCount += cacheElements.size();
+        try
+        {
+            eventQueue.addPutMultipleEvent( cacheElements );
+        }
+        catch ( IOException ex )
+        {
+            log.error( ex );
+            eventQueue.destroy();
+        }
+    }
+
     /**
      * Synchronously reads from the lateral cache.
      * <p>
@@ -263,6 +285,26 @@ public class LateralCacheNoWait<K extends Serializable, V extends Serializable>
         return false;
     }
 
+    /**
+     * Adds a single remove event for the batch to the queue.
+     * <p>
+     * @param keys
+     */
+    @Override
+    public void removeMultiple( Set<K> keys )
+    {
+        removeCount += keys.size();
+        try
+        {
+            eventQueue.addRemoveMultipleEvent( keys );
+        }
+        catch ( IOException ex )
+        {
+            log.error( ex );
+            eventQueue.destroy();
+        }
+    }
+
     /** Adds a removeAll request to the lateral cache. */
     public void removeAll()
     {
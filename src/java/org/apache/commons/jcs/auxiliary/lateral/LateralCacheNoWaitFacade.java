@@ -211,6 +211,34 @@ public class LateralCacheNoWaitFacade<K extends Serializable, V extends Serializ
         }
     }
 
+    /**
+     * Hands the batch to each of the no waits.
+     * <p>
+     * @param cacheElements
+     * @throws IOException
+     */
+    @Override
+    public void updateMultiple( List<ICacheElement<K, V>> cacheElements )
+        throws IOException
+    {
+        if ( log.isDebugEnabled() )
+        {
+            log.debug( "updating " + cacheElements.size() + " elements through lateral cache facade, noWaits.length = "
+                + noWaits.length );
+        }
+        try
+        {
+            for ( int i = 0; i < noWaits.length; i++ )
+            {
+                noWaits[i].updateMultiple( cacheElements );
+            }
+        }
+        catch ( Exception ex )
+        {
+            log.error( ex );
+        }
+    }
+
     /**
      * Synchronously reads from the lateral cache.
      * <p>
@@ -337,6 +365,27 @@ public class LateralCacheNoWaitFacade<K extends Serializable, V extends Serializ
         return false;
     }
 
+    /**
+     * Hands the batch of keys to each of the no waits.
+     * <p>
+     * @param keys
+     */
+    @Override
+    public void removeMultiple( Set<K> keys )
+    {
+        try
+        {
+            for ( int i = 0; i < noWaits.length; i++ )
+            {
+                noWaits[i].removeMultiple( keys );
+            }
+        }
+        catch ( Exception ex )
+        {
+            log.error( ex );
+        }
+    }
+
     /**
      * Adds a removeAll request to the lateral cache.
      */
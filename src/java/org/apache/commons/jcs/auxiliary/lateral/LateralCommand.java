@@ -30,6 +30,12 @@ public enum LateralCommand
     /** The command for removes */
     REMOVE,
 
+    /** The command for a batch of updates. Peers older than this command cannot decode it. */
+    UPDATE_MULTIPLE,
+
+    /** The command for a batch of removes. Peers older than this command cannot decode it. */
+    REMOVE_MULTIPLE,
+
     /** The command instructing us to remove all */
     REMOVEALL,
 
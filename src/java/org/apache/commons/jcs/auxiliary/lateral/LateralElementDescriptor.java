@@ -20,6 +20,7 @@ package org.apache.commons.jcs.auxiliary.lateral;
  */
 
 import java.io.Serializable;
+import java.util.List;
 
 import org.apache.commons.jcs.engine.behavior.ICacheElement;
 
@@ -37,6 +38,12 @@ public class LateralElementDescriptor<K extends Serializable, V extends Serializ
     /** The Cache Element that we are distributing. */
     public ICacheElement<K, V> ce;
 
+    /**
+     * The elements of a batch command. For a batch of removes they only carry the keys. The
+     * cache element above carries the cache name.
+     */
+    public List<ICacheElement<K, V>> ces;
+
     /**
      * The id of the the source of the request. This is used to prevent infinite
      * loops.
@@ -78,6 +85,10 @@ public class LateralElementDescriptor<K extends Serializable, V extends Serializ
         buf.append( "\n command = [" + this.command + "]" );
         buf.append( "\n valHashCode = [" + this.valHashCode + "]" );
         buf.append( "\n ICacheElement = [" + this.ce + "]" );
+        if ( this.ces != null )
+        {
+            buf.append( "\n ICacheElements = [" + this.ces.size() + "]" );
+        }
         return buf.toString();
     }
 }
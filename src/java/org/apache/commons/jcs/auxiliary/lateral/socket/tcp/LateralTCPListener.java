@@ -28,6 +28,8 @@ import java.net.ServerSocket;
 import java.net.Socket;
 import java.net.SocketTimeoutException;
 import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
 import java.util.Map;
 import java.util.Set;
 import java.util.concurrent.ExecutorService;
@@ -39,6 +41,7 @@ import org.apache.commons.jcs.auxiliary.lateral.LateralCacheInfo;
 import org.apache.commons.jcs.auxiliary.lateral.LateralElementDescriptor;
 import org.apache.commons.jcs.auxiliary.lateral.behavior.ILateralCacheListener;
 import org.apache.commons.jcs.auxiliary.lateral.socket.tcp.behavior.ITCPLateralCacheAttributes;
+import org.apache.commons.jcs.engine.behavior.ICacheBulkListener;
 import org.apache.commons.jcs.engine.behavior.ICacheElement;
 import org.apache.commons.jcs.engine.behavior.ICompositeCacheManager;
 import org.apache.commons.jcs.engine.behavior.IShutdownObserver;
@@ -53,7 +56,7 @@ import org.apache.commons.logging.LogFactory;
  * passed to a pooled executor which then calls the appropriate handle method.
  */
 public class LateralTCPListener<K extends Serializable, V extends Serializable>
-    implements ILateralCacheListener<K, V>, Serializable, IShutdownObserver
+    implements ILateralCacheListener<K, V>, ICacheBulkListener<K, V>, Serializable, IShutdownObserver
 {
     /** Don't change. */
     private static final long serialVersionUID = -9107062664967131738L;
@@ -261,6 +264,51 @@ public class LateralTCPListener<K extends Serializable, V extends Serializable>
         getCache( cacheName ).localRemove( key );
     }
 
+    /**
+     * Increments the put count by the size of the batch and puts the batch into the cache with a
+     * single call.
+     * <p>
+     * @see org.apache.commons.jcs.engine.behavior.ICacheBulkListener#handlePutMultiple(java.util.List)
+     */
+    public void handlePutMultiple( List<ICacheElement<K, V>> elements )
+        throws IOException
+    {
+        if ( elements.isEmpty() )
+        {
+            return;
+        }
+
+        putCnt += elements.size();
+
+        String cacheName = elements.get( 0 ).getCacheName();
+        if ( log.isDebugEnabled() )
+        {
+            log.debug( "handlePutMultiple> cacheName=" + cacheName + ", elements=" + elements.size() );
+        }
+
+        getCache( cacheName ).localUpdateMultiple( elements );
+    }
+
+    /**
+     * Increments the remove count by the size of the batch and removes the keys from the cache
+     * with a single call.
+     * <p>
+     * @see org.apache.commons.jcs.engine.behavior.ICacheBulkListener#handleRemoveMultiple(java.lang.String,
+     *      java.util.Set)
+     */
+    public void handleRemoveMultiple( String cacheName, Set<K> keys )
+        throws IOException
+    {
+        removeCnt += keys.size();
+
+        if ( log.isDebugEnabled() )
+        {
+            log.debug( "handleRemoveMultiple> cacheName=" + cacheName + ", keys=" + keys.size() );
+        }
+
+        getCache( cacheName ).localRemoveMultiple( keys );
+    }
+
     /**
      * Gets the cache that was injected by the lateral factory. Calls removeAll on the cache.
      * <p>
@@ -693,6 +741,19 @@ public class LateralTCPListener<K extends Serializable, V extends Serializable>
                     handleRemove( cacheName, key );
                     break;
 
+                case UPDATE_MULTIPLE:
+                    handlePutMultiple( led.ces );
+                    break;
+
+                case REMOVE_MULTIPLE:
+                    Set<K> keys = new LinkedHashSet<K>();
+                    for ( ICacheElement<K, V> ce : led.ces )
+                    {
+                        keys.add( ce.getKey() );
+                    }
+                    handleRemoveMultiple( cacheName, keys );
+                    break;
+
                 case REMOVEALL:
                     handleRemoveAll( cacheName );
                     break;
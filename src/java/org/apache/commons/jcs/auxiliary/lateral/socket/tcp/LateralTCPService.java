@@ -23,8 +23,10 @@ import java.io.BufferedReader;
 import java.io.IOException;
 import java.io.InputStreamReader;
 import java.io.Serializable;
+import java.util.ArrayList;
 import java.util.Collections;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
 import java.util.Set;
 
@@ -147,6 +149,43 @@ public class LateralTCPService<K extends Serializable, V extends Serializable>
         }
     }
 
+    /**
+     * Sends the batch of puts as a single packet. If puts are not allowed and remove on put is
+     * configured, each element is sent as a remove with its hashcode, as in update.
+     * <p>
+     * @see org.apache.commons.jcs.engine.behavior.ICacheServiceNonLocal#updateMultiple(java.util.List, long)
+     */
+    public void updateMultiple( List<ICacheElement<K, V>> items, long requesterId )
+        throws IOException
+    {
+        if ( items.isEmpty() )
+        {
+            return;
+        }
+
+        if ( this.getTcpLateralCacheAttributes().isIssueRemoveOnPut() )
+        {
+            for ( ICacheElement<K, V> item : items )
+            {
+                update( item, requesterId );
+            }
+            return;
+        }
+
+        if ( !this.getTcpLateralCacheAttributes().isAllowPut() )
+        {
+            return;
+        }
+
+        String cacheName = items.get( 0 ).getCacheName();
+        LateralElementDescriptor<K, V> led =
+            new LateralElementDescriptor<K, V>( new CacheElement<K, V>( cacheName, null, null ) );
+        led.ces = new ArrayList<ICacheElement<K, V>>( items );
+        led.requesterId = requesterId;
+        led.command = LateralCommand.UPDATE_MULTIPLE;
+        sender.send( led );
+    }
+
     /**
      * Uses the default listener id and calls the next remove method.
      * <p>
@@ -175,6 +214,34 @@ public class LateralTCPService<K extends Serializable, V extends Serializable>
         sender.send( led );
     }
 
+    /**
+     * Sends the keys as a single packet.
+     * <p>
+     * @see org.apache.commons.jcs.engine.behavior.ICacheServiceNonLocal#removeMultiple(java.lang.String,
+     *      java.util.Set, long)
+     */
+    public void removeMultiple( String cacheName, Set<K> keys, long requesterId )
+        throws IOException
+    {
+        if ( keys.isEmpty() )
+        {
+            return;
+        }
+
+        List<ICacheElement<K, V>> ces = new ArrayList<ICacheElement<K, V>>( keys.size() );
+        for ( K key : keys )
+        {
+            ces.add( new CacheElement<K, V>( cacheName, key, null ) );
+        }
+
+        LateralElementDescriptor<K, V> led =
+            new LateralElementDescriptor<K, V>( new CacheElement<K, V>( cacheName, null, null ) );
+        led.ces = ces;
+        led.requesterId = requesterId;
+        led.command = LateralCommand.REMOVE_MULTIPLE;
+        sender.send( led );
+    }
+
     /**
      * Does nothing.
      * <p>
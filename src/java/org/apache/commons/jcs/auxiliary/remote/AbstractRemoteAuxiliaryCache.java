@@ -23,6 +23,7 @@ import java.io.IOException;
 import java.io.Serializable;
 import java.util.ArrayList;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
 import java.util.Set;
 import java.util.concurrent.Callable;
@@ -374,6 +375,35 @@ public abstract class AbstractRemoteAuxiliaryCache<K extends Serializable, V ext
         return false;
     }
 
+    /**
+     * Synchronously removes a batch of keys from the remote cache with one call; if failed,
+     * replace the remote handle with a zombie.
+     * <p>
+     * @param keys
+     * @throws IOException
+     */
+    @Override
+    protected void processRemoveMultiple( Set<K> keys )
+        throws IOException
+    {
+        if ( !this.getRemoteCacheAttributes().getGetOnly() )
+        {
+            if ( log.isDebugEnabled() )
+            {
+                log.debug( "removeMultiple> keys=" + keys );
+            }
+            try
+            {
+                getRemoteCacheService().removeMultiple( cacheName, keys, getListenerId() );
+            }
+            catch ( Exception ex )
+            {
+                handleException( ex, "Failed to remove " + keys + " from " + cacheName,
+                                 ICacheEventLogger.REMOVEMULTIPLE_EVENT );
+            }
+        }
+    }
+
     /**
      * Synchronously removeAll from the remote cache; if failed, replace the remote handle with a
      * zombie.
@@ -445,6 +475,51 @@ public abstract class AbstractRemoteAuxiliaryCache<K extends Serializable, V ext
         }
     }
 
+    /**
+     * Serializes the objects and sends them to the remote server in one call.
+     * <p>
+     * @param cacheElements
+     * @throws IOException
+     */
+    @Override
+    protected void processUpdateMultiple( List<ICacheElement<K, V>> cacheElements )
+        throws IOException
+    {
+        if ( !getRemoteCacheAttributes().getGetOnly() )
+        {
+            try
+            {
+                if ( log.isDebugEnabled() )
+                {
+                    log.debug( "sending " + cacheElements.size() + " items to remote server" );
+                }
+
+                // convert so we don't have to know about the objects on the
+                // other end.
+                List<ICacheElement<K, V>> serialized = new ArrayList<ICacheElement<K, V>>( cacheElements.size() );
+                for ( ICacheElement<K, V> ce : cacheElements )
+                {
+                    serialized.add( SerializationConversionUtil.getSerializedCacheElement( ce, this.elementSerializer ) );
+                }
+
+                remoteCacheService.updateMultiple( serialized, getListenerId() );
+            }
+            catch ( Exception ex )
+            {
+                // event queue will wait and retry
+                handleException( ex, "Failed to put " + cacheElements.size() + " items to " + cacheName,
+                                 ICacheEventLogger.UPDATEMULTIPLE_EVENT );
+            }
+        }
+        else
+        {
+            if ( log.isDebugEnabled() )
+            {
+                log.debug( "get only mode, not sending to remote server" );
+            }
+        }
+    }
+
     /**
      * Return the keys in this cache.
      * <p>
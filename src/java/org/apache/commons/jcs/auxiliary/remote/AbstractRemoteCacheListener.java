@@ -27,6 +27,7 @@ import org.apache.commons.jcs.access.exception.CacheException;
 import org.apache.commons.jcs.auxiliary.remote.behavior.IRemoteCacheAttributes;
 import org.apache.commons.jcs.auxiliary.remote.behavior.IRemoteCacheListener;
 import org.apache.commons.jcs.auxiliary.remote.server.behavior.RemoteType;
+import org.apache.commons.jcs.engine.CacheElementLazy;
 import org.apache.commons.jcs.engine.behavior.ICacheElement;
 import org.apache.commons.jcs.engine.behavior.ICacheElementSerialized;
 import org.apache.commons.jcs.engine.behavior.ICompositeCacheManager;
@@ -180,7 +181,16 @@ public abstract class AbstractRemoteCacheListener<K extends Serializable, V exte
             CompositeCache<K, V> cache = getCacheManager().getCache( cb.getCacheName() );
 
             // Eventually the instance of will not be necessary.
-            if ( cb instanceof ICacheElementSerialized )
+            if ( cb instanceof ICacheElementSerialized && cache.getCacheAttributes().isLazyDeserialization() )
+            {
+                if ( log.isDebugEnabled() )
+                {
+                    log.debug( "Object will be deserialized when it is read." );
+                }
+                cb = new CacheElementLazy<K, V>( (ICacheElementSerialized<K, V>) cb, this.elementSerializer,
+                                                 cache.getCacheAttributes().isKeepDeserializedValue() );
+            }
+            else if ( cb instanceof ICacheElementSerialized )
             {
                 if ( log.isDebugEnabled() )
                 {
@@ -143,6 +143,47 @@ public abstract class AbstractRemoteCacheNoWaitFacade<K extends Serializable, V
         }
     }
 
+    /**
+     * Puts a batch of elements through each of the no waits.
+     * <p>
+     * @param cacheElements
+     * @throws IOException
+     */
+    @Override
+    public void updateMultiple( List<ICacheElement<K, V>> cacheElements )
+        throws IOException
+    {
+        if ( log.isDebugEnabled() )
+        {
+            log.debug( "updating " + cacheElements.size() + " elements through cache facade, noWaits.length = "
+                + noWaits.length );
+        }
+        int i = 0;
+        try
+        {
+            for ( ; i < noWaits.length; i++ )
+            {
+                noWaits[i].updateMultiple( cacheElements );
+            }
+        }
+        catch ( Exception ex )
+        {
+            String message = "Problem updating no wait.  Will initiate failover if the noWait is in error.";
+            log.error( message, ex );
+
+            if ( getCacheEventLogger() != null )
+            {
+                getCacheEventLogger().logError(
+                                                "RemoteCacheNoWaitFacade",
+                                                ICacheEventLogger.UPDATEMULTIPLE_EVENT,
+                                                message + ":" + ex.getMessage() + " ELEMENTS: "
+                                                    + cacheElements.size() );
+            }
+
+            failover( i );
+        }
+    }
+
     /**
      * Synchronously reads from the remote cache.
      * <p>
@@ -266,6 +307,27 @@ public abstract class AbstractRemoteCacheNoWaitFacade<K extends Serializable, V
         return false;
     }
 
+    /**
+     * Adds a remove request for the batch of keys to the remote cache.
+     * <p>
+     * @param keys
+     */
+    @Override
+    public void removeMultiple( Set<K> keys )
+    {
+        try
+        {
+            for ( int i = 0; i < noWaits.length; i++ )
+            {
+                noWaits[i].removeMultiple( keys );
+            }
+        }
+        catch ( Exception ex )
+        {
+            log.error( ex );
+        }
+    }
+
     /**
      * Adds a removeAll request to the remote cache.
      */
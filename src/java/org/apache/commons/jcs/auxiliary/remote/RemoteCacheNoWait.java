@@ -139,6 +139,29 @@ public class RemoteCacheNoWait<K extends Serializable, V extends Serializable>
         }
     }
 
+    /**
+     * Adds a single put event for the batch to the queue.
+     * <p>
+     * @param cacheElements
+     * @throws IOException
+     */
+    @Override
+    public void updateMultiple( List<ICacheElement<K, V>> cacheElements )
+        throws IOException
+    {
+        putCount += cacheElements.size();
+        try
+        {
+            cacheEventQueue.addPutMultipleEvent( cacheElements );
+        }
+        catch ( IOException e )
+        {
+            log.error( "Problem adding putMultipleEvent to queue.", e );
+            cacheEventQueue.destroy();
+            throw e;
+        }
+    }
+
     /**
      * Synchronously reads from the remote cache.
      * <p>
@@ -309,6 +332,29 @@ public class RemoteCacheNoWait<K extends Serializable, V extends Serializable>
         return false;
     }
 
+    /**
+     * Adds a single remove event for the batch to the queue.
+     * <p>
+     * @param keys
+     * @throws IOException
+     */
+    @Override
+    public void removeMultiple( Set<K> keys )
+        throws IOException
+    {
+        removeCount += keys.size();
+        try
+        {
+            cacheEventQueue.addRemoveMultipleEvent( keys );
+        }
+        catch ( IOException e )
+        {
+            log.error( "Problem adding RemoveMultipleEvent to queue.", e );
+            cacheEventQueue.destroy();
+            throw e;
+        }
+    }
+
     /**
      * Adds a removeAll request to the remote cache.
      * <p>
@@ -22,6 +22,7 @@ package org.apache.commons.jcs.auxiliary.remote.http.client;
 import java.io.IOException;
 import java.io.Serializable;
 import java.util.Collections;
+import java.util.List;
 import java.util.Map;
 import java.util.Set;
 
@@ -340,6 +341,39 @@ public class RemoteHttpCacheClient<K extends Serializable, V extends Serializabl
         getRemoteDispatcher().dispatchRequest( remoteHttpCacheRequest );
     }
 
+    /**
+     * Puts each of the items to the cache, one request per item.
+     * <p>
+     * @param cacheElements
+     * @param requesterId
+     * @throws IOException
+     */
+    public void updateMultiple( List<ICacheElement<K, V>> cacheElements, long requesterId )
+        throws IOException
+    {
+        for ( ICacheElement<K, V> cacheElement : cacheElements )
+        {
+            update( cacheElement, requesterId );
+        }
+    }
+
+    /**
+     * Removes each of the keys from the specified cache, one request per key.
+     * <p>
+     * @param cacheName
+     * @param keys
+     * @param requesterId
+     * @throws IOException
+     */
+    public void removeMultiple( String cacheName, Set<K> keys, long requesterId )
+        throws IOException
+    {
+        for ( K key : keys )
+        {
+            remove( cacheName, key, requesterId );
+        }
+    }
+
     /**
      * Frees the specified cache.
      * <p>
@@ -21,6 +21,7 @@ package org.apache.commons.jcs.auxiliary.remote.http.server;
 
 import java.io.IOException;
 import java.io.Serializable;
+import java.util.List;
 import java.util.Map;
 import java.util.Set;
 
@@ -417,6 +418,41 @@ public abstract class AbstractRemoteCacheService<K extends Serializable, V exten
     abstract void processRemoveAll( String cacheName, long requesterId )
         throws IOException;
 
+    /**
+     * Puts each of the items. The http service does not have a batch request, so this is one
+     * update per item.
+     * <p>
+     * @param items
+     * @param requesterId
+     * @throws IOException
+     */
+    public void updateMultiple( List<ICacheElement<K, V>> items, long requesterId )
+        throws IOException
+    {
+        for ( ICacheElement<K, V> item : items )
+        {
+            update( item, requesterId );
+        }
+    }
+
+    /**
+     * Removes each of the keys. The http service does not have a batch request, so this is one
+     * remove per key.
+     * <p>
+     * @param cacheName
+     * @param keys
+     * @param requesterId
+     * @throws IOException
+     */
+    public void removeMultiple( String cacheName, Set<K> keys, long requesterId )
+        throws IOException
+    {
+        for ( K key : keys )
+        {
+            remove( cacheName, key, requesterId );
+        }
+    }
+
     /**
      * Frees the specified remote cache.
      * <p>
@@ -22,9 +22,12 @@ import java.rmi.registry.Registry;
 import java.rmi.server.RMISocketFactory;
 import java.rmi.server.UnicastRemoteObject;
 import java.rmi.server.Unreferenced;
+import java.util.ArrayList;
 import java.util.Collections;
+import java.util.HashSet;
 import java.util.Hashtable;
 import java.util.Iterator;
+import java.util.List;
 import java.util.Map;
 import java.util.Set;
 
@@ -381,6 +384,113 @@ public class RemoteCacheServer<K extends Serializable, V extends Serializable>
         }
     }
 
+    /**
+     * Puts a batch of items. The internal processing is wrapped in event logging calls.
+     * <p>
+     * @param items
+     * @param requesterId
+     * @throws IOException
+     */
+    public void updateMultiple( List<ICacheElement<K, V>> items, long requesterId )
+        throws IOException
+    {
+        if ( items.isEmpty() )
+        {
+            return;
+        }
+
+        String cacheName = items.get( 0 ).getCacheName();
+        ICacheEvent<Serializable> cacheEvent =
+            createICacheEvent( cacheName, toLoggable( items ), requesterId, ICacheEventLogger.UPDATEMULTIPLE_EVENT );
+        try
+        {
+            processUpdateMultiple( cacheName, items, requesterId );
+        }
+        finally
+        {
+            logICacheEvent( cacheEvent );
+        }
+    }
+
+    /**
+     * Puts a batch of items into the region with one call and queues one put event for the batch
+     * to each listener. It follows the same cluster rules as processUpdate. Listeners that are
+     * remote clients are handed the items one at a time by their event queue.
+     * <p>
+     * @param cacheName
+     * @param items
+     * @param requesterId
+     */
+    private void processUpdateMultiple( String cacheName, List<ICacheElement<K, V>> items, long requesterId )
+    {
+        puts += items.size();
+
+        try
+        {
+            CacheListeners<K, V> cacheDesc = getCacheListeners( cacheName );
+
+            boolean fromCluster = isRequestFromCluster( requesterId );
+
+            if ( log.isDebugEnabled() )
+            {
+                log.debug( "In updateMultiple, requesterId = [" + requesterId + "] fromCluster = " + fromCluster
+                    + " items = " + items.size() );
+            }
+
+            // ordered cache item update and notification.
+            synchronized ( cacheDesc )
+            {
+                try
+                {
+                    CompositeCache<K, V> c = (CompositeCache<K, V>) cacheDesc.cache;
+
+                    if ( fromCluster )
+                    {
+                        c.localUpdateMultiple( items );
+                    }
+                    else
+                    {
+                        c.updateMultiple( items );
+                    }
+                }
+                catch ( Exception ce )
+                {
+                    // swallow
+                    if ( log.isInfoEnabled() )
+                    {
+                        log.info( "Exception caught updating items. requesterId [" + requesterId + "] "
+                            + ce.getMessage() );
+                    }
+                }
+
+                // UPDATE LOCALS IF A REQUEST COMES FROM A CLUSTER
+                // IF LOCAL CLUSTER CONSISTENCY IS CONFIGURED
+                if ( !fromCluster || ( fromCluster && remoteCacheServerAttributes.isLocalClusterConsistency() ) )
+                {
+                    ICacheEventQueue<K, V>[] qlist = getEventQList( cacheDesc, requesterId );
+
+                    if ( qlist != null )
+                    {
+                        for ( int i = 0; i < qlist.length; i++ )
+                        {
+                            qlist[i].addPutMultipleEvent( items );
+                        }
+                    }
+                }
+            }
+        }
+        catch ( IOException e )
+        {
+            if ( cacheEventLogger != null )
+            {
+                cacheEventLogger.logError( "RemoteCacheServer", ICacheEventLogger.UPDATEMULTIPLE_EVENT, e.getMessage()
+                    + " REGION: " + cacheName + " ITEMS: " + items.size() );
+            }
+
+            log.error( "Trouble in UpdateMultiple. requesterId [" + requesterId + "]", e );
+        }
+    }
+
     /**
      * Log some details.
      * <p>
@@ -699,7 +809,7 @@ public class RemoteCacheServer<K extends Serializable, V extends Serializable>
     public Map<K, ICacheElement<K, V>> getMultiple( String cacheName, Set<K> keys, long requesterId )
         throws IOException
     {
-        ICacheEvent<Serializable> cacheEvent = createICacheEvent( cacheName, (Serializable) keys, requesterId,
+        ICacheEvent<Serializable> cacheEvent = createICacheEvent( cacheName, toLoggable( keys ), requesterId,
                                                     ICacheEventLogger.GETMULTIPLE_EVENT );
         try
         {
@@ -964,6 +1074,87 @@ public class RemoteCacheServer<K extends Serializable, V extends Serializable>
         }
     }
 
+    /**
+     * Remove the keys from the cache region and don't tell the source listener about it.
+     * <p>
+     * The internal processing is wrapped in event logging calls.
+     * <p>
+     * @param cacheName
+     * @param keys
+     * @param requesterId
+     * @throws IOException
+     */
+    public void removeMultiple( String cacheName, Set<K> keys, long requesterId )
+        throws IOException
+    {
+        ICacheEvent<Serializable> cacheEvent =
+            createICacheEvent( cacheName, toLoggable( keys ), requesterId, ICacheEventLogger.REMOVEMULTIPLE_EVENT );
+        try
+        {
+            processRemoveMultiple( cacheName, keys, requesterId );
+        }
+        finally
+        {
+            logICacheEvent( cacheEvent );
+        }
+    }
+
+    /**
+     * Removes the keys from the region with one call and queues one remove event for the batch to
+     * each listener, following the same cluster rules as processRemove.
+     * <p>
+     * @param cacheName
+     * @param keys
+     * @param requesterId
+     * @throws IOException
+     */
+    private void processRemoveMultiple( String cacheName, Set<K> keys, long requesterId )
+        throws IOException
+    {
+        if ( log.isDebugEnabled() )
+        {
+            log.debug( "remove " + keys.size() + " keys from cache [" + cacheName + "]" );
+        }
+
+        CacheListeners<K, V> cacheDesc = cacheListenersMap.get( cacheName );
+
+        boolean fromCluster = isRequestFromCluster( requesterId );
+
+        if ( cacheDesc != null )
+        {
+            // best attempt to achieve ordered cache item removal and
+            // notification.
+            synchronized ( cacheDesc )
+            {
+                CompositeCache<K, V> c = (CompositeCache<K, V>) cacheDesc.cache;
+
+                if ( fromCluster )
+                {
+                    c.localRemoveMultiple( keys );
+                }
+                else
+                {
+                    c.removeMultiple( keys );
+                }
+
+                // UPDATE LOCALS IF A REQUEST COMES FROM A CLUSTER
+                // IF LOCAL CLUSTER CONSISTENCY IS CONFIGURED
+                if ( !fromCluster || ( fromCluster && remoteCacheServerAttributes.isLocalClusterConsistency() ) )
+                {
+                    ICacheEventQueue<K, V>[] qlist = getEventQList( cacheDesc, requesterId );
+
+                    if ( qlist != null )
+                    {
+                        for ( int i = 0; i < qlist.length; i++ )
+                        {
+                            qlist[i].addRemoveMultipleEvent( keys );
+                        }
+                    }
+                }
+            }
+        }
+    }
+
     /**
      * Remove all keys from the specified remote cache.
      * <p>
@@ -1687,4 +1878,28 @@ public class RemoteCacheServer<K extends Serializable, V extends Serializable>
     {
         this.cacheEventLogger = cacheEventLogger;
     }
+
+    /**
+     * The event log needs a serializable key. Sets that are not serializable, such as the key set
+     * of a map, are copied.
+     * <p>
+     * @param keys
+     * @return the keys, or a serializable copy of them
+     */
+    private static Serializable toLoggable( Set<?> keys )
+    {
+        return keys instanceof Serializable ? (Serializable) keys : new HashSet<Object>( keys );
+    }
+
+    /**
+     * The event log needs a serializable key. Lists that are not serializable, such as a sub
+     * list, are copied.
+     * <p>
+     * @param items
+     * @return the items, or a serializable copy of them
+     */
+    private static Serializable toLoggable( List<?> items )
+    {
+        return items instanceof Serializable ? (Serializable) items : new ArrayList<Object>( items );
+    }
 }
@@ -21,7 +21,12 @@ package org.apache.commons.jcs.engine;
 
 import java.io.IOException;
 import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
 
+import org.apache.commons.jcs.engine.behavior.ICacheBulkListener;
 import org.apache.commons.jcs.engine.behavior.ICacheElement;
 import org.apache.commons.jcs.engine.behavior.ICacheEventQueue;
 import org.apache.commons.jcs.engine.behavior.ICacheListener;
@@ -178,6 +183,52 @@ public abstract class AbstractCacheEventQueue<K extends Serializable, V extends
         }
     }
 
+    /**
+     * This adds a single event for a batch of puts. When processed, a listener that implements
+     * ICacheBulkListener gets the whole batch; others get one put per element.
+     * <p>
+     * @param ces The elements to put
+     * @exception IOException
+     */
+    public synchronized void addPutMultipleEvent( List<ICacheElement<K, V>> ces )
+        throws IOException
+    {
+        if ( isWorking() )
+        {
+            put( new PutMultipleEvent( ces ) );
+        }
+        else
+        {
+            if ( log.isWarnEnabled() )
+            {
+                log.warn( "Not enqueuing Put Multiple Event for [" + this + "] because it's non-functional." );
+            }
+        }
+    }
+
+    /**
+     * This adds a single event for a batch of removes. When processed, a listener that implements
+     * ICacheBulkListener gets the whole batch; others get one remove per key.
+     * <p>
+     * @param keys The keys to remove
+     * @exception IOException
+     */
+    public synchronized void addRemoveMultipleEvent( Set<K> keys )
+        throws IOException
+    {
+        if ( isWorking() )
+        {
+            put( new RemoveMultipleEvent( keys ) );
+        }
+        else
+        {
+            if ( log.isWarnEnabled() )
+            {
+                log.warn( "Not enqueuing Remove Multiple Event for [" + this + "] because it's non-functional." );
+            }
+        }
+    }
+
     /**
      * This adds a remove all event to the queue. When it is processed, all elements will be removed
      * from the cache.
@@ -406,6 +457,114 @@ public abstract class AbstractCacheEventQueue<K extends Serializable, V extends
 
     }
 
+    /**
+     * A batch of elements should be put in the cache.
+     */
+    protected class PutMultipleEvent
+        extends AbstractCacheEvent
+    {
+        /** The elements to put to the listener */
+        private final List<ICacheElement<K, V>> ices;
+
+        /**
+         * Constructor for the PutMultipleEvent object. The list is copied, since the caller may
+         * reuse it before the event is processed.
+         * <p>
+         * @param ices
+         */
+        PutMultipleEvent( List<ICacheElement<K, V>> ices )
+        {
+            this.ices = new ArrayList<ICacheElement<K, V>>( ices );
+        }
+
+        /**
+         * Hands the batch to a bulk listener, or calls put on the listener for each element.
+         * <p>
+         * @exception IOException
+         */
+        @Override
+        protected void doRun()
+            throws IOException
+        {
+            if ( listener instanceof ICacheBulkListener )
+            {
+                ( (ICacheBulkListener<K, V>) listener ).handlePutMultiple( ices );
+            }
+            else
+            {
+                for ( ICacheElement<K, V> ice : ices )
+                {
+                    listener.handlePut( ice );
+                }
+            }
+        }
+
+        /**
+         * For debugging.
+         * <p>
+         * @return Info on the batch.
+         */
+        @Override
+        public String toString()
+        {
+            return new StringBuffer( "PutMultipleEvent for " ).append( ices.size() ).append( " elements" ).toString();
+        }
+    }
+
+    /**
+     * A batch of elements should be removed from the cache.
+     */
+    protected class RemoveMultipleEvent
+        extends AbstractCacheEvent
+    {
+        /** The keys to remove from the listener */
+        private final Set<K> keys;
+
+        /**
+         * Constructor for the RemoveMultipleEvent object. The set is copied, since the caller
+         * may reuse it before the event is processed.
+         * <p>
+         * @param keys
+         */
+        RemoveMultipleEvent( Set<K> keys )
+        {
+            this.keys = new HashSet<K>( keys );
+        }
+
+        /**
+         * Hands the batch to a bulk listener, or calls remove on the listener for each key.
+         * <p>
+         * @exception IOException
+         */
+        @Override
+        protected void doRun()
+            throws IOException
+        {
+            if ( listener instanceof ICacheBulkListener )
+            {
+                ( (ICacheBulkListener<K, V>) listener ).handleRemoveMultiple( cacheName, keys );
+            }
+            else
+            {
+                for ( K key : keys )
+                {
+                    listener.handleRemove( cacheName, key );
+                }
+            }
+        }
+
+        /**
+         * For debugging.
+         * <p>
+         * @return Info on the keys to remove.
+         */
+        @Override
+        public String toString()
+        {
+            return new StringBuffer( "RemoveMultipleEvent for " ).append( keys ).toString();
+        }
+    }
+
     /**
      * All elements should be removed from the cache when this event is processed.
      * <p>
@@ -21,10 +21,13 @@ package org.apache.commons.jcs.engine;
 
 import java.io.IOException;
 import java.io.Serializable;
+import java.util.List;
+import java.util.Set;
 
+import org.apache.commons.jcs.auxiliary.AuxiliaryCache;
 import org.apache.commons.jcs.engine.behavior.ICache;
+import org.apache.commons.jcs.engine.behavior.ICacheBulkListener;
 import org.apache.commons.jcs.engine.behavior.ICacheElement;
-import org.apache.commons.jcs.engine.behavior.ICacheListener;
 import org.apache.commons.logging.Log;
 import org.apache.commons.logging.LogFactory;
 
@@ -33,7 +36,7 @@ import org.apache.commons.logging.LogFactory;
  * facades in the lateral and remote caches.
  */
 public class CacheAdaptor<K extends Serializable, V extends Serializable>
-    implements ICacheListener<K, V>
+    implements ICacheBulkListener<K, V>
 {
     /** The logger */
     private final static Log log = LogFactory.getLog( CacheAdaptor.class );
@@ -99,6 +102,35 @@ public class CacheAdaptor<K extends Serializable, V extends Serializable>
         }
     }
 
+    /**
+     * Puts a batch of items into the cache, in one call if the cache is an auxiliary.
+     * <p>
+     * @param items
+     * @throws IOException
+     */
+    public void handlePutMultiple( List<ICacheElement<K, V>> items )
+        throws IOException
+    {
+        try
+        {
+            if ( cache instanceof AuxiliaryCache )
+            {
+                ( (AuxiliaryCache<K, V>) cache ).updateMultiple( items );
+            }
+            else
+            {
+                for ( ICacheElement<K, V> item : items )
+                {
+                    cache.update( item );
+                }
+            }
+        }
+        catch ( Exception e )
+        {
+            // swallow
+        }
+    }
+
     /**
      * Removes an item.
      * <p>
@@ -112,6 +144,29 @@ public class CacheAdaptor<K extends Serializable, V extends Serializable>
         cache.remove( key );
     }
 
+    /**
+     * Removes a batch of items, in one call if the cache is an auxiliary.
+     * <p>
+     * @param cacheName
+     * @param keys
+     * @throws IOException
+     */
+    public void handleRemoveMultiple( String cacheName, Set<K> keys )
+        throws IOException
+    {
+        if ( cache instanceof AuxiliaryCache )
+        {
+            ( (AuxiliaryCache<K, V>) cache ).removeMultiple( keys );
+        }
+        else
+        {
+            for ( K key : keys )
+            {
+                cache.remove( key );
+            }
+        }
+    }
+
     /**
      * Clears the region.
      * <p>
@@ -0,0 +1,162 @@
+package org.apache.commons.jcs.engine;
+
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+import java.io.IOException;
+import java.io.Serializable;
+
+import org.apache.commons.jcs.engine.behavior.ICacheElement;
+import org.apache.commons.jcs.engine.behavior.IElementAttributes;
+import org.apache.commons.jcs.utils.serialization.CompressingSerializer;
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+
+/**
+ * An element whose value is kept serialized and compressed, in the format of the
+ * {@link CompressingSerializer}.
+ * <p>
+ * Every call to getVal decompresses and de-serializes a new copy of the value; only the compressed
+ * bytes stay on the heap. The element is self-contained, so it can be serialized and read back like
+ * any other element.
+ */
+public class CacheElementCompressed<K extends Serializable, V extends Serializable>
+    implements ICacheElement<K, V>
+{
+    /** Don't change. */
+    private static final long serialVersionUID = -6040137393848396227L;
+
+    /** The logger */
+    private final static Log log = LogFactory.getLog( CacheElementCompressed.class );
+
+    /** Decompresses and de-serializes the value */
+    private static final CompressingSerializer SERIALIZER = new CompressingSerializer();
+
+    /** The name of the cache region. This is a namespace. */
+    private final String cacheName;
+
+    /** This is the cache key by which the value can be referenced. */
+    private final K key;
+
+    /** The compressed, serialized value. */
+    private final byte[] compressedValue;
+
+    /** The length of the serialized value before compression. */
+    private final int uncompressedLength;
+
+    /** These attributes hold information about the element and what it is allowed to do. */
+    private IElementAttributes elementAttributes;
+
+    /**
+     * @param cacheName
+     * @param key
+     * @param compressedValue the value, serialized and compressed
+     * @param uncompressedLength the length of the serialized value
+     * @param elementAttributes
+     */
+    public CacheElementCompressed( String cacheName, K key, byte[] compressedValue, int uncompressedLength,
+                                   IElementAttributes elementAttributes )
+    {
+        this.cacheName = cacheName;
+        this.key = key;
+        this.compressedValue = compressedValue;
+        this.uncompressedLength = uncompressedLength;
+        this.elementAttributes = elementAttributes;
+    }
+
+    /**
+     * @return the name of the region
+     */
+    public String getCacheName()
+    {
+        return this.cacheName;
+    }
+
+    /** @return the key */
+    public K getKey()
+    {
+        return this.key;
+    }
+
+    /** @return the compressed, serialized value */
+    public byte[] getCompressedValue()
+    {
+        return this.compressedValue;
+    }
+
+    /** @return the length of the serialized value before compression */
+    public int getUncompressedLength()
+    {
+        return this.uncompressedLength;
+    }
+
+    /** @return IElementAttributes */
+    public IElementAttributes getElementAttributes()
+    {
+        return this.elementAttributes;
+    }
+
+    /**
+     * @param attr
+     */
+    public void setElementAttributes( IElementAttributes attr )
+    {
+        this.elementAttributes = attr;
+    }
+
+    /**
+     * Decompresses and de-serializes the value.
+     * <p>
+     * @return the value, or null if it could not be de-serialized
+     */
+    public V getVal()
+    {
+        try
+        {
+            return SERIALIZER.deSerialize( compressedValue );
+        }
+        catch ( IOException e )
+        {
+            log.error( "Problem decompressing the value of key [" + key + "]", e );
+        }
+        catch ( ClassNotFoundException e )
+        {
+            log.error( "Compressed value of an unknown class, key [" + key + "]", e );
+        }
+        return null;
+    }
+
+    /**
+     * For debugging only.
+     * <p>
+     * @return debugging string.
+     */
+    @Override
+    public String toString()
+    {
+        StringBuffer buf = new StringBuffer();
+        buf.append( "\n CacheElementCompressed: " );
+        buf.append( "\n CacheName = [" + getCacheName() + "]" );
+        buf.append( "\n Key = [" + getKey() + "]" );
+        buf.append( "\n CompressedValue length = " + compressedValue.length );
+        buf.append( "\n UncompressedLength = " + uncompressedLength );
+        buf.append( "\n ElementAttributes = " + getElementAttributes() );
+        return buf.toString();
+    }
+}
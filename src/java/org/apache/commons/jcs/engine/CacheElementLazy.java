@@ -0,0 +1,186 @@
+package org.apache.commons.jcs.engine;
+
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+import java.io.IOException;
+import java.io.Serializable;
+
+import org.apache.commons.jcs.engine.behavior.ICacheElementSerialized;
+import org.apache.commons.jcs.engine.behavior.IElementAttributes;
+import org.apache.commons.jcs.engine.behavior.IElementSerializer;
+import org.apache.commons.jcs.utils.serialization.StandardSerializer;
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+
+/**
+ * A serialized element that de-serializes its value on the first call to getVal.
+ * <p>
+ * Elements that arrive serialized can be put in memory this way, so that the ones evicted before
+ * they are read never cost a de-serialization. The serialized value is kept, so the element can
+ * be sent on or spooled without serializing it again. If the de-serialized value is kept as well,
+ * later calls return the same object; otherwise every call de-serializes a new copy and only the
+ * bytes stay on the heap.
+ * <p>
+ * The serializer is not serialized with the element. An element read back from disk uses the
+ * standard serializer.
+ */
+public class CacheElementLazy<K extends Serializable, V extends Serializable>
+    implements ICacheElementSerialized<K, V>
+{
+    /** Don't change. */
+    private static final long serialVersionUID = 2935262787234837155L;
+
+    /** The logger */
+    private final static Log log = LogFactory.getLog( CacheElementLazy.class );
+
+    /** The name of the cache region. This is a namespace. */
+    private final String cacheName;
+
+    /** This is the cache key by which the value can be referenced. */
+    private final K key;
+
+    /** The serialized value. */
+    private final byte[] serializedValue;
+
+    /** These attributes hold information about the element and what it is allowed to do. */
+    private IElementAttributes elementAttributes;
+
+    /** Whether the value is kept once it has been de-serialized */
+    private final boolean keepValue;
+
+    /** Turns the bytes into the value */
+    private transient IElementSerializer elementSerializer;
+
+    /** The de-serialized value, if it is kept */
+    private transient volatile V value;
+
+    /**
+     * Wraps an element that was received serialized.
+     * <p>
+     * @param serialized
+     * @param elementSerializer the serializer that produced the bytes
+     * @param keepValue whether to keep the value once it has been de-serialized
+     */
+    public CacheElementLazy( ICacheElementSerialized<K, V> serialized, IElementSerializer elementSerializer,
+                             boolean keepValue )
+    {
+        this.cacheName = serialized.getCacheName();
+        this.key = serialized.getKey();
+        this.serializedValue = serialized.getSerializedValue();
+        this.elementAttributes = serialized.getElementAttributes();
+        this.elementSerializer = elementSerializer;
+        this.keepValue = keepValue;
+    }
+
+    /**
+     * @return the name of the region
+     */
+    public String getCacheName()
+    {
+        return this.cacheName;
+    }
+
+    /** @return the key */
+    public K getKey()
+    {
+        return this.key;
+    }
+
+    /** @return the serialized value */
+    public byte[] getSerializedValue()
+    {
+        return this.serializedValue;
+    }
+
+    /** @return IElementAttributes */
+    public IElementAttributes getElementAttributes()
+    {
+        return this.elementAttributes;
+    }
+
+    /**
+     * @param attr
+     */
+    public void setElementAttributes( IElementAttributes attr )
+    {
+        this.elementAttributes = attr;
+    }
+
+    /**
+     * De-serializes the value unless it is kept from an earlier call.
+     * <p>
+     * @return the value, or null if it could not be de-serialized
+     */
+    public V getVal()
+    {
+        V result = value;
+        if ( result == null && serializedValue != null )
+        {
+            try
+            {
+                if ( elementSerializer == null )
+                {
+                    elementSerializer = new StandardSerializer();
+                }
+                result = elementSerializer.deSerialize( serializedValue );
+            }
+            catch ( IOException e )
+            {
+                log.error( "Problem de-serializing the value of key [" + key + "]", e );
+            }
+            catch ( ClassNotFoundException e )
+            {
+                log.error( "Received a serialized version of a class that we don't know about, key [" + key + "]", e );
+            }
+
+            if ( keepValue )
+            {
+                value = result;
+            }
+        }
+        return result;
+    }
+
+    /**
+     * @return true if the value has been de-serialized and is kept
+     */
+    public boolean isDeSerialized()
+    {
+        return value != null;
+    }
+
+    /**
+     * For debugging only.
+     * <p>
+     * @return debugging string.
+     */
+    @Override
+    public String toString()
+    {
+        StringBuffer buf = new StringBuffer();
+        buf.append( "\n CacheElementLazy: " );
+        buf.append( "\n CacheName = [" + getCacheName() + "]" );
+        buf.append( "\n Key = [" + getKey() + "]" );
+        buf.append( "\n SerializedValue length = " + ( serializedValue == null ? 0 : serializedValue.length ) );
+        buf.append( "\n DeSerialized = " + isDeSerialized() );
+        buf.append( "\n ElementAttributes = " + getElementAttributes() );
+        return buf.toString();
+    }
+}
@@ -64,6 +64,33 @@ public class CompositeCacheAttributes
     /** Default number to send to disk at a time when memory fills. */
     private static final int DEFAULT_CHUNK_SIZE = 2;
 
+    /** Refresh-ahead is off by default */
+    private static final int DEFAULT_REFRESH_AHEAD_PERCENT = 0;
+
+    /** By default the auxiliaries are asked one after the other */
+    private static final boolean DEFAULT_PARALLEL_AUXILIARY_GETS = false;
+
+    /** Misses are not remembered by default */
+    private static final int DEFAULT_NEGATIVE_CACHE_MAX_OBJECTS = 0;
+
+    /** Default time a miss is remembered */
+    private static final long DEFAULT_NEGATIVE_CACHE_MAX_LIFE_MILLIS = 5000;
+
+    /** Memory is not bounded by weight by default */
+    private static final long DEFAULT_MAX_MEMORY_BYTES = -1;
+
+    /** Default size of the off-heap tier, 64 MB */
+    private static final long DEFAULT_OFF_HEAP_MAX_BYTES = 64L * 1024 * 1024;
+
+    /** Elements received serialized are de-serialized on arrival by default */
+    private static final boolean DEFAULT_LAZY_DESERIALIZATION = false;
+
+    /** Lazily de-serialized values are kept by default */
+    private static final boolean DEFAULT_KEEP_DESERIALIZED_VALUE = true;
+
+    /** Values of 1 KB and more are compressed by default */
+    private static final int DEFAULT_MEMORY_COMPRESSION_THRESHOLD = 1024;
+
     /** allow lateral caches */
     private boolean useLateral = DEFAULT_USE_LATERAL;
 
@@ -100,6 +127,36 @@ public class CompositeCacheAttributes
     /** How many to spool to disk at a time. */
     private int spoolChunkSize = DEFAULT_CHUNK_SIZE;
 
+    /** percentage of max life after which a read through get reloads the element */
+    private int refreshAheadPercent = DEFAULT_REFRESH_AHEAD_PERCENT;
+
+    /** ask lateral and remote auxiliaries in parallel in getMultiple */
+    private boolean parallelAuxiliaryGets = DEFAULT_PARALLEL_AUXILIARY_GETS;
+
+    /** how many keys that were not found anywhere are remembered */
+    private int negativeCacheMaxObjects = DEFAULT_NEGATIVE_CACHE_MAX_OBJECTS;
+
+    /** how long a key that was not found anywhere is remembered */
+    private long negativeCacheMaxLifeMillis = DEFAULT_NEGATIVE_CACHE_MAX_LIFE_MILLIS;
+
+    /** the most the elements in memory may weigh together */
+    private long maxMemoryBytes = DEFAULT_MAX_MEMORY_BYTES;
+
+    /** the name of the element weigher class, null for the default */
+    private String elementWeigherName;
+
+    /** the most the off-heap tier of the memory cache may hold */
+    private long offHeapMaxBytes = DEFAULT_OFF_HEAP_MAX_BYTES;
+
+    /** keep elements received serialized that way until their value is read */
+    private boolean lazyDeserialization = DEFAULT_LAZY_DESERIALIZATION;
+
+    /** keep the value of a lazy element once it has been de-serialized */
+    private boolean keepDeserializedValue = DEFAULT_KEEP_DESERIALIZED_VALUE;
+
+    /** the serialized size from which the compressing memory cache compresses values */
+    private int memoryCompressionThreshold = DEFAULT_MEMORY_COMPRESSION_THRESHOLD;
+
     /**
      * Constructor for the CompositeCacheAttributes object
      */
@@ -369,6 +426,190 @@ public class CompositeCacheAttributes
         this.spoolChunkSize = spoolChunkSize;
     }
 
+    /**
+     * Percentage of an element's max life after which a read through get reloads it.
+     * <p>
+     * @return int, 0 if refresh-ahead is disabled
+     */
+    public int getRefreshAheadPercent()
+    {
+        return refreshAheadPercent;
+    }
+
+    /**
+     * Percentage of an element's max life after which a read through get reloads it.
+     * <p>
+     * @param refreshAheadPercent
+     */
+    public void setRefreshAheadPercent( int refreshAheadPercent )
+    {
+        this.refreshAheadPercent = refreshAheadPercent;
+    }
+
+    /**
+     * Whether getMultiple asks the lateral and remote auxiliaries in parallel.
+     * <p>
+     * @return boolean
+     */
+    public boolean isParallelAuxiliaryGets()
+    {
+        return parallelAuxiliaryGets;
+    }
+
+    /**
+     * Whether getMultiple asks the lateral and remote auxiliaries in parallel.
+     * <p>
+     * @param parallelAuxiliaryGets
+     */
+    public void setParallelAuxiliaryGets( boolean parallelAuxiliaryGets )
+    {
+        this.parallelAuxiliaryGets = parallelAuxiliaryGets;
+    }
+
+    /**
+     * How many keys that were not found in any tier are remembered.
+     * <p>
+     * @return int, 0 if misses are not remembered
+     */
+    public int getNegativeCacheMaxObjects()
+    {
+        return negativeCacheMaxObjects;
+    }
+
+    /**
+     * How many keys that were not found in any tier are remembered.
+     * <p>
+     * @param negativeCacheMaxObjects
+     */
+    public void setNegativeCacheMaxObjects( int negativeCacheMaxObjects )
+    {
+        this.negativeCacheMaxObjects = negativeCacheMaxObjects;
+    }
+
+    /**
+     * How long a key that was not found in any tier is remembered.
+     * <p>
+     * @return long
+     */
+    public long getNegativeCacheMaxLifeMillis()
+    {
+        return negativeCacheMaxLifeMillis;
+    }
+
+    /**
+     * How long a key that was not found in any tier is remembered.
+     * <p>
+     * @param negativeCacheMaxLifeMillis
+     */
+    public void setNegativeCacheMaxLifeMillis( long negativeCacheMaxLifeMillis )
+    {
+        this.negativeCacheMaxLifeMillis = negativeCacheMaxLifeMillis;
+    }
+
+    /**
+     * The most the elements in memory may weigh together.
+     * <p>
+     * @return long, 0 or less if memory is only bounded by MaxObjects
+     */
+    public long getMaxMemoryBytes()
+    {
+        return maxMemoryBytes;
+    }
+
+    /**
+     * The most the elements in memory may weigh together.
+     * <p>
+     * @param maxMemoryBytes
+     */
+    public void setMaxMemoryBytes( long maxMemoryBytes )
+    {
+        this.maxMemoryBytes = maxMemoryBytes;
+    }
+
+    /**
+     * @return the name of the element weigher class, null for the default
+     */
+    public String getElementWeigherName()
+    {
+        return elementWeigherName;
+    }
+
+    /**
+     * @param elementWeigherName the name of the element weigher class
+     */
+    public void setElementWeigherName( String elementWeigherName )
+    {
+        this.elementWeigherName = elementWeigherName;
+    }
+
+    /**
+     * The most the off-heap tier of the memory cache may hold.
+     * <p>
+     * @return long, in bytes
+     */
+    public long getOffHeapMaxBytes()
+    {
+        return offHeapMaxBytes;
+    }
+
+    /**
+     * The most the off-heap tier of the memory cache may hold.
+     * <p>
+     * @param offHeapMaxBytes
+     */
+    public void setOffHeapMaxBytes( long offHeapMaxBytes )
+    {
+        this.offHeapMaxBytes = offHeapMaxBytes;
+    }
+
+    /**
+     * @return true if elements received serialized are de-serialized when their value is read
+     */
+    public boolean isLazyDeserialization()
+    {
+        return lazyDeserialization;
+    }
+
+    /**
+     * @param lazyDeserialization
+     */
+    public void setLazyDeserialization( boolean lazyDeserialization )
+    {
+        this.lazyDeserialization = lazyDeserialization;
+    }
+
+    /**
+     * @return true if the value of a lazy element is kept once it has been de-serialized
+     */
+    public boolean isKeepDeserializedValue()
+    {
+        return keepDeserializedValue;
+    }
+
+    /**
+     * @param keepDeserializedValue
+     */
+    public void setKeepDeserializedValue( boolean keepDeserializedValue )
+    {
+        this.keepDeserializedValue = keepDeserializedValue;
+    }
+
+    /**
+     * @return the serialized size in bytes from which values are compressed in memory
+     */
+    public int getMemoryCompressionThreshold()
+    {
+        return memoryCompressionThreshold;
+    }
+
+    /**
+     * @param memoryCompressionThreshold
+     */
+    public void setMemoryCompressionThreshold( int memoryCompressionThreshold )
+    {
+        this.memoryCompressionThreshold = memoryCompressionThreshold;
+    }
+
     /**
      * @return Returns the diskUsagePattern.
      */
@@ -414,6 +655,16 @@ public class CompositeCacheAttributes
         dump.append( ", maxSpoolPerRun = " ).append( maxSpoolPerRun );
         dump.append( ", diskUsagePattern = " ).append( diskUsagePattern );
         dump.append( ", spoolChunkSize = " ).append( spoolChunkSize );
+        dump.append( ", refreshAheadPercent = " ).append( refreshAheadPercent );
+        dump.append( ", parallelAuxiliaryGets = " ).append( parallelAuxiliaryGets );
+        dump.append( ", negativeCacheMaxObjects = " ).append( negativeCacheMaxObjects );
+        dump.append( ", negativeCacheMaxLifeMillis = " ).append( negativeCacheMaxLifeMillis );
+        dump.append( ", maxMemoryBytes = " ).append( maxMemoryBytes );
+        dump.append( ", elementWeigherName = " ).append( elementWeigherName );
+        dump.append( ", offHeapMaxBytes = " ).append( offHeapMaxBytes );
+        dump.append( ", lazyDeserialization = " ).append( lazyDeserialization );
+        dump.append( ", keepDeserializedValue = " ).append( keepDeserializedValue );
+        dump.append( ", memoryCompressionThreshold = " ).append( memoryCompressionThreshold );
         dump.append( " ]" );
 
         return dump.toString();
@@ -23,6 +23,7 @@ import java.io.IOException;
 import java.io.Serializable;
 import java.util.Collections;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
 import java.util.Set;
 
@@ -100,6 +101,20 @@ public class ZombieCacheServiceNonLocal<K extends Serializable, V extends Serial
         // Zombies have no inner life
     }
 
+    /**
+     * Adds an update event per item to the queue if the maxSize is greater than 0;
+     * <p>
+     * @param items
+     * @param listenerId - identifies the caller.
+     */
+    public void updateMultiple( List<ICacheElement<K, V>> items, long listenerId )
+    {
+        for ( ICacheElement<K, V> item : items )
+        {
+            update( item, listenerId );
+        }
+    }
+
     /**
      * Adds a removeAll event to the queue if the maxSize is greater than 0;
      * <p>
@@ -117,6 +132,21 @@ public class ZombieCacheServiceNonLocal<K extends Serializable, V extends Serial
         // Zombies have no inner life
     }
 
+    /**
+     * Adds a remove event per key to the queue if the maxSize is greater than 0;
+     * <p>
+     * @param cacheName - region name
+     * @param keys - item keys
+     * @param listenerId - identifies the caller.
+     */
+    public void removeMultiple( String cacheName, Set<K> keys, long listenerId )
+    {
+        for ( K key : keys )
+        {
+            remove( cacheName, key, listenerId );
+        }
+    }
+
     /**
      * Adds a removeAll event to the queue if the maxSize is greater than 0;
      * <p>
@@ -0,0 +1,53 @@
+package org.apache.commons.jcs.engine.behavior;
+
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+import java.io.IOException;
+import java.io.Serializable;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Optional interface for cache listeners that can apply a batch of puts or removes at once. Event
+ * queues hand a batch to listeners that implement it in a single call; other listeners get one
+ * handlePut or handleRemove per item.
+ */
+public interface ICacheBulkListener<K extends Serializable, V extends Serializable>
+    extends ICacheListener<K, V>
+{
+    /**
+     * Notifies the subscribers for an update of several cache entries.
+     * <p>
+     * @param items
+     * @throws IOException
+     */
+    public void handlePutMultiple( List<ICacheElement<K, V>> items )
+        throws IOException;
+
+    /**
+     * Notifies the subscribers for the removal of several cache entries.
+     * <p>
+     * @param cacheName
+     * @param keys
+     * @throws IOException
+     */
+    public void handleRemoveMultiple( String cacheName, Set<K> keys )
+        throws IOException;
+}
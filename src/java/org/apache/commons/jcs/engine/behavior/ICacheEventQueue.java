@@ -21,6 +21,8 @@ package org.apache.commons.jcs.engine.behavior;
 
 import java.io.IOException;
 import java.io.Serializable;
+import java.util.List;
+import java.util.Set;
 
 import org.apache.commons.jcs.engine.stats.behavior.IStats;
 
@@ -82,6 +84,26 @@ public interface ICacheEventQueue<K extends Serializable, V extends Serializable
     public void addRemoveEvent( K key )
         throws IOException;
 
+    /**
+     * Adds a single event that puts all of the elements. Listeners that implement
+     * ICacheBulkListener receive them in one call.
+     * <p>
+     * @param ces
+     * @throws IOException
+     */
+    public void addPutMultipleEvent( List<ICacheElement<K, V>> ces )
+        throws IOException;
+
+    /**
+     * Adds a single event that removes all of the keys. Listeners that implement
+     * ICacheBulkListener receive them in one call.
+     * <p>
+     * @param keys
+     * @throws IOException
+     */
+    public void addRemoveMultipleEvent( Set<K> keys )
+        throws IOException;
+
     /**
      * Adds a feature to the RemoveAllEvent attribute of the ICacheEventQueue
      * object
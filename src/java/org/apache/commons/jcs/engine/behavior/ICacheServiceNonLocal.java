@@ -22,6 +22,7 @@ package org.apache.commons.jcs.engine.behavior;
 import java.io.IOException;
 import java.io.Serializable;
 import java.rmi.Remote;
+import java.util.List;
 import java.util.Map;
 import java.util.Set;
 
@@ -45,6 +46,17 @@ public interface ICacheServiceNonLocal<K extends Serializable, V extends Seriali
     void update( ICacheElement<K, V> item, long requesterId )
         throws IOException;
 
+    /**
+     * Puts a batch of cache items to the cache in one call. All the items belong to the same
+     * cache.
+     * <p>
+     * @param items
+     * @param requesterId
+     * @throws IOException
+     */
+    void updateMultiple( List<ICacheElement<K, V>> items, long requesterId )
+        throws IOException;
+
     /**
      * Removes the given key from the specified cache.
      * <p>
@@ -56,6 +68,17 @@ public interface ICacheServiceNonLocal<K extends Serializable, V extends Seriali
     void remove( String cacheName, K key, long requesterId )
         throws IOException;
 
+    /**
+     * Removes the given keys from the specified cache in one call.
+     * <p>
+     * @param cacheName
+     * @param keys
+     * @param requesterId
+     * @throws IOException
+     */
+    void removeMultiple( String cacheName, Set<K> keys, long requesterId )
+        throws IOException;
+
     /**
      * Remove all keys from the specified cache.
      * <p>
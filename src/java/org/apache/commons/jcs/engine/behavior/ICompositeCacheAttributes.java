@@ -243,4 +243,165 @@ public interface ICompositeCacheAttributes
      * @param spoolChunkSize
      */
     void setSpoolChunkSize( int spoolChunkSize );
+
+    /**
+     * Percentage of an element's max life after which a read through get schedules a background
+     * reload. 0 or less disables refresh-ahead.
+     * <p>
+     * @return int
+     */
+    int getRefreshAheadPercent();
+
+    /**
+     * When a get with a loader hits an element that has used up this percentage of its max life,
+     * the current value is returned and the element is reloaded in the background. Eternal
+     * elements and elements without a max life are never refreshed.
+     * <p>
+     * @param refreshAheadPercent 1 to 99, 0 to disable
+     */
+    void setRefreshAheadPercent( int refreshAheadPercent );
+
+    /**
+     * Whether getMultiple queries the lateral and remote auxiliaries in parallel.
+     * <p>
+     * @return boolean
+     */
+    boolean isParallelAuxiliaryGets();
+
+    /**
+     * By default getMultiple asks the auxiliaries one after the other for the keys that are still
+     * missing. If this is set, the disk auxiliaries are still asked first, but the remaining keys
+     * are then requested from all lateral and remote auxiliaries at the same time. Results are
+     * merged in the configured auxiliary order.
+     * <p>
+     * @param parallelAuxiliaryGets
+     */
+    void setParallelAuxiliaryGets( boolean parallelAuxiliaryGets );
+
+    /**
+     * How many keys that were not found in any tier are remembered.
+     * <p>
+     * @return int, 0 or less if misses are not remembered
+     */
+    int getNegativeCacheMaxObjects();
+
+    /**
+     * When a get does not find a key in memory or in any auxiliary, the key is remembered for a
+     * short time so that repeated gets of it are answered from memory. This bounds the number of
+     * keys remembered; the oldest is forgotten first. Putting a value for a key forgets it at
+     * once.
+     * <p>
+     * @param negativeCacheMaxObjects 0 to disable
+     */
+    void setNegativeCacheMaxObjects( int negativeCacheMaxObjects );
+
+    /**
+     * How long a key that was not found in any tier is remembered.
+     * <p>
+     * @return long
+     */
+    long getNegativeCacheMaxLifeMillis();
+
+    /**
+     * How long a key that was not found in any tier is remembered. Puts made in another JVM are
+     * only seen once this has passed, unless they reach this region through a lateral or remote
+     * update, so keep it short.
+     * <p>
+     * @param negativeCacheMaxLifeMillis
+     */
+    void setNegativeCacheMaxLifeMillis( long negativeCacheMaxLifeMillis );
+
+    /**
+     * The most the elements in memory may weigh together, as estimated by the element weigher.
+     * <p>
+     * @return long, 0 or less if memory is only bounded by MaxObjects
+     */
+    long getMaxMemoryBytes();
+
+    /**
+     * Bounds the memory cache by the weight of its elements as well as by their number. When the
+     * total weight of the elements in memory exceeds this, the memory cache spools elements
+     * according to its eviction policy until it fits again. MaxObjects still applies.
+     * <p>
+     * @param maxMemoryBytes 0 or less to disable
+     */
+    void setMaxMemoryBytes( long maxMemoryBytes );
+
+    /**
+     * The class that weighs elements when MaxMemoryBytes is set.
+     * <p>
+     * @return the class name, or null for the default estimate
+     */
+    String getElementWeigherName();
+
+    /**
+     * The class that weighs elements when MaxMemoryBytes is set. It must implement
+     * org.apache.commons.jcs.engine.memory.behavior.IElementWeigher and have a public no argument
+     * constructor.
+     * <p>
+     * @param elementWeigherName
+     */
+    void setElementWeigherName( String elementWeigherName );
+
+    /**
+     * The most the off-heap tier of the memory cache may hold, in bytes.
+     * <p>
+     * @return long
+     */
+    long getOffHeapMaxBytes();
+
+    /**
+     * Sizes the off-heap tier used by the OffHeapMemoryCache. Elements spooled from the heap are
+     * kept there in serialized form, outside of the Java heap, and only go to disk when they are
+     * evicted from it. Other memory caches ignore this setting.
+     * <p>
+     * @param offHeapMaxBytes
+     */
+    void setOffHeapMaxBytes( long offHeapMaxBytes );
+
+    /**
+     * Whether elements received serialized are kept that way until their value is read.
+     * <p>
+     * @return boolean
+     */
+    boolean isLazyDeserialization();
+
+    /**
+     * When set, elements that other caches send serialized are put in memory without
+     * de-serializing them. The value is de-serialized on the first get. Elements evicted before
+     * they are read are never de-serialized.
+     * <p>
+     * @param lazyDeserialization
+     */
+    void setLazyDeserialization( boolean lazyDeserialization );
+
+    /**
+     * Whether the value of a lazily de-serialized element is kept once it has been read.
+     * <p>
+     * @return boolean
+     */
+    boolean isKeepDeserializedValue();
+
+    /**
+     * When set, the first get of a lazy element keeps the value so later gets return it directly.
+     * Otherwise only the serialized value is kept and each get de-serializes a new copy.
+     * <p>
+     * @param keepDeserializedValue
+     */
+    void setKeepDeserializedValue( boolean keepDeserializedValue );
+
+    /**
+     * The serialized size from which the CompressingMemoryCache compresses values.
+     * <p>
+     * @return int, in bytes
+     */
+    int getMemoryCompressionThreshold();
+
+    /**
+     * Values whose serialized form has at least this many bytes are kept compressed by the
+     * CompressingMemoryCache and decompressed on every get. Other memory caches ignore this setting.
+     * <p>
+     * @param memoryCompressionThreshold
+     */
+    void setMemoryCompressionThreshold( int memoryCompressionThreshold );
 }
@@ -0,0 +1,40 @@
+package org.apache.commons.jcs.engine.behavior;
+
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+import java.io.Serializable;
+
+/**
+ * Combines the value already cached for a key with a new one. Used by the atomic merge operation
+ * of a region.
+ */
+public interface IValueMerger<V extends Serializable>
+{
+    /**
+     * Computes the value to store.
+     * <p>
+     * @param oldValue the value currently cached, never null
+     * @param value the value passed to merge
+     * @return the value to store, or null to remove the key
+     * @throws Exception
+     */
+    V merge( V oldValue, V value )
+        throws Exception;
+}
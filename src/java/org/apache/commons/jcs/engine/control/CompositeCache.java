@@ -25,19 +25,33 @@ import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.HashSet;
 import java.util.Iterator;
+import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+import java.util.concurrent.locks.Lock;
 
 import org.apache.commons.jcs.access.exception.CacheException;
 import org.apache.commons.jcs.access.exception.ObjectNotFoundException;
 import org.apache.commons.jcs.auxiliary.AuxiliaryCache;
 import org.apache.commons.jcs.engine.CacheConstants;
+import org.apache.commons.jcs.engine.CacheElement;
 import org.apache.commons.jcs.engine.CacheStatus;
 import org.apache.commons.jcs.engine.behavior.ICache;
 import org.apache.commons.jcs.engine.behavior.ICacheElement;
 import org.apache.commons.jcs.engine.behavior.ICompositeCacheAttributes;
 import org.apache.commons.jcs.engine.behavior.ICompositeCacheAttributes.DiskUsagePattern;
 import org.apache.commons.jcs.engine.behavior.IElementAttributes;
+import org.apache.commons.jcs.engine.behavior.IValueMerger;
 import org.apache.commons.jcs.engine.control.event.ElementEvent;
 import org.apache.commons.jcs.engine.control.event.ElementEventQueue;
 import org.apache.commons.jcs.engine.control.event.behavior.ElementEventType;
@@ -56,6 +70,7 @@ import org.apache.commons.jcs.engine.stats.Stats;
 import org.apache.commons.jcs.engine.stats.behavior.ICacheStats;
 import org.apache.commons.jcs.engine.stats.behavior.IStatElement;
 import org.apache.commons.jcs.engine.stats.behavior.IStats;
+import org.apache.commons.jcs.utils.threadpool.ThreadPoolManager;
 import org.apache.commons.logging.Log;
 import org.apache.commons.logging.LogFactory;
 
@@ -74,6 +89,12 @@ public class CompositeCache<K extends Serializable, V extends Serializable>
     /** log instance */
     private final static Log log = LogFactory.getLog( CompositeCache.class );
 
+    /** Name of the thread pool that runs refresh-ahead reloads, configurable as thread_pool.cache_refresh_ahead */
+    public static final String REFRESH_AHEAD_THREAD_POOL_NAME = "cache_refresh_ahead";
+
+    /** Name of the thread pool that runs parallel auxiliary gets, configurable as thread_pool.cache_aux_get */
+    public static final String AUX_GET_THREAD_POOL_NAME = "cache_aux_get";
+
     /**
      * EventQueue for handling element events. Lazy initialized. One for each region. To be more efficient, the manager
      * should pass a shared queue in.
@@ -97,25 +118,31 @@ public class CompositeCache<K extends Serializable, V extends Serializable>
     private ICompositeCacheAttributes cacheAttr;
 
     /** How many times update was called. */
-    private int updateCount;
+    private final AtomicInteger updateCount = new AtomicInteger( 0 );
 
     /** How many times remove was called. */
-    private int removeCount;
+    private final AtomicInteger removeCount = new AtomicInteger( 0 );
 
     /** Memory cache hit count */
-    private int hitCountRam;
+    private final AtomicInteger hitCountRam = new AtomicInteger( 0 );
 
     /** Auxiliary cache hit count (number of times found in ANY auxiliary) */
-    private int hitCountAux;
+    private final AtomicInteger hitCountAux = new AtomicInteger( 0 );
 
     /** Auxiliary hit counts broken down by auxiliary. */
-    private int[] auxHitCountByIndex;
+    private AtomicIntegerArray auxHitCountByIndex = new AtomicIntegerArray( 0 );
 
     /** Count of misses where element was not found. */
-    private int missCountNotFound = 0;
+    private final AtomicInteger missCountNotFound = new AtomicInteger( 0 );
 
     /** Count of misses where element was expired. */
-    private int missCountExpired = 0;
+    private final AtomicInteger missCountExpired = new AtomicInteger( 0 );
+
+    /** Count of misses answered by the negative result cache. */
+    private final AtomicInteger hitCountNegative = new AtomicInteger( 0 );
+
+    /** Keys recently not found in any tier, null if disabled for the region */
+    private volatile NegativeResultCache<K> negativeCache;
 
     /**
      * The cache hub can only have one memory cache. This could be made more flexible in the future,
@@ -126,6 +153,13 @@ public class CompositeCache<K extends Serializable, V extends Serializable>
     /** Key matcher used by the getMatching API */
     protected IKeyMatcher<K> keyMatcher = new KeyMatcherPatternImpl<K>();
 
+    /** Per key locks. Writers of different keys do not wait on each other. */
+    private final StripedKeyLock keyLocks = new StripedKeyLock();
+
+    /** Loads currently running through get(K, Callable), one per key */
+    private final ConcurrentMap<K, FutureTask<ICacheElement<K, V>>> loadsInFlight =
+        new ConcurrentHashMap<K, FutureTask<ICacheElement<K, V>>>();
+
     /**
      * Constructor for the Cache object
      * <p>
@@ -140,6 +174,7 @@ public class CompositeCache<K extends Serializable, V extends Serializable>
         this.cacheAttr = cattr;
 
         createMemoryCache( cattr );
+        createNegativeCache( cattr );
 
         if ( log.isInfoEnabled() )
         {
@@ -158,7 +193,7 @@ public class CompositeCache<K extends Serializable, V extends Serializable>
 
         if ( auxCaches != null )
         {
-            this.auxHitCountByIndex = new int[auxCaches.length];
+            this.auxHitCountByIndex = new AtomicIntegerArray( auxCaches.length );
         }
     }
 
@@ -207,30 +242,243 @@ public class CompositeCache<K extends Serializable, V extends Serializable>
     protected void update( ICacheElement<K, V> cacheElement, boolean localOnly )
         throws IOException
     {
+        validatePutKey( cacheElement.getKey() );
 
-        if ( cacheElement.getKey() instanceof String
-            && cacheElement.getKey().toString().endsWith( CacheConstants.NAME_COMPONENT_DELIMITER ) )
+        if ( log.isDebugEnabled() )
         {
-            throw new IllegalArgumentException( "key must not end with " + CacheConstants.NAME_COMPONENT_DELIMITER
-                + " for a put operation" );
+            log.debug( "Updating memory cache " + cacheElement.getKey() );
+        }
+
+        // The key lock is only held while memory changes. The auxiliaries are updated in the
+        // turn taken under the lock, so they see the writes of one key in the same order as
+        // memory, while readers and the memory step of later writers do not wait on their I/O.
+        Lock lock = keyLocks.getLock( cacheElement.getKey() );
+        long turn;
+        lock.lock();
+        try
+        {
+            updateMemory( cacheElement );
+            turn = keyLocks.takeTurn( cacheElement.getKey() );
         }
-        else if ( cacheElement.getKey() instanceof GroupId )
+        finally
         {
-            throw new IllegalArgumentException( "key cannot be a GroupId " + " for a put operation" );
+            lock.unlock();
+        }
+
+        updateAuxiliariesInTurn( cacheElement, localOnly, turn );
+    }
+
+    /**
+     * Puts the element into memory. The caller must hold the key lock, and must then take a turn
+     * and update the auxiliaries in it.
+     * <p>
+     * @param cacheElement
+     * @throws IOException
+     */
+    private void updateMemory( ICacheElement<K, V> cacheElement )
+        throws IOException
+    {
+        updateCount.incrementAndGet();
+
+        forgetAbsent( cacheElement.getKey() );
+
+        memCache.update( cacheElement );
+    }
+
+    /**
+     * Waits for the turn of the key, updates the auxiliaries and ends the turn. No key lock may be
+     * held by the caller.
+     * <p>
+     * @param cacheElement
+     * @param localOnly
+     * @param turn taken with the key lock held, after the memory update
+     * @throws IOException
+     */
+    private void updateAuxiliariesInTurn( ICacheElement<K, V> cacheElement, boolean localOnly, long turn )
+        throws IOException
+    {
+        keyLocks.awaitTurn( cacheElement.getKey(), turn );
+        try
+        {
+            updateAuxiliaries( cacheElement, localOnly );
+        }
+        finally
+        {
+            keyLocks.endTurn( cacheElement.getKey() );
+        }
+    }
+
+    /**
+     * Puts a batch of items into the cache.
+     * <p>
+     * @param cacheElements
+     * @exception IOException
+     */
+    public void updateMultiple( List<ICacheElement<K, V>> cacheElements )
+        throws IOException
+    {
+        updateMultiple( cacheElements, false );
+    }
+
+    /**
+     * Puts a batch of items into the cache without notifying remote or lateral auxiliaries.
+     * <p>
+     * @param cacheElements
+     * @exception IOException
+     */
+    public void localUpdateMultiple( List<ICacheElement<K, V>> cacheElements )
+        throws IOException
+    {
+        updateMultiple( cacheElements, true );
+    }
+
+    /**
+     * Puts a batch of items into the cache. The stripes of all the keys are locked once, in
+     * order, and the items are put into memory. Once the turns of those stripes come, each
+     * auxiliary receives the items it accepts in a single updateMultiple call. If it is localOnly,
+     * then do not notify remote or lateral auxiliaries.
+     * <p>
+     * @param cacheElements
+     * @param localOnly Whether the operation should be restricted to local auxiliaries.
+     * @exception IOException
+     */
+    protected void updateMultiple( List<ICacheElement<K, V>> cacheElements, boolean localOnly )
+        throws IOException
+    {
+        if ( cacheElements.isEmpty() )
+        {
+            return;
+        }
+
+        List<K> keys = new ArrayList<K>( cacheElements.size() );
+        for ( ICacheElement<K, V> cacheElement : cacheElements )
+        {
+            validatePutKey( cacheElement.getKey() );
+            keys.add( cacheElement.getKey() );
         }
 
         if ( log.isDebugEnabled() )
         {
-            log.debug( "Updating memory cache " + cacheElement.getKey() );
+            log.debug( "Updating memory cache with " + cacheElements.size() + " elements" );
         }
 
-        synchronized ( this )
+        long[] turns;
+        List<Lock> locks = keyLocks.lock( keys );
+        try
+        {
+            for ( ICacheElement<K, V> cacheElement : cacheElements )
+            {
+                updateMemory( cacheElement );
+            }
+            turns = keyLocks.takeTurns( keys );
+        }
+        finally
         {
-            updateCount++;
+            keyLocks.unlock( locks );
+        }
 
-            memCache.update( cacheElement );
+        keyLocks.awaitTurns( turns );
+        try
+        {
+            for ( int i = 0; i < auxCaches.length; i++ )
+            {
+                AuxiliaryCache<K, V> aux = auxCaches[i];
 
-            updateAuxiliaries( cacheElement, localOnly );
+                if ( aux == null )
+                {
+                    continue;
+                }
+
+                List<ICacheElement<K, V>> accepted = new ArrayList<ICacheElement<K, V>>( cacheElements.size() );
+                for ( ICacheElement<K, V> cacheElement : cacheElements )
+                {
+                    if ( isAuxiliaryUpdateAllowed( aux.getCacheType(), cacheElement, localOnly ) )
+                    {
+                        accepted.add( cacheElement );
+                    }
+                }
+
+                if ( accepted.isEmpty() )
+                {
+                    continue;
+                }
+
+                try
+                {
+                    aux.updateMultiple( accepted );
+                    if ( log.isDebugEnabled() )
+                    {
+                        log.debug( "Updated " + aux.getCacheType() + " with " + accepted.size() + " elements" );
+                    }
+                }
+                catch ( IOException ex )
+                {
+                    // the single update only shields the remote store
+                    if ( aux.getCacheType() != CacheType.REMOTE_CACHE )
+                    {
+                        throw ex;
+                    }
+                    log.error( "Failure in updateMultiple", ex );
+                }
+            }
+        }
+        finally
+        {
+            keyLocks.endTurns( turns );
+        }
+    }
+
+    /**
+     * Keys ending in the name component delimiter and group ids stand for several keys in removes,
+     * so they cannot be put.
+     * <p>
+     * @param key
+     * @throws IllegalArgumentException if the key cannot be put
+     */
+    private void validatePutKey( K key )
+    {
+        if ( key instanceof String
+            && key.toString().endsWith( CacheConstants.NAME_COMPONENT_DELIMITER ) )
+        {
+            throw new IllegalArgumentException( "key must not end with " + CacheConstants.NAME_COMPONENT_DELIMITER
+                + " for a put operation" );
+        }
+        else if ( key instanceof GroupId )
+        {
+            throw new IllegalArgumentException( "key cannot be a GroupId " + " for a put operation" );
+        }
+    }
+
+    /**
+     * Decides whether an auxiliary of the given type gets an update of the element. Remote and
+     * lateral auxiliaries only get updates that are not local only and that the element
+     * attributes allow. Disk auxiliaries only get updates if the disk is not merely used as a
+     * swap.
+     * <p>
+     * @param cacheType the type of the auxiliary
+     * @param cacheElement
+     * @param localOnly
+     * @return true if the auxiliary should be updated
+     */
+    private boolean isAuxiliaryUpdateAllowed( CacheType cacheType, ICacheElement<K, V> cacheElement, boolean localOnly )
+    {
+        switch ( cacheType )
+        {
+            case REMOTE_CACHE:
+                return cacheElement.getElementAttributes().getIsRemote() && !localOnly;
+
+            case LATERAL_CACHE:
+                // lateral can't do the checking since it is dependent on the
+                // cache region restrictions
+                return cacheAttr.isUseLateral() && cacheElement.getElementAttributes().getIsLateral() && !localOnly;
+
+            case DISK_CACHE:
+                return cacheAttr.isUseDisk()
+                    && ( cacheAttr.getDiskUsagePattern() == DiskUsagePattern.UPDATE )
+                    && cacheElement.getElementAttributes().getIsSpool();
+
+            default:
+                return false;
         }
     }
 
@@ -295,7 +543,7 @@ public class CompositeCache<K extends Serializable, V extends Serializable>
                         + cacheElement.getElementAttributes().getIsRemote() );
                 }
 
-                if ( cacheElement.getElementAttributes().getIsRemote() && !localOnly )
+                if ( isAuxiliaryUpdateAllowed( CacheType.REMOTE_CACHE, cacheElement, localOnly ) )
                 {
                     try
                     {
@@ -322,7 +570,7 @@ public class CompositeCache<K extends Serializable, V extends Serializable>
                 {
                     log.debug( "lateralcache in aux list: cattr " + cacheAttr.isUseLateral() );
                 }
-                if ( cacheAttr.isUseLateral() && cacheElement.getElementAttributes().getIsLateral() && !localOnly )
+                if ( isAuxiliaryUpdateAllowed( CacheType.LATERAL_CACHE, cacheElement, localOnly ) )
                 {
                     // DISTRIBUTE LATERALLY
                     // Currently always multicast even if the value is
@@ -341,9 +589,7 @@ public class CompositeCache<K extends Serializable, V extends Serializable>
                 {
                     log.debug( "diskcache in aux list: cattr " + cacheAttr.isUseDisk() );
                 }
-                if ( cacheAttr.isUseDisk()
-                    && ( cacheAttr.getDiskUsagePattern() == DiskUsagePattern.UPDATE )
-                    && cacheElement.getElementAttributes().getIsSpool() )
+                if ( isAuxiliaryUpdateAllowed( CacheType.DISK_CACHE, cacheElement, localOnly ) )
                 {
                     aux.update( cacheElement );
                     if ( log.isDebugEnabled() )
@@ -461,6 +707,10 @@ public class CompositeCache<K extends Serializable, V extends Serializable>
      * Do not try to go remote or laterally for this get if it is localOnly. Otherwise try to go
      * remote or lateral if such an auxiliary is configured for this region.
      * <p>
+     * No region wide lock is held during the lookup. The memory cache guards its own structures, so
+     * a memory hit never waits on a writer of another key, and a slow disk read or network round
+     * trip in an auxiliary only delays the calling thread.
+     * <p>
      * @param key
      * @param localOnly
      * @return ICacheElement
@@ -471,173 +721,802 @@ public class CompositeCache<K extends Serializable, V extends Serializable>
 
         boolean found = false;
 
+        boolean knownAbsent = false;
+
+        // the write generation of the key's stripe before the auxiliaries were asked
+        long settled = -1;
+
         if ( log.isDebugEnabled() )
         {
             log.debug( "get: key = " + key + ", localOnly = " + localOnly );
         }
 
-        synchronized (this)
+        try
         {
-            try
-            {
-                // First look in memory cache
-                element = memCache.get( key );
+            // First look in memory cache
+            element = memCache.get( key );
 
-                if ( element != null )
+            if ( element != null )
+            {
+                // Found in memory cache
+                if ( isExpired( element ) )
                 {
-                    // Found in memory cache
-                    if ( isExpired( element ) )
+                    if ( log.isDebugEnabled() )
                     {
-                        if ( log.isDebugEnabled() )
-                        {
-                            log.debug( cacheName + " - Memory cache hit, but element expired" );
-                        }
+                        log.debug( cacheName + " - Memory cache hit, but element expired" );
+                    }
 
-                        missCountExpired++;
+                    missCountExpired.incrementAndGet();
 
-                        remove( key );
+                    remove( key );
 
-                        element = null;
-                    }
-                    else
+                    element = null;
+                }
+                else
+                {
+                    if ( log.isDebugEnabled() )
                     {
-                        if ( log.isDebugEnabled() )
-                        {
-                            log.debug( cacheName + " - Memory cache hit" );
-                        }
-
-                        // Update counters
-                        hitCountRam++;
+                        log.debug( cacheName + " - Memory cache hit" );
                     }
 
-                    found = true;
+                    // Update counters
+                    hitCountRam.incrementAndGet();
                 }
-                else
+
+                found = true;
+            }
+            else if ( isKnownAbsent( key ) )
+            {
+                if ( log.isDebugEnabled() )
+                {
+                    log.debug( cacheName + " - Negative result cache hit" );
+                }
+                knownAbsent = true;
+            }
+            else
+            {
+                // Item not found in memory. If local invocation look in aux
+                // caches, even if not local look in disk auxiliaries
+
+                settled = keyLocks.getSettledTurns( key );
+
+                for ( int i = 0; i < auxCaches.length; i++ )
                 {
-                    // Item not found in memory. If local invocation look in aux
-                    // caches, even if not local look in disk auxiliaries
+                    AuxiliaryCache<K, V> aux = auxCaches[i];
 
-                    for ( int i = 0; i < auxCaches.length; i++ )
+                    if ( aux != null )
                     {
-                        AuxiliaryCache<K, V> aux = auxCaches[i];
+                        CacheType cacheType = aux.getCacheType();
 
-                        if ( aux != null )
+                        if ( !localOnly || cacheType == CacheType.DISK_CACHE )
                         {
-                            CacheType cacheType = aux.getCacheType();
-
-                            if ( !localOnly || cacheType == CacheType.DISK_CACHE )
+                            if ( log.isDebugEnabled() )
                             {
-                                if ( log.isDebugEnabled() )
-                                {
-                                    log.debug( "Attempting to get from aux [" + aux.getCacheName() + "] which is of type: "
-                                        + cacheType );
-                                }
-
-                                try
-                                {
-                                    element = aux.get( key );
-                                }
-                                catch ( IOException e )
-                                {
-                                    log.error( "Error getting from aux", e );
-                                }
+                                log.debug( "Attempting to get from aux [" + aux.getCacheName() + "] which is of type: "
+                                    + cacheType );
                             }
 
-                            if ( log.isDebugEnabled() )
+                            try
+                            {
+                                element = aux.get( key );
+                            }
+                            catch ( IOException e )
                             {
-                                log.debug( "Got CacheElement: " + element );
+                                log.error( "Error getting from aux", e );
                             }
+                        }
 
-                            // Item found in one of the auxiliary caches.
-                            if ( element != null )
+                        if ( log.isDebugEnabled() )
+                        {
+                            log.debug( "Got CacheElement: " + element );
+                        }
+
+                        // Item found in one of the auxiliary caches.
+                        if ( element != null )
+                        {
+                            if ( isExpired( element ) )
                             {
-                                if ( isExpired( element ) )
+                                if ( log.isDebugEnabled() )
                                 {
-                                    if ( log.isDebugEnabled() )
-                                    {
-                                        log.debug( cacheName + " - Aux cache[" + i + "] hit, but element expired." );
-                                    }
+                                    log.debug( cacheName + " - Aux cache[" + i + "] hit, but element expired." );
+                                }
 
-                                    missCountExpired++;
+                                missCountExpired.incrementAndGet();
 
-                                    // This will tell the remotes to remove the item
-                                    // based on the element's expiration policy. The elements attributes
-                                    // associated with the item when it created govern its behavior
-                                    // everywhere.
-                                    remove( key );
+                                // This will tell the remotes to remove the item
+                                // based on the element's expiration policy. The elements attributes
+                                // associated with the item when it created govern its behavior
+                                // everywhere.
+                                remove( key );
 
-                                    element = null;
-                                }
-                                else
+                                element = null;
+                            }
+                            else
+                            {
+                                if ( log.isDebugEnabled() )
                                 {
-                                    if ( log.isDebugEnabled() )
-                                    {
-                                        log.debug( cacheName + " - Aux cache[" + i + "] hit" );
-                                    }
-
-                                    // Update counters
-                                    hitCountAux++;
-                                    auxHitCountByIndex[i]++;
-
-                                    copyAuxiliaryRetrievedItemToMemory( element );
+                                    log.debug( cacheName + " - Aux cache[" + i + "] hit" );
                                 }
 
-                                found = true;
+                                // Update counters
+                                hitCountAux.incrementAndGet();
+                                auxHitCountByIndex.incrementAndGet( i );
 
-                                break;
+                                copyAuxiliaryRetrievedItemToMemory( element, settled );
                             }
+
+                            found = true;
+
+                            break;
                         }
                     }
                 }
             }
-            catch ( Exception e )
-            {
-                log.error( "Problem encountered getting element.", e );
-            }
+        }
+        catch ( Exception e )
+        {
+            log.error( "Problem encountered getting element.", e );
         }
 
         if ( !found )
         {
-            missCountNotFound++;
+            missCountNotFound.incrementAndGet();
 
             if ( log.isDebugEnabled() )
             {
                 log.debug( cacheName + " - Miss" );
             }
+
+            // a local miss says nothing about the lateral and remote tiers
+            if ( !localOnly && !knownAbsent )
+            {
+                recordAbsent( key, settled );
+            }
         }
 
         return element;
     }
 
     /**
-     * Gets multiple items from the cache based on the given set of keys.
+     * Gets an item from the cache, or loads and caches it on a miss.
      * <p>
-     * @param keys
-     * @return a map of K key to ICacheElement<K, V> element, or an empty map if there is no
-     *         data in cache for any of these keys
+     * Concurrent misses on the same key share a single load. The first thread to miss runs the
+     * loader, later threads wait for its result instead of calling the loader themselves. Loads
+     * of different keys never wait on each other. If the loader returns null nothing is cached
+     * and null is returned.
+     * <p>
+     * If refresh-ahead is configured for the region and the element found has used up that
+     * percentage of its max life, it is returned as is and the loader is called again in the
+     * background to replace it before it expires.
+     * <p>
+     * @param key
+     * @param loader called at most once per key at a time, on the thread of the first caller
+     * @return the cached or loaded element, or null if the loader produced no value
+     * @throws IOException if the loader or the update fails. Checked exceptions thrown by the
+     *             loader are the cause of the IOException.
      */
-    public Map<K, ICacheElement<K, V>> getMultiple( Set<K> keys )
+    public ICacheElement<K, V> get( final K key, final Callable<V> loader )
+        throws IOException
     {
-        return getMultiple( keys, false );
+        ICacheElement<K, V> element = get( key );
+        if ( element != null )
+        {
+            if ( isRefreshAheadDue( element ) )
+            {
+                scheduleRefresh( key, loader );
+            }
+            return element;
+        }
+
+        return loadOnce( key, new Callable<ICacheElement<K, V>>()
+        {
+            public ICacheElement<K, V> call()
+                throws Exception
+            {
+                return load( key, loader );
+            }
+        } );
     }
 
     /**
-     * Gets multiple items from the cache based on the given set of keys. Do not try to go remote or
-     * laterally for this data.
+     * Runs the task as the single load of the key. If another load of the key is already running
+     * the task is dropped and the result of the running load is returned instead. No key lock is
+     * held while the task runs.
      * <p>
-     * @param keys
-     * @return a map of K key to ICacheElement<K, V> element, or an empty map if there is no
-     *         data in cache for any of these keys
+     * @param key
+     * @param task loads the key and puts the result in the cache
+     * @return the result of the task, or of the load that was already running
+     * @throws IOException if the load fails. Checked exceptions other than IOException are the
+     *             cause of the IOException.
      */
-    public Map<K, ICacheElement<K, V>> localGetMultiple( Set<K> keys )
+    private ICacheElement<K, V> loadOnce( K key, Callable<ICacheElement<K, V>> task )
+        throws IOException
     {
-        return getMultiple( keys, true );
-    }
+        FutureTask<ICacheElement<K, V>> load = new FutureTask<ICacheElement<K, V>>( task );
 
-    /**
-     * Look in memory, then disk, remote, or laterally for these items. The order is dependent on
-     * the order in the cache.ccf file. Keep looking in each cache location until either the element
-     * is found, or the method runs out of places to look.
+        FutureTask<ICacheElement<K, V>> running = loadsInFlight.putIfAbsent( key, load );
+        if ( running == null )
+        {
+            running = load;
+            try
+            {
+                load.run();
+            }
+            finally
+            {
+                loadsInFlight.remove( key, load );
+            }
+        }
+        else if ( log.isDebugEnabled() )
+        {
+            log.debug( cacheName + " - Waiting for running load of key [" + key + "]" );
+        }
+
+        try
+        {
+            return running.get();
+        }
+        catch ( InterruptedException e )
+        {
+            Thread.currentThread().interrupt();
+            throw new IOException( "Interrupted while waiting for the load of key [" + key + "]" );
+        }
+        catch ( ExecutionException e )
+        {
+            Throwable cause = e.getCause();
+            if ( cause instanceof IOException )
+            {
+                throw (IOException) cause;
+            }
+            if ( cause instanceof RuntimeException )
+            {
+                throw (RuntimeException) cause;
+            }
+            if ( cause instanceof Error )
+            {
+                throw (Error) cause;
+            }
+            throw new IOException( "Loader failed for key [" + key + "]", cause );
+        }
+    }
+
+    /**
+     * Runs the loader for a key that missed and puts the result in the cache. Another load may
+     * have finished between the miss and this call, so memory is checked again first.
+     * <p>
+     * @param key
+     * @param loader
+     * @return the element now in the cache, or null if the loader produced no value
+     * @throws Exception anything thrown by the loader or the update
+     */
+    private ICacheElement<K, V> load( K key, Callable<V> loader )
+        throws Exception
+    {
+        ICacheElement<K, V> element = memCache.getQuiet( key );
+        if ( element != null && !isExpired( element ) )
+        {
+            return element;
+        }
+
+        return store( key, loader.call() );
+    }
+
+    /**
+     * Puts a loaded value into the cache with the default element attributes.
+     * <p>
+     * @param key
+     * @param value may be null, in which case nothing is stored
+     * @return the new element or null
+     * @throws IOException
+     */
+    private ICacheElement<K, V> store( K key, V value )
+        throws IOException
+    {
+        if ( value == null )
+        {
+            return null;
+        }
+
+        ICacheElement<K, V> ce = createElement( key, value );
+        update( ce );
+        return ce;
+    }
+
+    /**
+     * @param key
+     * @param value
+     * @return an element with the default element attributes of the region
+     */
+    private ICacheElement<K, V> createElement( K key, V value )
+    {
+        CacheElement<K, V> ce = new CacheElement<K, V>( cacheName, key, value );
+        ce.setElementAttributes( getElementAttributes() );
+        return ce;
+    }
+
+    /**
+     * Puts the element only if the key has no current value.
+     * <p>
+     * The key is looked up without any lock held, see {@link #getForUpdate(Serializable)}. The
+     * put then runs with the key's stripe locked, and only if no key of the stripe was written
+     * since the lookup started, otherwise the lookup is repeated. As in update, the auxiliaries
+     * are written after the lock is released, in the key's turn.
+     * <p>
+     * @param cacheElement
+     * @return the element already cached, or null if the new element was put
+     * @throws IOException
+     */
+    public ICacheElement<K, V> putIfAbsent( ICacheElement<K, V> cacheElement )
+        throws IOException
+    {
+        K key = cacheElement.getKey();
+        validatePutKey( key );
+
+        Lock lock = keyLocks.getLock( key );
+
+        while ( true )
+        {
+            long settled = keyLocks.getSettledTurns( key );
+            ICacheElement<K, V> current = getForUpdate( key );
+            if ( current != null )
+            {
+                return current;
+            }
+
+            if ( settled == -1 )
+            {
+                // a write of the stripe is running, look again once it is done
+                keyLocks.awaitSettledTurns( key );
+                continue;
+            }
+
+            long turn;
+            lock.lock();
+            try
+            {
+                if ( !keyLocks.isUnchangedSince( key, settled ) )
+                {
+                    continue;
+                }
+
+                updateMemory( cacheElement );
+                turn = keyLocks.takeTurn( key );
+            }
+            finally
+            {
+                lock.unlock();
+            }
+
+            updateAuxiliariesInTurn( cacheElement, false, turn );
+            return null;
+        }
+    }
+
+    /**
+     * Puts the element only if the key currently maps to a value equal to the expected one. The
+     * comparison and the put are atomic per key, see {@link #putIfAbsent(ICacheElement)}.
+     * <p>
+     * @param expectedValue
+     * @param cacheElement the replacement
+     * @return true if the value was replaced
+     * @throws IOException
+     */
+    public boolean replace( V expectedValue, ICacheElement<K, V> cacheElement )
+        throws IOException
+    {
+        K key = cacheElement.getKey();
+        validatePutKey( key );
+
+        Lock lock = keyLocks.getLock( key );
+
+        while ( true )
+        {
+            long settled = keyLocks.getSettledTurns( key );
+            ICacheElement<K, V> current = getForUpdate( key );
+            if ( current == null || !current.getVal().equals( expectedValue ) )
+            {
+                return false;
+            }
+
+            if ( settled == -1 )
+            {
+                // a write of the stripe is running, look again once it is done
+                keyLocks.awaitSettledTurns( key );
+                continue;
+            }
+
+            long turn;
+            lock.lock();
+            try
+            {
+                if ( !keyLocks.isUnchangedSince( key, settled ) )
+                {
+                    continue;
+                }
+
+                updateMemory( cacheElement );
+                turn = keyLocks.takeTurn( key );
+            }
+            finally
+            {
+                lock.unlock();
+            }
+
+            updateAuxiliariesInTurn( cacheElement, false, turn );
+            return true;
+        }
+    }
+
+    /**
+     * Looks the key up for a compare and set. Memory and then the auxiliaries are searched like
+     * in get, but the lookup is quiet: nothing is counted, access times are not touched, nothing
+     * is copied to memory or recorded as absent, and an expired element is treated as absent
+     * without being removed. No key lock may be held by the caller, an auxiliary may take a
+     * network round trip.
+     * <p>
+     * @param key
+     * @return the current element, or null
+     */
+    private ICacheElement<K, V> getForUpdate( K key )
+    {
+        try
+        {
+            ICacheElement<K, V> element = memCache.getQuiet( key );
+            if ( element != null )
+            {
+                return isExpired( element, false ) ? null : element;
+            }
+        }
+        catch ( IOException e )
+        {
+            log.error( "Problem getting element from memory for key [" + key + "]", e );
+        }
+
+        for ( int i = 0; i < auxCaches.length; i++ )
+        {
+            AuxiliaryCache<K, V> aux = auxCaches[i];
+
+            if ( aux == null )
+            {
+                continue;
+            }
+
+            try
+            {
+                ICacheElement<K, V> element = aux.get( key );
+                if ( element != null )
+                {
+                    return isExpired( element, false ) ? null : element;
+                }
+            }
+            catch ( IOException e )
+            {
+                log.error( "Error getting from aux", e );
+            }
+        }
+
+        return null;
+    }
+
+    /**
+     * Returns the cached element for the key, or computes, puts and returns a new one if there is
+     * none. The computed value is only put if the key still has no value once it is ready, so a
+     * put or remove that interleaves with the computation is never overwritten. Like
+     * {@link #get(Serializable, Callable)}, concurrent misses on the key share one computation.
+     * <p>
+     * The loader runs without any key lock held, so it may be slow and may read or write other
+     * keys of this region.
+     * <p>
+     * @param key
+     * @param loader computes the value, may return null in which case nothing is stored
+     * @return the current or computed element, or null if the loader produced no value
+     * @throws IOException if the loader or the update fails. Checked exceptions thrown by the
+     *             loader are the cause of the IOException.
+     */
+    public ICacheElement<K, V> computeIfAbsent( final K key, final Callable<V> loader )
+        throws IOException
+    {
+        ICacheElement<K, V> current = get( key );
+        if ( current != null )
+        {
+            return current;
+        }
+
+        return loadOnce( key, new Callable<ICacheElement<K, V>>()
+        {
+            public ICacheElement<K, V> call()
+                throws Exception
+            {
+                return storeIfAbsent( key, loader.call() );
+            }
+        } );
+    }
+
+    /**
+     * Puts a computed value unless the key got a value while it was being computed.
+     * <p>
+     * @param key
+     * @param value may be null, in which case nothing is stored
+     * @return the element now cached for the key, or null
+     * @throws IOException
+     */
+    private ICacheElement<K, V> storeIfAbsent( K key, V value )
+        throws IOException
+    {
+        validatePutKey( key );
+
+        Lock lock = keyLocks.getLock( key );
+
+        while ( true )
+        {
+            long settled = keyLocks.getSettledTurns( key );
+            ICacheElement<K, V> current = getForUpdate( key );
+            if ( current != null || value == null )
+            {
+                return current;
+            }
+
+            if ( settled == -1 )
+            {
+                // a write of the stripe is running, look again once it is done
+                keyLocks.awaitSettledTurns( key );
+                continue;
+            }
+
+            ICacheElement<K, V> ce;
+            long turn;
+            lock.lock();
+            try
+            {
+                if ( !keyLocks.isUnchangedSince( key, settled ) )
+                {
+                    continue;
+                }
+
+                ce = createElement( key, value );
+                updateMemory( ce );
+                turn = keyLocks.takeTurn( key );
+            }
+            finally
+            {
+                lock.unlock();
+            }
+
+            updateAuxiliariesInTurn( ce, false, turn );
+            return ce;
+        }
+    }
+
+    /**
+     * Stores the value if the key has none, otherwise stores the result of merging the current
+     * value with it. If the merger returns null the key is removed.
+     * <p>
+     * The current value is looked up and the merger runs without any key lock held. The result is
+     * only stored if no key of the stripe was written since the lookup started, otherwise the
+     * merge is retried against the new value. The merger may therefore be called more than once, and it should not have side
+     * effects. No update of the key is lost, which makes this suitable for counters and the like.
+     * <p>
+     * A new element gets the default element attributes of the region. A merged element keeps the
+     * attributes of the element it replaces, so its max life still counts from the first put.
+     * <p>
+     * @param key
+     * @param value
+     * @param merger combines the current value with the given one
+     * @return the element now cached, or null if the key was removed
+     * @throws IOException if the merger or the update fails. Checked exceptions thrown by the
+     *             merger are the cause of the IOException.
+     */
+    public ICacheElement<K, V> merge( K key, V value, IValueMerger<V> merger )
+        throws IOException
+    {
+        validatePutKey( key );
+
+        Lock lock = keyLocks.getLock( key );
+
+        while ( true )
+        {
+            long settled = keyLocks.getSettledTurns( key );
+            ICacheElement<K, V> current = getForUpdate( key );
+
+            if ( settled == -1 )
+            {
+                // a write of the stripe is running, look again once it is done
+                keyLocks.awaitSettledTurns( key );
+                continue;
+            }
+
+            V merged = null;
+            if ( current != null )
+            {
+                try
+                {
+                    merged = merger.merge( current.getVal(), value );
+                }
+                catch ( IOException e )
+                {
+                    throw e;
+                }
+                catch ( RuntimeException e )
+                {
+                    throw e;
+                }
+                catch ( Exception e )
+                {
+                    throw new IOException( "Merger failed for key [" + key + "]", e );
+                }
+            }
+
+            ICacheElement<K, V> ce;
+            long turn;
+            lock.lock();
+            try
+            {
+                if ( !keyLocks.isUnchangedSince( key, settled ) )
+                {
+                    if ( log.isDebugEnabled() )
+                    {
+                        log.debug( cacheName + " - Key [" + key + "] changed during merge, retrying" );
+                    }
+                    continue;
+                }
+
+                if ( current == null )
+                {
+                    ce = createElement( key, value );
+                    updateMemory( ce );
+                }
+                else if ( merged == null )
+                {
+                    ce = null;
+                    removeFromMemory( key );
+                }
+                else
+                {
+                    CacheElement<K, V> mergedElement = new CacheElement<K, V>( cacheName, key, merged );
+                    mergedElement.setElementAttributes( current.getElementAttributes() );
+                    ce = mergedElement;
+                    updateMemory( ce );
+                }
+                turn = keyLocks.takeTurn( key );
+            }
+            finally
+            {
+                lock.unlock();
+            }
+
+            if ( ce == null )
+            {
+                removeFromAuxiliariesInTurn( key, false, turn );
+            }
+            else
+            {
+                updateAuxiliariesInTurn( ce, false, turn );
+            }
+            return ce;
+        }
+    }
+
+    /**
+     * Determine if the element has used up enough of its max life to be reloaded ahead of its
+     * expiration. Eternal elements and elements without a max life are never refreshed.
+     * <p>
+     * @param element
+     * @return true if refresh-ahead is enabled and the element is past the configured percentage
+     */
+    protected boolean isRefreshAheadDue( ICacheElement<K, V> element )
+    {
+        int percent = cacheAttr.getRefreshAheadPercent();
+        if ( percent <= 0 )
+        {
+            return false;
+        }
+
+        IElementAttributes attributes = element.getElementAttributes();
+        long maxLifeSeconds = attributes.getMaxLifeSeconds();
+        if ( attributes.getIsEternal() || maxLifeSeconds == -1 )
+        {
+            return false;
+        }
+
+        long age = System.currentTimeMillis() - attributes.getCreateTime();
+        return age * 100 >= maxLifeSeconds * 1000 * percent;
+    }
+
+    /**
+     * Reloads the key on the refresh-ahead pool. The reload is registered as the running load of
+     * the key, so at most one reload or read through load per key is running at any time, and a
+     * caller that misses while the reload is running waits for it.
+     * <p>
+     * @param key
+     * @param loader
+     */
+    private void scheduleRefresh( final K key, final Callable<V> loader )
+    {
+        final FutureTask<ICacheElement<K, V>> refresh = new FutureTask<ICacheElement<K, V>>( new Callable<ICacheElement<K, V>>()
+        {
+            public ICacheElement<K, V> call()
+                throws Exception
+            {
+                try
+                {
+                    return store( key, loader.call() );
+                }
+                catch ( Exception e )
+                {
+                    log.warn( cacheName + " - Refresh-ahead of key [" + key + "] failed", e );
+                    throw e;
+                }
+            }
+        } );
+
+        if ( loadsInFlight.putIfAbsent( key, refresh ) != null )
+        {
+            // a load or refresh of this key is already running
+            return;
+        }
+
+        if ( log.isDebugEnabled() )
+        {
+            log.debug( cacheName + " - Scheduling refresh-ahead of key [" + key + "]" );
+        }
+
+        Runnable job = new Runnable()
+        {
+            public void run()
+            {
+                try
+                {
+                    refresh.run();
+                }
+                finally
+                {
+                    loadsInFlight.remove( key, refresh );
+                }
+            }
+        };
+
+        try
+        {
+            ThreadPoolExecutor pool = ThreadPoolManager.getInstance().getPool( REFRESH_AHEAD_THREAD_POOL_NAME );
+            pool.execute( job );
+        }
+        catch ( RejectedExecutionException e )
+        {
+            log.warn( cacheName + " - Refresh-ahead pool rejected key [" + key + "]" );
+            loadsInFlight.remove( key, refresh );
+            refresh.cancel( false );
+        }
+    }
+
+    /**
+     * Gets multiple items from the cache based on the given set of keys.
+     * <p>
+     * @param keys
+     * @return a map of K key to ICacheElement<K, V> element, or an empty map if there is no
+     *         data in cache for any of these keys
+     */
+    public Map<K, ICacheElement<K, V>> getMultiple( Set<K> keys )
+    {
+        return getMultiple( keys, false );
+    }
+
+    /**
+     * Gets multiple items from the cache based on the given set of keys. Do not try to go remote or
+     * laterally for this data.
+     * <p>
+     * @param keys
+     * @return a map of K key to ICacheElement<K, V> element, or an empty map if there is no
+     *         data in cache for any of these keys
+     */
+    public Map<K, ICacheElement<K, V>> localGetMultiple( Set<K> keys )
+    {
+        return getMultiple( keys, true );
+    }
+
+    /**
+     * Look in memory, then disk, remote, or laterally for these items. The order is dependent on
+     * the order in the cache.ccf file. Keep looking in each cache location until either the element
+     * is found, or the method runs out of places to look.
      * <p>
      * Do not try to go remote or laterally for this get if it is localOnly. Otherwise try to go
      * remote or lateral if such an auxiliary is configured for this region.
@@ -664,7 +1543,36 @@ public class CompositeCache<K extends Serializable, V extends Serializable>
             if ( elements.size() != keys.size() )
             {
                 Set<K> remainingKeys = pruneKeysFound( keys, elements );
-                elements.putAll( getMultipleFromAuxiliaryCaches( remainingKeys, localOnly ) );
+                if ( negativeCache != null )
+                {
+                    for ( Iterator<K> it = remainingKeys.iterator(); it.hasNext(); )
+                    {
+                        if ( isKnownAbsent( it.next() ) )
+                        {
+                            it.remove();
+                        }
+                    }
+                }
+
+                if ( !remainingKeys.isEmpty() )
+                {
+                    long[] settled = keyLocks.getSettledTurns();
+                    Map<K, ICacheElement<K, V>> fromAuxiliaries =
+                        getMultipleFromAuxiliaryCaches( remainingKeys, localOnly, settled );
+                    elements.putAll( fromAuxiliaries );
+
+                    // a local miss says nothing about the lateral and remote tiers
+                    if ( !localOnly && negativeCache != null )
+                    {
+                        for ( K key : remainingKeys )
+                        {
+                            if ( !fromAuxiliaries.containsKey( key ) )
+                            {
+                                recordAbsent( key, keyLocks.getSettledTurns( key, settled ) );
+                            }
+                        }
+                    }
+                }
             }
         }
         catch ( Exception e )
@@ -675,7 +1583,7 @@ public class CompositeCache<K extends Serializable, V extends Serializable>
         // if we didn't find all the elements, increment the miss count by the number of elements not found
         if ( elements.size() != keys.size() )
         {
-            missCountNotFound += ( keys.size() - elements.size() );
+            missCountNotFound.addAndGet( keys.size() - elements.size() );
 
             if ( log.isDebugEnabled() )
             {
@@ -714,7 +1622,7 @@ public class CompositeCache<K extends Serializable, V extends Serializable>
                         log.debug( cacheName + " - Memory cache hit, but element expired" );
                     }
 
-                    missCountExpired++;
+                    missCountExpired.incrementAndGet();
 
                     remove( element.getKey() );
                     elementsFromMemory.remove( element.getKey() );
@@ -727,7 +1635,7 @@ public class CompositeCache<K extends Serializable, V extends Serializable>
                     }
 
                     // Update counters
-                    hitCountRam++;
+                    hitCountRam.incrementAndGet();
                 }
             }
         }
@@ -739,12 +1647,18 @@ public class CompositeCache<K extends Serializable, V extends Serializable>
      * <p>
      * @param keys
      * @param localOnly
+     * @param settled the write generations read before the lookup
      * @return the elements found in the auxiliary caches
      * @throws IOException
      */
-    private Map<K, ICacheElement<K, V>> getMultipleFromAuxiliaryCaches( Set<K> keys, boolean localOnly )
+    private Map<K, ICacheElement<K, V>> getMultipleFromAuxiliaryCaches( Set<K> keys, boolean localOnly, long[] settled )
         throws IOException
     {
+        if ( !localOnly && cacheAttr.isParallelAuxiliaryGets() )
+        {
+            return getMultipleFromAuxiliaryCachesInParallel( keys, settled );
+        }
+
         Map<K, ICacheElement<K, V>> elements = new HashMap<K, ICacheElement<K, V>>();
         Set<K> remainingKeys = new HashSet<K>( keys );
 
@@ -782,22 +1696,182 @@ public class CompositeCache<K extends Serializable, V extends Serializable>
                     log.debug( "Got CacheElements: " + elementsFromAuxiliary );
                 }
 
-                processRetrievedElements( i, elementsFromAuxiliary );
+                processRetrievedElements( i, elementsFromAuxiliary, settled );
+
+                elements.putAll( elementsFromAuxiliary );
+
+                if ( elements.size() == keys.size() )
+                {
+                    break;
+                }
+                else
+                {
+                    remainingKeys = pruneKeysFound( keys, elements );
+                }
+            }
+        }
+
+        return elements;
+    }
+
+    /**
+     * Gets the keys from the disk auxiliaries one after the other, then asks every lateral and
+     * remote auxiliary for the keys still missing at the same time. A batch lookup then waits for
+     * the slowest network tier instead of the sum of all of them.
+     * <p>
+     * The results are merged in the configured auxiliary order: a key found by an earlier
+     * auxiliary is taken from it, and what later auxiliaries returned for it is dropped without
+     * counting as a hit.
+     * <p>
+     * @param keys
+     * @param settled the write generations read before the lookup
+     * @return a map of K key to ICacheElement<K, V> element
+     * @throws IOException
+     */
+    private Map<K, ICacheElement<K, V>> getMultipleFromAuxiliaryCachesInParallel( Set<K> keys, long[] settled )
+        throws IOException
+    {
+        Map<K, ICacheElement<K, V>> elements = new HashMap<K, ICacheElement<K, V>>();
+        Set<K> remainingKeys = new HashSet<K>( keys );
+        List<Integer> networkAuxIndexes = new ArrayList<Integer>();
+
+        for ( int i = 0; i < auxCaches.length && !remainingKeys.isEmpty(); i++ )
+        {
+            AuxiliaryCache<K, V> aux = auxCaches[i];
+
+            if ( aux != null )
+            {
+                if ( aux.getCacheType() == CacheType.DISK_CACHE )
+                {
+                    Map<K, ICacheElement<K, V>> elementsFromAuxiliary = getMultipleFromAuxiliary( aux, remainingKeys );
+                    processRetrievedElements( i, elementsFromAuxiliary, settled );
+                    elements.putAll( elementsFromAuxiliary );
+                    remainingKeys = pruneKeysFound( keys, elements );
+                }
+                else
+                {
+                    networkAuxIndexes.add( Integer.valueOf( i ) );
+                }
+            }
+        }
+
+        if ( remainingKeys.isEmpty() || networkAuxIndexes.isEmpty() )
+        {
+            return elements;
+        }
+
+        // start all but the first on the pool, the calling thread queries the first itself
+        final Set<K> requestedKeys = remainingKeys;
+        List<Future<Map<K, ICacheElement<K, V>>>> pending = new ArrayList<Future<Map<K, ICacheElement<K, V>>>>();
+        ThreadPoolExecutor pool = null;
+        for ( int n = 1; n < networkAuxIndexes.size(); n++ )
+        {
+            final AuxiliaryCache<K, V> aux = auxCaches[networkAuxIndexes.get( n ).intValue()];
+            FutureTask<Map<K, ICacheElement<K, V>>> task = new FutureTask<Map<K, ICacheElement<K, V>>>( new Callable<Map<K, ICacheElement<K, V>>>()
+            {
+                public Map<K, ICacheElement<K, V>> call()
+                {
+                    return getMultipleFromAuxiliary( aux, requestedKeys );
+                }
+            } );
+            try
+            {
+                if ( pool == null )
+                {
+                    pool = ThreadPoolManager.getInstance().getPool( AUX_GET_THREAD_POOL_NAME );
+                }
+                pool.execute( task );
+            }
+            catch ( RejectedExecutionException e )
+            {
+                task.run();
+            }
+            pending.add( task );
+        }
+
+        Map<K, ICacheElement<K, V>> firstResult =
+            getMultipleFromAuxiliary( auxCaches[networkAuxIndexes.get( 0 ).intValue()], requestedKeys );
+
+        for ( int n = 0; n < networkAuxIndexes.size(); n++ )
+        {
+            Map<K, ICacheElement<K, V>> elementsFromAuxiliary;
+            if ( n == 0 )
+            {
+                elementsFromAuxiliary = firstResult;
+            }
+            else
+            {
+                elementsFromAuxiliary = waitForAuxiliaryResult( pending.get( n - 1 ) );
+            }
+
+            // higher priority tiers win
+            elementsFromAuxiliary.keySet().retainAll( remainingKeys );
+            processRetrievedElements( networkAuxIndexes.get( n ).intValue(), elementsFromAuxiliary, settled );
+            elements.putAll( elementsFromAuxiliary );
+            remainingKeys = pruneKeysFound( keys, elements );
+        }
+
+        return elements;
+    }
+
+    /**
+     * Gets the keys from one auxiliary. Failures are logged and treated as misses.
+     * <p>
+     * @param aux
+     * @param keys
+     * @return a modifiable map of the elements found
+     */
+    private Map<K, ICacheElement<K, V>> getMultipleFromAuxiliary( AuxiliaryCache<K, V> aux, Set<K> keys )
+    {
+        Map<K, ICacheElement<K, V>> elementsFromAuxiliary = new HashMap<K, ICacheElement<K, V>>();
+
+        if ( log.isDebugEnabled() )
+        {
+            log.debug( "Attempting to get from aux [" + aux.getCacheName() + "] which is of type: "
+                + aux.getCacheType() );
+        }
 
-                elements.putAll( elementsFromAuxiliary );
+        try
+        {
+            elementsFromAuxiliary.putAll( aux.getMultiple( keys ) );
+        }
+        catch ( IOException e )
+        {
+            log.error( "Error getting from aux", e );
+        }
 
-                if ( elements.size() == keys.size() )
-                {
-                    break;
-                }
-                else
-                {
-                    remainingKeys = pruneKeysFound( keys, elements );
-                }
-            }
+        if ( log.isDebugEnabled() )
+        {
+            log.debug( "Got CacheElements: " + elementsFromAuxiliary );
         }
 
-        return elements;
+        return elementsFromAuxiliary;
+    }
+
+    /**
+     * Waits for a parallel auxiliary get. Failures are logged and treated as misses.
+     * <p>
+     * @param pending
+     * @return a modifiable map of the elements found
+     * @throws IOException if the thread was interrupted
+     */
+    private Map<K, ICacheElement<K, V>> waitForAuxiliaryResult( Future<Map<K, ICacheElement<K, V>>> pending )
+        throws IOException
+    {
+        try
+        {
+            return pending.get();
+        }
+        catch ( InterruptedException e )
+        {
+            Thread.currentThread().interrupt();
+            throw new IOException( "Interrupted while waiting for an auxiliary" );
+        }
+        catch ( ExecutionException e )
+        {
+            log.error( "Error getting from aux", e.getCause() );
+            return new HashMap<K, ICacheElement<K, V>>();
+        }
     }
 
     /**
@@ -901,6 +1975,7 @@ public class CompositeCache<K extends Serializable, V extends Serializable>
         throws IOException
     {
         Map<K, ICacheElement<K, V>> elements = new HashMap<K, ICacheElement<K, V>>();
+        long[] settled = keyLocks.getSettledTurns();
 
         for ( int i = auxCaches.length - 1; i >= 0; i-- )
         {
@@ -935,7 +2010,7 @@ public class CompositeCache<K extends Serializable, V extends Serializable>
                         log.debug( "Got CacheElements: " + elementsFromAuxiliary );
                     }
 
-                    processRetrievedElements( i, elementsFromAuxiliary );
+                    processRetrievedElements( i, elementsFromAuxiliary, settled );
 
                     elements.putAll( elementsFromAuxiliary );
                 }
@@ -950,9 +2025,10 @@ public class CompositeCache<K extends Serializable, V extends Serializable>
      * <p>
      * @param i - the aux index
      * @param elementsFromAuxiliary
+     * @param settled the write generations read before the lookup
      * @throws IOException
      */
-    private void processRetrievedElements( int i, Map<K, ICacheElement<K, V>> elementsFromAuxiliary )
+    private void processRetrievedElements( int i, Map<K, ICacheElement<K, V>> elementsFromAuxiliary, long[] settled )
         throws IOException
     {
         Iterator<ICacheElement<K, V>> elementFromAuxiliaryIterator = new HashMap<K, ICacheElement<K, V>>( elementsFromAuxiliary ).values().iterator();
@@ -971,7 +2047,7 @@ public class CompositeCache<K extends Serializable, V extends Serializable>
                         log.debug( cacheName + " - Aux cache[" + i + "] hit, but element expired." );
                     }
 
-                    missCountExpired++;
+                    missCountExpired.incrementAndGet();
 
                     // This will tell the remote caches to remove the item
                     // based on the element's expiration policy. The elements attributes
@@ -988,10 +2064,10 @@ public class CompositeCache<K extends Serializable, V extends Serializable>
                     }
 
                     // Update counters
-                    hitCountAux++;
-                    auxHitCountByIndex[i]++;
+                    hitCountAux.incrementAndGet();
+                    auxHitCountByIndex.incrementAndGet( i );
 
-                    copyAuxiliaryRetrievedItemToMemory( element );
+                    copyAuxiliaryRetrievedItemToMemory( element, keyLocks.getSettledTurns( element.getKey(), settled ) );
                 }
             }
         }
@@ -1001,15 +2077,41 @@ public class CompositeCache<K extends Serializable, V extends Serializable>
      * Copies the item to memory if the memory size is greater than 0. Only spool if the memory
      * cache size is greater than 0, else the item will immediately get put into purgatory.
      * <p>
+     * The auxiliary was read without holding the key lock. If a put or remove of a key on the
+     * same stripe started before the read ended, the value read may be stale, and copying it
+     * would undo the newer write. The item is then left in the auxiliary, it is still returned to
+     * the caller.
+     * <p>
      * @param element
+     * @param settled the write generation of the key's stripe read before the auxiliary lookup
      * @throws IOException
      */
-    private void copyAuxiliaryRetrievedItemToMemory( ICacheElement<K, V> element )
+    private void copyAuxiliaryRetrievedItemToMemory( ICacheElement<K, V> element, long settled )
         throws IOException
     {
         if ( memCache.getCacheAttributes().getMaxObjects() > 0 )
         {
-            memCache.update( element );
+            Lock lock = keyLocks.getLock( element.getKey() );
+            lock.lock();
+            try
+            {
+                if ( !keyLocks.isUnchangedSince( element.getKey(), settled ) )
+                {
+                    if ( log.isDebugEnabled() )
+                    {
+                        log.debug( cacheName + " - Key [" + element.getKey()
+                            + "] was written during the auxiliary lookup, not copying it to memory" );
+                    }
+                }
+                else if ( memCache.getQuiet( element.getKey() ) == null )
+                {
+                    memCache.update( element );
+                }
+            }
+            finally
+            {
+                lock.unlock();
+            }
         }
         else
         {
@@ -1047,6 +2149,18 @@ public class CompositeCache<K extends Serializable, V extends Serializable>
      * @return true if the element is expired, else false.
      */
     protected boolean isExpired( ICacheElement<K, V> element )
+    {
+        return isExpired( element, true );
+    }
+
+    /**
+     * Determine if the element has exceeded its max life or idle time.
+     * <p>
+     * @param element
+     * @param handleEvents whether to hand an expiration to the element's event handlers
+     * @return true if the element is expired, else false.
+     */
+    private boolean isExpired( ICacheElement<K, V> element, boolean handleEvents )
     {
         try
         {
@@ -1068,7 +2182,10 @@ public class CompositeCache<K extends Serializable, V extends Serializable>
                         log.debug( "Exceeded maxLife: " + element.getKey() );
                     }
 
-                    handleElementEvent( element, ElementEventType.EXCEEDED_MAXLIFE_ONREQUEST );
+                    if ( handleEvents )
+                    {
+                        handleElementEvent( element, ElementEventType.EXCEEDED_MAXLIFE_ONREQUEST );
+                    }
 
                     return true;
                 }
@@ -1087,7 +2204,10 @@ public class CompositeCache<K extends Serializable, V extends Serializable>
                         log.info( "Exceeded maxIdle: " + element.getKey() );
                     }
 
-                    handleElementEvent( element, ElementEventType.EXCEEDED_IDLETIME_ONREQUEST );
+                    if ( handleEvents )
+                    {
+                        handleElementEvent( element, ElementEventType.EXCEEDED_IDLETIME_ONREQUEST );
+                    }
 
                     return true;
                 }
@@ -1186,21 +2306,177 @@ public class CompositeCache<K extends Serializable, V extends Serializable>
      * @param localOnly
      * @return true if the item was in the cache, else false
      */
-    protected synchronized boolean remove( K key, boolean localOnly )
+    protected boolean remove( K key, boolean localOnly )
     {
-        // not thread safe, but just for debugging and testing.
-        removeCount++;
+        Lock lock = keyLocks.getLock( key );
+        boolean removed;
+        long turn;
+        lock.lock();
+        try
+        {
+            removed = removeFromMemory( key );
+            turn = keyLocks.takeTurn( key );
+        }
+        finally
+        {
+            lock.unlock();
+        }
 
-        boolean removed = false;
+        boolean removedFromAuxiliary = removeFromAuxiliariesInTurn( key, localOnly, turn );
+        return removed || removedFromAuxiliary;
+    }
+
+    /**
+     * Removes a batch of items from the cache.
+     * <p>
+     * @param keys
+     */
+    public void removeMultiple( Set<K> keys )
+    {
+        removeMultiple( keys, false );
+    }
+
+    /**
+     * Removes a batch of items without notifying remote or lateral auxiliaries.
+     * <p>
+     * @param keys
+     */
+    public void localRemoveMultiple( Set<K> keys )
+    {
+        removeMultiple( keys, true );
+    }
+
+    /**
+     * Removes a batch of items. The stripes of all the keys are locked once, in order, and the
+     * keys are removed from memory. Once the turns of those stripes come, each auxiliary receives
+     * them in a single removeMultiple call.
+     * <p>
+     * The keys are copied first, so the auxiliaries get a serializable set that the caller cannot
+     * change while they use it.
+     * <p>
+     * @param requestedKeys
+     * @param localOnly Whether the operation should be restricted to local auxiliaries.
+     */
+    protected void removeMultiple( Set<K> requestedKeys, boolean localOnly )
+    {
+        if ( requestedKeys.isEmpty() )
+        {
+            return;
+        }
+
+        Set<K> keys = new HashSet<K>( requestedKeys );
+
+        long[] turns;
+        List<Lock> locks = keyLocks.lock( keys );
+        try
+        {
+            for ( K key : keys )
+            {
+                removeFromMemory( key );
+            }
+            turns = keyLocks.takeTurns( keys );
+        }
+        finally
+        {
+            keyLocks.unlock( locks );
+        }
+
+        keyLocks.awaitTurns( turns );
+        try
+        {
+            for ( int i = 0; i < auxCaches.length; i++ )
+            {
+                AuxiliaryCache<K, V> aux = auxCaches[i];
+
+                if ( aux == null )
+                {
+                    continue;
+                }
+
+                CacheType cacheType = aux.getCacheType();
+
+                if ( localOnly && ( cacheType == CacheType.REMOTE_CACHE || cacheType == CacheType.LATERAL_CACHE ) )
+                {
+                    continue;
+                }
+                try
+                {
+                    if ( log.isDebugEnabled() )
+                    {
+                        log.debug( "Removing " + keys.size() + " keys from cacheType" + cacheType );
+                    }
+
+                    aux.removeMultiple( keys );
+                }
+                catch ( IOException ex )
+                {
+                    log.error( "Failure removing from aux", ex );
+                }
+            }
+        }
+        finally
+        {
+            keyLocks.endTurns( turns );
+        }
+    }
+
+    /**
+     * Removes the key from memory. The caller must hold the key lock, and must then take a turn
+     * and remove the key from the auxiliaries in it.
+     * <p>
+     * @param key
+     * @return true if the item was in memory
+     */
+    private boolean removeFromMemory( K key )
+    {
+        removeCount.incrementAndGet();
+
+        // a remove from a lateral or remote can mean the key changed elsewhere
+        forgetAbsent( key );
 
         try
         {
-            removed = memCache.remove( key );
+            return memCache.remove( key );
         }
         catch ( IOException e )
         {
             log.error( e );
+            return false;
+        }
+    }
+
+    /**
+     * Waits for the turn of the key, removes it from the auxiliaries and ends the turn. No key
+     * lock may be held by the caller.
+     * <p>
+     * @param key
+     * @param localOnly
+     * @param turn taken with the key lock held, after the memory removal
+     * @return true if a disk or lateral auxiliary had the item
+     */
+    private boolean removeFromAuxiliariesInTurn( K key, boolean localOnly, long turn )
+    {
+        keyLocks.awaitTurn( key, turn );
+        try
+        {
+            return removeFromAuxiliaries( key, localOnly );
+        }
+        finally
+        {
+            keyLocks.endTurn( key );
         }
+    }
+
+    /**
+     * Removes the key from the auxiliaries.
+     * <p>
+     * @param key
+     * @param localOnly
+     * @return true if a disk or lateral auxiliary had the item
+     */
+    private boolean removeFromAuxiliaries( K key, boolean localOnly )
+    {
+        boolean removed = false;
 
         // Removes from all auxiliary caches.
         for ( int i = 0; i < auxCaches.length; i++ )
@@ -1273,9 +2549,45 @@ public class CompositeCache<K extends Serializable, V extends Serializable>
      *            looping.
      * @throws IOException
      */
-    protected synchronized void removeAll( boolean localOnly )
+    protected void removeAll( boolean localOnly )
         throws IOException
     {
+        // Memory is cleared once no key is being written, and the auxiliaries once the writes
+        // that were in flight have reached them. None of those may land after the clear.
+        long[] turns;
+        keyLocks.lockAll();
+        try
+        {
+            removeAllFromMemory();
+            turns = keyLocks.takeAllTurns();
+        }
+        finally
+        {
+            keyLocks.unlockAll();
+        }
+
+        keyLocks.awaitTurns( turns );
+        try
+        {
+            removeAllFromAuxiliaries( localOnly );
+        }
+        finally
+        {
+            keyLocks.endTurns( turns );
+        }
+    }
+
+    /**
+     * Clears memory. The caller must hold all key locks.
+     */
+    private void removeAllFromMemory()
+    {
+        NegativeResultCache<K> negatives = negativeCache;
+        if ( negatives != null )
+        {
+            negatives.clear();
+        }
+
         try
         {
             memCache.removeAll();
@@ -1289,7 +2601,15 @@ public class CompositeCache<K extends Serializable, V extends Serializable>
         {
             log.error( "Trouble updating memory cache.", ex );
         }
+    }
 
+    /**
+     * Clears the auxiliaries. The caller must be in the turn of every stripe.
+     * <p>
+     * @param localOnly
+     */
+    private void removeAllFromAuxiliaries( boolean localOnly )
+    {
         // Removes from all auxiliary disk caches.
         for ( int i = 0; i < auxCaches.length; i++ )
         {
@@ -1522,7 +2842,7 @@ public class CompositeCache<K extends Serializable, V extends Serializable>
         stats.setRegionName( this.getCacheName() );
 
         // store the composite cache stats first
-        IStatElement[] elems = new StatElement[2];
+        IStatElement[] elems = new StatElement[negativeCache != null ? 4 : 2];
         elems[0] = new StatElement();
         elems[0].setName( "HitCountRam" );
         elems[0].setData( "" + getHitCountRam() );
@@ -1531,6 +2851,17 @@ public class CompositeCache<K extends Serializable, V extends Serializable>
         elems[1].setName( "HitCountAux" );
         elems[1].setData( "" + getHitCountAux() );
 
+        if ( negativeCache != null )
+        {
+            elems[2] = new StatElement();
+            elems[2].setName( "HitCountNegative" );
+            elems[2].setData( "" + getHitCountNegative() );
+
+            elems[3] = new StatElement();
+            elems[3].setName( "NegativeCacheSize" );
+            elems[3].setData( "" + getNegativeCacheSize() );
+        }
+
         // store these local stats
         stats.setStatElements( elems );
 
@@ -1607,6 +2938,93 @@ public class CompositeCache<K extends Serializable, V extends Serializable>
         this.cacheAttr = cattr;
         // need a better way to do this, what if it is in error
         this.memCache.initialize( this );
+        createNegativeCache( cattr );
+    }
+
+    /**
+     * Creates the negative result cache if the region remembers misses.
+     * <p>
+     * @param cattr
+     */
+    private void createNegativeCache( ICompositeCacheAttributes cattr )
+    {
+        if ( cattr.getNegativeCacheMaxObjects() > 0 )
+        {
+            negativeCache = new NegativeResultCache<K>( cattr.getNegativeCacheMaxObjects(),
+                                                        cattr.getNegativeCacheMaxLifeMillis() );
+        }
+        else
+        {
+            negativeCache = null;
+        }
+    }
+
+    /**
+     * Whether the key was recently not found in any tier. Counts a hit on the negative result
+     * cache.
+     * <p>
+     * @param key
+     * @return true if the auxiliaries need not be asked
+     */
+    private boolean isKnownAbsent( K key )
+    {
+        NegativeResultCache<K> negatives = negativeCache;
+        if ( negatives != null && negatives.contains( key, System.currentTimeMillis() ) )
+        {
+            hitCountNegative.incrementAndGet();
+            return true;
+        }
+        return false;
+    }
+
+    /**
+     * Remembers that the key was not found in any tier. This is done under the key lock, and only
+     * if no key of the stripe was written since the tiers were searched. A put that completed in
+     * the meantime may already have been spooled out of memory, so finding memory empty is not
+     * enough.
+     * <p>
+     * @param key
+     * @param settled the write generation of the key's stripe read before the auxiliary lookup
+     */
+    private void recordAbsent( K key, long settled )
+    {
+        NegativeResultCache<K> negatives = negativeCache;
+        if ( negatives == null )
+        {
+            return;
+        }
+
+        Lock lock = keyLocks.getLock( key );
+        lock.lock();
+        try
+        {
+            if ( keyLocks.isUnchangedSince( key, settled ) && memCache.getQuiet( key ) == null )
+            {
+                negatives.add( key, System.currentTimeMillis() );
+            }
+        }
+        catch ( IOException e )
+        {
+            log.error( "Problem checking memory for key [" + key + "]", e );
+        }
+        finally
+        {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Forgets that the key was not found. The caller holds the key lock.
+     * <p>
+     * @param key
+     */
+    private void forgetAbsent( K key )
+    {
+        NegativeResultCache<K> negatives = negativeCache;
+        if ( negatives != null )
+        {
+            negatives.remove( key );
+        }
     }
 
     /**
@@ -1678,7 +3096,7 @@ public class CompositeCache<K extends Serializable, V extends Serializable>
      */
     public int getHitCountRam()
     {
-        return hitCountRam;
+        return hitCountRam.get();
     }
 
     /**
@@ -1687,7 +3105,7 @@ public class CompositeCache<K extends Serializable, V extends Serializable>
      */
     public int getHitCountAux()
     {
-        return hitCountAux;
+        return hitCountAux.get();
     }
 
     /**
@@ -1696,7 +3114,7 @@ public class CompositeCache<K extends Serializable, V extends Serializable>
      */
     public int getMissCountNotFound()
     {
-        return missCountNotFound;
+        return missCountNotFound.get();
     }
 
     /**
@@ -1705,7 +3123,26 @@ public class CompositeCache<K extends Serializable, V extends Serializable>
      */
     public int getMissCountExpired()
     {
-        return missCountExpired;
+        return missCountExpired.get();
+    }
+
+    /**
+     * Number of misses answered by the negative result cache without asking the auxiliaries.
+     * These are also counted in the not found misses.
+     * @return number of negative result cache hits.
+     */
+    public int getHitCountNegative()
+    {
+        return hitCountNegative.get();
+    }
+
+    /**
+     * @return the number of keys remembered as absent, 0 if the region does not remember misses
+     */
+    public int getNegativeCacheSize()
+    {
+        NegativeResultCache<K> negatives = negativeCache;
+        return negatives == null ? 0 : negatives.size();
     }
 
     /**
@@ -1793,33 +3230,33 @@ public class CompositeCache<K extends Serializable, V extends Serializable>
     /**
      * @param updateCount The updateCount to set.
      */
-    public synchronized void setUpdateCount( int updateCount )
+    public void setUpdateCount( int updateCount )
     {
-        this.updateCount = updateCount;
+        this.updateCount.set( updateCount );
     }
 
     /**
      * @return Returns the updateCount.
      */
-    public synchronized int getUpdateCount()
+    public int getUpdateCount()
     {
-        return updateCount;
+        return updateCount.get();
     }
 
     /**
      * @param removeCount The removeCount to set.
      */
-    public synchronized void setRemoveCount( int removeCount )
+    public void setRemoveCount( int removeCount )
     {
-        this.removeCount = removeCount;
+        this.removeCount.set( removeCount );
     }
 
     /**
      * @return Returns the removeCount.
      */
-    public synchronized int getRemoveCount()
+    public int getRemoveCount()
     {
-        return removeCount;
+        return removeCount.get();
     }
 
     /**
@@ -69,6 +69,9 @@ public class CompositeCacheConfigurator
     /** auxiliary prefix */
     final static String AUXILIARY_PREFIX = "jcs.auxiliary.";
 
+    /** memory pressure monitor key */
+    final static String MEMORY_PRESSURE_MONITOR = "jcs.memorypressure";
+
     /** .attributes */
     final static String ATTRIBUTE_PREFIX = ".attributes";
 
@@ -162,6 +165,9 @@ public class CompositeCacheConfigurator
         // setup preconfigured caches
         parseRegions( properties );
 
+        // watch the heap for all regions
+        parseMemoryPressureMonitor( properties );
+
         long end = System.currentTimeMillis();
         if ( log.isInfoEnabled() )
         {
@@ -170,6 +176,21 @@ public class CompositeCacheConfigurator
 
     }
 
+    /**
+     * Creates the memory pressure monitor, if one is configured, and hands it to the manager.
+     * <p>
+     * @param props
+     */
+    protected void parseMemoryPressureMonitor( Properties props )
+    {
+        MemoryPressureMonitor monitor = OptionConverter.instantiateByKey( props, MEMORY_PRESSURE_MONITOR, null );
+        if ( monitor != null )
+        {
+            PropertySetter.setProperties( monitor, props, MEMORY_PRESSURE_MONITOR + "." );
+            compositeCacheManager.setMemoryPressureMonitor( monitor );
+        }
+    }
+
     /**
      * Set the default aux list for new caches.
      * <p>
@@ -133,6 +133,9 @@ public class CompositeCacheManager
     /** Indicates whether shutdown has been called. */
     private boolean isShutdown = false;
 
+    /** Shrinks and grows the regions with the heap, null unless configured */
+    private MemoryPressureMonitor memoryPressureMonitor;
+
     /** Indicates whether configure has been called. */
     private boolean isConfigured = false;
 
@@ -277,6 +280,32 @@ public class CompositeCacheManager
         return scheduledExecutor;
     }
 
+    /**
+     * Starts the monitor, stopping the one that was running before.
+     * <p>
+     * @param monitor may be null to stop monitoring
+     */
+    public synchronized void setMemoryPressureMonitor( MemoryPressureMonitor monitor )
+    {
+        if ( memoryPressureMonitor != null )
+        {
+            memoryPressureMonitor.stop();
+        }
+        memoryPressureMonitor = monitor;
+        if ( monitor != null )
+        {
+            monitor.start( this );
+        }
+    }
+
+    /**
+     * @return the memory pressure monitor, or null if none is configured
+     */
+    public MemoryPressureMonitor getMemoryPressureMonitor()
+    {
+        return memoryPressureMonitor;
+    }
+
     /**
      * Configure with default properties file
      * @throws CacheException if the configuration cannot be loaded
@@ -0,0 +1,406 @@
+package org.apache.commons.jcs.engine.control;
+
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryPoolMXBean;
+import java.lang.management.MemoryType;
+import java.lang.management.MemoryUsage;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.commons.jcs.engine.behavior.ICache;
+import org.apache.commons.jcs.engine.behavior.ICompositeCacheAttributes;
+import org.apache.commons.jcs.engine.memory.behavior.IMemoryCache;
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+
+/**
+ * Shrinks the memory caches of all regions when the heap is short, and lets them grow back when
+ * it is not.
+ * <p>
+ * The monitor watches the heap pool that the collector tenures objects into. It sets the
+ * collection usage threshold of that pool to the high watermark, so the JVM counts the collections
+ * after which the pool was still above it. Each time the count has moved since the last check,
+ * every region spools a share of its coldest elements through freeElements and its MaxObjects is
+ * lowered to what is left. Once the pool is below the low watermark after a collection, the regions
+ * that were shrunk get their MaxObjects back a share at a time.
+ * <p>
+ * The monitor is configured like the region attributes:
+ *
+ * <pre>
+ * jcs.memorypressure=org.apache.commons.jcs.engine.control.MemoryPressureMonitor
+ * jcs.memorypressure.HighWatermarkPercent=80
+ * </pre>
+ *
+ * It runs on the scheduler of the cache manager. Memory caches that read MaxObjects only when they
+ * are created still spool, but are not held to the lower limit.
+ */
+public class MemoryPressureMonitor
+    implements Runnable
+{
+    /** The logger */
+    private final static Log log = LogFactory.getLog( MemoryPressureMonitor.class );
+
+    /** Percentage of the pool used after a collection above which regions are shrunk */
+    private int highWatermarkPercent = 80;
+
+    /** Percentage of the pool used after a collection below which regions may grow */
+    private int lowWatermarkPercent = 60;
+
+    /** Percentage of a region's elements freed at a time, and of its limit given back at a time */
+    private int freePercent = 10;
+
+    /** How often the pool is checked */
+    private int checkIntervalSeconds = 5;
+
+    /** The cache manager whose regions are adjusted */
+    private CompositeCacheManager manager;
+
+    /** The watched pool, null if there is none */
+    private MemoryPoolMXBean pool;
+
+    /** The threshold count seen on the last check */
+    private long lastThresholdCount;
+
+    /** The MaxObjects of each shrunk region before it was first shrunk */
+    private final Map<String, Integer> originalMaxObjects = new HashMap<String, Integer>();
+
+    /** The scheduled checks */
+    private ScheduledFuture<?> future;
+
+    /** Number of times the regions were shrunk */
+    private int shrinkCount = 0;
+
+    /** Number of times the regions were let grow */
+    private int growCount = 0;
+
+    /**
+     * Starts watching the heap for the regions of the manager. Does nothing if the JVM has no pool
+     * with a collection usage threshold.
+     * <p>
+     * @param cacheManager
+     */
+    public synchronized void start( CompositeCacheManager cacheManager )
+    {
+        this.manager = cacheManager;
+        this.pool = findTenuredPool();
+
+        if ( pool == null )
+        {
+            log.warn( "No heap pool supports collection usage thresholds, memory pressure is not monitored." );
+            return;
+        }
+
+        long max = pool.getUsage().getMax();
+        if ( max <= 0 )
+        {
+            log.warn( "The size of heap pool [" + pool.getName() + "] is undefined, memory pressure is not monitored." );
+            pool = null;
+            return;
+        }
+
+        pool.setCollectionUsageThreshold( max * highWatermarkPercent / 100 );
+        lastThresholdCount = pool.getCollectionUsageThresholdCount();
+
+        future = manager.getScheduledExecutorService().scheduleWithFixedDelay( this, checkIntervalSeconds,
+                                                                               checkIntervalSeconds, TimeUnit.SECONDS );
+
+        if ( log.isInfoEnabled() )
+        {
+            log.info( "Monitoring heap pool [" + pool.getName() + "] with watermarks " + lowWatermarkPercent + "% and "
+                + highWatermarkPercent + "% of " + max + " bytes" );
+        }
+    }
+
+    /**
+     * Stops the checks. Regions keep their current limits.
+     */
+    public synchronized void stop()
+    {
+        if ( future != null )
+        {
+            future.cancel( false );
+            future = null;
+        }
+    }
+
+    /**
+     * Checks the pool and shrinks or grows the regions.
+     */
+    public void run()
+    {
+        try
+        {
+            check();
+        }
+        catch ( Throwable t )
+        {
+            log.error( "Problem checking memory pressure", t );
+        }
+    }
+
+    /**
+     * Compares the pool usage after the last collection with the watermarks.
+     */
+    protected synchronized void check()
+    {
+        if ( pool == null )
+        {
+            return;
+        }
+
+        long thresholdCount = pool.getCollectionUsageThresholdCount();
+        MemoryUsage afterCollection = pool.getCollectionUsage();
+        long max = pool.getUsage().getMax();
+
+        if ( thresholdCount != lastThresholdCount )
+        {
+            lastThresholdCount = thresholdCount;
+            if ( log.isInfoEnabled() )
+            {
+                log.info( "Heap pool [" + pool.getName() + "] above " + highWatermarkPercent
+                    + "% after collection, shrinking regions" );
+            }
+            shrink( getRegions() );
+        }
+        else if ( afterCollection != null && max > 0
+            && afterCollection.getUsed() * 100 < max * lowWatermarkPercent && !originalMaxObjects.isEmpty() )
+        {
+            grow( getRegions() );
+        }
+    }
+
+    /**
+     * Spools a share of each region's elements and lowers its MaxObjects to what is left.
+     * <p>
+     * @param regions
+     */
+    protected synchronized void shrink( List<CompositeCache<?, ?>> regions )
+    {
+        shrinkCount++;
+
+        for ( CompositeCache<?, ?> region : regions )
+        {
+            ICompositeCacheAttributes cattr = region.getCacheAttributes();
+            IMemoryCache<?, ?> memCache = region.getMemoryCache();
+            int limit = cattr.getMaxObjects();
+            int size = memCache.getSize();
+
+            if ( limit <= 0 || size == 0 )
+            {
+                continue;
+            }
+
+            int toFree = Math.max( 1, size * freePercent / 100 );
+
+            if ( !originalMaxObjects.containsKey( region.getCacheName() ) )
+            {
+                originalMaxObjects.put( region.getCacheName(), Integer.valueOf( limit ) );
+            }
+            cattr.setMaxObjects( Math.max( 1, Math.min( limit, size - toFree ) ) );
+
+            try
+            {
+                int freed = memCache.freeElements( Math.min( toFree, memCache.getSize() ) );
+                if ( log.isDebugEnabled() )
+                {
+                    log.debug( "Region [" + region.getCacheName() + "] freed " + freed + ", MaxObjects now "
+                        + cattr.getMaxObjects() );
+                }
+            }
+            catch ( IOException e )
+            {
+                log.error( "Problem freeing elements of region [" + region.getCacheName() + "]", e );
+            }
+        }
+    }
+
+    /**
+     * Gives each shrunk region back a share of its original MaxObjects.
+     * <p>
+     * @param regions
+     */
+    protected synchronized void grow( List<CompositeCache<?, ?>> regions )
+    {
+        growCount++;
+
+        Map<String, CompositeCache<?, ?>> byName = new HashMap<String, CompositeCache<?, ?>>();
+        for ( CompositeCache<?, ?> region : regions )
+        {
+            byName.put( region.getCacheName(), region );
+        }
+
+        for ( Iterator<Map.Entry<String, Integer>> it = originalMaxObjects.entrySet().iterator(); it.hasNext(); )
+        {
+            Map.Entry<String, Integer> entry = it.next();
+            CompositeCache<?, ?> region = byName.get( entry.getKey() );
+            if ( region == null )
+            {
+                // the region was freed
+                it.remove();
+                continue;
+            }
+
+            int original = entry.getValue().intValue();
+            ICompositeCacheAttributes cattr = region.getCacheAttributes();
+            int limit = Math.min( original, cattr.getMaxObjects() + Math.max( 1, original * freePercent / 100 ) );
+            cattr.setMaxObjects( limit );
+            if ( limit == original )
+            {
+                it.remove();
+            }
+        }
+    }
+
+    /**
+     * @return the regions of the manager
+     */
+    private List<CompositeCache<?, ?>> getRegions()
+    {
+        List<CompositeCache<?, ?>> regions = new ArrayList<CompositeCache<?, ?>>();
+        synchronized ( manager.caches )
+        {
+            for ( ICache<?, ?> c : manager.caches.values() )
+            {
+                regions.add( (CompositeCache<?, ?>) c );
+            }
+        }
+        return regions;
+    }
+
+    /**
+     * Finds the heap pool with a collection usage threshold that can grow the largest, which is
+     * the pool holding the old generation with the usual collectors.
+     * <p>
+     * @return the pool, or null if there is none
+     */
+    protected static MemoryPoolMXBean findTenuredPool()
+    {
+        MemoryPoolMXBean tenured = null;
+        for ( MemoryPoolMXBean candidate : ManagementFactory.getMemoryPoolMXBeans() )
+        {
+            if ( candidate.getType() == MemoryType.HEAP && candidate.isCollectionUsageThresholdSupported()
+                && ( tenured == null || candidate.getUsage().getMax() > tenured.getUsage().getMax() ) )
+            {
+                tenured = candidate;
+            }
+        }
+        return tenured;
+    }
+
+    /**
+     * @param name the name of a shrunk region
+     * @return its MaxObjects before it was shrunk, or -1 if it is not shrunk
+     */
+    public synchronized int getOriginalMaxObjects( String name )
+    {
+        Integer original = originalMaxObjects.get( name );
+        return original == null ? -1 : original.intValue();
+    }
+
+    /**
+     * @return the number of times the regions were shrunk
+     */
+    public synchronized int getShrinkCount()
+    {
+        return shrinkCount;
+    }
+
+    /**
+     * @return the number of times the regions were let grow
+     */
+    public synchronized int getGrowCount()
+    {
+        return growCount;
+    }
+
+    /**
+     * @param highWatermarkPercent percentage of the pool used after a collection above which
+     *            regions are shrunk
+     */
+    public void setHighWatermarkPercent( int highWatermarkPercent )
+    {
+        this.highWatermarkPercent = highWatermarkPercent;
+    }
+
+    /**
+     * @return percentage of the pool used after a collection above which regions are shrunk
+     */
+    public int getHighWatermarkPercent()
+    {
+        return highWatermarkPercent;
+    }
+
+    /**
+     * @param lowWatermarkPercent percentage of the pool used after a collection below which
+     *            regions may grow
+     */
+    public void setLowWatermarkPercent( int lowWatermarkPercent )
+    {
+        this.lowWatermarkPercent = lowWatermarkPercent;
+    }
+
+    /**
+     * @return percentage of the pool used after a collection below which regions may grow
+     */
+    public int getLowWatermarkPercent()
+    {
+        return lowWatermarkPercent;
+    }
+
+    /**
+     * @param freePercent percentage of a region's elements freed at a time
+     */
+    public void setFreePercent( int freePercent )
+    {
+        this.freePercent = freePercent;
+    }
+
+    /**
+     * @return percentage of a region's elements freed at a time
+     */
+    public int getFreePercent()
+    {
+        return freePercent;
+    }
+
+    /**
+     * @param checkIntervalSeconds how often the pool is checked
+     */
+    public void setCheckIntervalSeconds( int checkIntervalSeconds )
+    {
+        this.checkIntervalSeconds = checkIntervalSeconds;
+    }
+
+    /**
+     * @return how often the pool is checked
+     */
+    public int getCheckIntervalSeconds()
+    {
+        return checkIntervalSeconds;
+    }
+}
@@ -0,0 +1,124 @@
+package org.apache.commons.jcs.engine.control;
+
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Remembers keys that were recently looked up in every tier of a region and not found, so that
+ * repeated lookups of absent keys can be answered without asking the auxiliaries again.
+ * <p>
+ * Entries live for a fixed number of milliseconds and at most a fixed number of keys are held;
+ * when full, the oldest entry is dropped. Callers remove a key whenever a value is put for it.
+ * <p>
+ * All methods are synchronized.
+ */
+public class NegativeResultCache<K>
+{
+    /** When each key stops being known as absent */
+    private final LinkedHashMap<K, Long> expirations;
+
+    /** How long a key is known as absent */
+    private final long maxLifeMillis;
+
+    /**
+     * @param maxObjects the most keys held
+     * @param maxLifeMillis how long a key is known as absent
+     */
+    public NegativeResultCache( final int maxObjects, long maxLifeMillis )
+    {
+        this.maxLifeMillis = maxLifeMillis;
+        this.expirations = new LinkedHashMap<K, Long>( 16, 0.75f, false )
+        {
+            /** Don't change */
+            private static final long serialVersionUID = 1L;
+
+            @Override
+            protected boolean removeEldestEntry( Map.Entry<K, Long> eldest )
+            {
+                return size() > maxObjects;
+            }
+        };
+    }
+
+    /**
+     * Records that the key was not found anywhere. A key that is added again gets a new lifetime.
+     * <p>
+     * @param key
+     * @param now current time in millis
+     */
+    public synchronized void add( K key, long now )
+    {
+        // remove first so the key moves to the young end
+        expirations.remove( key );
+        expirations.put( key, Long.valueOf( now + maxLifeMillis ) );
+    }
+
+    /**
+     * Whether the key is known to be absent. An expired entry is dropped.
+     * <p>
+     * @param key
+     * @param now current time in millis
+     * @return true if the key was recently not found and nothing was put since
+     */
+    public synchronized boolean contains( K key, long now )
+    {
+        Long expiration = expirations.get( key );
+        if ( expiration == null )
+        {
+            return false;
+        }
+
+        if ( expiration.longValue() <= now )
+        {
+            expirations.remove( key );
+            return false;
+        }
+
+        return true;
+    }
+
+    /**
+     * Forgets the key, typically because a value was put for it.
+     * <p>
+     * @param key
+     */
+    public synchronized void remove( K key )
+    {
+        expirations.remove( key );
+    }
+
+    /**
+     * Forgets all keys.
+     */
+    public synchronized void clear()
+    {
+        expirations.clear();
+    }
+
+    /**
+     * @return the number of keys held, including expired ones not yet dropped
+     */
+    public synchronized int size()
+    {
+        return expirations.size();
+    }
+}
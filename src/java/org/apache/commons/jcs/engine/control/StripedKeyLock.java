@@ -0,0 +1,464 @@
+package org.apache.commons.jcs.engine.control;
+
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * A fixed set of locks that keys are hashed onto. Operations on keys that land on different
+ * stripes run in parallel, while operations on the same key are always serialized by the same
+ * lock, so their relative order is kept.
+ * <p>
+ * Each stripe also hands out turns. A writer takes a turn while it holds the stripe lock, then
+ * releases the lock and waits for its turn before doing slow work such as writing to the
+ * auxiliaries. Turns of a stripe are served in the order they were taken, so that slow work keeps
+ * the order of the writes without keeping readers and other writers of the stripe waiting on it.
+ * <p>
+ * The number of turns taken on a stripe doubles as its write generation. A reader that records
+ * it before a slow lookup can tell afterwards whether a key of the stripe was written meanwhile.
+ * <p>
+ * This is used by the composite cache to order writes per key instead of per region.
+ */
+public class StripedKeyLock
+{
+    /** Default number of stripes. */
+    public static final int DEFAULT_STRIPES = 64;
+
+    /** The locks. The length is always a power of two. */
+    private final ReentrantLock[] locks;
+
+    /** Mask applied to the spread hash code to select a stripe. */
+    private final int mask;
+
+    /** The next turn of each stripe. Only taken with the stripe lock held. */
+    private final AtomicLongArray issued;
+
+    /** The turn each stripe is serving. */
+    private final AtomicLongArray served;
+
+    /** Threads waiting for a turn of a stripe wait on its monitor. */
+    private final Object[] turnMonitors;
+
+    /**
+     * Creates the default number of stripes.
+     */
+    public StripedKeyLock()
+    {
+        this( DEFAULT_STRIPES );
+    }
+
+    /**
+     * Creates at least the requested number of stripes, rounded up to a power of two.
+     * <p>
+     * @param stripes minimum number of stripes
+     */
+    public StripedKeyLock( int stripes )
+    {
+        int size = 1;
+        while ( size < stripes )
+        {
+            size <<= 1;
+        }
+
+        this.locks = new ReentrantLock[size];
+        for ( int i = 0; i < size; i++ )
+        {
+            locks[i] = new ReentrantLock();
+        }
+        this.mask = size - 1;
+
+        this.issued = new AtomicLongArray( size );
+        this.served = new AtomicLongArray( size );
+        this.turnMonitors = new Object[size];
+        for ( int i = 0; i < size; i++ )
+        {
+            turnMonitors[i] = new Object();
+        }
+    }
+
+    /**
+     * Returns the lock guarding the given key.
+     * <p>
+     * @param key the cache key, must not be null
+     * @return the lock of the stripe the key hashes to
+     */
+    public Lock getLock( Object key )
+    {
+        return locks[stripeOf( key )];
+    }
+
+    /**
+     * Acquires the stripes of all the given keys, each one once, in index order. This is used by
+     * the batch operations.
+     * <p>
+     * @param keys the cache keys, none of them null
+     * @return the locks that were acquired, to be handed to {@link #unlock(List)}
+     */
+    public List<Lock> lock( Collection<?> keys )
+    {
+        boolean[] needed = new boolean[locks.length];
+        for ( Object key : keys )
+        {
+            needed[stripeOf( key )] = true;
+        }
+
+        List<Lock> held = new ArrayList<Lock>();
+        for ( int i = 0; i < locks.length; i++ )
+        {
+            if ( needed[i] )
+            {
+                locks[i].lock();
+                held.add( locks[i] );
+            }
+        }
+        return held;
+    }
+
+    /**
+     * Releases the locks acquired by {@link #lock(Collection)}.
+     * <p>
+     * @param held
+     */
+    public void unlock( List<Lock> held )
+    {
+        for ( int i = held.size() - 1; i >= 0; i-- )
+        {
+            held.get( i ).unlock();
+        }
+    }
+
+    /**
+     * Acquires every stripe in index order. This is used by region wide operations such as
+     * removeAll.
+     * <p>
+     * This cannot deadlock as long as callers keep to two rules: a thread holding one stripe never
+     * acquires another, except through {@link #lock(Collection)} or this method which take theirs
+     * in the same index order, and no stripe is held while running user code such as loaders or
+     * mergers, which could block on, or write through, another stripe, or while waiting for a
+     * turn.
+     */
+    public void lockAll()
+    {
+        for ( int i = 0; i < locks.length; i++ )
+        {
+            locks[i].lock();
+        }
+    }
+
+    /**
+     * Releases every stripe acquired by lockAll.
+     */
+    public void unlockAll()
+    {
+        for ( int i = locks.length - 1; i >= 0; i-- )
+        {
+            locks[i].unlock();
+        }
+    }
+
+    /**
+     * Takes the next turn of the key's stripe. The caller must hold the stripe lock, and must end
+     * the turn with {@link #endTurn(Object)} once it has waited for it.
+     * <p>
+     * @param key
+     * @return the turn, to be handed to {@link #awaitTurn(Object, long)}
+     */
+    public long takeTurn( Object key )
+    {
+        return issued.getAndIncrement( stripeOf( key ) );
+    }
+
+    /**
+     * Takes the next turn of the stripe of every given key, each stripe once. The caller must hold
+     * all of these stripes, see {@link #lock(Collection)}.
+     * <p>
+     * @param keys
+     * @return the turn taken per stripe index, -1 for stripes that were not needed
+     */
+    public long[] takeTurns( Collection<?> keys )
+    {
+        long[] turns = new long[locks.length];
+        Arrays.fill( turns, -1 );
+        for ( Object key : keys )
+        {
+            int stripe = stripeOf( key );
+            if ( turns[stripe] == -1 )
+            {
+                turns[stripe] = issued.getAndIncrement( stripe );
+            }
+        }
+        return turns;
+    }
+
+    /**
+     * Takes the next turn of every stripe. The caller must hold all stripes, see
+     * {@link #lockAll()}.
+     * <p>
+     * @return the turn taken per stripe index
+     */
+    public long[] takeAllTurns()
+    {
+        long[] turns = new long[locks.length];
+        for ( int i = 0; i < locks.length; i++ )
+        {
+            turns[i] = issued.getAndIncrement( i );
+        }
+        return turns;
+    }
+
+    /**
+     * Waits until the turns taken before this one on the key's stripe have ended. This should not
+     * be called with any stripe lock held.
+     * <p>
+     * @param key
+     * @param turn the turn returned by {@link #takeTurn(Object)}
+     */
+    public void awaitTurn( Object key, long turn )
+    {
+        awaitTurn( stripeOf( key ), turn );
+    }
+
+    /**
+     * Ends the turn of the key's stripe that the caller waited for, letting the next one run.
+     * <p>
+     * @param key
+     */
+    public void endTurn( Object key )
+    {
+        endTurn( stripeOf( key ) );
+    }
+
+    /**
+     * Waits for the turns returned by {@link #takeTurns(Collection)} or {@link #takeAllTurns()},
+     * in index order. Turns of several stripes are taken while holding all of them, so two
+     * callers that share stripes always have their turns in the same order on each of them, and
+     * waiting in index order cannot deadlock.
+     * <p>
+     * @param turns
+     */
+    public void awaitTurns( long[] turns )
+    {
+        for ( int i = 0; i < turns.length; i++ )
+        {
+            if ( turns[i] != -1 )
+            {
+                awaitTurn( i, turns[i] );
+            }
+        }
+    }
+
+    /**
+     * Ends the turns waited for with {@link #awaitTurns(long[])}.
+     * <p>
+     * @param turns
+     */
+    public void endTurns( long[] turns )
+    {
+        for ( int i = turns.length - 1; i >= 0; i-- )
+        {
+            if ( turns[i] != -1 )
+            {
+                endTurn( i );
+            }
+        }
+    }
+
+    /**
+     * Reads the write generation of the key's stripe before a lookup, see
+     * {@link #isUnchangedSince(Object, long)}.
+     * <p>
+     * @param key
+     * @return the number of turns taken on the stripe, or -1 if one of them has not ended yet
+     */
+    public long getSettledTurns( Object key )
+    {
+        return getSettledTurns( stripeOf( key ) );
+    }
+
+    /**
+     * Waits until no write of the key's stripe is running and reads its write generation. Used
+     * before a compare and set, where a lookup made during a write would only have to be
+     * repeated. This should not be called with any stripe lock held.
+     * <p>
+     * @param key
+     * @return the number of turns taken on the stripe, all of them ended
+     */
+    public long awaitSettledTurns( Object key )
+    {
+        int stripe = stripeOf( key );
+        boolean interrupted = false;
+        long taken;
+        Object monitor = turnMonitors[stripe];
+        synchronized ( monitor )
+        {
+            // turns are taken under the stripe lock, not the monitor, so check the count again
+            // after each wake up
+            taken = issued.get( stripe );
+            while ( served.get( stripe ) != taken )
+            {
+                try
+                {
+                    monitor.wait();
+                }
+                catch ( InterruptedException e )
+                {
+                    interrupted = true;
+                }
+                taken = issued.get( stripe );
+            }
+        }
+
+        if ( interrupted )
+        {
+            Thread.currentThread().interrupt();
+        }
+        return taken;
+    }
+
+    /**
+     * Reads the write generation of every stripe before a lookup of several keys.
+     * <p>
+     * @return the result of {@link #getSettledTurns(Object)} per stripe index
+     */
+    public long[] getSettledTurns()
+    {
+        long[] settled = new long[locks.length];
+        for ( int i = 0; i < locks.length; i++ )
+        {
+            settled[i] = getSettledTurns( i );
+        }
+        return settled;
+    }
+
+    /**
+     * Tells whether the key's stripe had no write running when the generation was read and has
+     * had none since. The caller must hold the stripe lock, so none can start while it acts on
+     * the answer.
+     * <p>
+     * @param key
+     * @param settled the result of {@link #getSettledTurns(Object)}
+     * @return true if no key of the stripe was written since the generation was read
+     */
+    public boolean isUnchangedSince( Object key, long settled )
+    {
+        return settled != -1 && issued.get( stripeOf( key ) ) == settled;
+    }
+
+    /**
+     * @param key
+     * @param settled the result of {@link #getSettledTurns()}
+     * @return the generation of the key's stripe, to be handed to
+     *         {@link #isUnchangedSince(Object, long)}
+     */
+    public long getSettledTurns( Object key, long[] settled )
+    {
+        return settled[stripeOf( key )];
+    }
+
+    /**
+     * Reads the turns taken before the turns served. If they are equal, every write that had
+     * started by then had also ended.
+     * <p>
+     * @param stripe
+     * @return the number of turns taken, or -1
+     */
+    private long getSettledTurns( int stripe )
+    {
+        long taken = issued.get( stripe );
+        return served.get( stripe ) == taken ? taken : -1;
+    }
+
+    /**
+     * Waits for the turn without giving up on an interrupt, the turns behind it would never be
+     * served otherwise. The interrupt status is restored afterwards.
+     * <p>
+     * @param stripe
+     * @param turn
+     */
+    private void awaitTurn( int stripe, long turn )
+    {
+        if ( served.get( stripe ) == turn )
+        {
+            return;
+        }
+
+        boolean interrupted = false;
+        Object monitor = turnMonitors[stripe];
+        synchronized ( monitor )
+        {
+            while ( served.get( stripe ) != turn )
+            {
+                try
+                {
+                    monitor.wait();
+                }
+                catch ( InterruptedException e )
+                {
+                    interrupted = true;
+                }
+            }
+        }
+
+        if ( interrupted )
+        {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * @param stripe
+     */
+    private void endTurn( int stripe )
+    {
+        Object monitor = turnMonitors[stripe];
+        synchronized ( monitor )
+        {
+            served.incrementAndGet( stripe );
+            monitor.notifyAll();
+        }
+    }
+
+    /**
+     * @param key
+     * @return the index of the stripe the key hashes to
+     */
+    private int stripeOf( Object key )
+    {
+        int h = key.hashCode();
+        // spread the high bits down, keys like Integers only vary in the low bits
+        h ^= ( h >>> 16 );
+        h ^= ( h >>> 8 );
+        return h & mask;
+    }
+
+    /**
+     * @return the number of stripes
+     */
+    public int getStripeCount()
+    {
+        return locks.length;
+    }
+}
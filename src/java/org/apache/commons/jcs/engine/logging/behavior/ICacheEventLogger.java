@@ -14,6 +14,9 @@ public interface ICacheEventLogger
     /** ICache update */
     static final String UPDATE_EVENT = "update";
 
+    /** AuxiliaryCache updateMultiple */
+    static final String UPDATEMULTIPLE_EVENT = "updateMultiple";
+
     /** ICache get */
     static final String GET_EVENT = "get";
 
@@ -26,6 +29,9 @@ public interface ICacheEventLogger
     /** ICache remove */
     static final String REMOVE_EVENT = "remove";
 
+    /** AuxiliaryCache removeMultiple */
+    static final String REMOVEMULTIPLE_EVENT = "removeMultiple";
+
     /** ICache removeAll */
     static final String REMOVEALL_EVENT = "removeAll";
 
@@ -89,12 +89,29 @@ public abstract class AbstractDoubleLinkedListMemoryCache<K extends Serializable
         throws IOException
     {
         putCnt++;
+        restore( ce );
+    }
+
+    /**
+     * Does the work of update without counting a put. Children that hand an element back from
+     * another tier use this so that the move is not reported as a new put.
+     * <p>
+     * @param ce The cache element, or entry wrapper
+     * @exception IOException
+     */
+    protected final void restore( ICacheElement<K, V> ce )
+        throws IOException
+    {
         ce.getElementAttributes().setLastAccessTimeNow();
 
+        // slow work on the element is done before other threads are locked out
+        ICacheElement<K, V> prepared = prepareForUpdate( ce );
+
         synchronized ( this )
         {
             // ABSTRACT
-            MemoryElementDescriptor<K, V> newNode = adjustListForUpdate( ce );
+            MemoryElementDescriptor<K, V> newNode = adjustListForUpdate( prepared );
+            chargeWeight( newNode );
 
             // this must be synchronized
             MemoryElementDescriptor<K, V> oldNode = map.put( newNode.ce.getKey(), newNode );
@@ -103,13 +120,30 @@ public abstract class AbstractDoubleLinkedListMemoryCache<K extends Serializable
             if ( oldNode != null && ( newNode.ce.getKey().equals( oldNode.ce.getKey() ) ) )
             {
                 list.remove( oldNode );
+                releaseWeight( oldNode );
             }
         }
 
+        scheduleExpiration( ce );
+
         // If we are over the max spool some
         spoolIfNeeded();
     }
 
+    /**
+     * Called by update before it synchronizes, to let children transform the element that will be
+     * stored. This returns the element itself.
+     * <p>
+     * @param ce
+     * @return the element to hand to {@link #adjustListForUpdate(ICacheElement)}
+     * @throws IOException
+     */
+    protected ICacheElement<K, V> prepareForUpdate( ICacheElement<K, V> ce )
+        throws IOException
+    {
+        return ce;
+    }
+
     /**
      * Children implement this to control the cache expiration algorithm
      * <p>
@@ -121,7 +155,7 @@ public abstract class AbstractDoubleLinkedListMemoryCache<K extends Serializable
         throws IOException;
 
     /**
-     * If the max size has been reached, spool.
+     * If the max size or the max weight has been reached, spool.
      * <p>
      * @throws Error
      */
@@ -129,9 +163,9 @@ public abstract class AbstractDoubleLinkedListMemoryCache<K extends Serializable
         throws Error
     {
         int size = map.size();
-        // If the element limit is reached, we need to spool
+        // If the element or weight limit is reached, we need to spool
 
-        if ( size <= this.cacheAttributes.getMaxObjects() )
+        if ( !isOverCapacity() )
         {
             return;
         }
@@ -153,9 +187,31 @@ public abstract class AbstractDoubleLinkedListMemoryCache<K extends Serializable
         // The spool will put them in a disk event queue, so there is no
         // need to pre-queue the queuing. This would be a bit wasteful
         // and wouldn't save much time in this synchronous call.
+        // Writers of different keys spool at the same time, another one may
+        // already have emptied the list.
         for ( int i = 0; i < chunkSizeCorrected; i++ )
         {
-            spoolLastElement();
+            synchronized ( this )
+            {
+                if ( list.getLast() == null )
+                {
+                    break;
+                }
+                spoolLastElement();
+            }
+        }
+
+        // a heavy element can take more than a chunk to make room for
+        while ( weigher != null && totalWeight.get() > maxMemoryBytes )
+        {
+            synchronized ( this )
+            {
+                if ( list.getLast() == null )
+                {
+                    break;
+                }
+                spoolLastElement();
+            }
         }
 
         if ( log.isDebugEnabled() )
@@ -172,7 +228,7 @@ public abstract class AbstractDoubleLinkedListMemoryCache<K extends Serializable
      * @exception IOException
      */
     @Override
-    public final synchronized ICacheElement<K, V> get( K key )
+    public synchronized ICacheElement<K, V> get( K key )
         throws IOException
     {
         ICacheElement<K, V> ce = null;
@@ -233,17 +289,21 @@ public abstract class AbstractDoubleLinkedListMemoryCache<K extends Serializable
         int freed = 0;
         for ( ; freed < numberToFree; freed++ )
         {
-            ICacheElement<K, V> element = spoolLastElement();
-            if ( element == null )
+            synchronized ( this )
             {
-                break;
+                if ( list.getLast() == null )
+                {
+                    break;
+                }
+                spoolLastElement();
             }
         }
         return freed;
     }
 
     /**
-     * This spools the last element in the LRU, if one exists.
+     * This spools the last element in the LRU, if one exists. The element is handed to
+     * {@link #waterfal(ICacheElement)}, which sends it to disk unless a child keeps it elsewhere.
      * <p>
      * @return ICacheElement<K, V> if there was a last element, else null.
      * @throws Error
@@ -259,7 +319,14 @@ public abstract class AbstractDoubleLinkedListMemoryCache<K extends Serializable
                 toSpool = list.getLast().ce;
                 if ( toSpool != null )
                 {
-                    cache.spoolToDisk( list.getLast().ce );
+                    try
+                    {
+                        waterfal( toSpool );
+                    }
+                    catch ( IOException e )
+                    {
+                        log.error( "update: problem spooling key: " + toSpool.getKey(), e );
+                    }
                     if ( !map.containsKey( list.getLast().ce.getKey() ) )
                     {
                         log.error( "update: map does not contain key: "
@@ -272,6 +339,7 @@ public abstract class AbstractDoubleLinkedListMemoryCache<K extends Serializable
                             + list.getLast().ce.getKey() );
                         verifyCache();
                     }
+                    releaseWeight( list.getLast() );
                 }
                 else
                 {
@@ -330,6 +398,7 @@ public abstract class AbstractDoubleLinkedListMemoryCache<K extends Serializable
                     if ( k instanceof String && ( (String) k ).startsWith( key.toString() ) )
                     {
                         list.remove( entry.getValue() );
+                        releaseWeight( entry.getValue() );
                         itr.remove();
                         removed = true;
                     }
@@ -350,6 +419,7 @@ public abstract class AbstractDoubleLinkedListMemoryCache<K extends Serializable
                         ((GroupAttrName<?>)k).groupId.equals(((GroupAttrName<?>)key).groupId))
                     {
                         list.remove( entry.getValue() );
+                        releaseWeight( entry.getValue() );
                         itr.remove();
                         removed = true;
                     }
@@ -364,6 +434,7 @@ public abstract class AbstractDoubleLinkedListMemoryCache<K extends Serializable
             if ( me != null )
             {
                 list.remove( me );
+                releaseWeight( me );
                 removed = true;
             }
         }
@@ -383,6 +454,7 @@ public abstract class AbstractDoubleLinkedListMemoryCache<K extends Serializable
     {
         map.clear();
         list.removeAll();
+        totalWeight.set( 0 );
     }
 
     // --------------------------- internal methods (linked list implementation)
@@ -733,6 +805,8 @@ public abstract class AbstractDoubleLinkedListMemoryCache<K extends Serializable
         se.setData( "" + missCnt );
         elems.add( se );
 
+        addWeightStatistics( elems );
+
         // get an array and put them in the Stats object
         IStatElement[] ses = elems.toArray( new StatElement[0] );
         stats.setStatElements( ses );
@@ -23,10 +23,12 @@ import java.io.IOException;
 import java.io.Serializable;
 import java.util.HashMap;
 import java.util.Iterator;
+import java.util.List;
 import java.util.Map;
 import java.util.Set;
 import java.util.concurrent.ScheduledExecutorService;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
 
 import org.apache.commons.jcs.engine.CacheStatus;
 import org.apache.commons.jcs.engine.behavior.ICacheElement;
@@ -34,11 +36,16 @@ import org.apache.commons.jcs.engine.behavior.ICompositeCacheAttributes;
 import org.apache.commons.jcs.engine.behavior.IElementAttributes;
 import org.apache.commons.jcs.engine.behavior.IRequireScheduler;
 import org.apache.commons.jcs.engine.control.CompositeCache;
+import org.apache.commons.jcs.engine.memory.behavior.IElementWeigher;
 import org.apache.commons.jcs.engine.memory.behavior.IMemoryCache;
-import org.apache.commons.jcs.engine.memory.shrinking.ShrinkerThread;
+import org.apache.commons.jcs.engine.memory.shrinking.TimingWheelShrinker;
 import org.apache.commons.jcs.engine.memory.util.MemoryElementDescriptor;
+import org.apache.commons.jcs.engine.memory.util.SizeEstimatingWeigher;
+import org.apache.commons.jcs.engine.stats.StatElement;
 import org.apache.commons.jcs.engine.stats.Stats;
+import org.apache.commons.jcs.engine.stats.behavior.IStatElement;
 import org.apache.commons.jcs.engine.stats.behavior.IStats;
+import org.apache.commons.jcs.utils.config.OptionConverter;
 import org.apache.commons.logging.Log;
 import org.apache.commons.logging.LogFactory;
 
@@ -78,6 +85,18 @@ public abstract class AbstractMemoryCache<K extends Serializable, V extends Seri
     /** How many to spool at a time. */
     protected int chunkSize;
 
+    /** The memory shrinker and its expiration index, null if the shrinker is not used */
+    protected volatile TimingWheelShrinker<K, V> shrinker;
+
+    /** Weighs elements, null if the region is not bounded by weight */
+    protected IElementWeigher<K, V> weigher;
+
+    /** The most the elements may weigh together */
+    protected long maxMemoryBytes;
+
+    /** The weight of the elements in memory */
+    protected final AtomicLong totalWeight = new AtomicLong();
+
     /**
      * For post reflection creation initialization
      * <p>
@@ -92,6 +111,13 @@ public abstract class AbstractMemoryCache<K extends Serializable, V extends Seri
 
         chunkSize = cacheAttributes.getSpoolChunkSize();
         status = CacheStatus.ALIVE;
+
+        maxMemoryBytes = cacheAttributes.getMaxMemoryBytes();
+        if ( maxMemoryBytes > 0 )
+        {
+            weigher = OptionConverter.instantiateByClassName( cacheAttributes.getElementWeigherName(),
+                                                             new SizeEstimatingWeigher<K, V>() );
+        }
     }
 
     /**
@@ -101,12 +127,106 @@ public abstract class AbstractMemoryCache<K extends Serializable, V extends Seri
     {
         if ( cacheAttributes.isUseMemoryShrinker() )
         {
+            TimingWheelShrinker<K, V> wheelShrinker = new TimingWheelShrinker<K, V>( this );
+            this.shrinker = wheelShrinker;
+
+            // index what is already in memory
+            synchronized ( map )
+            {
+                for ( MemoryElementDescriptor<K, V> me : map.values() )
+                {
+                    wheelShrinker.schedule( me.ce );
+                }
+            }
+
             scheduledExecutor.scheduleAtFixedRate(
-                    new ShrinkerThread<K, V>(this), 0, cacheAttributes.getShrinkerIntervalSeconds(),
+                    wheelShrinker, 0, cacheAttributes.getShrinkerIntervalSeconds(),
                     TimeUnit.SECONDS);
         }
     }
 
+    /**
+     * Adds the element to the shrinker's expiration index. Implementations call this whenever an
+     * element is put into memory.
+     * <p>
+     * @param ce the element that was put
+     */
+    protected void scheduleExpiration( ICacheElement<K, V> ce )
+    {
+        TimingWheelShrinker<K, V> wheelShrinker = this.shrinker;
+        if ( wheelShrinker != null )
+        {
+            wheelShrinker.schedule( ce );
+        }
+    }
+
+    /**
+     * Weighs the element of a descriptor that is being put into memory and adds it to the total.
+     * Does nothing if the region is not bounded by weight.
+     * <p>
+     * @param me the new descriptor
+     */
+    protected void chargeWeight( MemoryElementDescriptor<K, V> me )
+    {
+        if ( weigher != null )
+        {
+            me.weight = Math.max( 0, weigher.weigh( me.ce ) );
+            totalWeight.addAndGet( me.weight );
+        }
+    }
+
+    /**
+     * Takes the weight of a descriptor that left memory off the total.
+     * <p>
+     * @param me
+     */
+    protected void releaseWeight( MemoryElementDescriptor<K, V> me )
+    {
+        if ( me.weight != 0 )
+        {
+            totalWeight.addAndGet( -me.weight );
+        }
+    }
+
+    /**
+     * @return whether memory holds more elements than MaxObjects, or more weight than
+     *         MaxMemoryBytes
+     */
+    protected boolean isOverCapacity()
+    {
+        return map.size() > cacheAttributes.getMaxObjects()
+            || ( weigher != null && totalWeight.get() > maxMemoryBytes );
+    }
+
+    /**
+     * @return the total weight of the elements in memory, 0 if the region is not bounded by weight
+     */
+    public long getWeight()
+    {
+        return totalWeight.get();
+    }
+
+    /**
+     * Adds the weight figures to a statistics list if the region is bounded by weight.
+     * <p>
+     * @param elems
+     */
+    protected void addWeightStatistics( List<IStatElement> elems )
+    {
+        if ( weigher != null )
+        {
+            IStatElement se = new StatElement();
+            se.setName( "Weight" );
+            se.setData( "" + totalWeight.get() );
+            elems.add( se );
+
+            se = new StatElement();
+            se.setName( "Max Memory Bytes" );
+            se.setData( "" + maxMemoryBytes );
+            elems.add( se );
+        }
+    }
+
     /**
      * Children must implement this method. A FIFO implementation may use a tree map. An LRU might
      * use a hashtable. The map returned should be threadsafe.
@@ -220,6 +340,7 @@ public abstract class AbstractMemoryCache<K extends Serializable, V extends Seri
         throws IOException
     {
         map.clear();
+        totalWeight.set( 0 );
     }
 
     /**
@@ -0,0 +1,736 @@
+package org.apache.commons.jcs.engine.memory.arc;
+
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+import java.io.IOException;
+import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.ReentrantLock;
+
+import org.apache.commons.jcs.engine.CacheConstants;
+import org.apache.commons.jcs.engine.behavior.ICacheElement;
+import org.apache.commons.jcs.engine.control.CompositeCache;
+import org.apache.commons.jcs.engine.control.group.GroupAttrName;
+import org.apache.commons.jcs.engine.memory.AbstractMemoryCache;
+import org.apache.commons.jcs.engine.memory.util.MemoryElementDescriptor;
+import org.apache.commons.jcs.engine.stats.StatElement;
+import org.apache.commons.jcs.engine.stats.Stats;
+import org.apache.commons.jcs.engine.stats.behavior.IStatElement;
+import org.apache.commons.jcs.engine.stats.behavior.IStats;
+import org.apache.commons.jcs.utils.struct.DoubleLinkedList;
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+
+/**
+ * A memory cache using the adaptive replacement cache (ARC) policy. ARC is a hybrid LRU / LFU
+ * that tunes itself to the access pattern.
+ * <p>
+ * Elements held in memory are on one of two LRU lists: T1 for elements used once since they
+ * were put, and T2 for elements used more than once. When an element leaves T1 or T2 it is
+ * spooled, and its key is remembered on the matching ghost list, B1 or B2. A put for a key found
+ * on B1 means T1 was too small, so the target size of T1 grows; a put for a key found on B2 makes
+ * it shrink. T1 and T2 together hold at most MaxObjects elements, and the four lists together
+ * hold at most twice as many keys.
+ * <p>
+ * Lookups go to a concurrent map and do not wait for writers. The lists are guarded by a lock
+ * of their own that is held only while they are rearranged; elements are spooled after it is
+ * released.
+ * <p>
+ * @see "Megiddo and Modha, ARC: A Self-Tuning, Low Overhead Replacement Cache, FAST 2003"
+ */
+public class ARCMemoryCache<K extends Serializable, V extends Serializable>
+    extends AbstractMemoryCache<K, V>
+{
+    /** Don't change. */
+    private static final long serialVersionUID = 6370392285862815434L;
+
+    /** The logger. */
+    private final static Log log = LogFactory.getLog( ARCMemoryCache.class );
+
+    /** id of list T1, elements used once */
+    protected static final int _T1_ = 1;
+
+    /** id of list T2, elements used more than once */
+    protected static final int _T2_ = 2;
+
+    /** id of list B1, keys of elements spooled from T1 */
+    protected static final int _B1_ = 3;
+
+    /** id of list B2, keys of elements spooled from T2 */
+    protected static final int _B2_ = 4;
+
+    /** Guards the lists, the ghost map and the target size */
+    private final ReentrantLock lock = new ReentrantLock();
+
+    /** Elements used once, most recently used first */
+    private DoubleLinkedList<ARCElementDescriptor<K, V>> t1;
+
+    /** Elements used more than once, most recently used first */
+    private DoubleLinkedList<ARCElementDescriptor<K, V>> t2;
+
+    /** Keys recently spooled from T1 */
+    private DoubleLinkedList<ARCElementDescriptor<K, V>> b1;
+
+    /** Keys recently spooled from T2 */
+    private DoubleLinkedList<ARCElementDescriptor<K, V>> b2;
+
+    /** Descriptors on B1 and B2 by key */
+    private Map<K, ARCElementDescriptor<K, V>> ghosts;
+
+    /** Size of the cache */
+    private int maxSize = 0;
+
+    /** Target size of T1 */
+    private int targetT1 = 0;
+
+    /** number of hits */
+    private final AtomicInteger hitCnt = new AtomicInteger();
+
+    /** number of misses */
+    private final AtomicInteger missCnt = new AtomicInteger();
+
+    /** number of puts */
+    private final AtomicInteger putCnt = new AtomicInteger();
+
+    /** number of puts for a key found on a ghost list */
+    private final AtomicInteger ghostHitCnt = new AtomicInteger();
+
+    /**
+     * For post reflection creation initialization
+     * <p>
+     * @param hub
+     */
+    @Override
+    public synchronized void initialize( CompositeCache<K, V> hub )
+    {
+        super.initialize( hub );
+        t1 = new DoubleLinkedList<ARCElementDescriptor<K, V>>();
+        t2 = new DoubleLinkedList<ARCElementDescriptor<K, V>>();
+        b1 = new DoubleLinkedList<ARCElementDescriptor<K, V>>();
+        b2 = new DoubleLinkedList<ARCElementDescriptor<K, V>>();
+        ghosts = new HashMap<K, ARCElementDescriptor<K, V>>();
+
+        maxSize = Math.max( 0, cacheAttributes.getMaxObjects() );
+        targetT1 = maxSize / 2;
+        log.info( "initialized ARCMemoryCache for " + cacheName );
+    }
+
+    /**
+     * Elements are read without taking the list lock, so the map has to be concurrent.
+     * <p>
+     * @return a concurrent map
+     */
+    @Override
+    public Map<K, MemoryElementDescriptor<K, V>> createMap()
+    {
+        return new ConcurrentHashMap<K, MemoryElementDescriptor<K, V>>();
+    }
+
+    /**
+     * Gets the element and records the use. An element used for the second time moves from T1 to
+     * T2. A key that is only on a ghost list is a miss.
+     * <p>
+     * @param key
+     * @return the element or null
+     * @throws IOException
+     */
+    @Override
+    public ICacheElement<K, V> get( K key )
+        throws IOException
+    {
+        ARCElementDescriptor<K, V> me = (ARCElementDescriptor<K, V>) map.get( key );
+        if ( me == null )
+        {
+            missCnt.incrementAndGet();
+            if ( log.isDebugEnabled() )
+            {
+                log.debug( cacheName + ": ARCMemoryCache miss for " + key );
+            }
+            return null;
+        }
+
+        ICacheElement<K, V> ce = me.ce;
+        hitCnt.incrementAndGet();
+        ce.getElementAttributes().setLastAccessTimeNow();
+        if ( log.isDebugEnabled() )
+        {
+            log.debug( cacheName + ": ARCMemoryCache hit for " + key );
+        }
+
+        lock.lock();
+        try
+        {
+            // the element may have been spooled or removed since the lookup
+            if ( me.listNum == _T1_ )
+            {
+                t1.remove( me );
+                me.listNum = _T2_;
+                t2.addFirst( me );
+            }
+            else if ( me.listNum == _T2_ )
+            {
+                t2.makeFirst( me );
+            }
+        }
+        finally
+        {
+            lock.unlock();
+        }
+
+        return ce;
+    }
+
+    /**
+     * Puts the element into memory. A new key goes to T1. A key already in memory or found on a
+     * ghost list goes to T2, and a ghost hit adapts the target size of T1. Elements pushed out of
+     * memory are spooled.
+     * <p>
+     * @param ce
+     * @throws IOException
+     */
+    @Override
+    public void update( ICacheElement<K, V> ce )
+        throws IOException
+    {
+        putCnt.incrementAndGet();
+        ce.getElementAttributes().setLastAccessTimeNow();
+
+        K key = ce.getKey();
+        List<ICacheElement<K, V>> spooled = new ArrayList<ICacheElement<K, V>>();
+
+        lock.lock();
+        try
+        {
+            if ( maxSize == 0 )
+            {
+                // nothing is kept in memory
+                spooled.add( ce );
+            }
+            else
+            {
+                ARCElementDescriptor<K, V> me;
+                ARCElementDescriptor<K, V> old = (ARCElementDescriptor<K, V>) map.get( key );
+                if ( old != null )
+                {
+                    // seen again, replace the node so it does not hold the old value
+                    unlink( old );
+                    me = new ARCElementDescriptor<K, V>( ce );
+                    me.listNum = _T2_;
+                    t2.addFirst( me );
+                }
+                else
+                {
+                    ARCElementDescriptor<K, V> ghost = ghosts.remove( key );
+                    if ( ghost != null )
+                    {
+                        me = handleGhostHit( ghost, ce, spooled );
+                    }
+                    else
+                    {
+                        me = handleMiss( ce, spooled );
+                    }
+                }
+
+                // publishes the element to readers
+                map.put( key, me );
+            }
+        }
+        finally
+        {
+            lock.unlock();
+        }
+
+        for ( ICacheElement<K, V> element : spooled )
+        {
+            waterfal( element );
+        }
+
+        if ( maxSize > 0 )
+        {
+            scheduleExpiration( ce );
+        }
+    }
+
+    /**
+     * A put for a key on B1 favors recency and grows T1's target; a put for a key on B2 favors
+     * frequency and shrinks it. Either way the element goes to T2. The caller holds the lock.
+     * <p>
+     * @param ghost the ghost descriptor, already out of the ghost map
+     * @param ce the element put
+     * @param spooled receives the elements that have to be spooled
+     * @return the new descriptor
+     */
+    private ARCElementDescriptor<K, V> handleGhostHit( ARCElementDescriptor<K, V> ghost, ICacheElement<K, V> ce,
+                                                       List<ICacheElement<K, V>> spooled )
+    {
+        ghostHitCnt.incrementAndGet();
+        boolean inB2 = ghost.listNum == _B2_;
+
+        if ( inB2 )
+        {
+            targetT1 = Math.max( targetT1 - Math.max( b1.size() / b2.size(), 1 ), 0 );
+            b2.remove( ghost );
+        }
+        else
+        {
+            targetT1 = Math.min( targetT1 + Math.max( b2.size() / b1.size(), 1 ), maxSize );
+            b1.remove( ghost );
+        }
+
+        if ( log.isDebugEnabled() )
+        {
+            log.debug( cacheName + ": ghost hit in " + ( inB2 ? "B2" : "B1" ) + ", target T1 = " + targetT1 );
+        }
+
+        if ( t1.size() + t2.size() >= maxSize )
+        {
+            replace( inB2, spooled );
+        }
+
+        ARCElementDescriptor<K, V> me = new ARCElementDescriptor<K, V>( ce );
+        me.listNum = _T2_;
+        t2.addFirst( me );
+        return me;
+    }
+
+    /**
+     * Makes room in the directory for a key that is on none of the lists and puts the element on
+     * T1. The caller holds the lock.
+     * <p>
+     * @param ce the element put
+     * @param spooled receives the elements that have to be spooled
+     * @return the new descriptor
+     */
+    private ARCElementDescriptor<K, V> handleMiss( ICacheElement<K, V> ce, List<ICacheElement<K, V>> spooled )
+    {
+        if ( t1.size() + b1.size() >= maxSize )
+        {
+            if ( t1.size() < maxSize )
+            {
+                dropGhost( b1.getLast() );
+                if ( t1.size() + t2.size() >= maxSize )
+                {
+                    replace( false, spooled );
+                }
+            }
+            else
+            {
+                // B1 is empty and T1 fills the cache, spool T1's oldest without a trace
+                ARCElementDescriptor<K, V> last = t1.getLast();
+                unlink( last );
+                map.remove( last.key );
+                spooled.add( last.ce );
+            }
+        }
+        else
+        {
+            int total = t1.size() + t2.size() + b1.size() + b2.size();
+            if ( total >= maxSize )
+            {
+                if ( total >= 2 * maxSize )
+                {
+                    dropGhost( b2.getLast() );
+                }
+                if ( t1.size() + t2.size() >= maxSize )
+                {
+                    replace( false, spooled );
+                }
+            }
+        }
+
+        ARCElementDescriptor<K, V> me = new ARCElementDescriptor<K, V>( ce );
+        me.listNum = _T1_;
+        t1.addFirst( me );
+        return me;
+    }
+
+    /**
+     * Moves the least recently used element of T1 or T2 to the matching ghost list. T1 gives up
+     * its element if it is above its target size, or at it when the key being put came from B2.
+     * The caller holds the lock.
+     * <p>
+     * @param hitInB2 whether the key being put was found on B2
+     * @param spooled receives the element that has to be spooled
+     * @return false if both lists were empty
+     */
+    private boolean replace( boolean hitInB2, List<ICacheElement<K, V>> spooled )
+    {
+        ARCElementDescriptor<K, V> me;
+        int ghostList;
+
+        int t1Size = t1.size();
+        if ( t1Size > 0 && ( t1Size > targetT1 || ( hitInB2 && t1Size == targetT1 ) || t2.size() == 0 ) )
+        {
+            me = t1.getLast();
+            ghostList = _B1_;
+        }
+        else
+        {
+            me = t2.getLast();
+            if ( me == null )
+            {
+                return false;
+            }
+            ghostList = _B2_;
+        }
+
+        unlink( me );
+        map.remove( me.key );
+        spooled.add( me.ce );
+
+        // the ghost keeps only the key
+        ARCElementDescriptor<K, V> ghost = new ARCElementDescriptor<K, V>( me.key );
+        ghost.listNum = ghostList;
+        list( ghostList ).addFirst( ghost );
+        ghosts.put( ghost.key, ghost );
+        return true;
+    }
+
+    /**
+     * Forgets a key on a ghost list. The caller holds the lock.
+     * <p>
+     * @param me may be null
+     */
+    private void dropGhost( ARCElementDescriptor<K, V> me )
+    {
+        if ( me != null )
+        {
+            list( me.listNum ).remove( me );
+            ghosts.remove( me.key );
+        }
+    }
+
+    /**
+     * @param listNum
+     * @return the list with the given id
+     */
+    private DoubleLinkedList<ARCElementDescriptor<K, V>> list( int listNum )
+    {
+        switch ( listNum )
+        {
+            case _T1_:
+                return t1;
+            case _T2_:
+                return t2;
+            case _B1_:
+                return b1;
+            default:
+                return b2;
+        }
+    }
+
+    /**
+     * Spools the given number of elements, taking them the way ARC would to make room: from T1
+     * while it is above its target, otherwise from T2. Their keys stay on the ghost lists.
+     * <p>
+     * @param numberToFree
+     * @return the number spooled
+     * @throws IOException
+     */
+    public int freeElements( int numberToFree )
+        throws IOException
+    {
+        List<ICacheElement<K, V>> spooled = new ArrayList<ICacheElement<K, V>>();
+
+        lock.lock();
+        try
+        {
+            while ( spooled.size() < numberToFree && replace( false, spooled ) )
+            {
+                // keep going
+            }
+        }
+        finally
+        {
+            lock.unlock();
+        }
+
+        for ( ICacheElement<K, V> element : spooled )
+        {
+            waterfal( element );
+        }
+        return spooled.size();
+    }
+
+    /**
+     * Removes an item from the cache. This method handles hierarchical removal. If the key is a
+     * String and ends with the CacheConstants.NAME_COMPONENT_DELIMITER, then all items with keys
+     * starting with the argument String will be removed. Removed keys are not remembered on the
+     * ghost lists.
+     * <p>
+     * @param key
+     * @return true if the removal was successful
+     * @throws IOException
+     */
+    @Override
+    public boolean remove( K key )
+        throws IOException
+    {
+        if ( log.isDebugEnabled() )
+        {
+            log.debug( "removing item for key: " + key );
+        }
+
+        boolean removed = false;
+
+        lock.lock();
+        try
+        {
+            if ( key instanceof String && ( (String) key ).endsWith( CacheConstants.NAME_COMPONENT_DELIMITER ) )
+            {
+                // remove all keys of the same name hierarchy.
+                for ( Iterator<Map.Entry<K, MemoryElementDescriptor<K, V>>> itr = map.entrySet().iterator(); itr.hasNext(); )
+                {
+                    Map.Entry<K, MemoryElementDescriptor<K, V>> entry = itr.next();
+                    K k = entry.getKey();
+
+                    if ( k instanceof String && ( (String) k ).startsWith( key.toString() ) )
+                    {
+                        unlink( entry.getValue() );
+                        itr.remove();
+                        removed = true;
+                    }
+                }
+            }
+            else if ( key instanceof GroupAttrName )
+            {
+                // remove all keys of the same group.
+                for ( Iterator<Map.Entry<K, MemoryElementDescriptor<K, V>>> itr = map.entrySet().iterator(); itr.hasNext(); )
+                {
+                    Map.Entry<K, MemoryElementDescriptor<K, V>> entry = itr.next();
+                    K k = entry.getKey();
+
+                    if ( k instanceof GroupAttrName
+                        && ( (GroupAttrName<?>) k ).groupId.equals( ( (GroupAttrName<?>) key ).groupId ) )
+                    {
+                        unlink( entry.getValue() );
+                        itr.remove();
+                        removed = true;
+                    }
+                }
+            }
+            else
+            {
+                MemoryElementDescriptor<K, V> me = map.remove( key );
+                if ( me != null )
+                {
+                    unlink( me );
+                    removed = true;
+                }
+                else
+                {
+                    dropGhost( ghosts.get( key ) );
+                }
+            }
+        }
+        finally
+        {
+            lock.unlock();
+        }
+
+        return removed;
+    }
+
+    /**
+     * Takes the element off its list. The caller holds the lock.
+     * <p>
+     * @param me
+     */
+    private void unlink( MemoryElementDescriptor<K, V> me )
+    {
+        ARCElementDescriptor<K, V> node = (ARCElementDescriptor<K, V>) me;
+        list( node.listNum ).remove( node );
+        // tells a reader that found it before the removal not to move it
+        node.listNum = 0;
+    }
+
+    /**
+     * Removes all elements and forgets the ghost keys. The target size of T1 is reset.
+     * <p>
+     * @throws IOException
+     */
+    @Override
+    public void removeAll()
+        throws IOException
+    {
+        lock.lock();
+        try
+        {
+            map.clear();
+            ghosts.clear();
+            t1.removeAll();
+            t2.removeAll();
+            b1.removeAll();
+            b2.removeAll();
+            targetT1 = maxSize / 2;
+        }
+        finally
+        {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * @return a copy of the keys of the elements in memory
+     */
+    @Override
+    public Set<K> getKeySet()
+    {
+        return new LinkedHashSet<K>( map.keySet() );
+    }
+
+    /**
+     * At the start this will be 1/2 the max.
+     * <p>
+     * @return the target size of T1
+     */
+    protected int getTargetT1()
+    {
+        lock.lock();
+        try
+        {
+            return targetT1;
+        }
+        finally
+        {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Returns the size of the list.
+     * <p>
+     * @param listNumber
+     * @return -1 if the list is unknown.
+     */
+    protected int getListSize( int listNumber )
+    {
+        if ( listNumber < _T1_ || listNumber > _B2_ )
+        {
+            return -1;
+        }
+
+        lock.lock();
+        try
+        {
+            return list( listNumber ).size();
+        }
+        finally
+        {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * This returns semi-structured information on the memory cache, such as the list sizes, the
+     * target size of T1, and the hit and miss counts.
+     * <p>
+     * @return the stats
+     */
+    @Override
+    public IStats getStatistics()
+    {
+        IStats stats = new Stats();
+        stats.setTypeName( "ARC Memory Cache" );
+
+        List<IStatElement> elems = new ArrayList<IStatElement>();
+
+        lock.lock();
+        try
+        {
+            elems.add( createStatElement( "T1 Size", t1.size() ) );
+            elems.add( createStatElement( "T2 Size", t2.size() ) );
+            elems.add( createStatElement( "B1 Size", b1.size() ) );
+            elems.add( createStatElement( "B2 Size", b2.size() ) );
+            elems.add( createStatElement( "Target T1 Size", targetT1 ) );
+        }
+        finally
+        {
+            lock.unlock();
+        }
+
+        elems.add( createStatElement( "Map Size", map.size() ) );
+        elems.add( createStatElement( "Put Count", putCnt.get() ) );
+        elems.add( createStatElement( "Hit Count", hitCnt.get() ) );
+        elems.add( createStatElement( "Miss Count", missCnt.get() ) );
+        elems.add( createStatElement( "Ghost Hit Count", ghostHitCnt.get() ) );
+
+        stats.setStatElements( elems.toArray( new StatElement[0] ) );
+
+        return stats;
+    }
+
+    /**
+     * @param name
+     * @param value
+     * @return a stat element
+     */
+    private static IStatElement createStatElement( String name, int value )
+    {
+        IStatElement se = new StatElement();
+        se.setName( name );
+        se.setData( "" + value );
+        return se;
+    }
+
+    /**
+     * A descriptor that knows which list it is on. Ghost descriptors hold only the key.
+     */
+    protected static class ARCElementDescriptor<K extends Serializable, V extends Serializable>
+        extends MemoryElementDescriptor<K, V>
+    {
+        /** Don't change. */
+        private static final long serialVersionUID = -6271920830449238031L;
+
+        /** Where this is located, 0 once it was removed */
+        volatile int listNum;
+
+        /** Its key */
+        final K key;
+
+        /**
+         * @param ce
+         */
+        public ARCElementDescriptor( ICacheElement<K, V> ce )
+        {
+            super( ce );
+            this.key = ce.getKey();
+        }
+
+        /**
+         * Creates a ghost descriptor.
+         * <p>
+         * @param key
+         */
+        public ARCElementDescriptor( K key )
+        {
+            super( null );
+            this.key = key;
+        }
+    }
+}
@@ -0,0 +1,41 @@
+package org.apache.commons.jcs.engine.memory.behavior;
+
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+import java.io.Serializable;
+
+import org.apache.commons.jcs.engine.behavior.ICacheElement;
+
+/**
+ * Estimates how much heap an element takes. Memory caches use it to enforce the region's
+ * MaxMemoryBytes.
+ * <p>
+ * The weight of an element is taken once, when it is put into memory, and given back when it
+ * leaves, so it should not change while the element is held. Implementations must be thread safe
+ * and cheap; they are called on every put.
+ */
+public interface IElementWeigher<K extends Serializable, V extends Serializable>
+{
+    /**
+     * @param ce the element being put into memory
+     * @return its weight in bytes, not negative
+     */
+    long weigh( ICacheElement<K, V> ce );
+}
@@ -0,0 +1,310 @@
+package org.apache.commons.jcs.engine.memory.compressed;
+
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+import java.io.IOException;
+import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.zip.Deflater;
+
+import org.apache.commons.jcs.engine.CacheElement;
+import org.apache.commons.jcs.engine.CacheElementCompressed;
+import org.apache.commons.jcs.engine.behavior.ICacheElement;
+import org.apache.commons.jcs.engine.behavior.ICacheElementSerialized;
+import org.apache.commons.jcs.engine.memory.lru.LRUMemoryCache;
+import org.apache.commons.jcs.engine.memory.util.MemoryElementDescriptor;
+import org.apache.commons.jcs.engine.stats.StatElement;
+import org.apache.commons.jcs.engine.stats.behavior.IStatElement;
+import org.apache.commons.jcs.engine.stats.behavior.IStats;
+import org.apache.commons.jcs.utils.serialization.StandardSerializer;
+import org.apache.commons.jcs.utils.zip.CompressionUtil;
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+
+/**
+ * An LRU memory cache that keeps large values compressed.
+ * <p>
+ * Each value put is serialized. If it takes at least MemoryCompressionThreshold bytes, it is
+ * compressed with the fastest deflate level and, if that made it smaller, kept in memory as a
+ * {@link CacheElementCompressed}. Gets and quiet gets decompress the value into a new element that
+ * shares the attributes of the stored one, and elements are decompressed before they are spooled,
+ * so nothing outside the memory cache sees the compressed form.
+ * <p>
+ * Every put of a value that is not compressed still pays for serializing it, and every get of a
+ * compressed value pays for decompressing it. This suits regions of large, verbose values, such as
+ * text, that are read less often than memory runs short. With MaxMemoryBytes, compressed elements
+ * are weighed by their compressed size.
+ */
+public class CompressingMemoryCache<K extends Serializable, V extends Serializable>
+    extends LRUMemoryCache<K, V>
+{
+    /** Don't change */
+    private static final long serialVersionUID = 3580307129513318529L;
+
+    /** The logger */
+    private final static Log log = LogFactory.getLog( CompressingMemoryCache.class );
+
+    /** Buffer used while compressing */
+    private static final int BUFFER_LENGTH = 4096;
+
+    /** Serializes values to measure and compress them */
+    private final StandardSerializer serializer = new StandardSerializer();
+
+    /** number of values compressed so far */
+    private int compressedCnt = 0;
+
+    /** number of values over the threshold that did not get smaller */
+    private final AtomicLong incompressibleCnt = new AtomicLong();
+
+    /** serialized bytes of the compressed values now in memory */
+    private long uncompressedBytes = 0;
+
+    /** compressed bytes of the compressed values now in memory */
+    private long compressedBytes = 0;
+
+    /** number of values decompressed */
+    private final AtomicLong decompressedCnt = new AtomicLong();
+
+    /**
+     * Compresses the value of the element if it is large enough. This runs before the cache is
+     * locked, so serializing and compressing a large value does not hold up other threads.
+     * <p>
+     * @param ce
+     * @return the compressed element, or the element itself
+     */
+    @Override
+    protected ICacheElement<K, V> prepareForUpdate( ICacheElement<K, V> ce )
+    {
+        return compress( ce );
+    }
+
+    /**
+     * Counts a compressed element as it goes into memory.
+     * <p>
+     * @param ce
+     * @return MemoryElementDescriptor the new node
+     * @throws IOException
+     */
+    @Override
+    protected MemoryElementDescriptor<K, V> adjustListForUpdate( ICacheElement<K, V> ce )
+        throws IOException
+    {
+        if ( ce instanceof CacheElementCompressed )
+        {
+            CacheElementCompressed<K, V> compressed = (CacheElementCompressed<K, V>) ce;
+            compressedCnt++;
+            uncompressedBytes += compressed.getUncompressedLength();
+            compressedBytes += compressed.getCompressedValue().length;
+        }
+        return super.adjustListForUpdate( ce );
+    }
+
+    /**
+     * Gets the element, decompressing it if needed.
+     * <p>
+     * @param key
+     * @return the element, or null if it is not in memory
+     * @throws IOException
+     */
+    @Override
+    public ICacheElement<K, V> get( K key )
+        throws IOException
+    {
+        return decompress( super.get( key ) );
+    }
+
+    /**
+     * Gets the element without moving it, decompressing it if needed.
+     * <p>
+     * @param key
+     * @return the element, or null if it is not in memory
+     * @throws IOException
+     */
+    @Override
+    public ICacheElement<K, V> getQuiet( K key )
+        throws IOException
+    {
+        return decompress( super.getQuiet( key ) );
+    }
+
+    /**
+     * Decompresses the element before it is spooled.
+     * <p>
+     * @param ce
+     * @throws IOException
+     */
+    @Override
+    public void waterfal( ICacheElement<K, V> ce )
+        throws IOException
+    {
+        super.waterfal( decompress( ce ) );
+    }
+
+    /**
+     * Takes a compressed element that left memory, because it was removed, replaced or spooled,
+     * off the byte counts.
+     * <p>
+     * @param me
+     */
+    @Override
+    protected void releaseWeight( MemoryElementDescriptor<K, V> me )
+    {
+        super.releaseWeight( me );
+
+        if ( me.ce instanceof CacheElementCompressed )
+        {
+            CacheElementCompressed<K, V> compressed = (CacheElementCompressed<K, V>) me.ce;
+            uncompressedBytes -= compressed.getUncompressedLength();
+            compressedBytes -= compressed.getCompressedValue().length;
+        }
+    }
+
+    /**
+     * Clears memory and the byte counts.
+     * <p>
+     * @throws IOException
+     */
+    @Override
+    public synchronized void removeAll()
+        throws IOException
+    {
+        super.removeAll();
+        uncompressedBytes = 0;
+        compressedBytes = 0;
+    }
+
+    /**
+     * Serializes the value and compresses it if it reaches the threshold and gets smaller.
+     * <p>
+     * @param ce
+     * @return the compressed element, or the element itself
+     */
+    private ICacheElement<K, V> compress( ICacheElement<K, V> ce )
+    {
+        if ( ce instanceof CacheElementCompressed || ce instanceof ICacheElementSerialized || ce.getVal() == null )
+        {
+            return ce;
+        }
+
+        byte[] serialized;
+        byte[] compressed;
+        try
+        {
+            serialized = serializer.serialize( ce.getVal() );
+            if ( serialized.length < cacheAttributes.getMemoryCompressionThreshold() )
+            {
+                return ce;
+            }
+            compressed = CompressionUtil.compressByteArray( serialized, BUFFER_LENGTH, Deflater.BEST_SPEED );
+        }
+        catch ( IOException e )
+        {
+            log.warn( cacheName + ": could not compress the value of " + ce.getKey() + ", keeping it as it is", e );
+            return ce;
+        }
+
+        if ( compressed.length >= serialized.length )
+        {
+            incompressibleCnt.incrementAndGet();
+            return ce;
+        }
+
+        return new CacheElementCompressed<K, V>( ce.getCacheName(), ce.getKey(), compressed, serialized.length,
+                                                 ce.getElementAttributes() );
+    }
+
+    /**
+     * @param ce may be null
+     * @return a plain element with the decompressed value, or the element itself
+     */
+    private ICacheElement<K, V> decompress( ICacheElement<K, V> ce )
+    {
+        if ( !( ce instanceof CacheElementCompressed ) )
+        {
+            return ce;
+        }
+
+        decompressedCnt.incrementAndGet();
+        return new CacheElement<K, V>( ce.getCacheName(), ce.getKey(), ce.getVal(), ce.getElementAttributes() );
+    }
+
+    /**
+     * Adds the compression figures to the LRU statistics.
+     * <p>
+     * @return the statistics
+     */
+    @Override
+    public synchronized IStats getStatistics()
+    {
+        IStats stats = super.getStatistics();
+        stats.setTypeName( "Compressing Memory Cache" );
+
+        List<IStatElement> elems = new ArrayList<IStatElement>( Arrays.asList( stats.getStatElements() ) );
+        elems.add( createStatElement( "Compression Threshold", "" + cacheAttributes.getMemoryCompressionThreshold() ) );
+        elems.add( createStatElement( "Compressed Count", "" + compressedCnt ) );
+        elems.add( createStatElement( "Incompressible Count", "" + incompressibleCnt.get() ) );
+        elems.add( createStatElement( "Uncompressed Bytes", "" + uncompressedBytes ) );
+        elems.add( createStatElement( "Compressed Bytes", "" + compressedBytes ) );
+        elems.add( createStatElement( "Decompressed Count", "" + decompressedCnt.get() ) );
+
+        stats.setStatElements( elems.toArray( new StatElement[0] ) );
+        return stats;
+    }
+
+    /**
+     * @return the number of values compressed so far, including those that left memory since
+     */
+    public synchronized int getCompressedCount()
+    {
+        return compressedCnt;
+    }
+
+    /**
+     * @return the serialized bytes of the compressed values now in memory
+     */
+    public synchronized long getUncompressedBytes()
+    {
+        return uncompressedBytes;
+    }
+
+    /**
+     * @return the compressed bytes of the compressed values now in memory
+     */
+    public synchronized long getCompressedBytes()
+    {
+        return compressedBytes;
+    }
+
+    /**
+     * @param name
+     * @param data
+     * @return a stat element
+     */
+    private static IStatElement createStatElement( String name, String data )
+    {
+        IStatElement se = new StatElement();
+        se.setName( name );
+        se.setData( data );
+        return se;
+    }
+}
@@ -0,0 +1,598 @@
+package org.apache.commons.jcs.engine.memory.lru;
+
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+import java.io.IOException;
+import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.concurrent.locks.ReentrantLock;
+
+import org.apache.commons.jcs.engine.CacheConstants;
+import org.apache.commons.jcs.engine.behavior.ICacheElement;
+import org.apache.commons.jcs.engine.control.CompositeCache;
+import org.apache.commons.jcs.engine.control.group.GroupAttrName;
+import org.apache.commons.jcs.engine.memory.AbstractMemoryCache;
+import org.apache.commons.jcs.engine.memory.util.MemoryElementDescriptor;
+import org.apache.commons.jcs.engine.stats.StatElement;
+import org.apache.commons.jcs.engine.stats.Stats;
+import org.apache.commons.jcs.engine.stats.behavior.IStatElement;
+import org.apache.commons.jcs.engine.stats.behavior.IStats;
+import org.apache.commons.jcs.utils.struct.DoubleLinkedList;
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+
+/**
+ * An LRU memory cache whose hits do not take a lock.
+ * <p>
+ * Elements are held in a concurrent map. A hit does not move the element in the LRU list right
+ * away; it records the element in one of several small read buffers, picked by thread, and
+ * returns. The buffered hits are replayed against the list in batches, by the reader that fills
+ * a buffer if the list lock is free, and by every put and removal before it changes the list. A
+ * hit that finds its buffer full is dropped: the element then simply looks a little older than
+ * it is, which is the price of never waiting on a read.
+ * <p>
+ * Puts and removals change the map and the list under one lock, and the elements pushed out of
+ * memory are spooled after it is released.
+ */
+public class ConcurrentLRUMemoryCache<K extends Serializable, V extends Serializable>
+    extends AbstractMemoryCache<K, V>
+{
+    /** Don't change. */
+    private static final long serialVersionUID = -5317404567541622135L;
+
+    /** The logger. */
+    private final static Log log = LogFactory.getLog( ConcurrentLRUMemoryCache.class );
+
+    /** Largest number of read buffers */
+    private static final int MAX_BUFFERS = 16;
+
+    /** Guards the list and all changes to the map */
+    private final ReentrantLock evictionLock = new ReentrantLock();
+
+    /** The elements, most recently used first */
+    private DoubleLinkedList<ConcurrentLRUElementDescriptor<K, V>> list;
+
+    /** Recorded hits waiting to be applied to the list */
+    private ReadBuffer[] readBuffers;
+
+    /** number of hits */
+    private final AtomicInteger hitCnt = new AtomicInteger();
+
+    /** number of misses */
+    private final AtomicInteger missCnt = new AtomicInteger();
+
+    /** number of puts */
+    private final AtomicInteger putCnt = new AtomicInteger();
+
+    /** number of hits not recorded because their buffer was full */
+    private final AtomicInteger droppedReadCnt = new AtomicInteger();
+
+    /** number of times the read buffers were drained */
+    private int drainCnt = 0;
+
+    /**
+     * For post reflection creation initialization
+     * <p>
+     * @param hub
+     */
+    @Override
+    public synchronized void initialize( CompositeCache<K, V> hub )
+    {
+        super.initialize( hub );
+        list = new DoubleLinkedList<ConcurrentLRUElementDescriptor<K, V>>();
+
+        int buffers = 1;
+        while ( buffers < Runtime.getRuntime().availableProcessors() && buffers < MAX_BUFFERS )
+        {
+            buffers <<= 1;
+        }
+        readBuffers = new ReadBuffer[buffers];
+        for ( int i = 0; i < buffers; i++ )
+        {
+            readBuffers[i] = new ReadBuffer();
+        }
+
+        log.info( "initialized ConcurrentLRUMemoryCache for " + cacheName + " with " + buffers + " read buffers" );
+    }
+
+    /**
+     * Hits are served without a lock, so the map has to be concurrent.
+     * <p>
+     * @return a concurrent map
+     */
+    @Override
+    public Map<K, MemoryElementDescriptor<K, V>> createMap()
+    {
+        return new ConcurrentHashMap<K, MemoryElementDescriptor<K, V>>();
+    }
+
+    /**
+     * Gets the element and records the hit in a read buffer. The list is only reordered if this
+     * hit fills the buffer and nobody else holds the list lock.
+     * <p>
+     * @param key
+     * @return the element or null
+     * @throws IOException
+     */
+    @Override
+    public ICacheElement<K, V> get( K key )
+        throws IOException
+    {
+        ConcurrentLRUElementDescriptor<K, V> me = (ConcurrentLRUElementDescriptor<K, V>) map.get( key );
+        if ( me == null )
+        {
+            missCnt.incrementAndGet();
+            if ( log.isDebugEnabled() )
+            {
+                log.debug( cacheName + ": ConcurrentLRUMemoryCache miss for " + key );
+            }
+            return null;
+        }
+
+        hitCnt.incrementAndGet();
+        me.ce.getElementAttributes().setLastAccessTimeNow();
+        if ( log.isDebugEnabled() )
+        {
+            log.debug( cacheName + ": ConcurrentLRUMemoryCache hit for " + key );
+        }
+
+        ReadBuffer buffer = readBuffers[(int) Thread.currentThread().getId() & ( readBuffers.length - 1 )];
+        int pending = buffer.offer( me );
+        if ( pending < 0 )
+        {
+            droppedReadCnt.incrementAndGet();
+        }
+        if ( ( pending < 0 || pending >= ReadBuffer.DRAIN_THRESHOLD ) && evictionLock.tryLock() )
+        {
+            try
+            {
+                drainReadBuffers();
+            }
+            finally
+            {
+                evictionLock.unlock();
+            }
+        }
+
+        return me.ce;
+    }
+
+    /**
+     * Puts the element first in the list, replacing the element of the same key, and spools the
+     * least recently used elements beyond MaxObjects or MaxMemoryBytes.
+     * <p>
+     * @param ce
+     * @throws IOException
+     */
+    @Override
+    public void update( ICacheElement<K, V> ce )
+        throws IOException
+    {
+        putCnt.incrementAndGet();
+        ce.getElementAttributes().setLastAccessTimeNow();
+
+        List<ICacheElement<K, V>> spooled = new ArrayList<ICacheElement<K, V>>();
+        boolean kept = true;
+
+        evictionLock.lock();
+        try
+        {
+            drainReadBuffers();
+
+            ConcurrentLRUElementDescriptor<K, V> me = new ConcurrentLRUElementDescriptor<K, V>( ce );
+            chargeWeight( me );
+            ConcurrentLRUElementDescriptor<K, V> old = (ConcurrentLRUElementDescriptor<K, V>) map.put( ce.getKey(), me );
+            if ( old != null )
+            {
+                unlink( old );
+            }
+            list.addFirst( me );
+            me.linked = true;
+
+            while ( isOverCapacity() )
+            {
+                ConcurrentLRUElementDescriptor<K, V> last = list.getLast();
+                if ( last == null )
+                {
+                    break;
+                }
+                unlink( last );
+                map.remove( last.ce.getKey() );
+                spooled.add( last.ce );
+                kept = last != me;
+            }
+        }
+        finally
+        {
+            evictionLock.unlock();
+        }
+
+        for ( ICacheElement<K, V> element : spooled )
+        {
+            waterfal( element );
+        }
+
+        if ( kept )
+        {
+            scheduleExpiration( ce );
+        }
+    }
+
+    /**
+     * Spools the given number of least recently used elements.
+     * <p>
+     * @param numberToFree
+     * @return the number spooled
+     * @throws IOException
+     */
+    public int freeElements( int numberToFree )
+        throws IOException
+    {
+        List<ICacheElement<K, V>> spooled = new ArrayList<ICacheElement<K, V>>();
+
+        evictionLock.lock();
+        try
+        {
+            drainReadBuffers();
+
+            while ( spooled.size() < numberToFree )
+            {
+                ConcurrentLRUElementDescriptor<K, V> last = list.getLast();
+                if ( last == null )
+                {
+                    break;
+                }
+                unlink( last );
+                map.remove( last.ce.getKey() );
+                spooled.add( last.ce );
+            }
+        }
+        finally
+        {
+            evictionLock.unlock();
+        }
+
+        for ( ICacheElement<K, V> element : spooled )
+        {
+            waterfal( element );
+        }
+        return spooled.size();
+    }
+
+    /**
+     * Removes an item from the cache. This method handles hierarchical removal. If the key is a
+     * String and ends with the CacheConstants.NAME_COMPONENT_DELIMITER, then all items with keys
+     * starting with the argument String will be removed.
+     * <p>
+     * @param key
+     * @return true if the removal was successful
+     * @throws IOException
+     */
+    @Override
+    public boolean remove( K key )
+        throws IOException
+    {
+        if ( log.isDebugEnabled() )
+        {
+            log.debug( "removing item for key: " + key );
+        }
+
+        boolean removed = false;
+
+        evictionLock.lock();
+        try
+        {
+            drainReadBuffers();
+
+            if ( key instanceof String && ( (String) key ).endsWith( CacheConstants.NAME_COMPONENT_DELIMITER ) )
+            {
+                // remove all keys of the same name hierarchy.
+                for ( Iterator<Map.Entry<K, MemoryElementDescriptor<K, V>>> itr = map.entrySet().iterator(); itr.hasNext(); )
+                {
+                    Map.Entry<K, MemoryElementDescriptor<K, V>> entry = itr.next();
+                    K k = entry.getKey();
+
+                    if ( k instanceof String && ( (String) k ).startsWith( key.toString() ) )
+                    {
+                        unlink( entry.getValue() );
+                        itr.remove();
+                        removed = true;
+                    }
+                }
+            }
+            else if ( key instanceof GroupAttrName )
+            {
+                // remove all keys of the same group.
+                for ( Iterator<Map.Entry<K, MemoryElementDescriptor<K, V>>> itr = map.entrySet().iterator(); itr.hasNext(); )
+                {
+                    Map.Entry<K, MemoryElementDescriptor<K, V>> entry = itr.next();
+                    K k = entry.getKey();
+
+                    if ( k instanceof GroupAttrName
+                        && ( (GroupAttrName<?>) k ).groupId.equals( ( (GroupAttrName<?>) key ).groupId ) )
+                    {
+                        unlink( entry.getValue() );
+                        itr.remove();
+                        removed = true;
+                    }
+                }
+            }
+            else
+            {
+                MemoryElementDescriptor<K, V> me = map.remove( key );
+                if ( me != null )
+                {
+                    unlink( me );
+                    removed = true;
+                }
+            }
+        }
+        finally
+        {
+            evictionLock.unlock();
+        }
+
+        return removed;
+    }
+
+    /**
+     * Removes all of the elements from both the map and the list.
+     * <p>
+     * @throws IOException
+     */
+    @Override
+    public void removeAll()
+        throws IOException
+    {
+        evictionLock.lock();
+        try
+        {
+            drainReadBuffers();
+            for ( MemoryElementDescriptor<K, V> me : map.values() )
+            {
+                ( (ConcurrentLRUElementDescriptor<K, V>) me ).linked = false;
+            }
+            map.clear();
+            list.removeAll();
+            totalWeight.set( 0 );
+        }
+        finally
+        {
+            evictionLock.unlock();
+        }
+    }
+
+    /**
+     * @return a copy of the keys
+     */
+    @Override
+    public Set<K> getKeySet()
+    {
+        return new LinkedHashSet<K>( map.keySet() );
+    }
+
+    /**
+     * Applies the recorded hits to the list, oldest first. Hits on elements that left memory in
+     * the meantime are ignored. The caller holds the lock.
+     */
+    private void drainReadBuffers()
+    {
+        for ( ReadBuffer buffer : readBuffers )
+        {
+            buffer.drainTo( this );
+        }
+        drainCnt++;
+    }
+
+    /**
+     * Moves a buffered hit to the front of the list. The caller holds the lock.
+     * <p>
+     * @param me
+     */
+    void applyRead( ConcurrentLRUElementDescriptor<K, V> me )
+    {
+        if ( me.linked )
+        {
+            list.makeFirst( me );
+        }
+    }
+
+    /**
+     * Takes the element off the list and gives back its weight. The caller holds the lock.
+     * <p>
+     * @param me
+     */
+    private void unlink( MemoryElementDescriptor<K, V> me )
+    {
+        ConcurrentLRUElementDescriptor<K, V> node = (ConcurrentLRUElementDescriptor<K, V>) me;
+        if ( node.linked )
+        {
+            list.remove( node );
+            node.linked = false;
+            releaseWeight( node );
+        }
+    }
+
+    /**
+     * @return the number of elements on the list, after the pending hits are applied
+     */
+    protected int getListSize()
+    {
+        evictionLock.lock();
+        try
+        {
+            drainReadBuffers();
+            return list.size();
+        }
+        finally
+        {
+            evictionLock.unlock();
+        }
+    }
+
+    /**
+     * This returns semi-structured information on the memory cache, such as the size and the
+     * hit, miss and dropped read counts.
+     * <p>
+     * @return the stats
+     */
+    @Override
+    public IStats getStatistics()
+    {
+        IStats stats = new Stats();
+        stats.setTypeName( "Concurrent LRU Memory Cache" );
+
+        List<IStatElement> elems = new ArrayList<IStatElement>();
+
+        int listSize;
+        int drains;
+        evictionLock.lock();
+        try
+        {
+            listSize = list.size();
+            drains = drainCnt;
+        }
+        finally
+        {
+            evictionLock.unlock();
+        }
+
+        elems.add( createStatElement( "List Size", listSize ) );
+        elems.add( createStatElement( "Map Size", map.size() ) );
+        elems.add( createStatElement( "Put Count", putCnt.get() ) );
+        elems.add( createStatElement( "Hit Count", hitCnt.get() ) );
+        elems.add( createStatElement( "Miss Count", missCnt.get() ) );
+        elems.add( createStatElement( "Dropped Read Count", droppedReadCnt.get() ) );
+        elems.add( createStatElement( "Read Buffer Drain Count", drains ) );
+        addWeightStatistics( elems );
+
+        stats.setStatElements( elems.toArray( new StatElement[0] ) );
+
+        return stats;
+    }
+
+    /**
+     * @param name
+     * @param value
+     * @return a stat element
+     */
+    private static IStatElement createStatElement( String name, int value )
+    {
+        IStatElement se = new StatElement();
+        se.setName( name );
+        se.setData( "" + value );
+        return se;
+    }
+
+    /**
+     * A descriptor that knows whether it is on the list.
+     */
+    static class ConcurrentLRUElementDescriptor<K extends Serializable, V extends Serializable>
+        extends MemoryElementDescriptor<K, V>
+    {
+        /** Don't change. */
+        private static final long serialVersionUID = 4311325283417339546L;
+
+        /** Whether the element is on the list. Written under the lock. */
+        volatile boolean linked;
+
+        /**
+         * @param ce
+         */
+        ConcurrentLRUElementDescriptor( ICacheElement<K, V> ce )
+        {
+            super( ce );
+        }
+    }
+
+    /**
+     * A bounded ring of recorded hits. Any number of readers add to it without locking; a full
+     * buffer rejects the hit. It is drained by one thread at a time, under the cache's lock.
+     */
+    static final class ReadBuffer
+    {
+        /** Number of slots, a power of two */
+        static final int SIZE = 32;
+
+        /** Number of pending hits at which a reader tries to drain */
+        static final int DRAIN_THRESHOLD = SIZE / 2;
+
+        /** The recorded descriptors */
+        private final AtomicReferenceArray<Object> slots = new AtomicReferenceArray<Object>( SIZE );
+
+        /** Number of hits ever added */
+        private final AtomicLong writeCount = new AtomicLong();
+
+        /** Number of hits ever drained, only written under the lock */
+        private volatile long readCount = 0;
+
+        /**
+         * Records the hit unless the buffer is full.
+         * <p>
+         * @param me
+         * @return the number of hits now pending, or -1 if the hit was dropped
+         */
+        int offer( Object me )
+        {
+            long head = readCount;
+            long tail = writeCount.get();
+            if ( tail - head >= SIZE || !writeCount.compareAndSet( tail, tail + 1 ) )
+            {
+                return -1;
+            }
+            slots.lazySet( (int) ( tail & ( SIZE - 1 ) ), me );
+            return (int) ( tail + 1 - head );
+        }
+
+        /**
+         * Applies the pending hits in the order they were added. A slot whose writer has not
+         * stored its descriptor yet ends the drain; it is picked up by the next one.
+         * <p>
+         * @param cache
+         */
+        @SuppressWarnings("unchecked")
+        <K extends Serializable, V extends Serializable> void drainTo( ConcurrentLRUMemoryCache<K, V> cache )
+        {
+            long head = readCount;
+            long tail = writeCount.get();
+            for ( ; head < tail; head++ )
+            {
+                int index = (int) ( head & ( SIZE - 1 ) );
+                Object me = slots.get( index );
+                if ( me == null )
+                {
+                    break;
+                }
+                slots.lazySet( index, null );
+                cache.applyRead( (ConcurrentLRUElementDescriptor<K, V>) me );
+            }
+            readCount = head;
+        }
+    }
+}
@@ -98,6 +98,7 @@ public class LHMLRUMemoryCache<K extends Serializable, V extends Serializable>
         putCnt++;
         ce.getElementAttributes().setLastAccessTimeNow();
         map.put( ce.getKey(), new MemoryElementDescriptor<K, V>(ce) );
+        scheduleExpiration( ce );
     }
 
     /**
@@ -112,7 +113,8 @@ public class LHMLRUMemoryCache<K extends Serializable, V extends Serializable>
     public ICacheElement<K, V> getQuiet( K key )
         throws IOException
     {
-        return map.get( key ).ce;
+        MemoryElementDescriptor<K, V> me = map.get( key );
+        return me != null ? me.ce : null;
     }
 
     /**
@@ -0,0 +1,53 @@
+package org.apache.commons.jcs.engine.memory.lru;
+
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+import java.io.Serializable;
+import java.util.Map;
+
+import org.apache.commons.jcs.engine.memory.util.MemoryElementDescriptor;
+import org.apache.commons.jcs.utils.struct.LongKeyMap;
+
+/**
+ * An LRU memory cache for regions whose keys are all Longs.
+ * <p>
+ * The lookup map is a {@link LongKeyMap}, which keeps the keys in a primitive array instead of
+ * boxing them into hash map entries. Large regions keyed by ids take much less memory and garbage
+ * collection work this way. The list that keeps the LRU order is the same as in the
+ * {@link LRUMemoryCache}. Putting a key that is not a Long into the region fails with a
+ * ClassCastException.
+ */
+public class LongKeyLRUMemoryCache<V extends Serializable>
+    extends LRUMemoryCache<Long, V>
+{
+    /** Don't change */
+    private static final long serialVersionUID = -4330214581394749012L;
+
+    /**
+     * The long key map is synchronized on itself, like the synchronized map of the other caches.
+     * <p>
+     * @return a primitive long key map
+     */
+    @Override
+    public Map<Long, MemoryElementDescriptor<Long, V>> createMap()
+    {
+        return new LongKeyMap<MemoryElementDescriptor<Long, V>>();
+    }
+}
@@ -0,0 +1,347 @@
+package org.apache.commons.jcs.engine.memory.offheap;
+
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+import java.io.IOException;
+import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Set;
+
+import org.apache.commons.jcs.engine.CacheConstants;
+import org.apache.commons.jcs.engine.behavior.ICacheElement;
+import org.apache.commons.jcs.engine.control.CompositeCache;
+import org.apache.commons.jcs.engine.control.group.GroupAttrName;
+import org.apache.commons.jcs.engine.memory.lru.LRUMemoryCache;
+import org.apache.commons.jcs.engine.memory.util.MemoryElementDescriptor;
+import org.apache.commons.jcs.engine.stats.StatElement;
+import org.apache.commons.jcs.engine.stats.behavior.IStatElement;
+import org.apache.commons.jcs.engine.stats.behavior.IStats;
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+
+/**
+ * An LRU memory cache with a second, off-heap tier.
+ * <p>
+ * Elements spooled from the heap, because MaxObjects or MaxMemoryBytes was reached or because they
+ * were idle too long, are serialized into an {@link OffHeapStore} instead of going to disk. Only
+ * the elements evicted from there, the oldest first, are spooled to the disk auxiliaries. A get
+ * that finds an element off-heap moves it back to the heap.
+ * <p>
+ * The off-heap tier is sized with OffHeapMaxBytes. It does not count against the heap limits, but
+ * its elements are part of the size and the key set of the memory cache. Freeing elements, as the
+ * region does when it is disposed, sends the off-heap elements to disk first and then the heap
+ * elements.
+ */
+public class OffHeapMemoryCache<K extends Serializable, V extends Serializable>
+    extends LRUMemoryCache<K, V>
+{
+    /** Don't change */
+    private static final long serialVersionUID = -1813914447317367151L;
+
+    /** The logger */
+    private final static Log log = LogFactory.getLog( OffHeapMemoryCache.class );
+
+    /** The off-heap tier */
+    private OffHeapStore<K, V> store;
+
+    /** number of gets answered from the off-heap tier */
+    private int offHeapHitCnt = 0;
+
+    /**
+     * Creates the off-heap tier.
+     * <p>
+     * @param hub
+     */
+    @Override
+    public synchronized void initialize( CompositeCache<K, V> hub )
+    {
+        super.initialize( hub );
+        store = new OffHeapStore<K, V>( cacheAttributes.getOffHeapMaxBytes() );
+        log.info( "initialized off-heap tier for " + cacheName + " of "
+            + cacheAttributes.getOffHeapMaxBytes() + " bytes" );
+    }
+
+    /**
+     * Drops any older copy of the element from the off-heap tier before it goes on the heap.
+     * <p>
+     * @param ce
+     * @return MemoryElementDescriptor the new node
+     * @throws IOException
+     */
+    @Override
+    protected MemoryElementDescriptor<K, V> adjustListForUpdate( ICacheElement<K, V> ce )
+        throws IOException
+    {
+        store.remove( ce.getKey() );
+        return super.adjustListForUpdate( ce );
+    }
+
+    /**
+     * Looks on the heap, then off-heap. An element found off-heap is moved back to the heap and
+     * counted as a hit, not as a heap miss followed by a put.
+     * <p>
+     * @param key
+     * @return the element, or null if it is in neither tier
+     * @throws IOException
+     */
+    @Override
+    public synchronized ICacheElement<K, V> get( K key )
+        throws IOException
+    {
+        if ( !map.containsKey( key ) )
+        {
+            ICacheElement<K, V> ce = store.take( key );
+            if ( ce != null )
+            {
+                offHeapHitCnt++;
+                hitCnt++;
+                if ( log.isDebugEnabled() )
+                {
+                    log.debug( cacheName + ": off-heap hit for " + key );
+                }
+                restore( ce );
+                return ce;
+            }
+        }
+        return super.get( key );
+    }
+
+    /**
+     * Looks on the heap, then off-heap, without moving anything.
+     * <p>
+     * @param key
+     * @return the element, or null if it is in neither tier
+     * @throws IOException
+     */
+    @Override
+    public synchronized ICacheElement<K, V> getQuiet( K key )
+        throws IOException
+    {
+        ICacheElement<K, V> ce = super.getQuiet( key );
+        if ( ce == null )
+        {
+            ce = store.peek( key );
+        }
+        return ce;
+    }
+
+    /**
+     * Puts the element in the off-heap tier. Whatever does not fit there is spooled to disk.
+     * <p>
+     * @param ce
+     * @throws IOException
+     */
+    @Override
+    public void waterfal( ICacheElement<K, V> ce )
+        throws IOException
+    {
+        List<ICacheElement<K, V>> overflow;
+        try
+        {
+            overflow = store.put( ce );
+        }
+        catch ( IOException e )
+        {
+            log.warn( "Could not keep element off-heap, spooling it: " + ce.getKey(), e );
+            super.waterfal( ce );
+            return;
+        }
+
+        for ( ICacheElement<K, V> element : overflow )
+        {
+            super.waterfal( element );
+        }
+    }
+
+    /**
+     * Spools the oldest off-heap elements to disk, then the heap elements in LRU order.
+     * <p>
+     * @param numberToFree
+     * @return the number that were spooled
+     * @throws IOException
+     */
+    @Override
+    public synchronized int freeElements( int numberToFree )
+        throws IOException
+    {
+        int freed = 0;
+        for ( ICacheElement<K, V> element : store.evict( numberToFree ) )
+        {
+            super.waterfal( element );
+            freed++;
+        }
+
+        if ( freed < numberToFree )
+        {
+            // the off-heap tier is empty, so what the heap spools to it comes straight back out
+            int moved = super.freeElements( Math.min( numberToFree - freed, super.getSize() ) );
+            for ( ICacheElement<K, V> element : store.evict( moved ) )
+            {
+                super.waterfal( element );
+            }
+            freed += moved;
+        }
+
+        return freed;
+    }
+
+    /**
+     * Removes the element from both tiers. Handles partial and group removal like the LRU cache.
+     * <p>
+     * @param key
+     * @return true if anything was removed
+     * @throws IOException
+     */
+    @Override
+    public synchronized boolean remove( K key )
+        throws IOException
+    {
+        boolean removed = super.remove( key );
+
+        if ( key instanceof String && ( (String) key ).endsWith( CacheConstants.NAME_COMPONENT_DELIMITER ) )
+        {
+            for ( K k : store.getKeySet() )
+            {
+                if ( k instanceof String && ( (String) k ).startsWith( key.toString() ) )
+                {
+                    removed |= store.remove( k );
+                }
+            }
+        }
+        else if ( key instanceof GroupAttrName )
+        {
+            for ( K k : store.getKeySet() )
+            {
+                if ( k instanceof GroupAttrName
+                    && ( (GroupAttrName<?>) k ).groupId.equals( ( (GroupAttrName<?>) key ).groupId ) )
+                {
+                    removed |= store.remove( k );
+                }
+            }
+        }
+        else
+        {
+            removed |= store.remove( key );
+        }
+
+        return removed;
+    }
+
+    /**
+     * Empties both tiers.
+     * <p>
+     * @throws IOException
+     */
+    @Override
+    public synchronized void removeAll()
+        throws IOException
+    {
+        super.removeAll();
+        store.clear();
+    }
+
+    /**
+     * @return the keys in both tiers
+     */
+    @Override
+    public synchronized Set<K> getKeySet()
+    {
+        Set<K> keys = super.getKeySet();
+        keys.addAll( store.getKeySet() );
+        return keys;
+    }
+
+    /**
+     * @return the number of elements in both tiers
+     */
+    @Override
+    public int getSize()
+    {
+        return super.getSize() + store.size();
+    }
+
+    /**
+     * @return the number of elements on the heap
+     */
+    public int getHeapSize()
+    {
+        return super.getSize();
+    }
+
+    /**
+     * @return the number of elements off-heap
+     */
+    public int getOffHeapSize()
+    {
+        return store.size();
+    }
+
+    /**
+     * Releases the off-heap memory.
+     * <p>
+     * @throws IOException
+     */
+    @Override
+    public void dispose()
+        throws IOException
+    {
+        super.dispose();
+        store.dispose();
+    }
+
+    /**
+     * Adds the off-heap tier to the LRU statistics.
+     * <p>
+     * @return the statistics
+     */
+    @Override
+    public synchronized IStats getStatistics()
+    {
+        IStats stats = super.getStatistics();
+        stats.setTypeName( "Off-Heap Memory Cache" );
+
+        List<IStatElement> elems = new ArrayList<IStatElement>( Arrays.asList( stats.getStatElements() ) );
+        elems.add( createStatElement( "Off-Heap Hit Count", "" + offHeapHitCnt ) );
+        elems.add( createStatElement( "Off-Heap Size", "" + store.size() ) );
+        elems.add( createStatElement( "Off-Heap Blocks In Use", "" + store.getBlocksInUse() ) );
+        elems.add( createStatElement( "Off-Heap Data Bytes", "" + store.getDataBytes() ) );
+        elems.add( createStatElement( "Off-Heap Allocated Bytes", "" + store.getAllocatedBytes() ) );
+        elems.add( createStatElement( "Off-Heap Eviction Count", "" + store.getEvictionCount() ) );
+        elems.add( createStatElement( "Off-Heap Rejected Count", "" + store.getRejectedCount() ) );
+
+        stats.setStatElements( elems.toArray( new StatElement[0] ) );
+        return stats;
+    }
+
+    /**
+     * @param name
+     * @param data
+     * @return a stat element
+     */
+    private static IStatElement createStatElement( String name, String data )
+    {
+        IStatElement se = new StatElement();
+        se.setName( name );
+        se.setData( data );
+        return se;
+    }
+}
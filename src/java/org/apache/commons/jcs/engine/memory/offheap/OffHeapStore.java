@@ -0,0 +1,528 @@
+package org.apache.commons.jcs.engine.memory.offheap;
+
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+import java.io.IOException;
+import java.io.Serializable;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import org.apache.commons.jcs.engine.behavior.ICacheElement;
+import org.apache.commons.jcs.engine.behavior.IElementSerializer;
+import org.apache.commons.jcs.utils.serialization.StandardSerializer;
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+
+/**
+ * Keeps serialized cache elements outside of the Java heap.
+ * <p>
+ * The memory is divided into fixed size blocks, much like the block disk cache divides its file.
+ * Blocks are carved out of direct ByteBuffer slabs, which are allocated as they are needed, up to
+ * the configured maximum. An element is written to as many blocks as it takes, and the blocks are
+ * put back on a free list when it is removed. The index keeps the keys in the order the elements
+ * were put, so the oldest elements are the first to be evicted when there is no room.
+ * <p>
+ * Serialization and de-serialization happen outside of the lock; the index, the allocator and the
+ * slabs are guarded by the store.
+ */
+public class OffHeapStore<K extends Serializable, V extends Serializable>
+{
+    /** The logger */
+    private final static Log log = LogFactory.getLog( OffHeapStore.class );
+
+    /** Default size of a block */
+    public static final int DEFAULT_BLOCK_SIZE_BYTES = 1024;
+
+    /** Default size of a slab */
+    public static final int DEFAULT_SLAB_SIZE_BYTES = 1024 * 1024;
+
+    /** Size of a block */
+    private final int blockSize;
+
+    /** Number of blocks in a full slab */
+    private final int blocksPerSlab;
+
+    /** The most blocks that may be allocated */
+    private final int maxBlocks;
+
+    /** The slabs allocated so far */
+    private final List<ByteBuffer> slabs = new ArrayList<ByteBuffer>();
+
+    /** Number of blocks handed out from the slabs, whether in use or free */
+    private int carvedBlocks = 0;
+
+    /** Blocks that were released */
+    private int[] freeBlocks = new int[16];
+
+    /** Number of entries in freeBlocks */
+    private int freeCount = 0;
+
+    /** Where each element is, oldest first */
+    private final LinkedHashMap<K, Entry> index = new LinkedHashMap<K, Entry>();
+
+    /** Turns elements into bytes and back */
+    private final IElementSerializer serializer = new StandardSerializer();
+
+    /** Number of serialized bytes held */
+    private long dataBytes = 0;
+
+    /** Number of elements evicted to make room */
+    private int evictionCount = 0;
+
+    /** Number of elements that were larger than the whole store */
+    private int rejectedCount = 0;
+
+    /**
+     * Creates a store with the default block and slab sizes.
+     * <p>
+     * @param maxBytes the most memory the slabs may take
+     */
+    public OffHeapStore( long maxBytes )
+    {
+        this( maxBytes, DEFAULT_BLOCK_SIZE_BYTES, DEFAULT_SLAB_SIZE_BYTES );
+    }
+
+    /**
+     * Creates a store.
+     * <p>
+     * @param maxBytes the most memory the slabs may take
+     * @param blockSize size of a block
+     * @param slabSize size of a slab, rounded down to a whole number of blocks
+     */
+    public OffHeapStore( long maxBytes, int blockSize, int slabSize )
+    {
+        if ( blockSize <= 0 || slabSize < blockSize )
+        {
+            throw new IllegalArgumentException( "blockSize must be positive and no larger than slabSize" );
+        }
+        this.blockSize = blockSize;
+        this.blocksPerSlab = slabSize / blockSize;
+        this.maxBlocks = (int) Math.min( Math.max( maxBytes, 0 ) / blockSize, Integer.MAX_VALUE );
+    }
+
+    /**
+     * Stores the element, replacing any element with the same key. Elements that are evicted to
+     * make room are returned, oldest first. If the element is larger than the whole store it is
+     * not kept and is returned itself.
+     * <p>
+     * @param ce
+     * @return the elements that no longer fit, never null
+     * @throws IOException if the element cannot be serialized
+     */
+    public List<ICacheElement<K, V>> put( ICacheElement<K, V> ce )
+        throws IOException
+    {
+        byte[] data = serializer.serialize( ce );
+        int needed = Math.max( 1, ( data.length + blockSize - 1 ) / blockSize );
+
+        List<byte[]> evicted = new ArrayList<byte[]>();
+        boolean stored = false;
+
+        synchronized ( this )
+        {
+            release( index.remove( ce.getKey() ) );
+
+            if ( needed <= maxBlocks )
+            {
+                Iterator<Map.Entry<K, Entry>> it = index.entrySet().iterator();
+                while ( available() < needed && it.hasNext() )
+                {
+                    Entry oldest = it.next().getValue();
+                    it.remove();
+                    evicted.add( read( oldest ) );
+                    release( oldest );
+                    evictionCount++;
+                }
+
+                int[] blocks = new int[needed];
+                for ( int i = 0; i < needed; i++ )
+                {
+                    blocks[i] = allocate();
+                }
+                write( blocks, data );
+                index.put( ce.getKey(), new Entry( blocks, data.length ) );
+                dataBytes += data.length;
+                stored = true;
+            }
+            else
+            {
+                rejectedCount++;
+            }
+        }
+
+        List<ICacheElement<K, V>> overflow = new ArrayList<ICacheElement<K, V>>( evicted.size() + 1 );
+        for ( byte[] bytes : evicted )
+        {
+            ICacheElement<K, V> element = deSerialize( bytes );
+            if ( element != null )
+            {
+                overflow.add( element );
+            }
+        }
+        if ( !stored )
+        {
+            overflow.add( ce );
+        }
+        return overflow;
+    }
+
+    /**
+     * Gets an element without removing it.
+     * <p>
+     * @param key
+     * @return the element, or null if it is not held
+     */
+    public ICacheElement<K, V> peek( K key )
+    {
+        byte[] data;
+        synchronized ( this )
+        {
+            Entry entry = index.get( key );
+            if ( entry == null )
+            {
+                return null;
+            }
+            data = read( entry );
+        }
+        return deSerialize( data );
+    }
+
+    /**
+     * Removes an element and returns it.
+     * <p>
+     * @param key
+     * @return the element, or null if it is not held
+     */
+    public ICacheElement<K, V> take( K key )
+    {
+        byte[] data;
+        synchronized ( this )
+        {
+            Entry entry = index.remove( key );
+            if ( entry == null )
+            {
+                return null;
+            }
+            data = read( entry );
+            release( entry );
+        }
+        return deSerialize( data );
+    }
+
+    /**
+     * Removes the oldest elements and returns them.
+     * <p>
+     * @param count how many to remove
+     * @return the elements, oldest first; fewer than asked for if the store runs empty
+     */
+    public List<ICacheElement<K, V>> evict( int count )
+    {
+        List<byte[]> evicted = new ArrayList<byte[]>();
+        synchronized ( this )
+        {
+            Iterator<Map.Entry<K, Entry>> it = index.entrySet().iterator();
+            while ( evicted.size() < count && it.hasNext() )
+            {
+                Entry oldest = it.next().getValue();
+                it.remove();
+                evicted.add( read( oldest ) );
+                release( oldest );
+            }
+        }
+
+        List<ICacheElement<K, V>> elements = new ArrayList<ICacheElement<K, V>>( evicted.size() );
+        for ( byte[] bytes : evicted )
+        {
+            ICacheElement<K, V> element = deSerialize( bytes );
+            if ( element != null )
+            {
+                elements.add( element );
+            }
+        }
+        return elements;
+    }
+
+    /**
+     * Removes an element.
+     * <p>
+     * @param key
+     * @return true if it was held
+     */
+    public synchronized boolean remove( K key )
+    {
+        Entry entry = index.remove( key );
+        release( entry );
+        return entry != null;
+    }
+
+    /**
+     * @param key
+     * @return true if the element is held
+     */
+    public synchronized boolean containsKey( K key )
+    {
+        return index.containsKey( key );
+    }
+
+    /**
+     * @return a copy of the keys, oldest first
+     */
+    public synchronized Set<K> getKeySet()
+    {
+        return new LinkedHashSet<K>( index.keySet() );
+    }
+
+    /**
+     * @return the number of elements held
+     */
+    public synchronized int size()
+    {
+        return index.size();
+    }
+
+    /**
+     * Removes all elements. The slabs are kept for reuse.
+     */
+    public synchronized void clear()
+    {
+        index.clear();
+        carvedBlocks = 0;
+        freeCount = 0;
+        dataBytes = 0;
+    }
+
+    /**
+     * Removes all elements and drops the slabs, so their memory can be reclaimed.
+     */
+    public synchronized void dispose()
+    {
+        clear();
+        slabs.clear();
+    }
+
+    /**
+     * @return the number of blocks holding elements
+     */
+    public synchronized int getBlocksInUse()
+    {
+        return carvedBlocks - freeCount;
+    }
+
+    /**
+     * @return the memory taken by the slabs allocated so far
+     */
+    public synchronized long getAllocatedBytes()
+    {
+        long total = 0;
+        for ( ByteBuffer slab : slabs )
+        {
+            total += slab.capacity();
+        }
+        return total;
+    }
+
+    /**
+     * @return the number of serialized bytes held
+     */
+    public synchronized long getDataBytes()
+    {
+        return dataBytes;
+    }
+
+    /**
+     * @return the number of elements evicted to make room
+     */
+    public synchronized int getEvictionCount()
+    {
+        return evictionCount;
+    }
+
+    /**
+     * @return the number of elements that were larger than the whole store
+     */
+    public synchronized int getRejectedCount()
+    {
+        return rejectedCount;
+    }
+
+    /**
+     * @return the size of a block
+     */
+    public int getBlockSize()
+    {
+        return blockSize;
+    }
+
+    /**
+     * @return the number of blocks that can still be handed out without evicting
+     */
+    private int available()
+    {
+        return freeCount + maxBlocks - carvedBlocks;
+    }
+
+    /**
+     * Takes a free block, or carves a new one, allocating a slab if the last one is full. The
+     * caller must have checked that a block is available.
+     * <p>
+     * @return the block number
+     */
+    private int allocate()
+    {
+        if ( freeCount > 0 )
+        {
+            return freeBlocks[--freeCount];
+        }
+
+        int block = carvedBlocks++;
+        if ( block / blocksPerSlab == slabs.size() )
+        {
+            int slabBlocks = Math.min( blocksPerSlab, maxBlocks - block );
+            slabs.add( ByteBuffer.allocateDirect( slabBlocks * blockSize ) );
+            if ( log.isDebugEnabled() )
+            {
+                log.debug( "Allocated slab " + slabs.size() + " of " + slabBlocks + " blocks" );
+            }
+        }
+        return block;
+    }
+
+    /**
+     * Puts the blocks of the entry back on the free list.
+     * <p>
+     * @param entry may be null
+     */
+    private void release( Entry entry )
+    {
+        if ( entry == null )
+        {
+            return;
+        }
+
+        if ( freeCount + entry.blocks.length > freeBlocks.length )
+        {
+            int[] grown = new int[Math.max( freeBlocks.length * 2, freeCount + entry.blocks.length )];
+            System.arraycopy( freeBlocks, 0, grown, 0, freeCount );
+            freeBlocks = grown;
+        }
+        // reversed so the first block of the entry is the next one handed out
+        for ( int i = entry.blocks.length - 1; i >= 0; i-- )
+        {
+            freeBlocks[freeCount++] = entry.blocks[i];
+        }
+        dataBytes -= entry.length;
+    }
+
+    /**
+     * Copies the data into the blocks.
+     * <p>
+     * @param blocks
+     * @param data
+     */
+    private void write( int[] blocks, byte[] data )
+    {
+        int offset = 0;
+        for ( int block : blocks )
+        {
+            int length = Math.min( blockSize, data.length - offset );
+            ByteBuffer slab = position( block );
+            slab.put( data, offset, length );
+            offset += length;
+        }
+    }
+
+    /**
+     * Copies the data of the entry out of its blocks.
+     * <p>
+     * @param entry
+     * @return the serialized element
+     */
+    private byte[] read( Entry entry )
+    {
+        byte[] data = new byte[entry.length];
+        int offset = 0;
+        for ( int block : entry.blocks )
+        {
+            int length = Math.min( blockSize, data.length - offset );
+            ByteBuffer slab = position( block );
+            slab.get( data, offset, length );
+            offset += length;
+        }
+        return data;
+    }
+
+    /**
+     * @param block
+     * @return the slab holding the block, positioned at its start
+     */
+    private ByteBuffer position( int block )
+    {
+        ByteBuffer slab = slabs.get( block / blocksPerSlab );
+        slab.position( ( block % blocksPerSlab ) * blockSize );
+        return slab;
+    }
+
+    /**
+     * @param data
+     * @return the element, or null if it could not be read back
+     */
+    private ICacheElement<K, V> deSerialize( byte[] data )
+    {
+        try
+        {
+            return serializer.deSerialize( data );
+        }
+        catch ( IOException e )
+        {
+            log.error( "Could not read an element back from off-heap memory", e );
+        }
+        catch ( ClassNotFoundException e )
+        {
+            log.error( "Could not read an element back from off-heap memory", e );
+        }
+        return null;
+    }
+
+    /** The blocks holding an element and its serialized length. */
+    private static final class Entry
+    {
+        /** the blocks, in order */
+        final int[] blocks;
+
+        /** number of bytes written */
+        final int length;
+
+        /**
+         * @param blocks
+         * @param length
+         */
+        Entry( int[] blocks, int length )
+        {
+            this.blocks = blocks;
+            this.length = length;
+        }
+    }
+}
@@ -46,16 +46,16 @@ public class ShrinkerThread<K extends Serializable, V extends Serializable>
     private final static Log log = LogFactory.getLog( ShrinkerThread.class );
 
     /** The MemoryCache instance which this shrinker is watching */
-    private final IMemoryCache<K, V> cache;
+    protected final IMemoryCache<K, V> cache;
 
     /** Maximum memory idle time for the whole cache */
-    private final long maxMemoryIdleTime;
+    protected final long maxMemoryIdleTime;
 
     /** Maximum number of items to spool per run. Default is -1, or no limit. */
-    private final int maxSpoolPerRun;
+    protected final int maxSpoolPerRun;
 
     /** Should we limit the number spooled per run. If so, the maxSpoolPerRun will be used. */
-    private boolean spoolLimit = false;
+    protected boolean spoolLimit = false;
 
     /**
      * Constructor for the ShrinkerThread object.
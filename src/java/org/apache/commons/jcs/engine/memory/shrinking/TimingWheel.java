@@ -0,0 +1,307 @@
+package org.apache.commons.jcs.engine.memory.shrinking;
+
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * A hierarchical timing wheel of keys and their deadlines.
+ * <p>
+ * The first level has one bucket per tick. Deadlines too far out for it go to the next level,
+ * whose buckets each span a full revolution of the level below, and so on. When the first level
+ * completes a revolution, the matching bucket of the level above is cascaded down. Advancing the
+ * wheel therefore only touches the keys that are due and the ones being cascaded, never the
+ * whole population.
+ * <p>
+ * A key is held at most once with its earliest deadline. Scheduling a later deadline for a key
+ * that is already in the wheel is ignored; the caller is expected to check the key again when it
+ * comes due and reschedule it if it is not done yet. This keeps the write path cheap when
+ * deadlines only move forward, as they do for last access times.
+ * <p>
+ * All methods are synchronized.
+ */
+public class TimingWheel<K>
+{
+    /** Default number of buckets per level */
+    public static final int DEFAULT_WHEEL_SIZE = 64;
+
+    /** The earliest deadline in the wheel for each key */
+    private final Map<K, Long> deadlines = new HashMap<K, Long>();
+
+    /** The finest level */
+    private final Level<K> first;
+
+    /** Number of entries held in the buckets, including outdated ones */
+    private int entryCount = 0;
+
+    /**
+     * Creates a wheel with the default number of buckets per level.
+     * <p>
+     * @param tickMillis resolution of the first level
+     * @param startMillis the current time
+     */
+    public TimingWheel( long tickMillis, long startMillis )
+    {
+        this( tickMillis, DEFAULT_WHEEL_SIZE, startMillis );
+    }
+
+    /**
+     * Creates a wheel.
+     * <p>
+     * @param tickMillis resolution of the first level
+     * @param wheelSize number of buckets per level
+     * @param startMillis the current time
+     */
+    public TimingWheel( long tickMillis, int wheelSize, long startMillis )
+    {
+        if ( tickMillis <= 0 || wheelSize <= 0 )
+        {
+            throw new IllegalArgumentException( "tickMillis and wheelSize must be positive" );
+        }
+        this.first = new Level<K>( tickMillis, wheelSize, startMillis );
+    }
+
+    /**
+     * Adds the key with the given deadline, unless it is already held with an earlier one.
+     * <p>
+     * @param key
+     * @param deadline time in millis at which the key is due
+     */
+    public synchronized void schedule( K key, long deadline )
+    {
+        Long current = deadlines.get( key );
+        if ( current != null && current.longValue() <= deadline )
+        {
+            return;
+        }
+
+        deadlines.put( key, Long.valueOf( deadline ) );
+        first.add( new Entry<K>( key, deadline ) );
+        entryCount++;
+    }
+
+    /**
+     * Moves the wheel to the given time and returns the keys whose deadline has passed. Returned
+     * keys are no longer held by the wheel.
+     * <p>
+     * @param now the current time in millis
+     * @return the keys that came due, in no particular order
+     */
+    public synchronized List<K> advance( long now )
+    {
+        List<K> due = new ArrayList<K>();
+
+        if ( entryCount == 0 )
+        {
+            // nothing to cascade, skip the idle ticks
+            first.reset( now );
+            return due;
+        }
+
+        while ( first.currentTime + first.tickMillis <= now )
+        {
+            List<Entry<K>> bucket = first.bucketFor( first.currentTime );
+            for ( Entry<K> entry : bucket )
+            {
+                entryCount--;
+                Long current = deadlines.get( entry.key );
+                // a key that was rescheduled earlier left this entry behind
+                if ( current != null && current.longValue() == entry.deadline )
+                {
+                    deadlines.remove( entry.key );
+                    due.add( entry.key );
+                }
+            }
+            bucket.clear();
+
+            first.currentTime += first.tickMillis;
+            if ( first.overflow != null && first.currentTime % first.intervalMillis == 0 )
+            {
+                List<Entry<K>> cascaded = new ArrayList<Entry<K>>();
+                first.overflow.advance( first.currentTime, cascaded );
+                for ( Entry<K> entry : cascaded )
+                {
+                    first.add( entry );
+                }
+            }
+        }
+
+        return due;
+    }
+
+    /**
+     * @return the number of keys in the wheel
+     */
+    public synchronized int size()
+    {
+        return deadlines.size();
+    }
+
+    /**
+     * Drops all keys.
+     */
+    public synchronized void clear()
+    {
+        deadlines.clear();
+        first.clear();
+        entryCount = 0;
+    }
+
+    /** A key and the deadline it was scheduled with. */
+    private static final class Entry<K>
+    {
+        /** the key */
+        final K key;
+
+        /** when the key is due */
+        final long deadline;
+
+        /**
+         * @param key
+         * @param deadline
+         */
+        Entry( K key, long deadline )
+        {
+            this.key = key;
+            this.deadline = deadline;
+        }
+    }
+
+    /** One level of the wheel. */
+    private static final class Level<K>
+    {
+        /** span of one bucket */
+        final long tickMillis;
+
+        /** span of the whole level */
+        final long intervalMillis;
+
+        /** the buckets, indexed by (deadline / tickMillis) % size */
+        final List<Entry<K>>[] buckets;
+
+        /** start of the current bucket, always a multiple of tickMillis */
+        long currentTime;
+
+        /** the coarser level, created on demand */
+        Level<K> overflow;
+
+        /**
+         * @param tickMillis
+         * @param wheelSize
+         * @param startMillis
+         */
+        @SuppressWarnings({ "unchecked", "rawtypes" })
+        Level( long tickMillis, int wheelSize, long startMillis )
+        {
+            this.tickMillis = tickMillis;
+            this.intervalMillis = tickMillis * wheelSize;
+            this.buckets = new List[wheelSize];
+            for ( int i = 0; i < wheelSize; i++ )
+            {
+                buckets[i] = new ArrayList<Entry<K>>();
+            }
+            this.currentTime = startMillis - ( startMillis % tickMillis );
+        }
+
+        /**
+         * Puts the entry in this level if its deadline falls within one revolution, otherwise in
+         * the next level. Deadlines that already passed go into the current bucket.
+         * <p>
+         * @param entry
+         */
+        void add( Entry<K> entry )
+        {
+            long deadline = Math.max( entry.deadline, currentTime );
+            if ( deadline < currentTime + intervalMillis )
+            {
+                bucketFor( deadline ).add( entry );
+            }
+            else
+            {
+                if ( overflow == null )
+                {
+                    overflow = new Level<K>( intervalMillis, buckets.length, currentTime );
+                }
+                overflow.add( entry );
+            }
+        }
+
+        /**
+         * Moves this level to the given time, a multiple of tickMillis, and hands the entries of
+         * the bucket starting there to the finer levels.
+         * <p>
+         * @param time
+         * @param cascaded receives the entries to add again
+         */
+        void advance( long time, List<Entry<K>> cascaded )
+        {
+            currentTime = time;
+            List<Entry<K>> bucket = bucketFor( time );
+            cascaded.addAll( bucket );
+            bucket.clear();
+
+            if ( overflow != null && time % intervalMillis == 0 )
+            {
+                overflow.advance( time, cascaded );
+            }
+        }
+
+        /**
+         * @param time
+         * @return the bucket covering the time
+         */
+        List<Entry<K>> bucketFor( long time )
+        {
+            return buckets[(int) ( ( time / tickMillis ) % buckets.length )];
+        }
+
+        /**
+         * Moves an empty level and its parents to the given time.
+         * <p>
+         * @param now
+         */
+        void reset( long now )
+        {
+            currentTime = now - ( now % tickMillis );
+            if ( overflow != null )
+            {
+                overflow.reset( now );
+            }
+        }
+
+        /**
+         * Empties this level and its parents.
+         */
+        void clear()
+        {
+            for ( List<Entry<K>> bucket : buckets )
+            {
+                bucket.clear();
+            }
+            if ( overflow != null )
+            {
+                overflow.clear();
+            }
+        }
+    }
+}
@@ -0,0 +1,190 @@
+package org.apache.commons.jcs.engine.memory.shrinking;
+
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+import java.io.Serializable;
+import java.util.List;
+
+import org.apache.commons.jcs.engine.behavior.ICacheElement;
+import org.apache.commons.jcs.engine.behavior.IElementAttributes;
+import org.apache.commons.jcs.engine.memory.behavior.IMemoryCache;
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+
+/**
+ * A memory shrinker that works off an expiration index instead of scanning every key.
+ * <p>
+ * The memory cache calls {@link #schedule(ICacheElement)} on each update. The element's key is
+ * put into a {@link TimingWheel} at the earliest time it could have to be removed or spooled: its
+ * max life, its idle time, or the region's max memory idle time. A shrink run only looks at the
+ * keys that came due. Reads do not touch the index; a key that was used since it was scheduled is
+ * checked when it comes due and put back with its new deadline. Keys that were removed in the
+ * meantime are simply skipped.
+ */
+public class TimingWheelShrinker<K extends Serializable, V extends Serializable>
+    extends ShrinkerThread<K, V>
+{
+    /** The logger */
+    private final static Log log = LogFactory.getLog( TimingWheelShrinker.class );
+
+    /** Resolution of the expiration index */
+    public static final long DEFAULT_TICK_MILLIS = 1000;
+
+    /** The expiration index */
+    private final TimingWheel<K> wheel;
+
+    /**
+     * Constructor for the TimingWheelShrinker object.
+     * <p>
+     * @param cache The MemoryCache which the new shrinker should watch.
+     */
+    public TimingWheelShrinker( IMemoryCache<K, V> cache )
+    {
+        super( cache );
+        this.wheel = new TimingWheel<K>( DEFAULT_TICK_MILLIS, System.currentTimeMillis() );
+    }
+
+    /**
+     * Adds the element to the expiration index. Elements that never expire and are never spooled
+     * for idleness are not indexed.
+     * <p>
+     * @param cacheElement the element that was just put into memory
+     */
+    public void schedule( ICacheElement<K, V> cacheElement )
+    {
+        long deadline = getDeadline( cacheElement );
+        if ( deadline != -1 )
+        {
+            wheel.schedule( cacheElement.getKey(), deadline );
+        }
+    }
+
+    /**
+     * Processes the keys whose deadline has passed since the last run. Elements that expired are
+     * removed, elements that were idle too long are spooled, and the rest are scheduled again.
+     */
+    @Override
+    protected void shrink()
+    {
+        long now = System.currentTimeMillis();
+        List<K> due = wheel.advance( now );
+
+        if ( log.isDebugEnabled() )
+        {
+            log.debug( "Keys due: " + due.size() + ", keys indexed: " + wheel.size() );
+        }
+
+        int spoolCount = 0;
+
+        for ( K key : due )
+        {
+            try
+            {
+                ICacheElement<K, V> cacheElement = cache.getQuiet( key );
+
+                if ( cacheElement == null )
+                {
+                    continue;
+                }
+
+                IElementAttributes attributes = cacheElement.getElementAttributes();
+
+                if ( !attributes.getIsEternal() && checkForRemoval( cacheElement, now ) )
+                {
+                    cache.remove( key );
+                    continue;
+                }
+
+                if ( maxMemoryIdleTime != -1 && attributes.getLastAccessTime() + maxMemoryIdleTime < now )
+                {
+                    if ( spoolLimit && spoolCount >= maxSpoolPerRun )
+                    {
+                        // over the limit for this run, look at it again on the next one
+                        wheel.schedule( key, now );
+                        continue;
+                    }
+
+                    if ( log.isDebugEnabled() )
+                    {
+                        log.debug( "Exceeded memory idle time: " + key );
+                    }
+
+                    spoolCount++;
+
+                    cache.remove( key );
+
+                    cache.waterfal( cacheElement );
+
+                    continue;
+                }
+
+                // used or replaced since it was scheduled
+                schedule( cacheElement );
+            }
+            catch ( Throwable t )
+            {
+                log.info( "Unexpected trouble in shrink cycle for key [" + key + "]", t );
+            }
+        }
+    }
+
+    /**
+     * @return the number of keys in the expiration index
+     */
+    public int getIndexedKeyCount()
+    {
+        return wheel.size();
+    }
+
+    /**
+     * Computes the first time at which the element has to be looked at: just after its max life
+     * or idle time is exceeded, or after the region's max memory idle time.
+     * <p>
+     * @param cacheElement
+     * @return the deadline in millis, or -1 if the element never has to be looked at
+     */
+    protected long getDeadline( ICacheElement<K, V> cacheElement )
+    {
+        IElementAttributes attributes = cacheElement.getElementAttributes();
+        long deadline = Long.MAX_VALUE;
+
+        if ( !attributes.getIsEternal() )
+        {
+            long maxLifeSeconds = attributes.getMaxLifeSeconds();
+            if ( maxLifeSeconds != -1 )
+            {
+                deadline = Math.min( deadline, attributes.getCreateTime() + maxLifeSeconds * 1000 + 1 );
+            }
+
+            long idleTime = attributes.getIdleTime();
+            if ( idleTime != -1 )
+            {
+                deadline = Math.min( deadline, attributes.getLastAccessTime() + idleTime * 1000 + 1 );
+            }
+        }
+
+        if ( maxMemoryIdleTime != -1 )
+        {
+            deadline = Math.min( deadline, attributes.getLastAccessTime() + maxMemoryIdleTime + 1 );
+        }
+
+        return deadline == Long.MAX_VALUE ? -1 : deadline;
+    }
+}
@@ -0,0 +1,271 @@
+package org.apache.commons.jcs.engine.memory.soft;
+
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+import java.io.IOException;
+import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import org.apache.commons.jcs.engine.CacheConstants;
+import org.apache.commons.jcs.engine.behavior.ICacheElement;
+import org.apache.commons.jcs.engine.control.CompositeCache;
+import org.apache.commons.jcs.engine.control.group.GroupAttrName;
+import org.apache.commons.jcs.engine.memory.lru.LRUMemoryCache;
+import org.apache.commons.jcs.engine.memory.util.MemoryElementDescriptor;
+import org.apache.commons.jcs.engine.stats.StatElement;
+import org.apache.commons.jcs.engine.stats.behavior.IStatElement;
+import org.apache.commons.jcs.engine.stats.behavior.IStats;
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+
+/**
+ * An LRU memory cache that keeps its victims softly.
+ * <p>
+ * Elements spooled from the heap are spooled to disk as usual, and are also kept in a
+ * {@link SoftReferenceStore}. Until the garbage collector needs the memory, a get that misses the
+ * LRU finds them there and moves them back without a disk read. Since the disk already has a copy,
+ * nothing is lost when the collector reclaims them, and a region without a disk cache simply
+ * keeps its victims for as long as memory allows.
+ * <p>
+ * The size and the key set are those of the LRU; the soft tier only stands in front of the disk.
+ */
+public class SoftReferenceMemoryCache<K extends Serializable, V extends Serializable>
+    extends LRUMemoryCache<K, V>
+{
+    /** Don't change */
+    private static final long serialVersionUID = 4316284725436226254L;
+
+    /** The logger */
+    private final static Log log = LogFactory.getLog( SoftReferenceMemoryCache.class );
+
+    /** The victim tier */
+    private SoftReferenceStore<K, V> victims;
+
+    /** number of gets answered from the victim tier */
+    private int softHitCnt = 0;
+
+    /**
+     * Creates the victim tier.
+     * <p>
+     * @param hub
+     */
+    @Override
+    public synchronized void initialize( CompositeCache<K, V> hub )
+    {
+        super.initialize( hub );
+        victims = new SoftReferenceStore<K, V>();
+    }
+
+    /**
+     * Drops any older copy of the element from the victim tier before it goes on the heap.
+     * <p>
+     * @param ce
+     * @return MemoryElementDescriptor the new node
+     * @throws IOException
+     */
+    @Override
+    protected MemoryElementDescriptor<K, V> adjustListForUpdate( ICacheElement<K, V> ce )
+        throws IOException
+    {
+        victims.remove( ce.getKey() );
+        return super.adjustListForUpdate( ce );
+    }
+
+    /**
+     * Looks in the LRU, then in the victim tier. A victim that is found is moved back to the LRU.
+     * <p>
+     * @param key
+     * @return the element, or null if it is in neither
+     * @throws IOException
+     */
+    @Override
+    public synchronized ICacheElement<K, V> get( K key )
+        throws IOException
+    {
+        ICacheElement<K, V> ce = super.get( key );
+        if ( ce == null )
+        {
+            ce = victims.take( key );
+            if ( ce != null )
+            {
+                softHitCnt++;
+                if ( log.isDebugEnabled() )
+                {
+                    log.debug( cacheName + ": soft reference hit for " + key );
+                }
+                update( ce );
+            }
+        }
+        return ce;
+    }
+
+    /**
+     * Looks in the LRU, then in the victim tier, without moving anything.
+     * <p>
+     * @param key
+     * @return the element, or null if it is in neither
+     * @throws IOException
+     */
+    @Override
+    public synchronized ICacheElement<K, V> getQuiet( K key )
+        throws IOException
+    {
+        ICacheElement<K, V> ce = super.getQuiet( key );
+        if ( ce == null )
+        {
+            ce = victims.peek( key );
+        }
+        return ce;
+    }
+
+    /**
+     * Spools the element to disk and keeps it softly.
+     * <p>
+     * @param ce
+     * @throws IOException
+     */
+    @Override
+    public void waterfal( ICacheElement<K, V> ce )
+        throws IOException
+    {
+        super.waterfal( ce );
+        victims.put( ce );
+    }
+
+    /**
+     * Removes the element from the LRU and the victim tier. Handles partial and group removal like
+     * the LRU cache.
+     * <p>
+     * @param key
+     * @return true if anything was removed
+     * @throws IOException
+     */
+    @Override
+    public synchronized boolean remove( K key )
+        throws IOException
+    {
+        boolean removed = super.remove( key );
+
+        if ( key instanceof String && ( (String) key ).endsWith( CacheConstants.NAME_COMPONENT_DELIMITER ) )
+        {
+            for ( K k : victims.getKeySet() )
+            {
+                if ( k instanceof String && ( (String) k ).startsWith( key.toString() ) )
+                {
+                    removed |= victims.remove( k );
+                }
+            }
+        }
+        else if ( key instanceof GroupAttrName )
+        {
+            for ( K k : victims.getKeySet() )
+            {
+                if ( k instanceof GroupAttrName
+                    && ( (GroupAttrName<?>) k ).groupId.equals( ( (GroupAttrName<?>) key ).groupId ) )
+                {
+                    removed |= victims.remove( k );
+                }
+            }
+        }
+        else
+        {
+            removed |= victims.remove( key );
+        }
+
+        return removed;
+    }
+
+    /**
+     * Empties the LRU and the victim tier.
+     * <p>
+     * @throws IOException
+     */
+    @Override
+    public synchronized void removeAll()
+        throws IOException
+    {
+        super.removeAll();
+        victims.clear();
+    }
+
+    /**
+     * Drops the victims.
+     * <p>
+     * @throws IOException
+     */
+    @Override
+    public void dispose()
+        throws IOException
+    {
+        super.dispose();
+        victims.clear();
+    }
+
+    /**
+     * @return the number of elements in the victim tier
+     */
+    public int getVictimSize()
+    {
+        return victims.size();
+    }
+
+    /**
+     * @return the victim tier
+     */
+    protected SoftReferenceStore<K, V> getVictims()
+    {
+        return victims;
+    }
+
+    /**
+     * Adds the victim tier to the LRU statistics.
+     * <p>
+     * @return the statistics
+     */
+    @Override
+    public synchronized IStats getStatistics()
+    {
+        IStats stats = super.getStatistics();
+        stats.setTypeName( "Soft Reference Memory Cache" );
+
+        List<IStatElement> elems = new ArrayList<IStatElement>( Arrays.asList( stats.getStatElements() ) );
+        elems.add( createStatElement( "Soft Hit Count", softHitCnt ) );
+        elems.add( createStatElement( "Soft Size", victims.size() ) );
+        elems.add( createStatElement( "Soft Cleared Count", victims.getClearedCount() ) );
+
+        stats.setStatElements( elems.toArray( new StatElement[0] ) );
+        return stats;
+    }
+
+    /**
+     * @param name
+     * @param value
+     * @return a stat element
+     */
+    private static IStatElement createStatElement( String name, int value )
+    {
+        IStatElement se = new StatElement();
+        se.setName( name );
+        se.setData( "" + value );
+        return se;
+    }
+}
@@ -0,0 +1,177 @@
+package org.apache.commons.jcs.engine.memory.soft;
+
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+import java.io.Serializable;
+import java.lang.ref.Reference;
+import java.lang.ref.ReferenceQueue;
+import java.lang.ref.SoftReference;
+import java.util.HashSet;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.apache.commons.jcs.engine.behavior.ICacheElement;
+
+/**
+ * Holds cache elements through soft references, so the garbage collector can reclaim them when
+ * memory runs short.
+ * <p>
+ * References that were cleared by the collector are put on a reference queue. The queue is
+ * drained on every put, take and size, and the entries of the cleared references are removed
+ * from the index, so the index does not keep keys whose elements are gone.
+ */
+public class SoftReferenceStore<K extends Serializable, V extends Serializable>
+{
+    /** The references by key */
+    private final ConcurrentMap<K, ElementReference<K, V>> index = new ConcurrentHashMap<K, ElementReference<K, V>>();
+
+    /** Where the collector puts cleared references */
+    private final ReferenceQueue<ICacheElement<K, V>> queue = new ReferenceQueue<ICacheElement<K, V>>();
+
+    /** Number of references cleared by the collector */
+    private final AtomicInteger clearedCount = new AtomicInteger();
+
+    /**
+     * Holds the element softly, replacing any element with the same key.
+     * <p>
+     * @param ce
+     */
+    public void put( ICacheElement<K, V> ce )
+    {
+        cleanUp();
+        index.put( ce.getKey(), new ElementReference<K, V>( ce, queue ) );
+    }
+
+    /**
+     * Gets an element without removing it.
+     * <p>
+     * @param key
+     * @return the element, or null if it is not held or was reclaimed
+     */
+    public ICacheElement<K, V> peek( K key )
+    {
+        ElementReference<K, V> ref = index.get( key );
+        return ref == null ? null : ref.get();
+    }
+
+    /**
+     * Removes an element and returns it.
+     * <p>
+     * @param key
+     * @return the element, or null if it is not held or was reclaimed
+     */
+    public ICacheElement<K, V> take( K key )
+    {
+        cleanUp();
+        ElementReference<K, V> ref = index.remove( key );
+        return ref == null ? null : ref.get();
+    }
+
+    /**
+     * Removes an element.
+     * <p>
+     * @param key
+     * @return true if it was held
+     */
+    public boolean remove( K key )
+    {
+        return index.remove( key ) != null;
+    }
+
+    /**
+     * @return a copy of the keys, including any whose elements were reclaimed but not yet cleaned
+     *         up
+     */
+    public Set<K> getKeySet()
+    {
+        return new HashSet<K>( index.keySet() );
+    }
+
+    /**
+     * @return the number of elements held
+     */
+    public int size()
+    {
+        cleanUp();
+        return index.size();
+    }
+
+    /**
+     * Removes all elements.
+     */
+    public void clear()
+    {
+        index.clear();
+        cleanUp();
+    }
+
+    /**
+     * @return the number of references cleared by the collector
+     */
+    public int getClearedCount()
+    {
+        return clearedCount.get();
+    }
+
+    /**
+     * Removes the entries whose references the collector cleared. An entry that was replaced in
+     * the meantime is left alone.
+     */
+    protected void cleanUp()
+    {
+        Reference<? extends ICacheElement<K, V>> ref;
+        while ( ( ref = queue.poll() ) != null )
+        {
+            @SuppressWarnings("unchecked") // only ElementReferences are registered with the queue
+            ElementReference<K, V> elementRef = (ElementReference<K, V>) ref;
+            index.remove( elementRef.key, elementRef );
+            clearedCount.incrementAndGet();
+        }
+    }
+
+    /**
+     * @param key
+     * @return the reference held for the key, for tests that stand in for the collector
+     */
+    Reference<ICacheElement<K, V>> getReference( K key )
+    {
+        return index.get( key );
+    }
+
+    /** A soft reference that remembers its key. */
+    private static final class ElementReference<K extends Serializable, V extends Serializable>
+        extends SoftReference<ICacheElement<K, V>>
+    {
+        /** the key of the element */
+        final K key;
+
+        /**
+         * @param ce
+         * @param queue
+         */
+        ElementReference( ICacheElement<K, V> ce, ReferenceQueue<ICacheElement<K, V>> queue )
+        {
+            super( ce, queue );
+            this.key = ce.getKey();
+        }
+    }
+}
@@ -0,0 +1,160 @@
+package org.apache.commons.jcs.engine.memory.tinylfu;
+
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+/**
+ * A count-min sketch of how often keys were used, with 4 bit counters.
+ * <p>
+ * Each key maps to one counter in each of four rows; its estimated frequency is the smallest of
+ * the four. Sixteen counters are packed into each long, so the sketch takes about half a byte per
+ * counter. Once the number of increments reaches ten times the cache size, every counter is
+ * halved. Old popularity therefore fades, and the sketch follows changes in the working set.
+ * <p>
+ * This class is not thread safe; the memory cache guards it with its own lock.
+ */
+public class FrequencySketch
+{
+    /** Seeds for the four row hashes */
+    private static final long[] SEEDS = { 0xc3a5c85c97cb3127L, 0xb492b66fbe98f273L, 0x9ae16a3b2f90404fL,
+        0xcbf29ce484222325L };
+
+    /** Clears the high bit of every counter after a shift */
+    private static final long RESET_MASK = 0x7777777777777777L;
+
+    /** Largest value of a counter */
+    private static final int MAX_COUNT = 15;
+
+    /** Number of rows */
+    private static final int DEPTH = 4;
+
+    /** The counters, row after row */
+    private final long[] table;
+
+    /** Counters per row minus one, the row length is a power of two */
+    private final int rowMask;
+
+    /** Number of counters per row */
+    private final int rowLength;
+
+    /** Increments after which the counters are halved */
+    private final int sampleSize;
+
+    /** Increments since the last halving */
+    private int additions;
+
+    /**
+     * @param maximumSize the number of elements the cache holds
+     */
+    public FrequencySketch( int maximumSize )
+    {
+        int size = Math.max( maximumSize, 16 );
+        int length = 1;
+        while ( length < size && length < ( 1 << 30 ) )
+        {
+            length <<= 1;
+        }
+
+        // one long of 16 counters per element, split over the rows
+        this.table = new long[length];
+        this.rowLength = length * 16 / DEPTH;
+        this.rowMask = rowLength - 1;
+        this.sampleSize = (int) Math.min( 10L * size, Integer.MAX_VALUE );
+    }
+
+    /**
+     * Counts one use of the key.
+     * <p>
+     * @param key
+     */
+    public void increment( Object key )
+    {
+        int hash = spread( key.hashCode() );
+        boolean added = false;
+        for ( int row = 0; row < DEPTH; row++ )
+        {
+            int counter = counterIndex( hash, row );
+            int index = counter >>> 4;
+            int shift = ( counter & 15 ) << 2;
+            if ( ( ( table[index] >>> shift ) & 0xfL ) < MAX_COUNT )
+            {
+                table[index] += 1L << shift;
+                added = true;
+            }
+        }
+
+        if ( added && ++additions >= sampleSize )
+        {
+            reset();
+        }
+    }
+
+    /**
+     * @param key
+     * @return the estimated number of uses of the key, at most 15
+     */
+    public int frequency( Object key )
+    {
+        int hash = spread( key.hashCode() );
+        int frequency = MAX_COUNT;
+        for ( int row = 0; row < DEPTH; row++ )
+        {
+            int counter = counterIndex( hash, row );
+            int count = (int) ( ( table[counter >>> 4] >>> ( ( counter & 15 ) << 2 ) ) & 0xfL );
+            frequency = Math.min( frequency, count );
+        }
+        return frequency;
+    }
+
+    /**
+     * Halves every counter.
+     */
+    protected void reset()
+    {
+        for ( int i = 0; i < table.length; i++ )
+        {
+            table[i] = ( table[i] >>> 1 ) & RESET_MASK;
+        }
+        additions = additions >>> 1;
+    }
+
+    /**
+     * @param hash the spread hash of the key
+     * @param row
+     * @return the position of the key's counter in the given row, over the whole table
+     */
+    private int counterIndex( int hash, int row )
+    {
+        long h = ( hash + SEEDS[row] ) * SEEDS[row];
+        h += h >>> 32;
+        return row * rowLength + ( (int) h & rowMask );
+    }
+
+    /**
+     * Applies a supplemental hash so that keys with poor hash codes still use all counters.
+     * <p>
+     * @param hashCode
+     * @return the spread hash
+     */
+    private static int spread( int hashCode )
+    {
+        int h = hashCode * 0x9e3779b9;
+        return h ^ ( h >>> 16 );
+    }
+}
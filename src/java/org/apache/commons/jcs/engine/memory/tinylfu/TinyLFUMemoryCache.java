@@ -0,0 +1,544 @@
+package org.apache.commons.jcs.engine.memory.tinylfu;
+
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+import java.io.IOException;
+import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.Hashtable;
+import java.util.Iterator;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import org.apache.commons.jcs.engine.CacheConstants;
+import org.apache.commons.jcs.engine.behavior.ICacheElement;
+import org.apache.commons.jcs.engine.control.CompositeCache;
+import org.apache.commons.jcs.engine.control.group.GroupAttrName;
+import org.apache.commons.jcs.engine.memory.AbstractMemoryCache;
+import org.apache.commons.jcs.engine.memory.util.MemoryElementDescriptor;
+import org.apache.commons.jcs.engine.stats.StatElement;
+import org.apache.commons.jcs.engine.stats.Stats;
+import org.apache.commons.jcs.engine.stats.behavior.IStatElement;
+import org.apache.commons.jcs.engine.stats.behavior.IStats;
+import org.apache.commons.jcs.utils.struct.DoubleLinkedList;
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+
+/**
+ * A memory cache using the W-TinyLFU policy.
+ * <p>
+ * New elements enter a small LRU window that holds about one percent of MaxObjects. When the
+ * window overflows, its least recently used element becomes a candidate for the main space, a
+ * segmented LRU made of a probation and a protected segment. If the main space is full, the
+ * candidate is compared with the least recently used element of the probation segment, and the
+ * one that was used less often according to a {@link FrequencySketch} is spooled. An element in
+ * probation that is used again moves to the protected segment, which holds up to eighty percent
+ * of the main space; the protected segment's oldest element goes back to probation when it
+ * overflows.
+ * <p>
+ * Keys that are used only once, as in a scan, therefore pass through the window and are spooled
+ * without displacing the frequently used elements of the main space. As with the other memory
+ * caches, every element leaving memory goes through the region's spoolToDisk.
+ */
+public class TinyLFUMemoryCache<K extends Serializable, V extends Serializable>
+    extends AbstractMemoryCache<K, V>
+{
+    /** Don't change. */
+    private static final long serialVersionUID = 2384633128425349467L;
+
+    /** The logger. */
+    private final static Log log = LogFactory.getLog( TinyLFUMemoryCache.class );
+
+    /** Percentage of MaxObjects given to the admission window */
+    public static final int WINDOW_PERCENT = 1;
+
+    /** Percentage of the main space given to the protected segment */
+    public static final int PROTECTED_PERCENT = 80;
+
+    /** Segment of elements in the admission window */
+    static final int WINDOW = 0;
+
+    /** Segment of elements in the main space that were not used since they got there */
+    static final int PROBATION = 1;
+
+    /** Segment of elements in the main space that were used again */
+    static final int PROTECTED = 2;
+
+    /** The admission window, most recently used first */
+    private DoubleLinkedList<TinyLFUElementDescriptor<K, V>> window;
+
+    /** The probation segment, most recently used first */
+    private DoubleLinkedList<TinyLFUElementDescriptor<K, V>> probation;
+
+    /** The protected segment, most recently used first */
+    private DoubleLinkedList<TinyLFUElementDescriptor<K, V>> protectedSegment;
+
+    /** Usage frequencies */
+    private FrequencySketch sketch;
+
+    /** Size of the admission window */
+    private int maxWindow;
+
+    /** Size of the protected segment */
+    private int maxProtected;
+
+    /** Size of the whole cache */
+    private int maxObjects;
+
+    /** number of hits */
+    private int hitCnt = 0;
+
+    /** number of misses */
+    private int missCnt = 0;
+
+    /** number of puts */
+    private int putCnt = 0;
+
+    /** number of window candidates that were let into the main space */
+    private int admittedCnt = 0;
+
+    /** number of window candidates that were spooled instead */
+    private int rejectedCnt = 0;
+
+    /**
+     * Sizes the segments from the region's MaxObjects.
+     * <p>
+     * @param hub
+     */
+    @Override
+    public synchronized void initialize( CompositeCache<K, V> hub )
+    {
+        super.initialize( hub );
+        window = new DoubleLinkedList<TinyLFUElementDescriptor<K, V>>();
+        probation = new DoubleLinkedList<TinyLFUElementDescriptor<K, V>>();
+        protectedSegment = new DoubleLinkedList<TinyLFUElementDescriptor<K, V>>();
+
+        maxObjects = Math.max( 0, cacheAttributes.getMaxObjects() );
+        maxWindow = Math.max( 1, maxObjects * WINDOW_PERCENT / 100 );
+        maxProtected = Math.max( 0, maxObjects - maxWindow ) * PROTECTED_PERCENT / 100;
+        sketch = new FrequencySketch( maxObjects );
+
+        log.info( "initialized TinyLFUMemoryCache for " + cacheName + " with window " + maxWindow
+            + ", protected " + maxProtected + ", max objects " + maxObjects );
+    }
+
+    /**
+     * @return new Hashtable()
+     */
+    @Override
+    public Map<K, MemoryElementDescriptor<K, V>> createMap()
+    {
+        return new Hashtable<K, MemoryElementDescriptor<K, V>>();
+    }
+
+    /**
+     * Puts the element into the admission window, or replaces the element of the same key where
+     * it is. Elements pushed out of the window compete for the main space, and the losers are
+     * spooled.
+     * <p>
+     * @param ce
+     * @throws IOException
+     */
+    @Override
+    public void update( ICacheElement<K, V> ce )
+        throws IOException
+    {
+        ce.getElementAttributes().setLastAccessTimeNow();
+
+        synchronized ( this )
+        {
+            putCnt++;
+            sketch.increment( ce.getKey() );
+
+            TinyLFUElementDescriptor<K, V> newNode = new TinyLFUElementDescriptor<K, V>( ce );
+            TinyLFUElementDescriptor<K, V> oldNode = (TinyLFUElementDescriptor<K, V>) map.put( ce.getKey(), newNode );
+
+            if ( oldNode != null )
+            {
+                // keep the replaced element's place
+                newNode.segment = oldNode.segment;
+                segment( oldNode.segment ).remove( oldNode );
+                segment( newNode.segment ).addFirst( newNode );
+            }
+            else
+            {
+                newNode.segment = WINDOW;
+                window.addFirst( newNode );
+                evict();
+            }
+        }
+
+        scheduleExpiration( ce );
+    }
+
+    /**
+     * Gets the element and records the use. An element found in probation moves to the protected
+     * segment.
+     * <p>
+     * @param key
+     * @return the element or null
+     * @throws IOException
+     */
+    @Override
+    public synchronized ICacheElement<K, V> get( K key )
+        throws IOException
+    {
+        sketch.increment( key );
+
+        TinyLFUElementDescriptor<K, V> me = (TinyLFUElementDescriptor<K, V>) map.get( key );
+        if ( me == null )
+        {
+            missCnt++;
+            if ( log.isDebugEnabled() )
+            {
+                log.debug( cacheName + ": TinyLFUMemoryCache miss for " + key );
+            }
+            return null;
+        }
+
+        hitCnt++;
+        me.ce.getElementAttributes().setLastAccessTimeNow();
+        if ( log.isDebugEnabled() )
+        {
+            log.debug( cacheName + ": TinyLFUMemoryCache hit for " + key );
+        }
+
+        switch ( me.segment )
+        {
+            case WINDOW:
+                window.makeFirst( me );
+                break;
+
+            case PROBATION:
+                probation.remove( me );
+                me.segment = PROTECTED;
+                protectedSegment.addFirst( me );
+                while ( protectedSegment.size() > maxProtected )
+                {
+                    TinyLFUElementDescriptor<K, V> demoted = protectedSegment.removeLast();
+                    demoted.segment = PROBATION;
+                    probation.addFirst( demoted );
+                }
+                break;
+
+            default:
+                protectedSegment.makeFirst( me );
+                break;
+        }
+
+        return me.ce;
+    }
+
+    /**
+     * Moves the window's overflow into the main space and spools whatever the main space cannot
+     * hold. The caller holds the lock.
+     */
+    private void evict()
+    {
+        while ( window.size() > maxWindow )
+        {
+            TinyLFUElementDescriptor<K, V> candidate = window.removeLast();
+            candidate.segment = PROBATION;
+            probation.addFirst( candidate );
+
+            if ( map.size() <= maxObjects )
+            {
+                continue;
+            }
+
+            TinyLFUElementDescriptor<K, V> victim = probation.getLast();
+            if ( victim == candidate )
+            {
+                // nothing else on probation, compete with the protected segment
+                victim = protectedSegment.getLast();
+            }
+
+            if ( victim != null && sketch.frequency( candidate.ce.getKey() ) > sketch.frequency( victim.ce.getKey() ) )
+            {
+                admittedCnt++;
+                spool( victim );
+            }
+            else
+            {
+                rejectedCnt++;
+                spool( candidate );
+            }
+        }
+
+        // the window alone can exceed a very small region
+        while ( map.size() > maxObjects && window.size() > 0 )
+        {
+            spool( window.getLast() );
+        }
+    }
+
+    /**
+     * Removes the element from memory and hands it to the region for spooling. The caller holds
+     * the lock.
+     * <p>
+     * @param me
+     */
+    private void spool( TinyLFUElementDescriptor<K, V> me )
+    {
+        segment( me.segment ).remove( me );
+        map.remove( me.ce.getKey() );
+        cache.spoolToDisk( me.ce );
+    }
+
+    /**
+     * @param segment
+     * @return the list for the segment
+     */
+    private DoubleLinkedList<TinyLFUElementDescriptor<K, V>> segment( int segment )
+    {
+        switch ( segment )
+        {
+            case WINDOW:
+                return window;
+            case PROBATION:
+                return probation;
+            default:
+                return protectedSegment;
+        }
+    }
+
+    /**
+     * Spools the given number of elements, taking the least valuable first: probation, then the
+     * window, then the protected segment.
+     * <p>
+     * @param numberToFree
+     * @return the number spooled
+     * @throws IOException
+     */
+    public synchronized int freeElements( int numberToFree )
+        throws IOException
+    {
+        int freed = 0;
+        for ( ; freed < numberToFree; freed++ )
+        {
+            TinyLFUElementDescriptor<K, V> victim = probation.getLast();
+            if ( victim == null )
+            {
+                victim = window.getLast();
+            }
+            if ( victim == null )
+            {
+                victim = protectedSegment.getLast();
+            }
+            if ( victim == null )
+            {
+                break;
+            }
+            spool( victim );
+        }
+        return freed;
+    }
+
+    /**
+     * Removes an item from the cache. This method handles hierarchical removal. If the key is a
+     * String and ends with the CacheConstants.NAME_COMPONENT_DELIMITER, then all items with keys
+     * starting with the argument String will be removed.
+     * <p>
+     * @param key
+     * @return true if the removal was successful
+     * @throws IOException
+     */
+    @Override
+    public synchronized boolean remove( K key )
+        throws IOException
+    {
+        if ( log.isDebugEnabled() )
+        {
+            log.debug( "removing item for key: " + key );
+        }
+
+        boolean removed = false;
+
+        if ( key instanceof String && ( (String) key ).endsWith( CacheConstants.NAME_COMPONENT_DELIMITER ) )
+        {
+            // remove all keys of the same name hierarchy.
+            for ( Iterator<Map.Entry<K, MemoryElementDescriptor<K, V>>> itr = map.entrySet().iterator(); itr.hasNext(); )
+            {
+                Map.Entry<K, MemoryElementDescriptor<K, V>> entry = itr.next();
+                K k = entry.getKey();
+
+                if ( k instanceof String && ( (String) k ).startsWith( key.toString() ) )
+                {
+                    unlink( entry.getValue() );
+                    itr.remove();
+                    removed = true;
+                }
+            }
+        }
+        else if ( key instanceof GroupAttrName )
+        {
+            // remove all keys of the same group.
+            for ( Iterator<Map.Entry<K, MemoryElementDescriptor<K, V>>> itr = map.entrySet().iterator(); itr.hasNext(); )
+            {
+                Map.Entry<K, MemoryElementDescriptor<K, V>> entry = itr.next();
+                K k = entry.getKey();
+
+                if ( k instanceof GroupAttrName
+                    && ( (GroupAttrName<?>) k ).groupId.equals( ( (GroupAttrName<?>) key ).groupId ) )
+                {
+                    unlink( entry.getValue() );
+                    itr.remove();
+                    removed = true;
+                }
+            }
+        }
+        else
+        {
+            MemoryElementDescriptor<K, V> me = map.remove( key );
+            if ( me != null )
+            {
+                unlink( me );
+                removed = true;
+            }
+        }
+
+        return removed;
+    }
+
+    /**
+     * Takes the node out of its segment.
+     * <p>
+     * @param me
+     */
+    private void unlink( MemoryElementDescriptor<K, V> me )
+    {
+        TinyLFUElementDescriptor<K, V> node = (TinyLFUElementDescriptor<K, V>) me;
+        segment( node.segment ).remove( node );
+    }
+
+    /**
+     * Removes all elements. The usage history is kept.
+     * <p>
+     * @throws IOException
+     */
+    @Override
+    public synchronized void removeAll()
+        throws IOException
+    {
+        map.clear();
+        window.removeAll();
+        probation.removeAll();
+        protectedSegment.removeAll();
+    }
+
+    /**
+     * @return a copy of the keys
+     */
+    @Override
+    public synchronized Set<K> getKeySet()
+    {
+        return new LinkedHashSet<K>( map.keySet() );
+    }
+
+    /**
+     * @param key
+     * @return the estimated number of uses of the key
+     */
+    public synchronized int getFrequency( K key )
+    {
+        return sketch.frequency( key );
+    }
+
+    /**
+     * @return the number of elements in the admission window
+     */
+    public synchronized int getWindowSize()
+    {
+        return window.size();
+    }
+
+    /**
+     * @return the number of elements in the protected segment
+     */
+    public synchronized int getProtectedSize()
+    {
+        return protectedSegment.size();
+    }
+
+    /**
+     * This returns semi-structured information on the memory cache, such as the segment sizes
+     * and the hit, miss and admission counts.
+     * <p>
+     * @return the stats
+     */
+    @Override
+    public synchronized IStats getStatistics()
+    {
+        IStats stats = new Stats();
+        stats.setTypeName( "TinyLFU Memory Cache" );
+
+        List<IStatElement> elems = new ArrayList<IStatElement>();
+
+        elems.add( createStatElement( "Map Size", map.size() ) );
+        elems.add( createStatElement( "Window Size", window.size() ) );
+        elems.add( createStatElement( "Probation Size", probation.size() ) );
+        elems.add( createStatElement( "Protected Size", protectedSegment.size() ) );
+        elems.add( createStatElement( "Put Count", putCnt ) );
+        elems.add( createStatElement( "Hit Count", hitCnt ) );
+        elems.add( createStatElement( "Miss Count", missCnt ) );
+        elems.add( createStatElement( "Admitted Count", admittedCnt ) );
+        elems.add( createStatElement( "Rejected Count", rejectedCnt ) );
+
+        stats.setStatElements( elems.toArray( new StatElement[0] ) );
+
+        return stats;
+    }
+
+    /**
+     * @param name
+     * @param value
+     * @return a stat element
+     */
+    private static IStatElement createStatElement( String name, int value )
+    {
+        IStatElement se = new StatElement();
+        se.setName( name );
+        se.setData( "" + value );
+        return se;
+    }
+
+    /**
+     * A memory element descriptor that knows which segment it is in.
+     */
+    static class TinyLFUElementDescriptor<K extends Serializable, V extends Serializable>
+        extends MemoryElementDescriptor<K, V>
+    {
+        /** Don't change */
+        private static final long serialVersionUID = 1L;
+
+        /** WINDOW, PROBATION or PROTECTED */
+        int segment;
+
+        /**
+         * @param ce
+         */
+        TinyLFUElementDescriptor( ICacheElement<K, V> ce )
+        {
+            super( ce );
+        }
+    }
+}
@@ -36,6 +36,9 @@ public class MemoryElementDescriptor<K extends Serializable, V extends Serializa
     /** The CacheElement wrapped by this descriptor */
     public ICacheElement<K, V> ce;
 
+    /** The weight charged for the element, 0 if the region is not bounded by weight */
+    public long weight;
+
     /**
      * Constructs a usable MemoryElementDescriptor.
      * <p>
@@ -0,0 +1,251 @@
+package org.apache.commons.jcs.engine.memory.util;
+
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+import java.io.Serializable;
+import java.lang.reflect.Array;
+import java.lang.reflect.Field;
+import java.lang.reflect.Modifier;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+import org.apache.commons.jcs.engine.CacheElementCompressed;
+import org.apache.commons.jcs.engine.behavior.ICacheElement;
+import org.apache.commons.jcs.engine.behavior.ICacheElementSerialized;
+import org.apache.commons.jcs.engine.memory.behavior.IElementWeigher;
+
+/**
+ * The default element weigher. It estimates the heap taken by the key and the value from their
+ * types, without serializing them.
+ * <p>
+ * Strings, boxed primitives and arrays are sized from their length. Arrays, collections and maps
+ * are followed a few levels down; large ones are sized from their first elements. Any other
+ * object counts its own fields only, so values that hold large graphs behind plain fields are
+ * underestimated. Regions with such values should configure a weigher that knows their type.
+ * <p>
+ * The figures assume a 64 bit JVM with 8 byte references. They are estimates, not measurements.
+ */
+public class SizeEstimatingWeigher<K extends Serializable, V extends Serializable>
+    implements IElementWeigher<K, V>
+{
+    /** Bytes charged for the cache element, its attributes and the memory cache's node */
+    public static final long ELEMENT_OVERHEAD = 192;
+
+    /** Object header */
+    private static final int OBJECT_HEADER = 16;
+
+    /** Array header, including the length */
+    private static final int ARRAY_HEADER = 16;
+
+    /** Reference size */
+    private static final int REFERENCE = 8;
+
+    /** Per entry overhead of collections and maps */
+    private static final int ENTRY_OVERHEAD = 32;
+
+    /** How deep arrays, collections and maps are followed */
+    private static final int MAX_DEPTH = 3;
+
+    /** How many members of an array, collection or map are sized before extrapolating */
+    private static final int SAMPLE_SIZE = 64;
+
+    /** Shallow sizes of the classes seen so far */
+    private static final ConcurrentMap<Class<?>, Long> SHALLOW_SIZES = new ConcurrentHashMap<Class<?>, Long>();
+
+    /**
+     * @param ce
+     * @return the estimated size of the key and the value plus a fixed overhead
+     */
+    public long weigh( ICacheElement<K, V> ce )
+    {
+        if ( ce instanceof ICacheElementSerialized )
+        {
+            // weighing the value would de-serialize it
+            return ELEMENT_OVERHEAD + estimate( ce.getKey(), 0 )
+                + estimate( ( (ICacheElementSerialized<K, V>) ce ).getSerializedValue(), 0 );
+        }
+        if ( ce instanceof CacheElementCompressed )
+        {
+            // weighing the value would decompress it
+            return ELEMENT_OVERHEAD + estimate( ce.getKey(), 0 )
+                + estimate( ( (CacheElementCompressed<K, V>) ce ).getCompressedValue(), 0 );
+        }
+        return ELEMENT_OVERHEAD + estimate( ce.getKey(), 0 ) + estimate( ce.getVal(), 0 );
+    }
+
+    /**
+     * Estimates the size of the object and, for containers, of what it holds.
+     * <p>
+     * @param o may be null
+     * @param depth how many containers deep we are
+     * @return the estimated size in bytes
+     */
+    protected long estimate( Object o, int depth )
+    {
+        if ( o == null )
+        {
+            return 0;
+        }
+        if ( o instanceof String )
+        {
+            // the string, its hash and its char array
+            return align( OBJECT_HEADER + REFERENCE + 8 ) + align( ARRAY_HEADER + 2L * ( (String) o ).length() );
+        }
+        if ( o instanceof Long || o instanceof Double )
+        {
+            return 24;
+        }
+        if ( o instanceof Number || o instanceof Boolean || o instanceof Character )
+        {
+            return OBJECT_HEADER;
+        }
+
+        Class<?> type = o.getClass();
+        if ( type.isArray() )
+        {
+            return estimateArray( o, type.getComponentType(), depth );
+        }
+        if ( o instanceof Collection )
+        {
+            Collection<?> collection = (Collection<?>) o;
+            return 48 + collection.size() * (long) ENTRY_OVERHEAD + estimateMembers( collection, collection.size(), depth );
+        }
+        if ( o instanceof Map )
+        {
+            Map<?, ?> map = (Map<?, ?>) o;
+            return 64 + map.size() * (long) ENTRY_OVERHEAD + estimateMembers( map.keySet(), map.size(), depth )
+                + estimateMembers( map.values(), map.size(), depth );
+        }
+
+        return shallowSize( type );
+    }
+
+    /**
+     * @param array
+     * @param component
+     * @param depth
+     * @return the estimated size of the array and, for object arrays, its members
+     */
+    private long estimateArray( Object array, Class<?> component, int depth )
+    {
+        if ( component.isPrimitive() )
+        {
+            int length = Array.getLength( array );
+            return align( ARRAY_HEADER + (long) length * primitiveSize( component ) );
+        }
+
+        Object[] members = (Object[]) array;
+        return align( ARRAY_HEADER + (long) members.length * REFERENCE )
+            + estimateMembers( Arrays.asList( members ), members.length, depth );
+    }
+
+    /**
+     * Sizes the first members and extrapolates to the rest.
+     * <p>
+     * @param members
+     * @param size the number of members
+     * @param depth
+     * @return the estimated size of the members
+     */
+    private long estimateMembers( Iterable<?> members, int size, int depth )
+    {
+        if ( size == 0 || depth >= MAX_DEPTH )
+        {
+            return 0;
+        }
+
+        long total = 0;
+        int sampled = 0;
+        for ( Object member : members )
+        {
+            if ( sampled == SAMPLE_SIZE )
+            {
+                break;
+            }
+            total += estimate( member, depth + 1 );
+            sampled++;
+        }
+
+        return sampled == 0 ? 0 : total * size / sampled;
+    }
+
+    /**
+     * @param type
+     * @return the size of an instance's own fields and header, cached per class
+     */
+    private static long shallowSize( Class<?> type )
+    {
+        Long cached = SHALLOW_SIZES.get( type );
+        if ( cached != null )
+        {
+            return cached.longValue();
+        }
+
+        long size = OBJECT_HEADER;
+        for ( Class<?> c = type; c != null && c != Object.class; c = c.getSuperclass() )
+        {
+            for ( Field field : c.getDeclaredFields() )
+            {
+                if ( !Modifier.isStatic( field.getModifiers() ) )
+                {
+                    Class<?> fieldType = field.getType();
+                    size += fieldType.isPrimitive() ? primitiveSize( fieldType ) : REFERENCE;
+                }
+            }
+        }
+        size = align( size );
+
+        SHALLOW_SIZES.putIfAbsent( type, Long.valueOf( size ) );
+        return size;
+    }
+
+    /**
+     * @param type a primitive type
+     * @return its size in bytes
+     */
+    private static int primitiveSize( Class<?> type )
+    {
+        if ( type == long.class || type == double.class )
+        {
+            return 8;
+        }
+        if ( type == int.class || type == float.class )
+        {
+            return 4;
+        }
+        if ( type == short.class || type == char.class )
+        {
+            return 2;
+        }
+        return 1;
+    }
+
+    /**
+     * @param size
+     * @return the size rounded up to the next multiple of 8
+     */
+    private static long align( long size )
+    {
+        return ( size + 7 ) & ~7L;
+    }
+}
@@ -90,6 +90,9 @@ import org.apache.commons.logging.LogFactory;
  * time, the same query would happen multiple times on the database, and the
  * resulting object would get put into JCS multiple times.
  * <p>
+ * For work that is not cached in a group, CacheAccess.get(key, loader) provides the same work
+ * sharing with a lock per key instead of one shared by all regions.
+ * <p>
  * @author Travis Savo
  */
 public class JCSWorker<K extends Serializable, V extends Serializable>
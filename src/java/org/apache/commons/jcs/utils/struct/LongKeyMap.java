@@ -0,0 +1,541 @@
+package org.apache.commons.jcs.utils.struct;
+
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+import java.util.AbstractMap;
+import java.util.AbstractSet;
+import java.util.ConcurrentModificationException;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Set;
+
+/**
+ * A map from primitive long keys to objects, for regions whose keys are all Longs.
+ * <p>
+ * The keys and values are kept in parallel arrays with open addressing and linear probing, so an
+ * entry costs no entry object and no boxed key. Removed slots are marked and reused; the table is
+ * rebuilt when the marks and entries fill half of it. The entries are also linked in insertion
+ * order through two int arrays. With access order, a get moves the entry to the end, and with a
+ * maximum size the eldest entries are removed as new ones are put, much like the {@link LRUMap}.
+ * Children can override {@link #processRemovedLRU(long, Object)} to hear about those.
+ * <p>
+ * The primitive methods avoid boxing. The Map methods accept Long keys and treat any other key as
+ * absent. Null values are not allowed.
+ * <p>
+ * All methods are synchronized on the map. Iterating over a view must be done while holding the
+ * map's lock, as with Collections.synchronizedMap.
+ */
+public class LongKeyMap<V>
+    extends AbstractMap<Long, V>
+{
+    /** Marks a removed slot */
+    private static final Object REMOVED = new Object();
+
+    /** Marks the end of the order links */
+    private static final int NONE = -1;
+
+    /** Smallest table */
+    private static final int MIN_CAPACITY = 16;
+
+    /** The keys */
+    private long[] keys;
+
+    /** The values, null for a free slot or REMOVED */
+    private Object[] values;
+
+    /** The slot of the next older entry */
+    private int[] before;
+
+    /** The slot of the next newer entry */
+    private int[] after;
+
+    /** The oldest entry */
+    private int head = NONE;
+
+    /** The newest entry */
+    private int tail = NONE;
+
+    /** Number of entries */
+    private int size = 0;
+
+    /** Number of removed slots */
+    private int removedSlots = 0;
+
+    /** Number of bits of the table size */
+    private int bits;
+
+    /** Whether a get moves the entry to the end */
+    private final boolean accessOrder;
+
+    /** The most entries held, or -1 for no limit */
+    private final int maxSize;
+
+    /** Changes since creation, so iterators can fail fast */
+    private int modCount = 0;
+
+    /**
+     * Creates an unbounded map in insertion order.
+     */
+    public LongKeyMap()
+    {
+        this( MIN_CAPACITY, false, -1 );
+    }
+
+    /**
+     * Creates a map in access order that holds at most maxSize entries.
+     * <p>
+     * @param maxSize the most entries held
+     */
+    public LongKeyMap( int maxSize )
+    {
+        this( MIN_CAPACITY, true, maxSize );
+    }
+
+    /**
+     * Creates a map.
+     * <p>
+     * @param expectedSize how many entries are expected
+     * @param accessOrder whether a get moves the entry to the end
+     * @param maxSize the most entries held, or -1 for no limit
+     */
+    public LongKeyMap( int expectedSize, boolean accessOrder, int maxSize )
+    {
+        this.accessOrder = accessOrder;
+        this.maxSize = maxSize;
+        int capacity = MIN_CAPACITY;
+        while ( capacity < expectedSize * 2 )
+        {
+            capacity <<= 1;
+        }
+        allocate( capacity );
+    }
+
+    /**
+     * @param key
+     * @return the value, or null if the key is absent
+     */
+    public synchronized V get( long key )
+    {
+        int slot = find( key );
+        if ( slot == NONE )
+        {
+            return null;
+        }
+        if ( accessOrder )
+        {
+            moveToEnd( slot );
+        }
+        return value( slot );
+    }
+
+    /**
+     * @param key
+     * @return true if the key is present
+     */
+    public synchronized boolean containsKey( long key )
+    {
+        return find( key ) != NONE;
+    }
+
+    /**
+     * Puts the value, moving the key to the end. Removes the eldest entries if the map grows
+     * beyond its maximum size.
+     * <p>
+     * @param key
+     * @param value not null
+     * @return the previous value, or null
+     */
+    public synchronized V put( long key, V value )
+    {
+        if ( value == null )
+        {
+            throw new NullPointerException( "Null values are not allowed" );
+        }
+
+        V old = null;
+        int slot = find( key );
+        if ( slot != NONE )
+        {
+            old = value( slot );
+            values[slot] = value;
+            moveToEnd( slot );
+        }
+        else
+        {
+            if ( ( size + removedSlots + 1 ) * 2 > values.length )
+            {
+                // grow when full of entries, only clean up when full of removed slots
+                rehash( ( size + 1 ) * 4 > values.length ? values.length * 2 : values.length );
+            }
+            slot = insert( key, value );
+            link( slot );
+            size++;
+        }
+        modCount++;
+
+        while ( maxSize >= 0 && size > maxSize && head != NONE )
+        {
+            long eldestKey = keys[head];
+            V eldest = value( head );
+            removeSlot( head );
+            processRemovedLRU( eldestKey, eldest );
+        }
+        return old;
+    }
+
+    /**
+     * @param key
+     * @return the removed value, or null if the key was absent
+     */
+    public synchronized V remove( long key )
+    {
+        int slot = find( key );
+        if ( slot == NONE )
+        {
+            return null;
+        }
+        V old = value( slot );
+        removeSlot( slot );
+        return old;
+    }
+
+    /**
+     * This is called when the eldest entry is removed because the map is full.
+     * <p>
+     * @param key
+     * @param value
+     */
+    protected void processRemovedLRU( long key, V value )
+    {
+        // nothing by default
+    }
+
+    /**
+     * @param key
+     * @return the value, or null if the key is absent or not a Long
+     */
+    @Override
+    public V get( Object key )
+    {
+        return key instanceof Long ? get( ( (Long) key ).longValue() ) : null;
+    }
+
+    /**
+     * @param key
+     * @return true if the key is a Long and present
+     */
+    @Override
+    public boolean containsKey( Object key )
+    {
+        return key instanceof Long && containsKey( ( (Long) key ).longValue() );
+    }
+
+    /**
+     * @param key
+     * @param value not null
+     * @return the previous value, or null
+     */
+    @Override
+    public V put( Long key, V value )
+    {
+        return put( key.longValue(), value );
+    }
+
+    /**
+     * @param key
+     * @return the removed value, or null if the key was absent or not a Long
+     */
+    @Override
+    public V remove( Object key )
+    {
+        return key instanceof Long ? remove( ( (Long) key ).longValue() ) : null;
+    }
+
+    /**
+     * @return the number of entries
+     */
+    @Override
+    public synchronized int size()
+    {
+        return size;
+    }
+
+    /**
+     * Removes all entries and shrinks the table.
+     */
+    @Override
+    public synchronized void clear()
+    {
+        allocate( MIN_CAPACITY );
+        modCount++;
+    }
+
+    /**
+     * @return a view of the entries, oldest first
+     */
+    @Override
+    public Set<Map.Entry<Long, V>> entrySet()
+    {
+        return new AbstractSet<Map.Entry<Long, V>>()
+        {
+            @Override
+            public Iterator<Map.Entry<Long, V>> iterator()
+            {
+                return new EntryIterator();
+            }
+
+            @Override
+            public int size()
+            {
+                return LongKeyMap.this.size();
+            }
+        };
+    }
+
+    /**
+     * @param capacity a power of two
+     */
+    private void allocate( int capacity )
+    {
+        keys = new long[capacity];
+        values = new Object[capacity];
+        before = new int[capacity];
+        after = new int[capacity];
+        bits = Integer.numberOfTrailingZeros( capacity );
+        head = NONE;
+        tail = NONE;
+        size = 0;
+        removedSlots = 0;
+    }
+
+    /**
+     * Spreads the key over the table with Fibonacci hashing.
+     * <p>
+     * @param key
+     * @return the first slot to probe
+     */
+    private int index( long key )
+    {
+        return (int) ( ( key * 0x9E3779B97F4A7C15L ) >>> ( 64 - bits ) );
+    }
+
+    /**
+     * @param key
+     * @return the slot holding the key, or NONE
+     */
+    private int find( long key )
+    {
+        int mask = values.length - 1;
+        for ( int slot = index( key ); ; slot = ( slot + 1 ) & mask )
+        {
+            Object v = values[slot];
+            if ( v == null )
+            {
+                return NONE;
+            }
+            if ( v != REMOVED && keys[slot] == key )
+            {
+                return slot;
+            }
+        }
+    }
+
+    /**
+     * Puts a key that is not present into the first free or removed slot.
+     * <p>
+     * @param key
+     * @param value
+     * @return the slot
+     */
+    private int insert( long key, Object value )
+    {
+        int mask = values.length - 1;
+        int slot = index( key );
+        while ( values[slot] != null && values[slot] != REMOVED )
+        {
+            slot = ( slot + 1 ) & mask;
+        }
+        if ( values[slot] == REMOVED )
+        {
+            removedSlots--;
+        }
+        keys[slot] = key;
+        values[slot] = value;
+        return slot;
+    }
+
+    /**
+     * Rebuilds the table, keeping the order of the entries.
+     * <p>
+     * @param capacity a power of two
+     */
+    private void rehash( int capacity )
+    {
+        long[] oldKeys = keys;
+        Object[] oldValues = values;
+        int[] oldAfter = after;
+        int slot = head;
+        int count = size;
+
+        allocate( capacity );
+        while ( slot != NONE )
+        {
+            link( insert( oldKeys[slot], oldValues[slot] ) );
+            slot = oldAfter[slot];
+        }
+        size = count;
+    }
+
+    /**
+     * Unlinks the entry and marks its slot as removed.
+     * <p>
+     * @param slot
+     */
+    private void removeSlot( int slot )
+    {
+        unlink( slot );
+        values[slot] = REMOVED;
+        removedSlots++;
+        size--;
+        modCount++;
+    }
+
+    /**
+     * Adds the slot at the end of the order.
+     * <p>
+     * @param slot
+     */
+    private void link( int slot )
+    {
+        before[slot] = tail;
+        after[slot] = NONE;
+        if ( tail == NONE )
+        {
+            head = slot;
+        }
+        else
+        {
+            after[tail] = slot;
+        }
+        tail = slot;
+    }
+
+    /**
+     * Takes the slot out of the order.
+     * <p>
+     * @param slot
+     */
+    private void unlink( int slot )
+    {
+        int prev = before[slot];
+        int next = after[slot];
+        if ( prev == NONE )
+        {
+            head = next;
+        }
+        else
+        {
+            after[prev] = next;
+        }
+        if ( next == NONE )
+        {
+            tail = prev;
+        }
+        else
+        {
+            before[next] = prev;
+        }
+    }
+
+    /**
+     * @param slot
+     */
+    private void moveToEnd( int slot )
+    {
+        if ( slot != tail )
+        {
+            unlink( slot );
+            link( slot );
+        }
+    }
+
+    /**
+     * @param slot
+     * @return the value in the slot
+     */
+    @SuppressWarnings("unchecked") // only Vs are put in occupied slots
+    private V value( int slot )
+    {
+        return (V) values[slot];
+    }
+
+    /** Walks the entries from the oldest. */
+    private class EntryIterator
+        implements Iterator<Map.Entry<Long, V>>
+    {
+        /** the next slot to return */
+        private int next = head;
+
+        /** the slot returned last, for remove */
+        private int last = NONE;
+
+        /** the modification count this iterator expects */
+        private int expectedModCount = modCount;
+
+        /** @return whether there are more entries */
+        public boolean hasNext()
+        {
+            return next != NONE;
+        }
+
+        /** @return the next entry */
+        public Map.Entry<Long, V> next()
+        {
+            if ( modCount != expectedModCount )
+            {
+                throw new ConcurrentModificationException();
+            }
+            if ( next == NONE )
+            {
+                throw new NoSuchElementException();
+            }
+            last = next;
+            next = after[next];
+            return new SimpleEntry<Long, V>( Long.valueOf( keys[last] ), value( last ) );
+        }
+
+        /** Removes the entry returned last. */
+        public void remove()
+        {
+            if ( last == NONE )
+            {
+                throw new IllegalStateException();
+            }
+            if ( modCount != expectedModCount )
+            {
+                throw new ConcurrentModificationException();
+            }
+            removeSlot( last );
+            last = NONE;
+            expectedModCount = modCount;
+        }
+    }
+}
@@ -130,8 +130,24 @@ public final class CompressionUtil
         throws IOException
     {
         // Compressor with highest level of compression
+        return compressByteArray( input, bufferLength, Deflater.BEST_COMPRESSION );
+    }
+
+    /**
+     * Compress the byte array passed with the given level. The output can be decompressed with
+     * decompressByteArray whatever the level.
+     * <p>
+     * @param input byte array
+     * @param bufferLength buffer length
+     * @param level a Deflater level, for example Deflater.BEST_SPEED
+     * @return compressed byte array
+     * @exception IOException thrown if we can't close the output stream
+     */
+    public static byte[] compressByteArray( byte[] input, int bufferLength, int level )
+        throws IOException
+    {
         Deflater compressor = new Deflater();
-        compressor.setLevel( Deflater.BEST_COMPRESSION );
+        compressor.setLevel( level );
 
         // Give the compressor the data to compress
         compressor.setInput( input );
@@ -149,6 +165,7 @@ public final class CompressionUtil
             int count = compressor.deflate( buf );
             bos.write( buf, 0, count );
         }
+        compressor.end();
 
         bos.close();
 
@@ -19,21 +19,29 @@ package org.apache.commons.jcs.access;
  * under the License.
  */
 
+import java.util.HashMap;
 import java.util.HashSet;
 import java.util.Iterator;
 import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import junit.framework.TestCase;
 
 import org.apache.commons.jcs.JCS;
 import org.apache.commons.jcs.access.exception.CacheException;
+import org.apache.commons.jcs.access.exception.InvalidArgumentException;
 import org.apache.commons.jcs.access.exception.ObjectExistsException;
 import org.apache.commons.jcs.engine.CompositeCacheAttributes;
 import org.apache.commons.jcs.engine.ElementAttributes;
 import org.apache.commons.jcs.engine.behavior.ICacheElement;
 import org.apache.commons.jcs.engine.behavior.ICompositeCacheAttributes;
 import org.apache.commons.jcs.engine.behavior.IElementAttributes;
+import org.apache.commons.jcs.engine.behavior.IValueMerger;
 
 /**
  * Tests the methods of the cache access class from which the class JCS extends.
@@ -43,6 +51,173 @@ import org.apache.commons.jcs.engine.behavior.IElementAttributes;
 public class CacheAccessUnitTest
     extends TestCase
 {
+    /**
+     * Verify putIfAbsent only puts when there is no value, and replace only when the old value
+     * matches.
+     * @throws Exception
+     */
+    public void testPutIfAbsentAndReplace()
+        throws Exception
+    {
+        CacheAccess<String, String> access = JCS.getInstance( "testPutIfAbsentAndReplace" );
+
+        assertNull( "Nothing should have been cached.", access.putIfAbsent( "key", "first" ) );
+        assertEquals( "Wrong existing value.", "first", access.putIfAbsent( "key", "second" ) );
+        assertEquals( "Wrong value returned.", "first", access.get( "key" ) );
+
+        assertFalse( "Should not replace a different value.", access.replace( "key", "second", "third" ) );
+        assertTrue( "Should replace a matching value.", access.replace( "key", "first", "third" ) );
+        assertEquals( "Wrong value returned.", "third", access.get( "key" ) );
+        assertFalse( "Should not replace a missing key.", access.replace( "missing", "first", "third" ) );
+    }
+
+    /**
+     * Verify computeIfAbsent only runs the loader when there is no value.
+     * @throws Exception
+     */
+    public void testComputeIfAbsent()
+        throws Exception
+    {
+        CacheAccess<String, String> access = JCS.getInstance( "testComputeIfAbsent" );
+        final AtomicInteger calls = new AtomicInteger();
+        Callable<String> loader = new Callable<String>()
+        {
+            public String call()
+            {
+                return "loaded" + calls.incrementAndGet();
+            }
+        };
+
+        assertEquals( "Wrong computed value.", "loaded1", access.computeIfAbsent( "key", loader ) );
+        assertEquals( "Wrong cached value.", "loaded1", access.computeIfAbsent( "key", loader ) );
+        assertEquals( "Loader should have run once.", 1, calls.get() );
+    }
+
+    /**
+     * Verify that merge is atomic by counting from several threads.
+     * @throws Exception
+     */
+    public void testMerge_ConcurrentCounter()
+        throws Exception
+    {
+        final CacheAccess<String, Integer> access = JCS.getInstance( "testMerge_ConcurrentCounter" );
+        final IValueMerger<Integer> sum = new IValueMerger<Integer>()
+        {
+            public Integer merge( Integer oldValue, Integer value )
+            {
+                return Integer.valueOf( oldValue.intValue() + value.intValue() );
+            }
+        };
+        final int threads = 4;
+        final int increments = 250;
+
+        Thread[] workers = new Thread[threads];
+        for ( int i = 0; i < threads; i++ )
+        {
+            workers[i] = new Thread()
+            {
+                @Override
+                public void run()
+                {
+                    for ( int j = 0; j < increments; j++ )
+                    {
+                        try
+                        {
+                            access.merge( "counter", Integer.valueOf( 1 ), sum );
+                        }
+                        catch ( CacheException e )
+                        {
+                            fail( e.getMessage() );
+                        }
+                    }
+                }
+            };
+            workers[i].start();
+        }
+        for ( int i = 0; i < threads; i++ )
+        {
+            workers[i].join();
+        }
+
+        assertEquals( "Lost an increment.", Integer.valueOf( threads * increments ), access.get( "counter" ) );
+    }
+
+    /**
+     * Verify that a merger returning null removes the key.
+     * @throws Exception
+     */
+    public void testMerge_NullRemoves()
+        throws Exception
+    {
+        CacheAccess<String, String> access = JCS.getInstance( "testMerge_NullRemoves" );
+        access.put( "key", "value" );
+
+        String result = access.merge( "key", "other", new IValueMerger<String>()
+        {
+            public String merge( String oldValue, String value )
+            {
+                return null;
+            }
+        } );
+
+        assertNull( "Merge should have removed the value.", result );
+        assertNull( "Should have been removed.", access.get( "key" ) );
+    }
+
+    /**
+     * Verify that putAll puts every entry and removeAll removes every key.
+     * @throws Exception
+     */
+    public void testPutAllRemoveAll()
+        throws Exception
+    {
+        CacheAccess<String, String> access = JCS.getInstance( "testPutAllRemoveAll" );
+
+        Map<String, String> entries = new HashMap<String, String>();
+        for ( int i = 0; i < 10; i++ )
+        {
+            entries.put( "key" + i, "value" + i );
+        }
+
+        access.putAll( entries );
+
+        for ( Map.Entry<String, String> entry : entries.entrySet() )
+        {
+            assertEquals( "Wrong value returned.", entry.getValue(), access.get( entry.getKey() ) );
+        }
+
+        access.removeAll( entries.keySet() );
+
+        for ( String key : entries.keySet() )
+        {
+            assertNull( "Should have been removed.", access.get( key ) );
+        }
+    }
+
+    /**
+     * Verify that putAll rejects a null value and puts nothing.
+     * @throws Exception
+     */
+    public void testPutAllNullValue()
+        throws Exception
+    {
+        CacheAccess<String, String> access = JCS.getInstance( "testPutAllNullValue" );
+
+        Map<String, String> entries = new HashMap<String, String>();
+        entries.put( "key", null );
+
+        try
+        {
+            access.putAll( entries );
+            fail( "Should not be able to put a null value." );
+        }
+        catch ( InvalidArgumentException e )
+        {
+            // expected
+        }
+        assertNull( "Nothing should have been put.", access.get( "key" ) );
+    }
+
     /**
      * Verify that we get an object exists exception if the item is in the cache.
      * @throws Exception
@@ -193,6 +368,95 @@ public class CacheAccessUnitTest
         assertEquals( "value two", valueTwo, elementTwo.getVal() );
     }
 
+    /**
+     * Verify the asynchronous put, get, getCacheElements and remove round trip.
+     * @throws Exception
+     */
+    public void testAsyncOperations()
+        throws Exception
+    {
+        //SETUP
+        CacheAccess<String, String> access = JCS.getInstance( "test" );
+        String key = "asyncKey";
+        String value = "asyncValue";
+
+        //DO WORK
+        Future<Void> put = access.putAsync( key, value );
+        put.get( 10, TimeUnit.SECONDS );
+
+        Future<String> get = access.getAsync( key );
+
+        //VERIFY
+        assertTrue( "A memory hit should complete before getAsync returns", get.isDone() );
+        assertEquals( "Wrong value", value, get.get() );
+
+        Set<String> keys = new HashSet<String>();
+        keys.add( key );
+        keys.add( "asyncMissing" );
+        Map<String, ICacheElement<String, String>> elements = access.getCacheElementsAsync( keys ).get( 10, TimeUnit.SECONDS );
+        assertEquals( "Wrong number of elements", 1, elements.size() );
+        assertEquals( "Wrong value", value, elements.get( key ).getVal() );
+
+        access.removeAsync( key ).get( 10, TimeUnit.SECONDS );
+        assertNull( "Should have been removed", access.getAsync( key ).get( 10, TimeUnit.SECONDS ) );
+    }
+
+    /**
+     * Verify a failed asynchronous put reports the CacheException through the future.
+     * @throws Exception
+     */
+    public void testPutAsyncNullValue()
+        throws Exception
+    {
+        CacheAccess<String, String> access = JCS.getInstance( "test" );
+
+        Future<Void> put = access.putAsync( "asyncNullValue", null );
+        try
+        {
+            put.get( 10, TimeUnit.SECONDS );
+            fail( "Should not have been able to put a null object." );
+        }
+        catch ( ExecutionException e )
+        {
+            assertTrue( "Wrong cause", e.getCause() instanceof InvalidArgumentException );
+        }
+    }
+
+    /**
+     * Verify that a get with a loader puts the loaded value and serves later gets from the cache.
+     * <p>
+     * @throws Exception
+     */
+    public void testGetWithLoader()
+        throws Exception
+    {
+        CacheAccess<String, String> access = JCS.getInstance( "test" );
+        final int[] calls = new int[1];
+        Callable<String> loader = new Callable<String>()
+        {
+            public String call()
+            {
+                calls[0]++;
+                return "loaded";
+            }
+        };
+
+        assertEquals( "Wrong loaded value", "loaded", access.get( "readThrough", loader ) );
+        assertEquals( "Wrong cached value", "loaded", access.get( "readThrough" ) );
+        assertEquals( "Wrong value on hit", "loaded", access.get( "readThrough", loader ) );
+        assertEquals( "Loader should only run on the miss", 1, calls[0] );
+
+        try
+        {
+            access.get( null, loader );
+            fail( "Should not have been able to load a null key." );
+        }
+        catch ( InvalidArgumentException e )
+        {
+            // expected
+        }
+    }
+
     /**
      * Verify that we can get a region using the define region method.
      * @throws Exception
@@ -21,7 +21,9 @@ package org.apache.commons.jcs.auxiliary;
 
 import java.io.IOException;
 import java.io.Serializable;
+import java.util.ArrayList;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
 import java.util.Set;
 
@@ -46,9 +48,24 @@ public class MockAuxiliaryCache<K extends Serializable, V extends Serializable>
     /** Can setup status */
     public CacheStatus status = CacheStatus.ALIVE;
 
+    /** Elements passed to update, in order */
+    public List<ICacheElement<K, V>> updatedElements = new ArrayList<ICacheElement<K, V>>();
+
+    /** Times get was Called */
+    public int getCallCount = 0;
+
     /** Times getMatching was Called */
     public int getMatchingCallCount = 0;
 
+    /** Times updateMultiple was Called */
+    public int updateMultipleCallCount = 0;
+
+    /** Number of elements passed to updateMultiple */
+    public int updateMultipleElementCount = 0;
+
+    /** Times removeMultiple was Called */
+    public int removeMultipleCallCount = 0;
+
     /**
      * @param ce
      * @throws IOException
@@ -56,8 +73,19 @@ public class MockAuxiliaryCache<K extends Serializable, V extends Serializable>
     public void update( ICacheElement<K, V> ce )
         throws IOException
     {
-        // TODO Auto-generated method stub
+        updatedElements.add( ce );
+    }
 
+    /**
+     * @param cacheElements
+     * @throws IOException
+     */
+    @Override
+    public void updateMultiple( List<ICacheElement<K, V>> cacheElements )
+        throws IOException
+    {
+        updateMultipleCallCount++;
+        updateMultipleElementCount += cacheElements.size();
     }
 
     /**
@@ -68,7 +96,7 @@ public class MockAuxiliaryCache<K extends Serializable, V extends Serializable>
     public ICacheElement<K, V> get( K key )
         throws IOException
     {
-        // TODO Auto-generated method stub
+        getCallCount++;
         return null;
     }
 
@@ -108,6 +136,17 @@ public class MockAuxiliaryCache<K extends Serializable, V extends Serializable>
         return false;
     }
 
+    /**
+     * @param keys
+     * @throws IOException
+     */
+    @Override
+    public void removeMultiple( Set<K> keys )
+        throws IOException
+    {
+        removeMultipleCallCount++;
+    }
+
     /**
      * @throws IOException
      */
@@ -0,0 +1,129 @@
+package org.apache.commons.jcs.auxiliary.disk;
+
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+import java.io.EOFException;
+import java.io.File;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+
+import junit.framework.TestCase;
+
+/**
+ * Tests for the memory mapped reads of disk cache data files.
+ */
+public class MappedDataFileUnitTest
+    extends TestCase
+{
+    /** data file. */
+    private File rafDir;
+
+    /**
+     * Creates the base directory
+     */
+    public MappedDataFileUnitTest()
+    {
+        String rootDirName = "target/test-sandbox/mapped";
+        this.rafDir = new File( rootDirName );
+        this.rafDir.mkdirs();
+    }
+
+    /**
+     * Verify that reads and ints that cross a segment boundary are put together correctly.
+     * <p>
+     * @throws Exception
+     */
+    public void testRead_AcrossSegments()
+        throws Exception
+    {
+        // SETUP
+        File file = new File( rafDir, "testRead_AcrossSegments.data" );
+        file.delete();
+        RandomAccessFile raf = new RandomAccessFile( file, "rw" );
+        FileChannel fc = raf.getChannel();
+        byte[] bytes = new byte[100];
+        for ( int i = 0; i < bytes.length; i++ )
+        {
+            bytes[i] = (byte) i;
+        }
+        fc.write( ByteBuffer.wrap( bytes ), 0 );
+        ByteBuffer header = ByteBuffer.allocate( 4 );
+        header.putInt( 123456789 );
+        header.flip();
+        fc.write( header, 30 );
+        MappedDataFile mapped = new MappedDataFile( fc, 32 );
+
+        // DO WORK
+        byte[] result = mapped.read( 20, 60 );
+        int crossing = mapped.readInt( 30 );
+
+        // VERIFY
+        assertEquals( "Wrong int across the boundary", 123456789, crossing );
+        assertEquals( "Wrong byte before the int", 20, result[0] );
+        assertEquals( "Wrong byte after the int", 34, result[14] );
+        assertEquals( "Wrong last byte", 79, result[59] );
+        assertEquals( "Three segments should be mapped", 3, mapped.getMapCount() );
+        fc.close();
+        raf.close();
+    }
+
+    /**
+     * Verify that the last segment is mapped again when the file grows, and that reads past the
+     * end of the file fail.
+     * <p>
+     * @throws Exception
+     */
+    public void testRead_GrowingFile()
+        throws Exception
+    {
+        // SETUP
+        File file = new File( rafDir, "testRead_GrowingFile.data" );
+        file.delete();
+        RandomAccessFile raf = new RandomAccessFile( file, "rw" );
+        FileChannel fc = raf.getChannel();
+        fc.write( ByteBuffer.wrap( new byte[] { 1, 2, 3, 4 } ), 0 );
+        MappedDataFile mapped = new MappedDataFile( fc, 1024 );
+
+        // DO WORK
+        byte[] before = mapped.read( 0, 4 );
+        try
+        {
+            mapped.read( 2, 4 );
+            fail( "Reading past the end of the file should fail" );
+        }
+        catch ( EOFException e )
+        {
+            // expected
+        }
+        fc.write( ByteBuffer.wrap( new byte[] { 5, 6, 7, 8 } ), 4 );
+        byte[] after = mapped.read( 2, 4 );
+        mapped.reset();
+        byte[] reset = mapped.read( 0, 8 );
+
+        // VERIFY
+        assertEquals( "Wrong byte", 4, before[3] );
+        assertEquals( "Wrong byte after growth", 6, after[3] );
+        assertEquals( "Wrong byte after reset", 8, reset[7] );
+        assertEquals( "The segment should be mapped for each length", 3, mapped.getMapCount() );
+        fc.close();
+        raf.close();
+    }
+}
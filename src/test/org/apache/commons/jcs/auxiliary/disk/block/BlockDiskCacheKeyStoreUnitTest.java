@@ -19,6 +19,10 @@ package org.apache.commons.jcs.auxiliary.disk.block;
  * under the License.
  */
 
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.ObjectOutputStream;
+
 import junit.framework.TestCase;
 
 /**
@@ -126,4 +130,43 @@ public class BlockDiskCacheKeyStoreUnitTest
             assertEquals( "Wrong array returned.", i, result.length );
         }
     }
+
+    /**
+     * Verify that keys saved for another block size are not loaded, and that a key file without
+     * a header, as written before the format version, still is.
+     * <p>
+     * @throws Exception
+     */
+    public void testLoadKeys_FormatHeader()
+        throws Exception
+    {
+        // SETUP
+        String regionName = "testLoadKeys_FormatHeader";
+        BlockDiskCacheAttributes attributes = new BlockDiskCacheAttributes();
+        attributes.setCacheName( regionName );
+        attributes.setDiskPath( rootDirName );
+        attributes.setBlockSizeBytes( 2000 );
+
+        BlockDiskKeyStore<String> keyStore = new BlockDiskKeyStore<String>( attributes, null );
+        keyStore.put( "key", new int[] { 1, 2 } );
+        keyStore.saveKeys();
+
+        // DO WORK
+        attributes.setBlockSizeBytes( 1000 );
+        BlockDiskKeyStore<String> otherBlockSize = new BlockDiskKeyStore<String>( attributes, null );
+
+        BlockDiskElementDescriptor<String> descriptor = new BlockDiskElementDescriptor<String>();
+        descriptor.setKey( "legacy" );
+        descriptor.setBlocks( new int[] { 3 } );
+        ObjectOutputStream oos =
+            new ObjectOutputStream( new FileOutputStream( new File( rootDirName, regionName + ".key" ) ) );
+        oos.writeObject( descriptor );
+        oos.close();
+        BlockDiskKeyStore<String> legacy = new BlockDiskKeyStore<String>( attributes, null );
+
+        // VERIFY
+        assertEquals( "Keys of another block size should be ignored", 0, otherBlockSize.size() );
+        assertEquals( "Legacy keys should load", 1, legacy.size() );
+        assertEquals( "Wrong blocks", 3, legacy.get( "legacy" )[0] );
+    }
 }
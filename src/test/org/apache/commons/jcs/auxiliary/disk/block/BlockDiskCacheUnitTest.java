@@ -2,7 +2,11 @@ package org.apache.commons.jcs.auxiliary.disk.block;
 
 import java.io.File;
 import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
 import java.util.Map;
+import java.util.Set;
 
 import junit.framework.TestCase;
 
@@ -306,6 +310,97 @@ public class BlockDiskCacheUnitTest
 
     }
 
+    /**
+     * Write a batch of items, some of them spanning several blocks, in one call, then remove them
+     * in one call.
+     * <p>
+     * @throws Exception
+     */
+    public void testUpdateAndRemoveMultiple()
+        throws Exception
+    {
+        // SETUP
+        String cacheName = "testUpdateAndRemoveMultiple";
+        BlockDiskCacheAttributes cattr = new BlockDiskCacheAttributes();
+        cattr.setCacheName( cacheName );
+        cattr.setMaxKeySize( 100 );
+        cattr.setBlockSizeBytes( 200 );
+        cattr.setDiskPath( "target/test-sandbox/BlockDiskCacheUnitTest" );
+        BlockDiskCache<String, String> diskCache = new BlockDiskCache<String, String>( cattr );
+        diskCache.processRemoveAll();
+
+        int items = 20;
+        List<ICacheElement<String, String>> elements = new ArrayList<ICacheElement<String, String>>();
+        Set<String> keys = new HashSet<String>();
+        StringBuilder value = new StringBuilder();
+        for ( int i = 0; i < items; i++ )
+        {
+            value.append( "data " ).append( i );
+            elements.add( new CacheElement<String, String>( cacheName, i + ":key", value.toString() ) );
+            keys.add( i + ":key" );
+        }
+
+        // DO WORK
+        diskCache.processUpdateMultiple( elements );
+
+        // VERIFY
+        assertEquals( "Wrong size", items, diskCache.getSize() );
+        for ( int i = 0; i < items; i++ )
+        {
+            assertEquals( "Wrong value", elements.get( i ).getVal(), diskCache.processGet( i + ":key" ).getVal() );
+        }
+
+        // DO WORK
+        diskCache.processRemoveMultiple( keys );
+
+        // VERIFY
+        assertEquals( "Wrong size after remove", 0, diskCache.getSize() );
+        assertNull( "Should have been removed", diskCache.processGet( "0:key" ) );
+    }
+
+    /**
+     * Verify that the empty blocks are saved with the keys and reused after a restart.
+     * <p>
+     * @throws Exception
+     */
+    public void testEmptyBlocks_SurviveRestart()
+        throws Exception
+    {
+        // SETUP
+        String cacheName = "testEmptyBlocks_SurviveRestart";
+        BlockDiskCacheAttributes cattr = new BlockDiskCacheAttributes();
+        cattr.setCacheName( cacheName );
+        cattr.setMaxKeySize( 100 );
+        cattr.setBlockSizeBytes( 2000 );
+        cattr.setDiskPath( "target/test-sandbox/BlockDiskCacheUnitTest" );
+        BlockDiskCache<String, String> diskCache = new BlockDiskCache<String, String>( cattr );
+        diskCache.processRemoveAll();
+
+        int items = 10;
+        for ( int i = 0; i < items; i++ )
+        {
+            diskCache.processUpdate( new CacheElement<String, String>( cacheName, "key" + i, "data " + i ) );
+        }
+        for ( int i = 0; i < items; i += 2 )
+        {
+            diskCache.processRemove( "key" + i );
+        }
+        int emptyBlocks = diskCache.getEmptyBlockMap().size();
+        diskCache.dispose();
+
+        // DO WORK
+        BlockDiskCache<String, String> reloaded = new BlockDiskCache<String, String>( cattr );
+        int reloadedEmptyBlocks = reloaded.getEmptyBlockMap().size();
+        reloaded.processUpdate( new CacheElement<String, String>( cacheName, "new", "new data" ) );
+
+        // VERIFY
+        assertEquals( "Wrong number of empty blocks saved", items / 2, emptyBlocks );
+        assertEquals( "The empty blocks should be loaded", emptyBlocks, reloadedEmptyBlocks );
+        assertEquals( "An empty block should be reused", emptyBlocks - 1, reloaded.getEmptyBlockMap().size() );
+        assertEquals( "Wrong value", "data 1", reloaded.processGet( "key1" ).getVal() );
+        assertEquals( "Wrong value", "new data", reloaded.processGet( "new" ).getVal() );
+    }
+
     /** Holder for a string and byte array. */
     static class X
         implements Serializable
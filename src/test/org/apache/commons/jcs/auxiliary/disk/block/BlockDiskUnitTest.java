@@ -20,6 +20,7 @@ package org.apache.commons.jcs.auxiliary.disk.block;
  */
 
 import java.io.File;
+import java.io.RandomAccessFile;
 import java.util.Random;
 
 import junit.framework.TestCase;
@@ -367,4 +368,277 @@ public class BlockDiskUnitTest
         // VERIFY 
         assertEquals( "Wrong item retured.", string, result );
     }
+
+    /**
+     * Verify that blocks past 2 GB are addressed and read correctly. The file is sparse, so this
+     * does not take 3 GB of disk.
+     * <p>
+     * @throws Exception
+     */
+    public void testWriteAndRead_Past2GB()
+        throws Exception
+    {
+        // SETUP
+        File file = new File( rafDir, "testWriteAndRead_Past2GB.data" );
+        file.delete();
+        long length = 3L * 1024 * 1024 * 1024;
+        RandomAccessFile raf = new RandomAccessFile( file, "rw" );
+        raf.setLength( length );
+        raf.close();
+        BlockDisk disk = new BlockDisk( file, new StandardSerializer() );
+
+        // DO WORK
+        int[] blocks = disk.write( "past 2 GB" );
+        String result = (String) disk.read( blocks );
+
+        // VERIFY
+        assertEquals( "New blocks should follow the existing ones", length / 4096, blocks[0] );
+        assertEquals( "Wrong offset", length, disk.calculateByteOffsetForBlock( blocks[0] ) );
+        assertEquals( "Wrong item returned.", "past 2 GB", result );
+        disk.close();
+        file.delete();
+    }
+
+    /**
+     * Verify when each durability forces the channel.
+     * <p>
+     * @throws Exception
+     */
+    public void testWrite_Durability()
+        throws Exception
+    {
+        // SETUP
+        File file = new File( rafDir, "testWrite_Durability.data" );
+        file.delete();
+        BlockDisk disk = new BlockDisk( file, new StandardSerializer() );
+
+        // DO WORK
+        for ( int i = 0; i < 3; i++ )
+        {
+            disk.write( "data" + i );
+        }
+        long perWrite = disk.getForceCount();
+        disk.flush();
+        long perWriteFlushed = disk.getForceCount();
+
+        disk.setDurability( BlockDiskCacheAttributes.Durability.INTERVAL );
+        for ( int i = 0; i < 3; i++ )
+        {
+            disk.write( "data" + i );
+        }
+        long interval = disk.getForceCount();
+        disk.flush();
+        disk.flush();
+        long intervalFlushed = disk.getForceCount();
+
+        // VERIFY
+        assertEquals( "Each write should be forced", 3, perWrite );
+        assertEquals( "Nothing left to flush", 3, perWriteFlushed );
+        assertEquals( "Writes should not be forced", 3, interval );
+        assertEquals( "One force should cover the interval", 4, intervalFlushed );
+        disk.close();
+    }
+
+    /**
+     * Verify that without durability the writes are only forced when the file is closed.
+     * <p>
+     * @throws Exception
+     */
+    public void testClose_NoDurabilityForces()
+        throws Exception
+    {
+        // SETUP
+        File file = new File( rafDir, "testClose_NoDurabilityForces.data" );
+        file.delete();
+        BlockDisk disk = new BlockDisk( file, new StandardSerializer() );
+        disk.setDurability( BlockDiskCacheAttributes.Durability.NONE );
+
+        // DO WORK
+        for ( int i = 0; i < 3; i++ )
+        {
+            disk.write( "data" + i );
+        }
+        long written = disk.getForceCount();
+        disk.close();
+
+        // VERIFY
+        assertEquals( "Writes should not be forced", 0, written );
+        assertEquals( "Close should force the writes", 1, disk.getForceCount() );
+    }
+
+    /**
+     * Verify that writes made before a sync share one force.
+     * <p>
+     * @throws Exception
+     */
+    public void testSync_GroupCommit()
+        throws Exception
+    {
+        // SETUP
+        File file = new File( rafDir, "testSync_GroupCommit.data" );
+        file.delete();
+        final BlockDisk disk = new BlockDisk( file, new StandardSerializer() );
+        final int threads = 8;
+        final int writesPerThread = 20;
+
+        // DO WORK
+        for ( int i = 0; i < 5; i++ )
+        {
+            disk.writeUnsynced( "data" + i );
+        }
+        disk.sync();
+        disk.sync();
+        long grouped = disk.getForceCount();
+
+        Thread[] writers = new Thread[threads];
+        final Exception[] failure = new Exception[1];
+        for ( int t = 0; t < threads; t++ )
+        {
+            writers[t] = new Thread()
+            {
+                @Override
+                public void run()
+                {
+                    try
+                    {
+                        for ( int i = 0; i < writesPerThread; i++ )
+                        {
+                            disk.write( "data" + i );
+                        }
+                    }
+                    catch ( Exception e )
+                    {
+                        failure[0] = e;
+                    }
+                }
+            };
+            writers[t].start();
+        }
+        for ( Thread writer : writers )
+        {
+            writer.join();
+        }
+        long concurrent = disk.getForceCount() - grouped;
+        disk.flush();
+
+        // VERIFY
+        assertNull( "Writes failed", failure[0] );
+        assertEquals( "One force should cover the batch", 1, grouped );
+        assertTrue( "At most one force per write", concurrent <= threads * writesPerThread );
+        assertEquals( "Every write should be forced already", grouped + concurrent, disk.getForceCount() );
+        disk.close();
+    }
+
+    /**
+     * Verify that freed blocks are reused in ascending order, so an element written to them is
+     * contiguous again, and that new blocks are taken together at the end of the file.
+     * <p>
+     * @throws Exception
+     */
+    public void testWrite_ContiguousAllocation()
+        throws Exception
+    {
+        // SETUP
+        File file = new File( rafDir, "testWrite_ContiguousAllocation.data" );
+        file.delete();
+        BlockDisk disk = new BlockDisk( file, 64, new StandardSerializer() );
+        byte[] value = new byte[150];
+        int[] first = disk.write( value );
+        disk.write( "between" );
+        disk.freeBlocks( new int[] { first[2], first[0], first[1] } );
+
+        // DO WORK
+        int[] reused = disk.write( value );
+        int[] added = disk.write( new byte[300] );
+
+        // VERIFY
+        assertEquals( "Wrong number of blocks", first.length, reused.length );
+        for ( int i = 0; i < first.length; i++ )
+        {
+            assertEquals( "Freed blocks should be reused in order", first[i], reused[i] );
+        }
+        for ( int i = 1; i < added.length; i++ )
+        {
+            assertEquals( "New blocks should follow each other", added[i - 1] + 1, added[i] );
+        }
+        disk.close();
+    }
+
+    /**
+     * Verify that an element spread over several runs of blocks is read back correctly, with and
+     * without memory mapped reads.
+     * <p>
+     * @throws Exception
+     */
+    public void testWriteAndRead_SeveralRuns()
+        throws Exception
+    {
+        // SETUP
+        File file = new File( rafDir, "testWriteAndRead_SeveralRuns.data" );
+        file.delete();
+        BlockDisk disk = new BlockDisk( file, 64, new StandardSerializer() );
+        int[][] small = new int[6][];
+        for ( int i = 0; i < small.length; i++ )
+        {
+            small[i] = disk.write( "s" + i );
+        }
+        disk.freeBlocks( small[1] );
+        disk.freeBlocks( small[2] );
+        disk.freeBlocks( small[4] );
+        StringBuilder big = new StringBuilder();
+        for ( int i = 0; i < 100; i++ )
+        {
+            big.append( "run " ).append( i );
+        }
+
+        // DO WORK
+        int[] blocks = disk.write( big.toString() );
+        String result = (String) disk.read( blocks );
+        disk.setMemoryMappedReads( true );
+        String mappedResult = (String) disk.read( blocks );
+
+        // VERIFY
+        assertEquals( "Should start in the freed blocks", small[1][0], blocks[0] );
+        assertEquals( "Wrong item returned.", big.toString(), result );
+        assertEquals( "Wrong item returned from the mappings.", big.toString(), mappedResult );
+        assertEquals( "Wrong neighbor returned.", "s3", disk.read( small[3] ) );
+        disk.close();
+    }
+
+    /**
+     * Verify that memory mapped reads return what was written, including after the file grew and
+     * after a reset.
+     * <p>
+     * @throws Exception
+     */
+    public void testWriteAndRead_MemoryMapped()
+        throws Exception
+    {
+        // SETUP
+        File file = new File( rafDir, "testWriteAndRead_MemoryMapped.data" );
+        file.delete();
+        BlockDisk disk = new BlockDisk( file, 64, new StandardSerializer() );
+        disk.setMemoryMappedReads( true );
+        StringBuilder big = new StringBuilder();
+        for ( int i = 0; i < 100; i++ )
+        {
+            big.append( "mapped " ).append( i );
+        }
+
+        // DO WORK
+        int[] first = disk.write( "first" );
+        String firstResult = (String) disk.read( first );
+        int[] second = disk.write( big.toString() );
+        String secondResult = (String) disk.read( second );
+        disk.reset();
+        int[] third = disk.write( "third" );
+        String thirdResult = (String) disk.read( third );
+
+        // VERIFY
+        assertTrue( "Reads should be mapped", disk.isMemoryMappedReads() );
+        assertEquals( "Wrong item returned.", "first", firstResult );
+        assertEquals( "Wrong item returned after growth.", big.toString(), secondResult );
+        assertEquals( "Wrong item returned after reset.", "third", thirdResult );
+        disk.close();
+    }
 }
@@ -0,0 +1,140 @@
+package org.apache.commons.jcs.auxiliary.disk.block;
+
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+
+import junit.framework.TestCase;
+
+/**
+ * Tests for the free block map of the block disk.
+ */
+public class FreeBlockBitmapUnitTest
+    extends TestCase
+{
+    /**
+     * Verify that a run of free blocks is preferred over the first free blocks.
+     */
+    public void testAllocate_PrefersRun()
+    {
+        // SETUP
+        FreeBlockBitmap map = new FreeBlockBitmap();
+        map.free( new int[] { 2, 5, 9, 10, 11, 12, 70 } );
+
+        // DO WORK
+        int[] blocks = new int[3];
+        int taken = map.allocate( blocks, 3 );
+
+        // VERIFY
+        assertEquals( "Wrong number taken", 3, taken );
+        assertEquals( "Should take the run", 9, blocks[0] );
+        assertEquals( "Should take the run", 11, blocks[2] );
+        assertEquals( "Wrong number left", 4, map.size() );
+    }
+
+    /**
+     * Verify that scattered blocks are taken in ascending order when there is no run, and that no
+     * more blocks are taken than are free.
+     */
+    public void testAllocate_Scattered()
+    {
+        // SETUP
+        FreeBlockBitmap map = new FreeBlockBitmap();
+        map.free( new int[] { 200, 3, 64, 7 } );
+        map.free( 3 );
+
+        // DO WORK
+        int[] blocks = new int[6];
+        int taken = map.allocate( blocks, 6 );
+
+        // VERIFY
+        assertEquals( "Only the free blocks should be taken", 4, taken );
+        assertEquals( "Wrong block", 3, blocks[0] );
+        assertEquals( "Wrong block", 7, blocks[1] );
+        assertEquals( "Wrong block", 64, blocks[2] );
+        assertEquals( "Wrong block", 200, blocks[3] );
+        assertEquals( "Nothing should be left", 0, map.size() );
+        assertEquals( "Nothing to take", 0, map.allocate( blocks, 1 ) );
+    }
+
+    /**
+     * Verify that the search goes on from the last allocation and wraps to the start.
+     */
+    public void testAllocate_NextFit()
+    {
+        // SETUP
+        FreeBlockBitmap map = new FreeBlockBitmap();
+        map.free( new int[] { 1, 2, 3, 4 } );
+        int[] blocks = new int[2];
+        map.allocate( blocks, 2 );
+
+        // DO WORK
+        map.free( 1 );
+        int[] next = new int[1];
+        map.allocate( next, 1 );
+        int[] following = new int[1];
+        map.allocate( following, 1 );
+        int[] wrapped = new int[1];
+        map.allocate( wrapped, 1 );
+
+        // VERIFY
+        assertEquals( "First run", 1, blocks[0] );
+        assertEquals( "Should go on after the last allocation", 3, next[0] );
+        assertEquals( "Should go on after the last allocation", 4, following[0] );
+        assertEquals( "Should wrap to the start", 1, wrapped[0] );
+        assertEquals( "Nothing should be left", 0, map.size() );
+    }
+
+    /**
+     * Verify that the map survives serialization, and that loading it leaves out the blocks past
+     * the end of the file.
+     * <p>
+     * @throws Exception
+     */
+    public void testLoad_Serialized()
+        throws Exception
+    {
+        // SETUP
+        FreeBlockBitmap map = new FreeBlockBitmap();
+        map.free( new int[] { 1, 100, 5000 } );
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        ObjectOutputStream oos = new ObjectOutputStream( bytes );
+        oos.writeObject( map );
+        oos.close();
+
+        // DO WORK
+        ObjectInputStream ois = new ObjectInputStream( new ByteArrayInputStream( bytes.toByteArray() ) );
+        FreeBlockBitmap saved = (FreeBlockBitmap) ois.readObject();
+        ois.close();
+        FreeBlockBitmap loaded = new FreeBlockBitmap();
+        loaded.free( 7 );
+        loaded.load( saved, 1000 );
+
+        // VERIFY
+        assertEquals( "Wrong number saved", 3, saved.size() );
+        assertEquals( "Blocks past the end should be left out", 2, loaded.size() );
+        assertFalse( "The old content should be replaced", loaded.take( 7 ) );
+        assertTrue( "Should be free", loaded.take( 100 ) );
+        assertFalse( "Should be past the end", loaded.take( 5000 ) );
+    }
+}
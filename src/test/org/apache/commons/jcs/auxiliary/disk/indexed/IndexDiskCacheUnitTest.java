@@ -20,7 +20,10 @@ package org.apache.commons.jcs.auxiliary.disk.indexed;
  */
 
 import java.io.IOException;
+import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.HashSet;
+import java.util.List;
 import java.util.Map;
 import java.util.Set;
 
@@ -93,6 +96,90 @@ public class IndexDiskCacheUnitTest
         //System.out.println( disk.getStats() );
     }
 
+    /**
+     * Verify that a region with long keys stores and finds its elements and drops the least
+     * recently used keys beyond the max key size.
+     * <p>
+     * @throws IOException
+     */
+    public void testSimplePutAndGet_LongKeys()
+        throws IOException
+    {
+        IndexedDiskCacheAttributes cattr = new IndexedDiskCacheAttributes();
+        cattr.setCacheName( "testSimplePutAndGet_LongKeys" );
+        cattr.setMaxKeySize( 100 );
+        cattr.setLongKeys( true );
+        cattr.setDiskPath( "target/test-sandbox/IndexDiskCacheUnitTest" );
+        IndexedDiskCache<Long, String> disk = new IndexedDiskCache<Long, String>( cattr );
+
+        disk.processRemoveAll();
+
+        int cnt = 150;
+        for ( long i = 0; i < cnt; i++ )
+        {
+            IElementAttributes eAttr = new ElementAttributes();
+            eAttr.setIsSpool( true );
+            ICacheElement<Long, String> element = new CacheElement<Long, String>( "testSimplePutAndGet_LongKeys", Long.valueOf( i ), "data:" + i );
+            element.setElementAttributes( eAttr );
+            disk.processUpdate( element );
+        }
+
+        assertEquals( "Wrong number of keys", 100, disk.getSize() );
+        assertNull( "Oldest key should be gone", disk.processGet( Long.valueOf( 0 ) ) );
+        for ( long i = cnt - 100; i < cnt; i++ )
+        {
+            ICacheElement<Long, String> element = disk.processGet( Long.valueOf( i ) );
+            assertNotNull( "Should have received an element.", element );
+            assertEquals( "Element is wrong.", "data:" + i, element.getVal() );
+        }
+        assertTrue( "Should have removed", disk.processRemove( Long.valueOf( cnt - 1 ) ) );
+        assertEquals( "Wrong number of keys", 99, disk.getSize() );
+    }
+
+    /**
+     * Verify that memory mapped reads see the records written after the file grew and after it
+     * was optimized and truncated.
+     * <p>
+     * @throws IOException
+     */
+    public void testSimplePutAndGet_MemoryMapped()
+        throws IOException
+    {
+        IndexedDiskCacheAttributes cattr = new IndexedDiskCacheAttributes();
+        cattr.setCacheName( "testSimplePutAndGet_MemoryMapped" );
+        cattr.setMaxKeySize( 1000 );
+        cattr.setMemoryMappedReads( true );
+        cattr.setDiskPath( "target/test-sandbox/IndexDiskCacheUnitTest" );
+        IndexedDiskCache<String, String> disk = new IndexedDiskCache<String, String>( cattr );
+
+        disk.processRemoveAll();
+
+        int cnt = 50;
+        for ( int i = 0; i < cnt; i++ )
+        {
+            IElementAttributes eAttr = new ElementAttributes();
+            eAttr.setIsSpool( true );
+            ICacheElement<String, String> element = new CacheElement<String, String>( "testSimplePutAndGet_MemoryMapped", "key:" + i, "data:" + i );
+            element.setElementAttributes( eAttr );
+            disk.processUpdate( element );
+            assertEquals( "Element is wrong.", "data:" + i, disk.processGet( "key:" + i ).getVal() );
+        }
+
+        for ( int i = 0; i < cnt; i += 2 )
+        {
+            disk.processRemove( "key:" + i );
+        }
+        disk.optimizeFile();
+
+        for ( int i = 1; i < cnt; i += 2 )
+        {
+            ICacheElement<String, String> element = disk.processGet( "key:" + i );
+            assertNotNull( "Should have received an element.", element );
+            assertEquals( "Element is wrong.", "data:" + i, element.getVal() );
+        }
+        assertNull( "Removed key should be gone", disk.processGet( "key:0" ) );
+    }
+
     /**
      * Add some items to the disk cache and then remove them one by one.
      * @throws IOException
@@ -127,6 +214,52 @@ public class IndexDiskCacheUnitTest
         }
     }
 
+    /**
+     * Write a batch of items in one call, including a key that appears twice, then remove them in
+     * one call.
+     * <p>
+     * @throws IOException
+     */
+    public void testUpdateAndRemoveMultiple()
+        throws IOException
+    {
+        IndexedDiskCacheAttributes cattr = new IndexedDiskCacheAttributes();
+        cattr.setCacheName( "testUpdateAndRemoveMultiple" );
+        cattr.setMaxKeySize( 100 );
+        cattr.setDiskPath( "target/test-sandbox/IndexDiskCacheUnitTest" );
+        IndexedDiskCache<String, String> disk = new IndexedDiskCache<String, String>( cattr );
+
+        disk.processRemoveAll();
+
+        int cnt = 25;
+        List<ICacheElement<String, String>> elements = new ArrayList<ICacheElement<String, String>>();
+        Set<String> keys = new HashSet<String>();
+        for ( int i = 0; i < cnt; i++ )
+        {
+            elements.add( new CacheElement<String, String>( "testUpdateAndRemoveMultiple", "key:" + i, "data:" + i ) );
+            keys.add( "key:" + i );
+        }
+        // the last one wins
+        elements.add( new CacheElement<String, String>( "testUpdateAndRemoveMultiple", "key:0", "data:again" ) );
+
+        disk.processUpdateMultiple( elements );
+
+        assertEquals( "Wrong size", cnt, disk.getSize() );
+        assertEquals( "Wrong value for the repeated key", "data:again", disk.processGet( "key:0" ).getVal() );
+        for ( int i = 1; i < cnt; i++ )
+        {
+            assertEquals( "Wrong value", "data:" + i, disk.processGet( "key:" + i ).getVal() );
+        }
+
+        disk.processRemoveMultiple( keys );
+
+        assertEquals( "Wrong size after remove", 0, disk.getSize() );
+        for ( int i = 0; i < cnt; i++ )
+        {
+            assertNull( "Should not have received an element.", disk.processGet( "key:" + i ) );
+        }
+    }
+
     /**
      * Verify that we don't override the largest item.
      * <p>
@@ -664,6 +797,39 @@ public class IndexDiskCacheUnitTest
         assertEquals( "End should have been called.", 2, cacheEventLogger.endICacheEventCalls );
     }
 
+    /**
+     * Verify that the batch methods accept collections that are not serializable, such as the key
+     * set of a map.
+     * <p>
+     * @throws Exception
+     */
+    public void testRemoveMultiple_KeySetOfMap()
+        throws Exception
+    {
+        // SETUP
+        IndexedDiskCacheAttributes cattr = new IndexedDiskCacheAttributes();
+        cattr.setCacheName( "testRemoveMultiple_KeySetOfMap" );
+        cattr.setMaxKeySize( 100 );
+        cattr.setDiskPath( "target/test-sandbox/IndexDiskCacheUnitTestCEL" );
+        IndexedDiskCache<String, String> diskCache = new IndexedDiskCache<String, String>( cattr );
+        diskCache.processRemoveAll();
+
+        Map<String, String> values = new HashMap<String, String>();
+        List<ICacheElement<String, String>> elements = new ArrayList<ICacheElement<String, String>>();
+        for ( int i = 0; i < 4; i++ )
+        {
+            values.put( "key" + i, "data" + i );
+            elements.add( new CacheElement<String, String>( "testRemoveMultiple_KeySetOfMap", "key" + i, "data" + i ) );
+        }
+
+        // DO WORK
+        diskCache.updateMultiple( elements.subList( 0, 4 ) );
+        diskCache.removeMultiple( values.keySet() );
+
+        // VERIFY
+        assertEquals( "Wrong size", 0, diskCache.getSize() );
+    }
+
     /**
      * Verify event log calls.
      * <p>
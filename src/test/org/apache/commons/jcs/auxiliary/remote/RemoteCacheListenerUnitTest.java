@@ -22,6 +22,7 @@ package org.apache.commons.jcs.auxiliary.remote;
 import junit.framework.TestCase;
 
 import org.apache.commons.jcs.auxiliary.remote.behavior.IRemoteCacheAttributes;
+import org.apache.commons.jcs.engine.CacheElementLazy;
 import org.apache.commons.jcs.engine.CacheElementSerialized;
 import org.apache.commons.jcs.engine.ElementAttributes;
 import org.apache.commons.jcs.engine.behavior.ICache;
@@ -84,6 +85,45 @@ public class RemoteCacheListenerUnitTest
         assertEquals( "Cache name should be the same.", cacheName, after.getCacheName() );
     }
 
+    /**
+     * Create a RemoteCacheListener with a mock cache manager for a region with lazy
+     * deserialization. Call put on the listener with a serialized element.
+     * Verify that the element in the cache is still serialized until its value is read.
+     * <p>
+     * @throws Exception
+     */
+    public void testUpdate_PutOnPut_LazyDeserialization()
+        throws Exception
+    {
+        // SETUP
+        IRemoteCacheAttributes irca = new RemoteCacheAttributes();
+        irca.setRemoveUponRemotePut( false );
+        ICompositeCacheManager cacheMgr = new MockCompositeCacheManager();
+        RemoteCacheListener<String, String> listener = new RemoteCacheListener<String, String>( irca, cacheMgr );
+
+        String cacheName = "testName";
+        String key = "key";
+        String value = "value fdsadf dsafdsa fdsaf dsafdsaf dsafdsaf dsaf dsaf dsaf dsafa dsaf dsaf dsafdsaf";
+        cacheMgr.getCache( cacheName ).getCacheAttributes().setLazyDeserialization( true );
+
+        IElementSerializer elementSerializer = new StandardSerializer();
+
+        ICacheElementSerialized<String, String> element =
+            new CacheElementSerialized<String, String>( cacheName, key, elementSerializer
+            .serialize( value ), new ElementAttributes() );
+
+        // DO WORK
+        listener.handlePut( element );
+
+        // VERIFY
+        ICache<String, String> cache = cacheMgr.getCache( cacheName );
+        ICacheElement<String, String> after = cache.get( key );
+
+        assertTrue( "Should be lazy.", after instanceof CacheElementLazy );
+        assertFalse( "Should not be deserialized yet.", ( (CacheElementLazy<String, String>) after ).isDeSerialized() );
+        assertEquals( "Values should be the same.", value, after.getVal() );
+    }
+
     /**
      * Create a RemoteCacheListener with a mock cache manager.  Set remove on put to true.
      * Create a serialized element.  Call put on the listener.
@@ -19,8 +19,10 @@ package org.apache.commons.jcs.auxiliary.remote;
  * under the License.
  */
 
+import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.HashSet;
+import java.util.List;
 import java.util.Map;
 import java.util.Set;
 
@@ -138,6 +140,39 @@ public class RemoteCacheNoWaitUnitTest
         assertEquals( "Wrong key", input, client.removeList.get( 0 ) );
     }
 
+    /**
+     * Verify that the batches are queued as they were when the calls were made, even if the
+     * caller clears its collections right after.
+     * <p>
+     * @throws Exception
+     */
+    public void testUpdateAndRemoveMultiple_CallerClearsCollections()
+        throws Exception
+    {
+        // SETUP
+        MockRemoteCacheClient<String, String> client = new MockRemoteCacheClient<String, String>();
+        RemoteCacheNoWait<String, String> noWait = new RemoteCacheNoWait<String, String>( client );
+
+        List<ICacheElement<String, String>> elements = new ArrayList<ICacheElement<String, String>>();
+        elements.add( new CacheElement<String, String>( "testMultiple", "key1", "value1" ) );
+        elements.add( new CacheElement<String, String>( "testMultiple", "key2", "value2" ) );
+        Set<String> keys = new HashSet<String>();
+        keys.add( "key1" );
+        keys.add( "key2" );
+
+        // DO WORK
+        noWait.updateMultiple( elements );
+        elements.clear();
+        noWait.removeMultiple( keys );
+        keys.clear();
+
+        SleepUtil.sleepAtLeast( 50 );
+
+        // VERIFY
+        assertEquals( "Wrong number updated.", 2, client.updateList.size() );
+        assertEquals( "Wrong number removed.", 2, client.removeList.size() );
+    }
+
     /**
      * Simply verify that the client status is returned in the stats.
      * <p>
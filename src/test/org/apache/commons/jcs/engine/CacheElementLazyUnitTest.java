@@ -0,0 +1,124 @@
+package org.apache.commons.jcs.engine;
+
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+import java.util.ArrayList;
+
+import junit.framework.TestCase;
+
+import org.apache.commons.jcs.engine.behavior.ICacheElement;
+import org.apache.commons.jcs.engine.memory.util.SizeEstimatingWeigher;
+import org.apache.commons.jcs.utils.serialization.StandardSerializer;
+
+/**
+ * Tests for the lazily de-serialized element.
+ */
+public class CacheElementLazyUnitTest
+    extends TestCase
+{
+    /**
+     * Creates a lazy element for a list value.
+     * <p>
+     * @param keepValue
+     * @return the element
+     * @throws Exception
+     */
+    private CacheElementLazy<String, ArrayList<String>> createElement( boolean keepValue )
+        throws Exception
+    {
+        ArrayList<String> value = new ArrayList<String>();
+        value.add( "one" );
+        value.add( "two" );
+        StandardSerializer serializer = new StandardSerializer();
+        CacheElementSerialized<String, ArrayList<String>> serialized =
+            new CacheElementSerialized<String, ArrayList<String>>( "region", "key", serializer.serialize( value ),
+                                                                    new ElementAttributes() );
+        return new CacheElementLazy<String, ArrayList<String>>( serialized, serializer, keepValue );
+    }
+
+    /**
+     * The value is de-serialized on the first get and kept for the next ones.
+     * <p>
+     * @throws Exception
+     */
+    public void testGetVal_KeepValue()
+        throws Exception
+    {
+        // SETUP
+        CacheElementLazy<String, ArrayList<String>> ce = createElement( true );
+
+        // DO WORK
+        boolean before = ce.isDeSerialized();
+        ArrayList<String> first = ce.getVal();
+        ArrayList<String> second = ce.getVal();
+
+        // VERIFY
+        assertFalse( "Should not be de-serialized before the get", before );
+        assertEquals( "Wrong value", "two", first.get( 1 ) );
+        assertSame( "Should keep the value", first, second );
+        assertTrue( "Should be de-serialized", ce.isDeSerialized() );
+    }
+
+    /**
+     * Without keeping the value, every get de-serializes a new copy.
+     * <p>
+     * @throws Exception
+     */
+    public void testGetVal_DoNotKeepValue()
+        throws Exception
+    {
+        // SETUP
+        CacheElementLazy<String, ArrayList<String>> ce = createElement( false );
+
+        // DO WORK
+        ArrayList<String> first = ce.getVal();
+        ArrayList<String> second = ce.getVal();
+
+        // VERIFY
+        assertEquals( "Wrong value", first, second );
+        assertNotSame( "Should not keep the value", first, second );
+        assertFalse( "Should not be kept", ce.isDeSerialized() );
+    }
+
+    /**
+     * An element written to disk and read back is still lazy, and weighing it does not
+     * de-serialize it.
+     * <p>
+     * @throws Exception
+     */
+    public void testSerializeAndWeigh_StayLazy()
+        throws Exception
+    {
+        // SETUP
+        CacheElementLazy<String, ArrayList<String>> ce = createElement( true );
+        ce.getVal();
+        StandardSerializer serializer = new StandardSerializer();
+
+        // DO WORK
+        ICacheElement<String, ArrayList<String>> read = serializer.deSerialize( serializer.serialize( ce ) );
+        long weight = new SizeEstimatingWeigher<String, ArrayList<String>>().weigh( read );
+
+        // VERIFY
+        assertTrue( "Should be lazy", read instanceof CacheElementLazy );
+        assertFalse( "Should not be de-serialized", ( (CacheElementLazy<String, ArrayList<String>>) read ).isDeSerialized() );
+        assertTrue( "Should have a weight", weight > 0 );
+        assertEquals( "Wrong value", "one", read.getVal().get( 0 ) );
+    }
+}
@@ -120,6 +120,35 @@ public class MockCacheServiceNonLocal<K extends Serializable, V extends Serializ
         updateRequestIdList.add( Long.valueOf( requesterId ) );
     }
 
+    /**
+     * Calls update for each item.
+     * <p>
+     * @param items
+     * @param requesterId - identity of requester
+     */
+    public void updateMultiple( List<ICacheElement<K, V>> items, long requesterId )
+    {
+        for ( ICacheElement<K, V> item : items )
+        {
+            update( item, requesterId );
+        }
+    }
+
+    /**
+     * Calls remove for each key.
+     * <p>
+     * @param cacheName
+     * @param keys
+     * @param requesterId - identity of requester
+     */
+    public void removeMultiple( String cacheName, Set<K> keys, long requesterId )
+    {
+        for ( K key : keys )
+        {
+            remove( cacheName, key, requesterId );
+        }
+    }
+
     /**
      * Do nothing.
      * <p>
@@ -20,7 +20,16 @@ package org.apache.commons.jcs.engine.control;
  */
 
 import java.io.IOException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
 import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import junit.framework.TestCase;
 
@@ -33,6 +42,7 @@ import org.apache.commons.jcs.engine.behavior.ICacheElement;
 import org.apache.commons.jcs.engine.behavior.ICacheType.CacheType;
 import org.apache.commons.jcs.engine.behavior.ICompositeCacheAttributes;
 import org.apache.commons.jcs.engine.behavior.IElementAttributes;
+import org.apache.commons.jcs.engine.behavior.IValueMerger;
 import org.apache.commons.jcs.engine.memory.MockMemoryCache;
 
 /**
@@ -241,4 +251,1081 @@ public class CompositeCacheUnitTest
         // VERIFY
         assertEquals( "Wrong number of calls", 1, diskMock.getMatchingCallCount );
     }
+
+    /**
+     * Verify that a get which is stuck in a slow auxiliary does not block memory hits or puts for
+     * other keys in the same region.
+     * <p>
+     * @throws Exception
+     */
+    public void testGet_SlowAuxiliaryDoesNotBlockMemoryHit()
+        throws Exception
+    {
+        // SETUP
+        String cacheName = "testGet_SlowAuxiliaryDoesNotBlockMemoryHit";
+        ICompositeCacheAttributes cattr = new CompositeCacheAttributes();
+        cattr.setMemoryCacheName( "org.apache.commons.jcs.engine.memory.lru.LRUMemoryCache" );
+        cattr.setMaxObjects( 100 );
+
+        IElementAttributes attr = new ElementAttributes();
+
+        final CompositeCache<String, Integer> cache = new CompositeCache<String, Integer>( cacheName, cattr, attr );
+
+        final CountDownLatch auxEntered = new CountDownLatch( 1 );
+        final CountDownLatch auxRelease = new CountDownLatch( 1 );
+        MockAuxiliaryCache<String, Integer> diskMock = new MockAuxiliaryCache<String, Integer>()
+        {
+            private static final long serialVersionUID = 1L;
+
+            @Override
+            public ICacheElement<String, Integer> get( String key )
+                throws IOException
+            {
+                auxEntered.countDown();
+                try
+                {
+                    auxRelease.await( 10, TimeUnit.SECONDS );
+                }
+                catch ( InterruptedException e )
+                {
+                    Thread.currentThread().interrupt();
+                }
+                return null;
+            }
+        };
+        diskMock.cacheType = CacheType.DISK_CACHE;
+        @SuppressWarnings("unchecked")
+        AuxiliaryCache<String, Integer>[] aux = new AuxiliaryCache[] { diskMock };
+        cache.setAuxCaches( aux );
+
+        cache.update( new CacheElement<String, Integer>( cacheName, "inMemory", Integer.valueOf( 1 ) ), false );
+
+        Thread slowReader = new Thread()
+        {
+            @Override
+            public void run()
+            {
+                cache.get( "notInMemory" );
+            }
+        };
+        slowReader.start();
+        assertTrue( "Slow reader should have reached the auxiliary", auxEntered.await( 10, TimeUnit.SECONDS ) );
+
+        try
+        {
+            // DO WORK
+            long start = System.currentTimeMillis();
+            ICacheElement<String, Integer> result = cache.get( "inMemory" );
+            cache.update( new CacheElement<String, Integer>( cacheName, "other", Integer.valueOf( 2 ) ), false );
+            long elapsed = System.currentTimeMillis() - start;
+
+            // VERIFY
+            assertNotNull( "Should have found the element in memory", result );
+            assertTrue( "Memory hit waited on the auxiliary: " + elapsed + "ms", elapsed < 5000 );
+            assertEquals( "Wrong ram hit count", 1, cache.getHitCountRam() );
+        }
+        finally
+        {
+            auxRelease.countDown();
+            slowReader.join();
+        }
+
+        assertEquals( "Wrong miss count", 1, cache.getMissCountNotFound() );
+    }
+
+    /**
+     * Verify that a put stuck in a slow auxiliary only holds up its own key. A put for a key on
+     * another lock stripe goes through.
+     * <p>
+     * @throws Exception
+     */
+    public void testUpdate_SlowAuxiliaryDoesNotBlockOtherKeys()
+        throws Exception
+    {
+        // SETUP
+        String cacheName = "testUpdate_SlowAuxiliaryDoesNotBlockOtherKeys";
+        ICompositeCacheAttributes cattr = new CompositeCacheAttributes();
+        cattr.setMemoryCacheName( "org.apache.commons.jcs.engine.memory.lru.LRUMemoryCache" );
+        cattr.setMaxObjects( 100 );
+        cattr.setDiskUsagePattern( ICompositeCacheAttributes.DiskUsagePattern.UPDATE );
+
+        IElementAttributes attr = new ElementAttributes();
+
+        final CompositeCache<String, Integer> cache = new CompositeCache<String, Integer>( cacheName, cattr, attr );
+
+        final String slowKey = "slow";
+        final CountDownLatch auxEntered = new CountDownLatch( 1 );
+        final CountDownLatch auxRelease = new CountDownLatch( 1 );
+        MockAuxiliaryCache<String, Integer> diskMock = new MockAuxiliaryCache<String, Integer>()
+        {
+            private static final long serialVersionUID = 1L;
+
+            @Override
+            public void update( ICacheElement<String, Integer> ce )
+                throws IOException
+            {
+                if ( slowKey.equals( ce.getKey() ) )
+                {
+                    auxEntered.countDown();
+                    try
+                    {
+                        auxRelease.await( 10, TimeUnit.SECONDS );
+                    }
+                    catch ( InterruptedException e )
+                    {
+                        Thread.currentThread().interrupt();
+                    }
+                }
+            }
+        };
+        diskMock.cacheType = CacheType.DISK_CACHE;
+        @SuppressWarnings("unchecked")
+        AuxiliaryCache<String, Integer>[] aux = new AuxiliaryCache[] { diskMock };
+        cache.setAuxCaches( aux );
+
+        // find a key that does not share a stripe with the slow key
+        StripedKeyLock stripes = new StripedKeyLock();
+        String fastKey = null;
+        for ( int i = 0; fastKey == null; i++ )
+        {
+            if ( stripes.getLock( "fast" + i ) != stripes.getLock( slowKey ) )
+            {
+                fastKey = "fast" + i;
+            }
+        }
+
+        Thread slowWriter = new Thread()
+        {
+            @Override
+            public void run()
+            {
+                try
+                {
+                    cache.update( new CacheElement<String, Integer>( "testUpdate", slowKey, Integer.valueOf( 1 ) ), false );
+                }
+                catch ( IOException e )
+                {
+                    // ignore
+                }
+            }
+        };
+        slowWriter.start();
+        assertTrue( "Slow writer should have reached the auxiliary", auxEntered.await( 10, TimeUnit.SECONDS ) );
+
+        try
+        {
+            // DO WORK
+            long start = System.currentTimeMillis();
+            cache.update( new CacheElement<String, Integer>( cacheName, fastKey, Integer.valueOf( 2 ) ), false );
+            cache.remove( fastKey );
+            long elapsed = System.currentTimeMillis() - start;
+
+            // VERIFY
+            assertTrue( "Put waited on another key's auxiliary: " + elapsed + "ms", elapsed < 5000 );
+        }
+        finally
+        {
+            auxRelease.countDown();
+            slowWriter.join();
+        }
+
+        assertEquals( "Wrong update count", 2, cache.getUpdateCount() );
+        assertNotNull( "Slow key should be in memory", cache.localGet( slowKey ) );
+    }
+
+    /**
+     * Verify that a put stuck in a slow auxiliary does not hold the key lock, yet a later put of
+     * the same key reaches the auxiliary after it.
+     * <p>
+     * @throws Exception
+     */
+    public void testUpdate_SlowAuxiliaryKeepsOrderWithoutKeyLock()
+        throws Exception
+    {
+        // SETUP
+        final String cacheName = "testUpdate_SlowAuxiliaryKeepsOrderWithoutKeyLock";
+        ICompositeCacheAttributes cattr = new CompositeCacheAttributes();
+        cattr.setMemoryCacheName( "org.apache.commons.jcs.engine.memory.lru.LRUMemoryCache" );
+        cattr.setMaxObjects( 100 );
+        cattr.setDiskUsagePattern( ICompositeCacheAttributes.DiskUsagePattern.UPDATE );
+
+        IElementAttributes attr = new ElementAttributes();
+
+        final CompositeCache<String, Integer> cache = new CompositeCache<String, Integer>( cacheName, cattr, attr );
+
+        final List<Integer> auxUpdates = new ArrayList<Integer>();
+        final CountDownLatch auxEntered = new CountDownLatch( 1 );
+        final CountDownLatch auxRelease = new CountDownLatch( 1 );
+        MockAuxiliaryCache<String, Integer> diskMock = new MockAuxiliaryCache<String, Integer>()
+        {
+            private static final long serialVersionUID = 1L;
+
+            @Override
+            public void update( ICacheElement<String, Integer> ce )
+                throws IOException
+            {
+                if ( ce.getVal().intValue() == 1 )
+                {
+                    auxEntered.countDown();
+                    try
+                    {
+                        auxRelease.await( 10, TimeUnit.SECONDS );
+                    }
+                    catch ( InterruptedException e )
+                    {
+                        Thread.currentThread().interrupt();
+                    }
+                }
+                synchronized ( auxUpdates )
+                {
+                    auxUpdates.add( ce.getVal() );
+                }
+            }
+        };
+        diskMock.cacheType = CacheType.DISK_CACHE;
+        @SuppressWarnings("unchecked")
+        AuxiliaryCache<String, Integer>[] aux = new AuxiliaryCache[] { diskMock };
+        cache.setAuxCaches( aux );
+
+        Thread[] writers = new Thread[2];
+        for ( int i = 0; i < writers.length; i++ )
+        {
+            final Integer value = Integer.valueOf( i + 1 );
+            writers[i] = new Thread()
+            {
+                @Override
+                public void run()
+                {
+                    try
+                    {
+                        cache.update( new CacheElement<String, Integer>( cacheName, "key", value ) );
+                    }
+                    catch ( IOException e )
+                    {
+                        // the auxiliary updates show it
+                    }
+                }
+            };
+        }
+
+        writers[0].start();
+        assertTrue( "First writer should have reached the auxiliary", auxEntered.await( 10, TimeUnit.SECONDS ) );
+
+        try
+        {
+            // DO WORK
+            long start = System.currentTimeMillis();
+            ICacheElement<String, Integer> current =
+                cache.putIfAbsent( new CacheElement<String, Integer>( cacheName, "key", Integer.valueOf( 3 ) ) );
+            long elapsed = System.currentTimeMillis() - start;
+
+            writers[1].start();
+            for ( int i = 0; i < 500 && cache.localGet( "key" ).getVal().intValue() != 2; i++ )
+            {
+                Thread.sleep( 10 );
+            }
+
+            // VERIFY
+            assertTrue( "Key lock was held during the auxiliary update: " + elapsed + "ms", elapsed < 5000 );
+            assertEquals( "Wrong current value", Integer.valueOf( 1 ), current.getVal() );
+            assertEquals( "Second put should be in memory", Integer.valueOf( 2 ), cache.localGet( "key" ).getVal() );
+            synchronized ( auxUpdates )
+            {
+                assertTrue( "Second put overtook the first in the auxiliary", auxUpdates.isEmpty() );
+            }
+        }
+        finally
+        {
+            auxRelease.countDown();
+            writers[0].join();
+            writers[1].join();
+        }
+
+        assertEquals( "Wrong auxiliary order", 2, auxUpdates.size() );
+        assertEquals( "Wrong first auxiliary update", Integer.valueOf( 1 ), auxUpdates.get( 0 ) );
+        assertEquals( "Wrong second auxiliary update", Integer.valueOf( 2 ), auxUpdates.get( 1 ) );
+    }
+
+    /**
+     * Verify that an element read from an auxiliary does not replace a newer value that was put
+     * into memory while the auxiliary was being read.
+     * <p>
+     * @throws Exception
+     */
+    public void testGet_AuxiliaryValueDoesNotOverwriteNewerPut()
+        throws Exception
+    {
+        // SETUP
+        final String cacheName = "testGet_AuxiliaryValueDoesNotOverwriteNewerPut";
+        ICompositeCacheAttributes cattr = new CompositeCacheAttributes();
+        cattr.setMemoryCacheName( "org.apache.commons.jcs.engine.memory.lru.LRUMemoryCache" );
+        cattr.setMaxObjects( 100 );
+
+        IElementAttributes attr = new ElementAttributes();
+
+        final CompositeCache<String, Integer> cache = new CompositeCache<String, Integer>( cacheName, cattr, attr );
+
+        MockAuxiliaryCache<String, Integer> diskMock = new MockAuxiliaryCache<String, Integer>()
+        {
+            private static final long serialVersionUID = 1L;
+
+            @Override
+            public ICacheElement<String, Integer> get( String key )
+                throws IOException
+            {
+                // simulate a put for the same key racing with the disk read
+                cache.update( new CacheElement<String, Integer>( cacheName, key, Integer.valueOf( 2 ) ) );
+                return new CacheElement<String, Integer>( cacheName, key, Integer.valueOf( 1 ) );
+            }
+        };
+        diskMock.cacheType = CacheType.DISK_CACHE;
+        @SuppressWarnings("unchecked")
+        AuxiliaryCache<String, Integer>[] aux = new AuxiliaryCache[] { diskMock };
+        cache.setAuxCaches( aux );
+
+        // DO WORK
+        cache.get( "key" );
+
+        // VERIFY
+        assertEquals( "Newer value was replaced", Integer.valueOf( 2 ), cache.getMemoryCache().getQuiet( "key" ).getVal() );
+    }
+
+    /**
+     * Verify that an element read from an auxiliary is not copied back to memory if the key was
+     * removed while the auxiliary was being read.
+     * <p>
+     * @throws Exception
+     */
+    public void testGet_AuxiliaryValueDoesNotUndoConcurrentRemove()
+        throws Exception
+    {
+        // SETUP
+        final String cacheName = "testGet_AuxiliaryValueDoesNotUndoConcurrentRemove";
+        ICompositeCacheAttributes cattr = new CompositeCacheAttributes();
+        cattr.setMemoryCacheName( "org.apache.commons.jcs.engine.memory.lru.LRUMemoryCache" );
+        cattr.setMaxObjects( 100 );
+
+        IElementAttributes attr = new ElementAttributes();
+
+        final CompositeCache<String, Integer> cache = new CompositeCache<String, Integer>( cacheName, cattr, attr );
+
+        MockAuxiliaryCache<String, Integer> diskMock = new MockAuxiliaryCache<String, Integer>()
+        {
+            private static final long serialVersionUID = 1L;
+
+            @Override
+            public ICacheElement<String, Integer> get( String key )
+                throws IOException
+            {
+                // simulate a remove of the key racing with the disk read, which still saw the value
+                cache.remove( key );
+                return new CacheElement<String, Integer>( cacheName, key, Integer.valueOf( 1 ) );
+            }
+        };
+        diskMock.cacheType = CacheType.DISK_CACHE;
+        @SuppressWarnings("unchecked")
+        AuxiliaryCache<String, Integer>[] aux = new AuxiliaryCache[] { diskMock };
+        cache.setAuxCaches( aux );
+
+        // DO WORK
+        ICacheElement<String, Integer> result = cache.get( "key" );
+
+        // VERIFY
+        assertEquals( "Value read should be returned", Integer.valueOf( 1 ), result.getVal() );
+        assertNull( "Removed key was copied back to memory", cache.getMemoryCache().getQuiet( "key" ) );
+    }
+
+    /**
+     * Concurrent misses on one key should share a single call to the loader.
+     * <p>
+     * @throws Exception
+     */
+    public void testGetWithLoader_ConcurrentMissesLoadOnce()
+        throws Exception
+    {
+        // SETUP
+        String cacheName = "testGetWithLoader_ConcurrentMissesLoadOnce";
+        ICompositeCacheAttributes cattr = new CompositeCacheAttributes();
+        cattr.setMemoryCacheName( "org.apache.commons.jcs.engine.memory.lru.LRUMemoryCache" );
+        cattr.setMaxObjects( 100 );
+
+        IElementAttributes attr = new ElementAttributes();
+
+        final CompositeCache<String, Integer> cache = new CompositeCache<String, Integer>( cacheName, cattr, attr );
+
+        final AtomicInteger loads = new AtomicInteger( 0 );
+        final CountDownLatch loaderEntered = new CountDownLatch( 1 );
+        final CountDownLatch loaderRelease = new CountDownLatch( 1 );
+        final Callable<Integer> loader = new Callable<Integer>()
+        {
+            public Integer call()
+                throws Exception
+            {
+                loads.incrementAndGet();
+                loaderEntered.countDown();
+                loaderRelease.await( 10, TimeUnit.SECONDS );
+                return Integer.valueOf( 42 );
+            }
+        };
+
+        int numThreads = 5;
+        final Integer[] results = new Integer[numThreads];
+        Thread[] threads = new Thread[numThreads];
+        for ( int i = 0; i < numThreads; i++ )
+        {
+            final int index = i;
+            threads[i] = new Thread()
+            {
+                @Override
+                public void run()
+                {
+                    try
+                    {
+                        results[index] = cache.get( "key", loader ).getVal();
+                    }
+                    catch ( IOException e )
+                    {
+                        // leave the result null
+                    }
+                }
+            };
+        }
+
+        // DO WORK
+        threads[0].start();
+        assertTrue( "Loader should have been called", loaderEntered.await( 10, TimeUnit.SECONDS ) );
+        for ( int i = 1; i < numThreads; i++ )
+        {
+            threads[i].start();
+        }
+        // a loader of another key is not held up by the running load
+        ICacheElement<String, Integer> other = cache.get( "other", new Callable<Integer>()
+        {
+            public Integer call()
+            {
+                return Integer.valueOf( 7 );
+            }
+        } );
+        loaderRelease.countDown();
+        for ( int i = 0; i < numThreads; i++ )
+        {
+            threads[i].join();
+        }
+
+        // VERIFY
+        assertEquals( "Wrong value for other key", Integer.valueOf( 7 ), other.getVal() );
+        assertEquals( "Loader should run once", 1, loads.get() );
+        for ( int i = 0; i < numThreads; i++ )
+        {
+            assertEquals( "Wrong result for thread " + i, Integer.valueOf( 42 ), results[i] );
+        }
+        assertEquals( "Loaded value should be cached", Integer.valueOf( 42 ), cache.get( "key" ).getVal() );
+    }
+
+    /**
+     * A failing loader should surface its exception, cache nothing and let the next caller retry.
+     * <p>
+     * @throws Exception
+     */
+    public void testGetWithLoader_FailureIsNotCached()
+        throws Exception
+    {
+        // SETUP
+        String cacheName = "testGetWithLoader_FailureIsNotCached";
+        ICompositeCacheAttributes cattr = new CompositeCacheAttributes();
+        cattr.setMemoryCacheName( "org.apache.commons.jcs.engine.memory.lru.LRUMemoryCache" );
+        cattr.setMaxObjects( 100 );
+
+        IElementAttributes attr = new ElementAttributes();
+
+        CompositeCache<String, Integer> cache = new CompositeCache<String, Integer>( cacheName, cattr, attr );
+
+        final Exception failure = new Exception( "backing store down" );
+
+        // DO WORK
+        try
+        {
+            cache.get( "key", new Callable<Integer>()
+            {
+                public Integer call()
+                    throws Exception
+                {
+                    throw failure;
+                }
+            } );
+            fail( "Loader failure should have been thrown" );
+        }
+        catch ( IOException e )
+        {
+            // VERIFY
+            assertSame( "Wrong cause", failure, e.getCause() );
+        }
+
+        assertNull( "Nothing should be cached", cache.get( "key" ) );
+        ICacheElement<String, Integer> result = cache.get( "key", new Callable<Integer>()
+        {
+            public Integer call()
+            {
+                return Integer.valueOf( 1 );
+            }
+        } );
+        assertEquals( "Retry should load", Integer.valueOf( 1 ), result.getVal() );
+    }
+
+    /**
+     * A read through get past the refresh-ahead point should return the current value and reload
+     * it in the background.
+     * <p>
+     * @throws Exception
+     */
+    public void testGetWithLoader_RefreshAhead()
+        throws Exception
+    {
+        // SETUP
+        String cacheName = "testGetWithLoader_RefreshAhead";
+        ICompositeCacheAttributes cattr = new CompositeCacheAttributes();
+        cattr.setMemoryCacheName( "org.apache.commons.jcs.engine.memory.lru.LRUMemoryCache" );
+        cattr.setMaxObjects( 100 );
+        cattr.setRefreshAheadPercent( 50 );
+
+        IElementAttributes attr = new ElementAttributes();
+        attr.setIsEternal( false );
+        attr.setMaxLifeSeconds( 1 );
+
+        CompositeCache<String, Integer> cache = new CompositeCache<String, Integer>( cacheName, cattr, attr );
+
+        final AtomicInteger loads = new AtomicInteger( 0 );
+        Callable<Integer> loader = new Callable<Integer>()
+        {
+            public Integer call()
+            {
+                return Integer.valueOf( loads.incrementAndGet() );
+            }
+        };
+
+        assertEquals( "Wrong first load", Integer.valueOf( 1 ), cache.get( "key", loader ).getVal() );
+        assertEquals( "Fresh element should not be reloaded", Integer.valueOf( 1 ), cache.get( "key", loader ).getVal() );
+        assertEquals( "Wrong number of loads before the refresh point", 1, loads.get() );
+
+        // DO WORK
+        Thread.sleep( 600 );
+        ICacheElement<String, Integer> stale = cache.get( "key", loader );
+
+        // VERIFY
+        assertEquals( "Current value should be returned while refreshing", Integer.valueOf( 1 ), stale.getVal() );
+        long deadline = System.currentTimeMillis() + 5000;
+        while ( cache.getMemoryCache().getQuiet( "key" ).getVal().intValue() != 2
+            && System.currentTimeMillis() < deadline )
+        {
+            Thread.sleep( 10 );
+        }
+        assertEquals( "Element should have been reloaded", Integer.valueOf( 2 ), cache.get( "key" ).getVal() );
+        assertEquals( "Wrong number of loads", 2, loads.get() );
+    }
+
+    /**
+     * The loader of computeIfAbsent should run without the key locked, and a value put while it
+     * runs should win over the computed one.
+     * <p>
+     * @throws Exception
+     */
+    public void testComputeIfAbsent_LoaderRunsWithoutKeyLock()
+        throws Exception
+    {
+        // SETUP
+        final String cacheName = "testComputeIfAbsent_LoaderRunsWithoutKeyLock";
+        ICompositeCacheAttributes cattr = new CompositeCacheAttributes();
+        cattr.setMemoryCacheName( "org.apache.commons.jcs.engine.memory.lru.LRUMemoryCache" );
+        cattr.setMaxObjects( 100 );
+
+        IElementAttributes attr = new ElementAttributes();
+
+        final CompositeCache<String, Integer> cache = new CompositeCache<String, Integer>( cacheName, cattr, attr );
+
+        final AtomicInteger writes = new AtomicInteger( 0 );
+        Callable<Integer> loader = new Callable<Integer>()
+        {
+            public Integer call()
+                throws Exception
+            {
+                // another thread writes the key and clears the region while the loader runs
+                Thread writer = new Thread()
+                {
+                    @Override
+                    public void run()
+                    {
+                        try
+                        {
+                            cache.removeAll();
+                            cache.update( new CacheElement<String, Integer>( cacheName, "key", Integer.valueOf( 1 ) ) );
+                            writes.incrementAndGet();
+                        }
+                        catch ( IOException e )
+                        {
+                            // the write count stays 0
+                        }
+                    }
+                };
+                writer.start();
+                writer.join( 10000 );
+                return Integer.valueOf( 2 );
+            }
+        };
+
+        // DO WORK
+        ICacheElement<String, Integer> result = cache.computeIfAbsent( "key", loader );
+
+        // VERIFY
+        assertEquals( "Writer should not wait for the loader", 1, writes.get() );
+        assertEquals( "Value put during the load should win", Integer.valueOf( 1 ), result.getVal() );
+        assertEquals( "Wrong cached value", Integer.valueOf( 1 ), cache.get( "key" ).getVal() );
+    }
+
+    /**
+     * putIfAbsent should look in the auxiliaries without the key locked, and look again if the
+     * key was written meanwhile.
+     * <p>
+     * @throws Exception
+     */
+    public void testPutIfAbsent_AuxiliaryLookupWithoutKeyLock()
+        throws Exception
+    {
+        // SETUP
+        final String cacheName = "testPutIfAbsent_AuxiliaryLookupWithoutKeyLock";
+        ICompositeCacheAttributes cattr = new CompositeCacheAttributes();
+        cattr.setMemoryCacheName( "org.apache.commons.jcs.engine.memory.lru.LRUMemoryCache" );
+        cattr.setMaxObjects( 100 );
+
+        IElementAttributes attr = new ElementAttributes();
+
+        final CompositeCache<String, Integer> cache = new CompositeCache<String, Integer>( cacheName, cattr, attr );
+
+        final AtomicInteger writes = new AtomicInteger( 0 );
+        MockAuxiliaryCache<String, Integer> remoteMock = new MockAuxiliaryCache<String, Integer>()
+        {
+            private static final long serialVersionUID = 1L;
+
+            @Override
+            public ICacheElement<String, Integer> get( final String key )
+                throws IOException
+            {
+                if ( writes.get() == 0 )
+                {
+                    // another thread puts the key while the remote is being asked
+                    Thread writer = new Thread()
+                    {
+                        @Override
+                        public void run()
+                        {
+                            try
+                            {
+                                cache.update( new CacheElement<String, Integer>( cacheName, key, Integer.valueOf( 1 ) ) );
+                                writes.incrementAndGet();
+                            }
+                            catch ( IOException e )
+                            {
+                                // the write count stays 0
+                            }
+                        }
+                    };
+                    writer.start();
+                    try
+                    {
+                        writer.join( 10000 );
+                    }
+                    catch ( InterruptedException e )
+                    {
+                        Thread.currentThread().interrupt();
+                    }
+                }
+                return null;
+            }
+        };
+        remoteMock.cacheType = CacheType.REMOTE_CACHE;
+        @SuppressWarnings("unchecked")
+        AuxiliaryCache<String, Integer>[] aux = new AuxiliaryCache[] { remoteMock };
+        cache.setAuxCaches( aux );
+
+        // DO WORK
+        ICacheElement<String, Integer> current =
+            cache.putIfAbsent( new CacheElement<String, Integer>( cacheName, "key", Integer.valueOf( 2 ) ) );
+
+        // VERIFY
+        assertEquals( "Writer should not wait for the lookup", 1, writes.get() );
+        assertNotNull( "Concurrent put should be seen", current );
+        assertEquals( "Wrong current value", Integer.valueOf( 1 ), current.getVal() );
+        assertEquals( "Wrong cached value", Integer.valueOf( 1 ), cache.get( "key" ).getVal() );
+    }
+
+    /**
+     * A merge should be retried against the new value if the key changes while the merger runs.
+     * <p>
+     * @throws Exception
+     */
+    public void testMerge_RetriesWhenValueChanges()
+        throws Exception
+    {
+        // SETUP
+        final String cacheName = "testMerge_RetriesWhenValueChanges";
+        ICompositeCacheAttributes cattr = new CompositeCacheAttributes();
+        cattr.setMemoryCacheName( "org.apache.commons.jcs.engine.memory.lru.LRUMemoryCache" );
+        cattr.setMaxObjects( 100 );
+
+        IElementAttributes attr = new ElementAttributes();
+
+        final CompositeCache<String, Integer> cache = new CompositeCache<String, Integer>( cacheName, cattr, attr );
+        cache.update( new CacheElement<String, Integer>( cacheName, "key", Integer.valueOf( 1 ) ) );
+
+        final AtomicInteger merges = new AtomicInteger( 0 );
+        IValueMerger<Integer> sum = new IValueMerger<Integer>()
+        {
+            public Integer merge( Integer oldValue, Integer value )
+                throws Exception
+            {
+                if ( merges.incrementAndGet() == 1 )
+                {
+                    // a concurrent put of the key, it must be able to take the key lock
+                    Thread writer = new Thread()
+                    {
+                        @Override
+                        public void run()
+                        {
+                            try
+                            {
+                                cache.update( new CacheElement<String, Integer>( cacheName, "key", Integer.valueOf( 10 ) ) );
+                            }
+                            catch ( IOException e )
+                            {
+                                // the merge result shows it
+                            }
+                        }
+                    };
+                    writer.start();
+                    writer.join( 10000 );
+                }
+                return Integer.valueOf( oldValue.intValue() + value.intValue() );
+            }
+        };
+
+        // DO WORK
+        ICacheElement<String, Integer> result = cache.merge( "key", Integer.valueOf( 5 ), sum );
+
+        // VERIFY
+        assertEquals( "Merger should run again", 2, merges.get() );
+        assertEquals( "Wrong merged value", Integer.valueOf( 15 ), result.getVal() );
+        assertEquals( "Wrong cached value", Integer.valueOf( 15 ), cache.get( "key" ).getVal() );
+    }
+
+    /**
+     * With parallel auxiliary gets the network tiers should be asked at the same time for the keys
+     * the disk did not have, and earlier tiers should win.
+     * <p>
+     * @throws Exception
+     */
+    public void testGetMultiple_ParallelAuxiliaryGets()
+        throws Exception
+    {
+        // SETUP
+        String cacheName = "testGetMultiple_ParallelAuxiliaryGets";
+        ICompositeCacheAttributes cattr = new CompositeCacheAttributes();
+        cattr.setMemoryCacheName( "org.apache.commons.jcs.engine.memory.lru.LRUMemoryCache" );
+        cattr.setMaxObjects( 100 );
+        cattr.setParallelAuxiliaryGets( true );
+
+        IElementAttributes attr = new ElementAttributes();
+
+        CompositeCache<String, Integer> cache = new CompositeCache<String, Integer>( cacheName, cattr, attr );
+
+        // both network tiers wait for each other, so the lookup only finishes quickly if they run in parallel
+        CountDownLatch bothStarted = new CountDownLatch( 2 );
+        Map<String, Set<String>> requested = new HashMap<String, Set<String>>();
+
+        Map<String, Integer> diskContents = new HashMap<String, Integer>();
+        diskContents.put( "onDisk", Integer.valueOf( 1 ) );
+        Map<String, Integer> lateralContents = new HashMap<String, Integer>();
+        lateralContents.put( "shared", Integer.valueOf( 2 ) );
+        Map<String, Integer> remoteContents = new HashMap<String, Integer>();
+        remoteContents.put( "shared", Integer.valueOf( 3 ) );
+        remoteContents.put( "onRemote", Integer.valueOf( 4 ) );
+
+        @SuppressWarnings("unchecked")
+        AuxiliaryCache<String, Integer>[] aux = new AuxiliaryCache[] {
+            createTierMock( cacheName, "disk", CacheType.DISK_CACHE, diskContents, null, requested ),
+            createTierMock( cacheName, "lateral", CacheType.LATERAL_CACHE, lateralContents, bothStarted, requested ),
+            createTierMock( cacheName, "remote", CacheType.REMOTE_CACHE, remoteContents, bothStarted, requested ) };
+        cache.setAuxCaches( aux );
+
+        Set<String> keys = new HashSet<String>();
+        keys.add( "onDisk" );
+        keys.add( "shared" );
+        keys.add( "onRemote" );
+        keys.add( "nowhere" );
+
+        // DO WORK
+        long start = System.currentTimeMillis();
+        Map<String, ICacheElement<String, Integer>> result = cache.getMultiple( keys );
+        long elapsed = System.currentTimeMillis() - start;
+
+        // VERIFY
+        assertTrue( "Network tiers were not asked in parallel: " + elapsed + "ms", elapsed < 4000 );
+        assertEquals( "Wrong number of elements", 3, result.size() );
+        assertEquals( "Wrong disk value", Integer.valueOf( 1 ), result.get( "onDisk" ).getVal() );
+        assertEquals( "Earlier tier should win", Integer.valueOf( 2 ), result.get( "shared" ).getVal() );
+        assertEquals( "Wrong remote value", Integer.valueOf( 4 ), result.get( "onRemote" ).getVal() );
+        assertFalse( "Disk hits should not be requested remotely", requested.get( "remote" ).contains( "onDisk" ) );
+        assertEquals( "Wrong aux hit count", 3, cache.getHitCountAux() );
+        assertEquals( "Wrong miss count", 1, cache.getMissCountNotFound() );
+    }
+
+    /**
+     * Verify that a key missing from every tier is not looked up in the auxiliaries again until
+     * it is put, and that a local miss is not remembered.
+     * <p>
+     * @throws IOException
+     */
+    public void testGet_NegativeResultCache()
+        throws IOException
+    {
+        // SETUP
+        String cacheName = "testGet_NegativeResultCache";
+        ICompositeCacheAttributes cattr = new CompositeCacheAttributes();
+        cattr.setMemoryCacheName( "org.apache.commons.jcs.engine.memory.lru.LRUMemoryCache" );
+        cattr.setMaxObjects( 100 );
+        cattr.setNegativeCacheMaxObjects( 10 );
+        cattr.setNegativeCacheMaxLifeMillis( 60000 );
+
+        IElementAttributes attr = new ElementAttributes();
+
+        CompositeCache<String, Integer> cache = new CompositeCache<String, Integer>( cacheName, cattr, attr );
+
+        final AtomicInteger auxGets = new AtomicInteger();
+        MockAuxiliaryCache<String, Integer> remoteMock = new MockAuxiliaryCache<String, Integer>()
+        {
+            private static final long serialVersionUID = 1L;
+
+            @Override
+            public ICacheElement<String, Integer> get( String key )
+                throws IOException
+            {
+                auxGets.incrementAndGet();
+                return null;
+            }
+        };
+        remoteMock.cacheType = CacheType.REMOTE_CACHE;
+        @SuppressWarnings("unchecked")
+        AuxiliaryCache<String, Integer>[] aux = new AuxiliaryCache[] { remoteMock };
+        cache.setAuxCaches( aux );
+
+        // DO WORK
+        cache.localGet( "local" );
+        cache.get( "missing" );
+        cache.get( "missing" );
+
+        // VERIFY
+        assertEquals( "Local miss should not be remembered", 1, cache.getNegativeCacheSize() );
+        assertEquals( "Second get should not reach the auxiliary", 1, auxGets.get() );
+        assertEquals( "Wrong negative hit count", 1, cache.getHitCountNegative() );
+        assertEquals( "Wrong miss count", 3, cache.getMissCountNotFound() );
+
+        // DO WORK
+        cache.update( new CacheElement<String, Integer>( cacheName, "missing", Integer.valueOf( 1 ) ) );
+        cache.getMemoryCache().remove( "missing" );
+        cache.get( "missing" );
+
+        // VERIFY
+        assertEquals( "Put should have forgotten the miss", 2, auxGets.get() );
+    }
+
+    /**
+     * Verify that a miss is not remembered if the key was put while the auxiliaries were being
+     * asked, even when the put did not stay in memory.
+     * <p>
+     * @throws IOException
+     */
+    public void testGet_NegativeResultCache_PutDuringLookup()
+        throws IOException
+    {
+        // SETUP
+        final String cacheName = "testGet_NegativeResultCache_PutDuringLookup";
+        ICompositeCacheAttributes cattr = new CompositeCacheAttributes();
+        cattr.setMemoryCacheName( "org.apache.commons.jcs.engine.memory.lru.LRUMemoryCache" );
+        cattr.setMaxObjects( 0 );
+        cattr.setNegativeCacheMaxObjects( 10 );
+        cattr.setNegativeCacheMaxLifeMillis( 60000 );
+
+        IElementAttributes attr = new ElementAttributes();
+
+        final CompositeCache<String, Integer> cache = new CompositeCache<String, Integer>( cacheName, cattr, attr );
+
+        MockAuxiliaryCache<String, Integer> remoteMock = new MockAuxiliaryCache<String, Integer>()
+        {
+            private static final long serialVersionUID = 1L;
+
+            @Override
+            public ICacheElement<String, Integer> get( String key )
+                throws IOException
+            {
+                // a put racing with the lookup, it is spooled out of memory at once
+                cache.update( new CacheElement<String, Integer>( cacheName, key, Integer.valueOf( 1 ) ) );
+                return null;
+            }
+        };
+        remoteMock.cacheType = CacheType.REMOTE_CACHE;
+        @SuppressWarnings("unchecked")
+        AuxiliaryCache<String, Integer>[] aux = new AuxiliaryCache[] { remoteMock };
+        cache.setAuxCaches( aux );
+
+        // DO WORK
+        cache.get( "key" );
+
+        // VERIFY
+        assertNull( "Put should have been spooled", cache.getMemoryCache().getQuiet( "key" ) );
+        assertEquals( "Miss should not be remembered", 0, cache.getNegativeCacheSize() );
+    }
+
+    /**
+     * Verify that a batch put reaches each auxiliary in one call, and that a local batch put skips
+     * the remote auxiliary.
+     * <p>
+     * @throws IOException
+     */
+    public void testUpdateMultiple_OneAuxiliaryCall()
+        throws IOException
+    {
+        // SETUP
+        String cacheName = "testUpdateMultiple_OneAuxiliaryCall";
+        ICompositeCacheAttributes cattr = new CompositeCacheAttributes();
+        cattr.setMemoryCacheName( "org.apache.commons.jcs.engine.memory.lru.LRUMemoryCache" );
+        cattr.setMaxObjects( 100 );
+        cattr.setDiskUsagePattern( ICompositeCacheAttributes.DiskUsagePattern.UPDATE );
+
+        IElementAttributes attr = new ElementAttributes();
+
+        CompositeCache<String, Integer> cache = new CompositeCache<String, Integer>( cacheName, cattr, attr );
+
+        MockAuxiliaryCache<String, Integer> diskMock = new MockAuxiliaryCache<String, Integer>();
+        diskMock.cacheType = CacheType.DISK_CACHE;
+        MockAuxiliaryCache<String, Integer> remoteMock = new MockAuxiliaryCache<String, Integer>();
+        remoteMock.cacheType = CacheType.REMOTE_CACHE;
+        @SuppressWarnings("unchecked")
+        AuxiliaryCache<String, Integer>[] aux = new AuxiliaryCache[] { diskMock, remoteMock };
+        cache.setAuxCaches( aux );
+
+        int numToInsert = 10;
+        List<ICacheElement<String, Integer>> elements = new ArrayList<ICacheElement<String, Integer>>();
+        for ( int i = 0; i < numToInsert; i++ )
+        {
+            CacheElement<String, Integer> element = new CacheElement<String, Integer>( cacheName, String.valueOf( i ), Integer.valueOf( i ) );
+            element.setElementAttributes( cache.getElementAttributes() );
+            elements.add( element );
+        }
+
+        // DO WORK
+        cache.updateMultiple( elements );
+        cache.localUpdateMultiple( elements );
+
+        // VERIFY
+        assertEquals( "Wrong number of disk calls", 2, diskMock.updateMultipleCallCount );
+        assertEquals( "Wrong number of disk elements", 2 * numToInsert, diskMock.updateMultipleElementCount );
+        assertEquals( "Wrong number of remote calls", 1, remoteMock.updateMultipleCallCount );
+        assertEquals( "Wrong update count", 2 * numToInsert, cache.getUpdateCount() );
+        for ( int i = 0; i < numToInsert; i++ )
+        {
+            assertEquals( "Wrong value in memory", Integer.valueOf( i ), cache.localGet( String.valueOf( i ) ).getVal() );
+        }
+    }
+
+    /**
+     * Verify that a batch remove clears memory and reaches each auxiliary in one call.
+     * <p>
+     * @throws IOException
+     */
+    public void testRemoveMultiple_OneAuxiliaryCall()
+        throws IOException
+    {
+        // SETUP
+        String cacheName = "testRemoveMultiple_OneAuxiliaryCall";
+        ICompositeCacheAttributes cattr = new CompositeCacheAttributes();
+        cattr.setMemoryCacheName( "org.apache.commons.jcs.engine.memory.lru.LRUMemoryCache" );
+        cattr.setMaxObjects( 100 );
+
+        IElementAttributes attr = new ElementAttributes();
+
+        CompositeCache<String, Integer> cache = new CompositeCache<String, Integer>( cacheName, cattr, attr );
+
+        MockAuxiliaryCache<String, Integer> diskMock = new MockAuxiliaryCache<String, Integer>();
+        diskMock.cacheType = CacheType.DISK_CACHE;
+        @SuppressWarnings("unchecked")
+        AuxiliaryCache<String, Integer>[] aux = new AuxiliaryCache[] { diskMock };
+        cache.setAuxCaches( aux );
+
+        Set<String> keys = new HashSet<String>();
+        for ( int i = 0; i < 10; i++ )
+        {
+            cache.update( new CacheElement<String, Integer>( cacheName, String.valueOf( i ), Integer.valueOf( i ) ) );
+            keys.add( String.valueOf( i ) );
+        }
+
+        // DO WORK
+        cache.removeMultiple( keys );
+
+        // VERIFY
+        assertEquals( "Wrong number of disk calls", 1, diskMock.removeMultipleCallCount );
+        assertEquals( "Memory should be empty", 0, cache.getMemoryCache().getSize() );
+    }
+
+    /**
+     * Creates an auxiliary that serves getMultiple from a map.
+     * <p>
+     * @param cacheName
+     * @param name
+     * @param type
+     * @param contents
+     * @param started counted down and awaited on each call, may be null
+     * @param requested records the keys asked for under the name
+     * @return the mock
+     */
+    private MockAuxiliaryCache<String, Integer> createTierMock( final String cacheName, final String name,
+                                                                CacheType type, final Map<String, Integer> contents,
+                                                                final CountDownLatch started,
+                                                                final Map<String, Set<String>> requested )
+    {
+        MockAuxiliaryCache<String, Integer> mock = new MockAuxiliaryCache<String, Integer>()
+        {
+            private static final long serialVersionUID = 1L;
+
+            @Override
+            public Map<String, ICacheElement<String, Integer>> getMultiple( Set<String> keys )
+            {
+                synchronized ( requested )
+                {
+                    requested.put( name, new HashSet<String>( keys ) );
+                }
+                if ( started != null )
+                {
+                    started.countDown();
+                    try
+                    {
+                        started.await( 5, TimeUnit.SECONDS );
+                    }
+                    catch ( InterruptedException e )
+                    {
+                        Thread.currentThread().interrupt();
+                    }
+                }
+
+                Map<String, ICacheElement<String, Integer>> found = new HashMap<String, ICacheElement<String, Integer>>();
+                for ( String key : keys )
+                {
+                    if ( contents.containsKey( key ) )
+                    {
+                        found.put( key, new CacheElement<String, Integer>( cacheName, key, contents.get( key ) ) );
+                    }
+                }
+                return found;
+            }
+        };
+        mock.cacheType = type;
+        return mock;
+    }
 }
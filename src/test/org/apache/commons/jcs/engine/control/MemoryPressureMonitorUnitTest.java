@@ -0,0 +1,152 @@
+package org.apache.commons.jcs.engine.control;
+
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Properties;
+
+import junit.framework.TestCase;
+
+import org.apache.commons.jcs.engine.CacheElement;
+import org.apache.commons.jcs.engine.CompositeCacheAttributes;
+import org.apache.commons.jcs.engine.ElementAttributes;
+import org.apache.commons.jcs.engine.behavior.ICompositeCacheAttributes;
+
+/**
+ * Tests for the MemoryPressureMonitor.
+ */
+public class MemoryPressureMonitorUnitTest
+    extends TestCase
+{
+    /**
+     * Creates a region holding the given number of elements.
+     * <p>
+     * @param name
+     * @param maxObjects
+     * @param count
+     * @return the region
+     * @throws Exception
+     */
+    private CompositeCache<String, String> createRegion( String name, int maxObjects, int count )
+        throws Exception
+    {
+        ICompositeCacheAttributes cattr = new CompositeCacheAttributes();
+        cattr.setCacheName( name );
+        cattr.setMaxObjects( maxObjects );
+        CompositeCache<String, String> cache = new CompositeCache<String, String>( name, cattr, new ElementAttributes() );
+        for ( int i = 0; i < count; i++ )
+        {
+            cache.update( new CacheElement<String, String>( name, "key" + i, "data" + i ) );
+        }
+        return cache;
+    }
+
+    /**
+     * Shrinking spools a share of every region and lowers its limit to what is left.
+     * <p>
+     * @throws Exception
+     */
+    public void testShrink_FreesAndLowersLimit()
+        throws Exception
+    {
+        // SETUP
+        CompositeCache<String, String> full = createRegion( "full", 100, 100 );
+        CompositeCache<String, String> half = createRegion( "half", 100, 50 );
+        List<CompositeCache<?, ?>> regions = new ArrayList<CompositeCache<?, ?>>();
+        regions.add( full );
+        regions.add( half );
+
+        MemoryPressureMonitor monitor = new MemoryPressureMonitor();
+        monitor.setFreePercent( 10 );
+
+        // DO WORK
+        monitor.shrink( regions );
+
+        // VERIFY
+        assertEquals( "Wrong size", 90, full.getMemoryCache().getSize() );
+        assertEquals( "Wrong limit", 90, full.getCacheAttributes().getMaxObjects() );
+        assertEquals( "Wrong size", 45, half.getMemoryCache().getSize() );
+        assertEquals( "Wrong limit", 45, half.getCacheAttributes().getMaxObjects() );
+        assertEquals( "Should remember the limit", 100, monitor.getOriginalMaxObjects( "full" ) );
+        assertEquals( "Wrong shrink count", 1, monitor.getShrinkCount() );
+
+        // a new element should not push the region back over the lowered limit
+        full.update( new CacheElement<String, String>( "full", "new", "data" ) );
+        assertTrue( "Should hold the lowered limit", full.getMemoryCache().getSize() <= 90 );
+    }
+
+    /**
+     * Growing gives the limit back a share at a time until the original is reached.
+     * <p>
+     * @throws Exception
+     */
+    public void testGrow_RestoresLimitGradually()
+        throws Exception
+    {
+        // SETUP
+        CompositeCache<String, String> region = createRegion( "region", 100, 100 );
+        List<CompositeCache<?, ?>> regions = new ArrayList<CompositeCache<?, ?>>();
+        regions.add( region );
+
+        MemoryPressureMonitor monitor = new MemoryPressureMonitor();
+        monitor.setFreePercent( 5 );
+        monitor.shrink( regions );
+        monitor.shrink( regions );
+        int shrunk = region.getCacheAttributes().getMaxObjects();
+
+        // DO WORK
+        monitor.grow( regions );
+        int grownOnce = region.getCacheAttributes().getMaxObjects();
+        monitor.grow( regions );
+
+        // VERIFY
+        assertEquals( "Wrong shrunk limit", 91, shrunk );
+        assertEquals( "Should grow by a share", 96, grownOnce );
+        assertEquals( "Should be back to the original", 100, region.getCacheAttributes().getMaxObjects() );
+        assertEquals( "Should forget the region", -1, monitor.getOriginalMaxObjects( "region" ) );
+    }
+
+    /**
+     * The monitor is created and configured from the properties.
+     */
+    public void testConfigure()
+    {
+        // SETUP
+        Properties props = new Properties();
+        props.put( "jcs.default", "" );
+        props.put( "jcs.memorypressure", MemoryPressureMonitor.class.getName() );
+        props.put( "jcs.memorypressure.HighWatermarkPercent", "85" );
+        props.put( "jcs.memorypressure.FreePercent", "20" );
+
+        CompositeCacheManager manager = new CompositeCacheManager();
+
+        // DO WORK
+        manager.configure( props );
+
+        // VERIFY
+        MemoryPressureMonitor monitor = manager.getMemoryPressureMonitor();
+        assertNotNull( "Should have a monitor", monitor );
+        assertEquals( "Wrong high watermark", 85, monitor.getHighWatermarkPercent() );
+        assertEquals( "Wrong free percent", 20, monitor.getFreePercent() );
+
+        manager.shutDown();
+    }
+}
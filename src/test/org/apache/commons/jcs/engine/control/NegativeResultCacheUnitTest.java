@@ -0,0 +1,62 @@
+package org.apache.commons.jcs.engine.control;
+
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+import junit.framework.TestCase;
+
+/** Unit tests for the negative result cache. */
+public class NegativeResultCacheUnitTest
+    extends TestCase
+{
+    /** Verify a key is known as absent until its lifetime has passed. */
+    public void testContains_Expires()
+    {
+        NegativeResultCache<String> negatives = new NegativeResultCache<String>( 10, 100 );
+        negatives.add( "key", 1000 );
+
+        assertTrue( "Should be known as absent", negatives.contains( "key", 1099 ) );
+        assertFalse( "Should have expired", negatives.contains( "key", 1100 ) );
+        assertEquals( "Expired entry should be dropped", 0, negatives.size() );
+    }
+
+    /** Verify the oldest key is dropped when the cache is full. */
+    public void testAdd_Bounded()
+    {
+        NegativeResultCache<Integer> negatives = new NegativeResultCache<Integer>( 3, 1000 );
+        for ( int i = 0; i < 5; i++ )
+        {
+            negatives.add( Integer.valueOf( i ), 0 );
+        }
+
+        assertEquals( "Wrong size", 3, negatives.size() );
+        assertFalse( "Oldest should be dropped", negatives.contains( Integer.valueOf( 0 ), 0 ) );
+        assertTrue( "Newest should be kept", negatives.contains( Integer.valueOf( 4 ), 0 ) );
+    }
+
+    /** Verify remove forgets a key. */
+    public void testRemove()
+    {
+        NegativeResultCache<String> negatives = new NegativeResultCache<String>( 10, 1000 );
+        negatives.add( "key", 0 );
+        negatives.remove( "key" );
+
+        assertFalse( "Should be forgotten", negatives.contains( "key", 0 ) );
+    }
+}
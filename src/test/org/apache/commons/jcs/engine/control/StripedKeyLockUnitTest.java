@@ -0,0 +1,110 @@
+package org.apache.commons.jcs.engine.control;
+
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.concurrent.locks.Lock;
+
+import junit.framework.TestCase;
+
+/** Unit tests for the striped key lock. */
+public class StripedKeyLockUnitTest
+    extends TestCase
+{
+    /** Verify the stripe count is rounded up to a power of two. */
+    public void testStripeCount_RoundedUp()
+    {
+        assertEquals( "Wrong stripe count", 1, new StripedKeyLock( 1 ).getStripeCount() );
+        assertEquals( "Wrong stripe count", 16, new StripedKeyLock( 9 ).getStripeCount() );
+        assertEquals( "Wrong default stripe count", StripedKeyLock.DEFAULT_STRIPES,
+                      new StripedKeyLock().getStripeCount() );
+    }
+
+    /** Verify equal keys always map to the same lock. */
+    public void testGetLock_EqualKeysSameLock()
+    {
+        StripedKeyLock locks = new StripedKeyLock();
+        for ( int i = 0; i < 1000; i++ )
+        {
+            assertSame( "Equal keys must share a lock", locks.getLock( "key" + i ), locks.getLock( new String( "key" + i ) ) );
+        }
+    }
+
+    /** Verify sequential integer keys are spread over more than one stripe. */
+    public void testGetLock_Spread()
+    {
+        StripedKeyLock locks = new StripedKeyLock();
+        assertNotSame( "Adjacent keys should not all share a lock", locks.getLock( Integer.valueOf( 0 ) ),
+                       locks.getLock( Integer.valueOf( 1 ) ) );
+    }
+
+    /** Verify lockAll blocks a single key lock from another thread until unlockAll. */
+    public void testLockAll_BlocksOtherThreads()
+        throws Exception
+    {
+        final StripedKeyLock locks = new StripedKeyLock( 4 );
+        final boolean[] acquired = new boolean[1];
+
+        locks.lockAll();
+        Thread t = new Thread()
+        {
+            @Override
+            public void run()
+            {
+                acquired[0] = locks.getLock( "key" ).tryLock();
+            }
+        };
+        t.start();
+        t.join();
+        locks.unlockAll();
+
+        assertFalse( "Lock should have been held", acquired[0] );
+        assertTrue( "Lock should be free after unlockAll", locks.getLock( "key" ).tryLock() );
+    }
+
+    /** Verify locking a collection takes each distinct stripe once and unlock frees them. */
+    public void testLockCollection_DistinctStripes()
+        throws Exception
+    {
+        final StripedKeyLock locks = new StripedKeyLock( 4 );
+        List<String> keys = Arrays.asList( "a", "b", "c", "d", "e", "f", "a" );
+        final boolean[] acquired = new boolean[1];
+
+        List<Lock> held = locks.lock( keys );
+        Thread t = new Thread()
+        {
+            @Override
+            public void run()
+            {
+                acquired[0] = locks.getLock( "c" ).tryLock();
+            }
+        };
+        t.start();
+        t.join();
+
+        assertFalse( "Lock should have been held", acquired[0] );
+        assertEquals( "Stripes should not repeat", new HashSet<Lock>( held ).size(), held.size() );
+
+        locks.unlock( held );
+        assertTrue( "Lock should be free after unlock", locks.getLock( "c" ).tryLock() );
+    }
+}
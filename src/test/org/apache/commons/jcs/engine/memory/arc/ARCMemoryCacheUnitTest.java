@@ -0,0 +1,332 @@
+package org.apache.commons.jcs.engine.memory.arc;
+
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicReference;
+
+import junit.framework.TestCase;
+
+import org.apache.commons.jcs.JCS;
+import org.apache.commons.jcs.access.CacheAccess;
+import org.apache.commons.jcs.access.exception.CacheException;
+import org.apache.commons.jcs.engine.CacheElement;
+import org.apache.commons.jcs.engine.behavior.ICacheElement;
+import org.apache.commons.jcs.engine.control.CompositeCache;
+import org.apache.commons.jcs.engine.control.CompositeCacheManager;
+
+/**
+ * Tests for the ARCMemoryCache
+ */
+public class ARCMemoryCacheUnitTest
+    extends TestCase
+{
+    /**
+     * Test setup
+     */
+    @Override
+    public void setUp()
+    {
+        JCS.setConfigFilename( "/TestARCCache.ccf" );
+    }
+
+    /**
+     * Creates an ARC memory cache for a region of the test configuration.
+     * <p>
+     * @param regionName
+     * @return the initialized memory cache
+     * @throws Exception
+     */
+    private ARCMemoryCache<String, String> createArc( String regionName )
+        throws Exception
+    {
+        CompositeCacheManager cacheMgr = CompositeCacheManager.getUnconfiguredInstance();
+        cacheMgr.configure( "/TestARCCache.ccf" );
+        CompositeCache<String, String> cache = cacheMgr.getCache( regionName );
+
+        ARCMemoryCache<String, String> arc = new ARCMemoryCache<String, String>();
+        arc.initialize( cache );
+        return arc;
+    }
+
+    /**
+     * Puts the keys from start to end, exclusive.
+     * <p>
+     * @param arc
+     * @param start
+     * @param end
+     * @throws Exception
+     */
+    private void put( ARCMemoryCache<String, String> arc, int start, int end )
+        throws Exception
+    {
+        CompositeCache<String, String> cache = arc.getCompositeCache();
+        for ( int i = start; i < end; i++ )
+        {
+            ICacheElement<String, String> ice = new CacheElement<String, String>( cache.getCacheName(), i + ":key", cache.getCacheName() + " data " + i );
+            ice.setElementAttributes( cache.getElementAttributes() );
+            arc.update( ice );
+        }
+    }
+
+    /**
+     * Put twice the max through the region, and verify that only the last max items are left.
+     * <p>
+     * @throws CacheException
+     */
+    public void testPutGetThroughHub()
+        throws CacheException
+    {
+        CacheAccess<String, String> cache = JCS.getInstance( "testPutGetThroughHub" );
+
+        int max = cache.getCacheAttributes().getMaxObjects();
+        int items = max * 2;
+
+        for ( int i = 0; i < items; i++ )
+        {
+            cache.put( i + ":key", "myregion" + " data " + i );
+        }
+
+        // Test that first items are not in the cache
+        for ( int i = 0; i < max; i++ )
+        {
+            assertNull( "Should not have value for key [" + i + ":key" + "] in the cache.", cache.get( i + ":key" ) );
+        }
+
+        // Test that last items are in cache
+        for ( int i = max; i < items; i++ )
+        {
+            assertEquals( "myregion" + " data " + i, cache.get( i + ":key" ) );
+        }
+
+        String stats = cache.getStats();
+        assertTrue( "Should be an ARC memory cache: " + stats, stats.indexOf( "ARC Memory Cache" ) != -1 );
+    }
+
+    /**
+     * Put half the max, get the key set, and verify that it has the correct number of items.
+     * <p>
+     * @throws Exception
+     */
+    public void testGetKeySet()
+        throws Exception
+    {
+        ARCMemoryCache<String, String> arc = createArc( "testGetKeySet" );
+        int max = arc.getCacheAttributes().getMaxObjects();
+        int items = max / 2;
+
+        put( arc, 0, items );
+
+        Set<String> keys = arc.getKeySet();
+        assertEquals( "Wrong number of keys.", items, keys.size() );
+        assertEquals( "Target t1 should be 1/2 until dupe gets or puts.", max / 2, arc.getTargetT1() );
+    }
+
+    /**
+     * Put half the max and then get the first element. It should now be in t2.
+     * <p>
+     * @throws Exception
+     */
+    public void testHitInT1BelowMax()
+        throws Exception
+    {
+        ARCMemoryCache<String, String> arc = createArc( "testHitInT1BelowMax" );
+        int max = arc.getCacheAttributes().getMaxObjects();
+
+        put( arc, 0, max / 2 );
+        ICacheElement<String, String> element = arc.get( 0 + ":key" );
+
+        assertNotNull( "Should have the element.", element );
+        assertEquals( "Target t1 should be 1/2 until dupe gets or puts.", max / 2, arc.getTargetT1() );
+        assertEquals( "T2 should have one item.", 1, arc.getListSize( ARCMemoryCache._T2_ ) );
+        assertEquals( "Wrong number of items in T1.", max / 2 - 1, arc.getListSize( ARCMemoryCache._T1_ ) );
+    }
+
+    /**
+     * Put max and then get the first element twice. It should stay in t2.
+     * <p>
+     * @throws Exception
+     */
+    public void testHitInT1ThenT2AtMax()
+        throws Exception
+    {
+        ARCMemoryCache<String, String> arc = createArc( "testHitInT1ThenT2AtMax" );
+        int max = arc.getCacheAttributes().getMaxObjects();
+
+        put( arc, 0, max );
+        assertNotNull( "Should have the element.", arc.get( 0 + ":key" ) );
+        assertNotNull( "Should have the element.", arc.get( 0 + ":key" ) );
+
+        assertEquals( "T2 should have one item.", 1, arc.getListSize( ARCMemoryCache._T2_ ) );
+        assertEquals( "Wrong number of items in T1.", max - 1, arc.getListSize( ARCMemoryCache._T1_ ) );
+    }
+
+    /**
+     * Put max items. They should all be in t1.
+     * <p>
+     * @throws Exception
+     */
+    public void testPutInT1ToMax()
+        throws Exception
+    {
+        ARCMemoryCache<String, String> arc = createArc( "testPutInT1ToMax" );
+        int max = arc.getCacheAttributes().getMaxObjects();
+
+        put( arc, 0, max );
+
+        assertEquals( "Target t1 should be 1/2 until dupe gets or puts.", max / 2, arc.getTargetT1() );
+        assertEquals( "Wrong number of items in T1.", max, arc.getListSize( ARCMemoryCache._T1_ ) );
+        assertEquals( "Wrong number of items in T2.", 0, arc.getListSize( ARCMemoryCache._T2_ ) );
+    }
+
+    /**
+     * Elements used twice survive a stream of new keys, and putting a key again that was spooled
+     * from t1 grows the target size of t1.
+     * <p>
+     * @throws Exception
+     */
+    public void testScanAndGhostHit()
+        throws Exception
+    {
+        // SETUP
+        ARCMemoryCache<String, String> arc = createArc( "testScanAndGhostHit" );
+        int max = arc.getCacheAttributes().getMaxObjects();
+        // t1 may use its target, half the cache, before t2 gives anything up
+        int hot = max / 2 - 1;
+        put( arc, 0, hot );
+        for ( int i = 0; i < hot; i++ )
+        {
+            arc.get( i + ":key" );
+        }
+
+        // DO WORK
+        put( arc, 100, 100 + max * 3 );
+
+        // VERIFY
+        assertEquals( "Wrong size", max, arc.getSize() );
+        for ( int i = 0; i < hot; i++ )
+        {
+            assertNotNull( "Frequently used key should have survived: " + i, arc.getQuiet( i + ":key" ) );
+        }
+        assertTrue( "B1 should remember spooled keys", arc.getListSize( ARCMemoryCache._B1_ ) > 0 );
+
+        // DO WORK
+        int target = arc.getTargetT1();
+        put( arc, 100 + max * 3 - max, 100 + max * 3 - max + 1 );
+
+        // VERIFY
+        assertTrue( "Target t1 should grow after a B1 hit", arc.getTargetT1() > target );
+        assertTrue( "Directory should be bounded", arc.getListSize( ARCMemoryCache._T1_ )
+            + arc.getListSize( ARCMemoryCache._T2_ ) + arc.getListSize( ARCMemoryCache._B1_ )
+            + arc.getListSize( ARCMemoryCache._B2_ ) <= 2 * max );
+    }
+
+    /**
+     * Verify free elements and remove leave the lists consistent with the map.
+     * <p>
+     * @throws Exception
+     */
+    public void testFreeAndRemove()
+        throws Exception
+    {
+        // SETUP
+        ARCMemoryCache<String, String> arc = createArc( "testFreeAndRemove" );
+        int max = arc.getCacheAttributes().getMaxObjects();
+        put( arc, 0, max );
+        arc.get( 0 + ":key" );
+
+        // DO WORK
+        int freed = arc.freeElements( 3 );
+        boolean removed = arc.remove( 0 + ":key" );
+
+        // VERIFY
+        assertEquals( "Wrong number freed", 3, freed );
+        assertTrue( "Should have removed", removed );
+        assertEquals( "Wrong size", max - 4, arc.getSize() );
+        assertEquals( "Lists and map disagree", arc.getSize(), arc.getListSize( ARCMemoryCache._T1_ )
+            + arc.getListSize( ARCMemoryCache._T2_ ) );
+        assertEquals( "Spooled keys should be ghosts", 3, arc.getListSize( ARCMemoryCache._B1_ ) );
+
+        // DO WORK
+        arc.removeAll();
+
+        // VERIFY
+        assertEquals( "Should be empty", 0, arc.getSize() );
+        assertEquals( "Ghosts should be gone", 0, arc.getListSize( ARCMemoryCache._B1_ ) );
+    }
+
+    /**
+     * Several threads putting and getting overlapping keys must leave the cache consistent.
+     * <p>
+     * @throws Exception
+     */
+    public void testConcurrentPutGet()
+        throws Exception
+    {
+        // SETUP
+        final ARCMemoryCache<String, String> arc = createArc( "testConcurrentPutGet" );
+        final int max = arc.getCacheAttributes().getMaxObjects();
+        final AtomicReference<Throwable> failure = new AtomicReference<Throwable>();
+        Thread[] threads = new Thread[4];
+
+        // DO WORK
+        for ( int t = 0; t < threads.length; t++ )
+        {
+            final int offset = t;
+            threads[t] = new Thread()
+            {
+                @Override
+                public void run()
+                {
+                    try
+                    {
+                        for ( int i = 0; i < 2000; i++ )
+                        {
+                            int k = ( i * 7 + offset ) % ( max * 3 );
+                            if ( i % 3 == 0 )
+                            {
+                                put( arc, k, k + 1 );
+                            }
+                            else
+                            {
+                                arc.get( k + ":key" );
+                            }
+                        }
+                    }
+                    catch ( Throwable e )
+                    {
+                        failure.set( e );
+                    }
+                }
+            };
+            threads[t].start();
+        }
+        for ( Thread thread : threads )
+        {
+            thread.join();
+        }
+
+        // VERIFY
+        assertNull( "Unexpected failure: " + failure.get(), failure.get() );
+        assertTrue( "Should not exceed max", arc.getSize() <= max );
+        assertEquals( "Lists and map disagree", arc.getSize(), arc.getListSize( ARCMemoryCache._T1_ )
+            + arc.getListSize( ARCMemoryCache._T2_ ) );
+    }
+}
@@ -0,0 +1,220 @@
+package org.apache.commons.jcs.engine.memory.compressed;
+
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+import junit.framework.TestCase;
+
+import org.apache.commons.jcs.auxiliary.AuxiliaryCache;
+import org.apache.commons.jcs.auxiliary.MockAuxiliaryCache;
+import org.apache.commons.jcs.engine.CacheElement;
+import org.apache.commons.jcs.engine.CacheElementCompressed;
+import org.apache.commons.jcs.engine.CompositeCacheAttributes;
+import org.apache.commons.jcs.engine.ElementAttributes;
+import org.apache.commons.jcs.engine.behavior.ICacheElement;
+import org.apache.commons.jcs.engine.behavior.ICompositeCacheAttributes;
+import org.apache.commons.jcs.engine.control.CompositeCache;
+import org.apache.commons.jcs.engine.stats.behavior.IStatElement;
+
+/**
+ * Tests for the CompressingMemoryCache.
+ */
+public class CompressingMemoryCacheUnitTest
+    extends TestCase
+{
+    /** Max objects in memory */
+    private static final int MAX_OBJECTS = 10;
+
+    /** The composite cache */
+    private CompositeCache<String, String> cache;
+
+    /** Records what is spooled to disk */
+    private MockAuxiliaryCache<String, String> disk;
+
+    /**
+     * Creates a region with the compressing memory cache and a disk auxiliary.
+     * <p>
+     * @param threshold the compression threshold
+     * @return the memory cache
+     */
+    @SuppressWarnings("unchecked")
+    private CompressingMemoryCache<String, String> createCache( int threshold )
+    {
+        ICompositeCacheAttributes cattr = new CompositeCacheAttributes();
+        cattr.setMemoryCacheName( CompressingMemoryCache.class.getName() );
+        cattr.setMaxObjects( MAX_OBJECTS );
+        cattr.setMemoryCompressionThreshold( threshold );
+
+        cache = new CompositeCache<String, String>( "testCompressing", cattr, new ElementAttributes() );
+        disk = new MockAuxiliaryCache<String, String>();
+        cache.setAuxCaches( new AuxiliaryCache[] { disk } );
+
+        return (CompressingMemoryCache<String, String>) cache.getMemoryCache();
+    }
+
+    /**
+     * @param i
+     * @return a verbose value of several KB
+     */
+    private static String largeValue( int i )
+    {
+        StringBuilder sb = new StringBuilder();
+        while ( sb.length() < 8000 )
+        {
+            sb.append( "<item id=\"" ).append( i ).append( "\">some verbose text payload</item>\n" );
+        }
+        return sb.toString();
+    }
+
+    /**
+     * Large values are kept compressed and come back whole, small ones are kept as they are.
+     * <p>
+     * @throws Exception
+     */
+    public void testUpdate_CompressesLargeValues()
+        throws Exception
+    {
+        // SETUP
+        CompressingMemoryCache<String, String> mem = createCache( 1024 );
+
+        // DO WORK
+        cache.update( new CacheElement<String, String>( "testCompressing", "large", largeValue( 1 ) ) );
+        cache.update( new CacheElement<String, String>( "testCompressing", "small", "data" ) );
+        ICacheElement<String, String> large = cache.get( "large" );
+        ICacheElement<String, String> quiet = mem.getQuiet( "large" );
+
+        // VERIFY
+        assertTrue( "Large value should be compressed", mem.map.get( "large" ).ce instanceof CacheElementCompressed );
+        assertFalse( "Small value should not be compressed", mem.map.get( "small" ).ce instanceof CacheElementCompressed );
+        assertEquals( "Wrong value", largeValue( 1 ), large.getVal() );
+        assertEquals( "Wrong quiet value", largeValue( 1 ), quiet.getVal() );
+        assertFalse( "Get should return a plain element", large instanceof CacheElementCompressed );
+        assertSame( "Attributes should be shared", mem.map.get( "large" ).ce.getElementAttributes(),
+                    large.getElementAttributes() );
+        assertEquals( "Wrong small value", "data", cache.get( "small" ).getVal() );
+        assertEquals( "Wrong compressed count", 1, mem.getCompressedCount() );
+        assertTrue( "Should take at most a third of the space",
+                    mem.getCompressedBytes() * 3 < mem.getUncompressedBytes() );
+        assertEquals( "Wrong stat", "1", getStat( mem, "Compressed Count" ) );
+        assertEquals( "Wrong stat", "2", getStat( mem, "Decompressed Count" ) );
+    }
+
+    /**
+     * Nothing is compressed below the threshold.
+     * <p>
+     * @throws Exception
+     */
+    public void testUpdate_BelowThreshold()
+        throws Exception
+    {
+        // SETUP
+        CompressingMemoryCache<String, String> mem = createCache( 1000000 );
+
+        // DO WORK
+        cache.update( new CacheElement<String, String>( "testCompressing", "large", largeValue( 1 ) ) );
+
+        // VERIFY
+        assertFalse( "Should not be compressed", mem.map.get( "large" ).ce instanceof CacheElementCompressed );
+        assertEquals( "Wrong compressed count", 0, mem.getCompressedCount() );
+        assertEquals( "Wrong value", largeValue( 1 ), cache.get( "large" ).getVal() );
+    }
+
+    /**
+     * Spooled elements reach the disk decompressed.
+     * <p>
+     * @throws Exception
+     */
+    public void testSpool_Decompresses()
+        throws Exception
+    {
+        // SETUP
+        createCache( 1024 );
+
+        // DO WORK
+        for ( int i = 0; i < MAX_OBJECTS * 2; i++ )
+        {
+            cache.update( new CacheElement<String, String>( "testCompressing", "key" + i, largeValue( i ) ) );
+        }
+
+        // VERIFY
+        assertEquals( "Wrong number spooled", MAX_OBJECTS, disk.updatedElements.size() );
+        for ( ICacheElement<String, String> ce : disk.updatedElements )
+        {
+            assertFalse( "Should be decompressed", ce instanceof CacheElementCompressed );
+            assertEquals( "Wrong value", largeValue( Integer.parseInt( ce.getKey().substring( 3 ) ) ), ce.getVal() );
+        }
+    }
+
+    /**
+     * The byte counts only cover the compressed values still in memory.
+     * <p>
+     * @throws Exception
+     */
+    public void testBytes_FollowMemoryContents()
+        throws Exception
+    {
+        // SETUP
+        CompressingMemoryCache<String, String> mem = createCache( 1024 );
+        cache.update( new CacheElement<String, String>( "testCompressing", "key0", largeValue( 0 ) ) );
+        long uncompressedOne = mem.getUncompressedBytes();
+        long compressedOne = mem.getCompressedBytes();
+
+        // DO WORK
+        cache.update( new CacheElement<String, String>( "testCompressing", "key0", largeValue( 0 ) ) );
+        long uncompressedReplaced = mem.getUncompressedBytes();
+        long compressedReplaced = mem.getCompressedBytes();
+
+        for ( int i = 1; i < MAX_OBJECTS * 2; i++ )
+        {
+            cache.update( new CacheElement<String, String>( "testCompressing", "key" + i, largeValue( 0 ) ) );
+        }
+        long uncompressedSpooled = mem.getUncompressedBytes();
+
+        cache.remove( "key" + ( MAX_OBJECTS * 2 - 1 ) );
+        long uncompressedRemoved = mem.getUncompressedBytes();
+
+        cache.removeAll();
+
+        // VERIFY
+        assertEquals( "Replace should not add up", uncompressedOne, uncompressedReplaced );
+        assertEquals( "Replace should not add up", compressedOne, compressedReplaced );
+        assertEquals( "Spooled values should not count", uncompressedOne * MAX_OBJECTS, uncompressedSpooled );
+        assertEquals( "Removed value should not count", uncompressedOne * ( MAX_OBJECTS - 1 ), uncompressedRemoved );
+        assertEquals( "Nothing left", 0, mem.getUncompressedBytes() );
+        assertEquals( "Nothing left", 0, mem.getCompressedBytes() );
+        assertEquals( "Wrong compressed count", MAX_OBJECTS * 2 + 1, mem.getCompressedCount() );
+    }
+
+    /**
+     * @param mem
+     * @param name
+     * @return the data of the named stat element, or null
+     */
+    private static String getStat( CompressingMemoryCache<String, String> mem, String name )
+    {
+        for ( IStatElement se : mem.getStatistics().getStatElements() )
+        {
+            if ( name.equals( se.getName() ) )
+            {
+                return se.getData();
+            }
+        }
+        return null;
+    }
+}
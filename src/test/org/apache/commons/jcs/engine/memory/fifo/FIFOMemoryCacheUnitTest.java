@@ -8,7 +8,9 @@ import org.apache.commons.jcs.engine.CacheElement;
 import org.apache.commons.jcs.engine.CompositeCacheAttributes;
 import org.apache.commons.jcs.engine.ElementAttributes;
 import org.apache.commons.jcs.engine.behavior.ICompositeCacheAttributes;
+import org.apache.commons.jcs.engine.behavior.ICacheElement;
 import org.apache.commons.jcs.engine.control.CompositeCache;
+import org.apache.commons.jcs.engine.memory.behavior.IElementWeigher;
 
 /** Unit tests for the fifo implementation. */
 public class FIFOMemoryCacheUnitTest
@@ -88,4 +90,68 @@ public class FIFOMemoryCacheUnitTest
             assertNotNull( "Shjould have elemnt " + i, cache.get( "key" + i ) );
         }
     }
+
+    /**
+     * Verify that the oldest items are spooled when the total weight exceeds MaxMemoryBytes, even
+     * though MaxObjects is not reached.
+     * <p>
+     * @throws IOException
+     */
+    public void testMaxMemoryBytes()
+        throws IOException
+    {
+        // SETUP
+        String cacheName = "testMaxMemoryBytes";
+
+        ICompositeCacheAttributes attributes = new CompositeCacheAttributes();
+        attributes.setMaxObjects( 100 );
+        attributes.setSpoolChunkSize( 1 );
+        attributes.setMaxMemoryBytes( 100 );
+        attributes.setElementWeigherName( LengthWeigher.class.getName() );
+
+        FIFOMemoryCache<String, String> cache = new FIFOMemoryCache<String, String>();
+        cache.initialize( new CompositeCache<String, String>( cacheName, attributes,
+                                              new ElementAttributes() ) );
+
+        // DO WORK
+        for ( int i = 0; i < 10; i++ )
+        {
+            cache.update( new CacheElement<String, String>( cacheName, "key" + i, "01234567890123456789" ) );
+        }
+
+        // VERIFY
+        assertEquals( "Should hold what fits", 5, cache.getSize() );
+        assertEquals( "Wrong weight", 100, cache.getWeight() );
+        assertNull( "Oldest should be gone", cache.get( "key4" ) );
+
+        // DO WORK
+        StringBuilder heavy = new StringBuilder();
+        for ( int i = 0; i < 60; i++ )
+        {
+            heavy.append( 'x' );
+        }
+        cache.update( new CacheElement<String, String>( cacheName, "heavy", heavy.toString() ) );
+        cache.remove( "key9" );
+
+        // VERIFY
+        assertNull( "Heavy element should push out several", cache.get( "key7" ) );
+        assertEquals( "Wrong size", 2, cache.getSize() );
+        assertEquals( "Wrong weight", 80, cache.getWeight() );
+        String stats = cache.getStatistics().toString();
+        assertTrue( "Stats should show the weight: " + stats, stats.indexOf( "Weight" ) != -1 );
+    }
+
+    /** Weighs an element by the length of its value. */
+    public static class LengthWeigher
+        implements IElementWeigher<String, String>
+    {
+        /**
+         * @param ce
+         * @return the length of the value
+         */
+        public long weigh( ICacheElement<String, String> ce )
+        {
+            return ce.getVal().length();
+        }
+    }
 }
@@ -0,0 +1,243 @@
+package org.apache.commons.jcs.engine.memory.lru;
+
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+import java.io.IOException;
+import java.util.concurrent.atomic.AtomicReference;
+
+import junit.framework.TestCase;
+
+import org.apache.commons.jcs.engine.CacheElement;
+import org.apache.commons.jcs.engine.CompositeCacheAttributes;
+import org.apache.commons.jcs.engine.ElementAttributes;
+import org.apache.commons.jcs.engine.behavior.ICompositeCacheAttributes;
+import org.apache.commons.jcs.engine.control.CompositeCache;
+
+/** Unit tests for the concurrent LRU memory cache. */
+public class ConcurrentLRUMemoryCacheUnitTest
+    extends TestCase
+{
+    /**
+     * Creates a memory cache for a region without auxiliaries.
+     * <p>
+     * @param cacheName
+     * @param maxObjects
+     * @return the initialized memory cache
+     */
+    private ConcurrentLRUMemoryCache<String, String> createCache( String cacheName, int maxObjects )
+    {
+        ICompositeCacheAttributes attributes = new CompositeCacheAttributes();
+        attributes.setMaxObjects( maxObjects );
+
+        ConcurrentLRUMemoryCache<String, String> cache = new ConcurrentLRUMemoryCache<String, String>();
+        cache.initialize( new CompositeCache<String, String>( cacheName, attributes, new ElementAttributes() ) );
+        return cache;
+    }
+
+    /**
+     * Verify the cache holds at most max objects and spools the oldest.
+     * <p>
+     * @throws IOException
+     */
+    public void testUpdate_Bounded()
+        throws IOException
+    {
+        // SETUP
+        int maxObjects = 20;
+        String cacheName = "testUpdate_Bounded";
+        ConcurrentLRUMemoryCache<String, String> cache = createCache( cacheName, maxObjects );
+
+        // DO WORK
+        for ( int i = 0; i < maxObjects * 3; i++ )
+        {
+            cache.update( new CacheElement<String, String>( cacheName, "key" + i, "value" + i ) );
+        }
+
+        // VERIFY
+        assertEquals( "Should have max elements", maxObjects, cache.getSize() );
+        assertEquals( "List and map disagree", maxObjects, cache.getListSize() );
+        assertNull( "Oldest should be gone", cache.getQuiet( "key0" ) );
+        assertNotNull( "Newest should be there", cache.getQuiet( "key" + ( maxObjects * 3 - 1 ) ) );
+    }
+
+    /**
+     * Verify that buffered hits are applied before the next eviction, so a recently read element
+     * survives.
+     * <p>
+     * @throws IOException
+     */
+    public void testGet_ReorderedBeforeEviction()
+        throws IOException
+    {
+        // SETUP
+        int maxObjects = 10;
+        String cacheName = "testGet_ReorderedBeforeEviction";
+        ConcurrentLRUMemoryCache<String, String> cache = createCache( cacheName, maxObjects );
+        for ( int i = 0; i < maxObjects; i++ )
+        {
+            cache.update( new CacheElement<String, String>( cacheName, "key" + i, "value" + i ) );
+        }
+
+        // DO WORK
+        assertNotNull( "Should have the element", cache.get( "key0" ) );
+        cache.update( new CacheElement<String, String>( cacheName, "new", "value" ) );
+
+        // VERIFY
+        assertNotNull( "Recently read element should survive", cache.getQuiet( "key0" ) );
+        assertNull( "Least recently used element should be gone", cache.getQuiet( "key1" ) );
+    }
+
+    /**
+     * Verify replace, remove, partial remove and freeElements keep the list and the map in step.
+     * <p>
+     * @throws IOException
+     */
+    public void testRemoveAndFree()
+        throws IOException
+    {
+        // SETUP
+        int maxObjects = 20;
+        String cacheName = "testRemoveAndFree";
+        ConcurrentLRUMemoryCache<String, String> cache = createCache( cacheName, maxObjects );
+        for ( int i = 0; i < 10; i++ )
+        {
+            cache.update( new CacheElement<String, String>( cacheName, "root:" + i, "value" + i ) );
+            cache.update( new CacheElement<String, String>( cacheName, "other" + i, "value" + i ) );
+        }
+        cache.update( new CacheElement<String, String>( cacheName, "other0", "replaced" ) );
+
+        // DO WORK
+        assertTrue( "Should remove the hierarchy", cache.remove( "root:" ) );
+        assertTrue( "Should remove", cache.remove( "other1" ) );
+        int freed = cache.freeElements( 3 );
+
+        // VERIFY
+        assertEquals( "Wrong number freed", 3, freed );
+        assertEquals( "Wrong size", 6, cache.getSize() );
+        assertEquals( "List and map disagree", 6, cache.getListSize() );
+        assertEquals( "Replaced value should be kept", "replaced", cache.get( "other0" ).getVal() );
+
+        // DO WORK
+        cache.removeAll();
+
+        // VERIFY
+        assertEquals( "Should be empty", 0, cache.getSize() );
+        assertEquals( "List should be empty", 0, cache.getListSize() );
+    }
+
+    /**
+     * Verify the least recently used elements are spooled once the weight limit is passed.
+     * <p>
+     * @throws IOException
+     */
+    public void testUpdate_MaxMemoryBytes()
+        throws IOException
+    {
+        // SETUP
+        String cacheName = "testUpdate_MaxMemoryBytes";
+        ICompositeCacheAttributes attributes = new CompositeCacheAttributes();
+        attributes.setMaxObjects( 1000 );
+        attributes.setMaxMemoryBytes( 20000 );
+
+        ConcurrentLRUMemoryCache<String, byte[]> cache = new ConcurrentLRUMemoryCache<String, byte[]>();
+        cache.initialize( new CompositeCache<String, byte[]>( cacheName, attributes, new ElementAttributes() ) );
+
+        // DO WORK
+        for ( int i = 0; i < 10; i++ )
+        {
+            cache.update( new CacheElement<String, byte[]>( cacheName, "key" + i, new byte[4000] ) );
+        }
+
+        // VERIFY
+        assertEquals( "Should hold what fits under the default estimate", 4, cache.getSize() );
+        assertTrue( "Weight should be under the limit: " + cache.getWeight(), cache.getWeight() <= 20000 );
+        assertNotNull( "Newest should be there", cache.getQuiet( "key9" ) );
+
+        // DO WORK
+        cache.removeAll();
+
+        // VERIFY
+        assertEquals( "Weight should be given back", 0, cache.getWeight() );
+    }
+
+    /**
+     * Several threads reading and writing overlapping keys must leave the list and the map in step.
+     * <p>
+     * @throws Exception
+     */
+    public void testConcurrentGetUpdate()
+        throws Exception
+    {
+        // SETUP
+        final int maxObjects = 50;
+        final String cacheName = "testConcurrentGetUpdate";
+        final ConcurrentLRUMemoryCache<String, String> cache = createCache( cacheName, maxObjects );
+        final AtomicReference<Throwable> failure = new AtomicReference<Throwable>();
+        Thread[] threads = new Thread[8];
+
+        // DO WORK
+        for ( int t = 0; t < threads.length; t++ )
+        {
+            final int offset = t;
+            threads[t] = new Thread()
+            {
+                @Override
+                public void run()
+                {
+                    try
+                    {
+                        for ( int i = 0; i < 5000; i++ )
+                        {
+                            String key = "key" + ( ( i * 13 + offset ) % ( maxObjects * 2 ) );
+                            if ( i % 5 == 0 )
+                            {
+                                cache.update( new CacheElement<String, String>( cacheName, key, "value" ) );
+                            }
+                            else if ( i % 97 == 0 )
+                            {
+                                cache.remove( key );
+                            }
+                            else
+                            {
+                                cache.get( key );
+                            }
+                        }
+                    }
+                    catch ( Throwable e )
+                    {
+                        failure.set( e );
+                    }
+                }
+            };
+            threads[t].start();
+        }
+        for ( Thread thread : threads )
+        {
+            thread.join();
+        }
+
+        // VERIFY
+        assertNull( "Unexpected failure: " + failure.get(), failure.get() );
+        assertTrue( "Should not exceed max", cache.getSize() <= maxObjects );
+        assertEquals( "List and map disagree", cache.getSize(), cache.getListSize() );
+        String stats = cache.getStatistics().toString();
+        assertTrue( "Should report dropped reads: " + stats, stats.indexOf( "Dropped Read Count" ) != -1 );
+    }
+}
@@ -0,0 +1,69 @@
+package org.apache.commons.jcs.engine.memory.lru;
+
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+import java.io.IOException;
+
+import junit.framework.TestCase;
+
+import org.apache.commons.jcs.engine.CacheElement;
+import org.apache.commons.jcs.engine.CompositeCacheAttributes;
+import org.apache.commons.jcs.engine.ElementAttributes;
+import org.apache.commons.jcs.engine.behavior.ICompositeCacheAttributes;
+import org.apache.commons.jcs.engine.control.CompositeCache;
+
+/** Unit tests for the long key LRU memory cache. */
+public class LongKeyLRUMemoryCacheUnitTest
+    extends TestCase
+{
+    /**
+     * Verify the cache holds at most max objects, keeps the recently used ones and can remove.
+     * <p>
+     * @throws IOException
+     */
+    public void testUpdateGetRemove()
+        throws IOException
+    {
+        // SETUP
+        int maxObjects = 20;
+        String cacheName = "testUpdateGetRemove";
+        ICompositeCacheAttributes attributes = new CompositeCacheAttributes();
+        attributes.setMaxObjects( maxObjects );
+        LongKeyLRUMemoryCache<String> cache = new LongKeyLRUMemoryCache<String>();
+        cache.initialize( new CompositeCache<Long, String>( cacheName, attributes, new ElementAttributes() ) );
+
+        // DO WORK
+        for ( long i = 0; i < maxObjects * 3; i++ )
+        {
+            cache.update( new CacheElement<Long, String>( cacheName, Long.valueOf( i ), "value" + i ) );
+            cache.get( Long.valueOf( 0 ) );
+        }
+        boolean removed = cache.remove( Long.valueOf( maxObjects * 3 - 1 ) );
+
+        // VERIFY
+        assertTrue( "Should have removed", removed );
+        assertEquals( "Wrong size", maxObjects - 1, cache.getSize() );
+        assertNotNull( "Used key should be kept", cache.getQuiet( Long.valueOf( 0 ) ) );
+        assertNull( "Old key should be gone", cache.getQuiet( Long.valueOf( 1 ) ) );
+        assertEquals( "Wrong value", "value" + ( maxObjects * 3 - 2 ),
+                      cache.getQuiet( Long.valueOf( maxObjects * 3 - 2 ) ).getVal() );
+        assertEquals( "Wrong key set size", maxObjects - 1, cache.getKeySet().size() );
+    }
+}
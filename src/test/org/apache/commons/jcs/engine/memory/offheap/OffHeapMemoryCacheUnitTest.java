@@ -0,0 +1,224 @@
+package org.apache.commons.jcs.engine.memory.offheap;
+
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+import java.io.IOException;
+
+import junit.framework.TestCase;
+
+import org.apache.commons.jcs.auxiliary.AuxiliaryCache;
+import org.apache.commons.jcs.auxiliary.MockAuxiliaryCache;
+import org.apache.commons.jcs.engine.CacheElement;
+import org.apache.commons.jcs.engine.CompositeCacheAttributes;
+import org.apache.commons.jcs.engine.ElementAttributes;
+import org.apache.commons.jcs.engine.behavior.ICacheElement;
+import org.apache.commons.jcs.engine.behavior.ICompositeCacheAttributes;
+import org.apache.commons.jcs.engine.control.CompositeCache;
+import org.apache.commons.jcs.engine.stats.behavior.IStatElement;
+
+/**
+ * Tests for the OffHeapMemoryCache.
+ */
+public class OffHeapMemoryCacheUnitTest
+    extends TestCase
+{
+    /** Max objects on the heap */
+    private static final int MAX_OBJECTS = 10;
+
+    /** The composite cache */
+    private CompositeCache<String, String> cache;
+
+    /** Records what is spooled to disk */
+    private MockAuxiliaryCache<String, String> disk;
+
+    /**
+     * Creates a region with the off-heap memory cache and a disk auxiliary.
+     * <p>
+     * @param offHeapMaxBytes
+     * @return the memory cache
+     */
+    @SuppressWarnings("unchecked")
+    private OffHeapMemoryCache<String, String> createCache( long offHeapMaxBytes )
+    {
+        ICompositeCacheAttributes cattr = new CompositeCacheAttributes();
+        cattr.setMemoryCacheName( OffHeapMemoryCache.class.getName() );
+        cattr.setMaxObjects( MAX_OBJECTS );
+        cattr.setOffHeapMaxBytes( offHeapMaxBytes );
+
+        cache = new CompositeCache<String, String>( "testOffHeap", cattr, new ElementAttributes() );
+        disk = new MockAuxiliaryCache<String, String>();
+        cache.setAuxCaches( new AuxiliaryCache[] { disk } );
+
+        return (OffHeapMemoryCache<String, String>) cache.getMemoryCache();
+    }
+
+    /**
+     * Puts the keys from start to end, exclusive.
+     * <p>
+     * @param start
+     * @param end
+     * @throws IOException
+     */
+    private void put( int start, int end )
+        throws IOException
+    {
+        for ( int i = start; i < end; i++ )
+        {
+            cache.update( new CacheElement<String, String>( "testOffHeap", "key" + i, "data" + i ) );
+        }
+    }
+
+    /**
+     * Elements spooled from the heap stay off-heap while there is room, and a get moves them back.
+     * <p>
+     * @throws Exception
+     */
+    public void testSpool_OffHeapFirst()
+        throws Exception
+    {
+        // SETUP
+        OffHeapMemoryCache<String, String> mem = createCache( 1024 * 1024 );
+
+        // DO WORK
+        put( 0, 30 );
+        int offHeapAfterPut = mem.getOffHeapSize();
+        ICacheElement<String, String> ce = mem.get( "key0" );
+
+        // VERIFY
+        assertEquals( "Nothing should go to disk", 0, disk.updatedElements.size() );
+        assertEquals( "Wrong off-heap size", 30 - MAX_OBJECTS, offHeapAfterPut );
+        assertEquals( "Wrong total size", 30, mem.getSize() );
+        assertEquals( "Wrong key set size", 30, mem.getKeySet().size() );
+        assertNotNull( "Should find the spooled element", ce );
+        assertEquals( "Wrong value", "data0", ce.getVal() );
+        assertNotNull( "Should be back on the heap", mem.map.get( "key0" ) );
+        assertEquals( "Still the same total", 30, mem.getSize() );
+    }
+
+    /**
+     * Only the elements that do not fit off-heap go to disk, the oldest first.
+     * <p>
+     * @throws Exception
+     */
+    public void testSpool_OffHeapEvictionsGoToDisk()
+        throws Exception
+    {
+        // SETUP
+        OffHeapMemoryCache<String, String> mem = createCache( 8 * 1024 );
+
+        // DO WORK
+        put( 0, 100 );
+
+        // VERIFY
+        assertTrue( "Some should go to disk", disk.updatedElements.size() > 0 );
+        assertTrue( "Some should stay off-heap", mem.getOffHeapSize() > 0 );
+        assertEquals( "Every element is somewhere", 100, mem.getSize() + disk.updatedElements.size() );
+        assertEquals( "Oldest should go to disk first", "key0", disk.updatedElements.get( 0 ).getKey() );
+        assertNull( "Should not be off-heap any more", mem.getQuiet( "key0" ) );
+        assertNotNull( "Newest spooled should be off-heap", mem.getQuiet( "key" + ( 99 - MAX_OBJECTS ) ) );
+    }
+
+    /**
+     * An update replaces the copy held off-heap, and removal reaches both tiers.
+     * <p>
+     * @throws Exception
+     */
+    public void testUpdateAndRemove_BothTiers()
+        throws Exception
+    {
+        // SETUP
+        OffHeapMemoryCache<String, String> mem = createCache( 1024 * 1024 );
+        put( 0, 20 );
+
+        // DO WORK
+        cache.update( new CacheElement<String, String>( "testOffHeap", "key0", "updated" ) );
+        int sizeAfterUpdate = mem.getSize();
+        boolean removed = mem.remove( "key1" );
+
+        // VERIFY
+        assertEquals( "Old copy should be dropped", 20, sizeAfterUpdate );
+        assertEquals( "Wrong value", "updated", mem.getQuiet( "key0" ).getVal() );
+        assertTrue( "Should remove off-heap element", removed );
+        assertNull( "Should be gone", mem.getQuiet( "key1" ) );
+        assertEquals( "Wrong total size", 19, mem.getSize() );
+    }
+
+    /**
+     * Moving an element back from off-heap is a hit, not a heap miss followed by a put.
+     * <p>
+     * @throws Exception
+     */
+    public void testGet_OffHeapHitCountsAsHit()
+        throws Exception
+    {
+        // SETUP
+        OffHeapMemoryCache<String, String> mem = createCache( 1024 * 1024 );
+        put( 0, 30 );
+
+        // DO WORK
+        ICacheElement<String, String> ce = mem.get( "key0" );
+        ICacheElement<String, String> missing = mem.get( "nokey" );
+
+        // VERIFY
+        assertNotNull( "Should find the spooled element", ce );
+        assertNull( "Should not find a key that was never put", missing );
+        assertEquals( "Wrong put count", "30", getStat( mem, "Put Count" ) );
+        assertEquals( "Wrong hit count", "1", getStat( mem, "Hit Count" ) );
+        assertEquals( "Wrong miss count", "1", getStat( mem, "Miss Count" ) );
+        assertEquals( "Wrong off-heap hit count", "1", getStat( mem, "Off-Heap Hit Count" ) );
+    }
+
+    /**
+     * Disposing of the region sends both tiers to disk.
+     * <p>
+     * @throws Exception
+     */
+    public void testDispose_FlushesBothTiers()
+        throws Exception
+    {
+        // SETUP
+        createCache( 1024 * 1024 );
+        put( 0, 30 );
+
+        // DO WORK
+        cache.dispose();
+
+        // VERIFY
+        assertEquals( "Everything should go to disk", 30, disk.updatedElements.size() );
+        assertEquals( "Off-heap should go first", "key0", disk.updatedElements.get( 0 ).getKey() );
+    }
+
+    /**
+     * @param mem
+     * @param name
+     * @return the data of the named stat element, or null
+     */
+    private static String getStat( OffHeapMemoryCache<String, String> mem, String name )
+    {
+        for ( IStatElement se : mem.getStatistics().getStatElements() )
+        {
+            if ( name.equals( se.getName() ) )
+            {
+                return se.getData();
+            }
+        }
+        return null;
+    }
+}
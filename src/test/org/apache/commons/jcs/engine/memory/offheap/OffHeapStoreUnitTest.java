@@ -0,0 +1,125 @@
+package org.apache.commons.jcs.engine.memory.offheap;
+
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+import java.util.List;
+
+import junit.framework.TestCase;
+
+import org.apache.commons.jcs.engine.CacheElement;
+import org.apache.commons.jcs.engine.behavior.ICacheElement;
+
+/**
+ * Tests for the off-heap block store.
+ */
+public class OffHeapStoreUnitTest
+    extends TestCase
+{
+    /**
+     * Elements spanning several blocks come back intact, and their blocks are reused once they are
+     * taken.
+     */
+    public void testPutTake_MultipleBlocks()
+        throws Exception
+    {
+        // SETUP
+        OffHeapStore<String, String> store = new OffHeapStore<String, String>( 64 * 1024, 256, 4096 );
+        StringBuilder value = new StringBuilder();
+        for ( int i = 0; i < 2000; i++ )
+        {
+            value.append( (char) ( 'a' + i % 26 ) );
+        }
+
+        // DO WORK
+        List<ICacheElement<String, String>> overflow = store.put( new CacheElement<String, String>( "region", "key", value.toString() ) );
+        int blocksUsed = store.getBlocksInUse();
+        ICacheElement<String, String> ce = store.take( "key" );
+
+        // VERIFY
+        assertTrue( "Nothing should overflow", overflow.isEmpty() );
+        assertTrue( "Should span several blocks: " + blocksUsed, blocksUsed > 8 );
+        assertEquals( "Wrong value", value.toString(), ce.getVal() );
+        assertEquals( "Wrong size", 0, store.size() );
+        assertEquals( "Blocks should be free", 0, store.getBlocksInUse() );
+        assertNull( "Should be gone", store.take( "key" ) );
+    }
+
+    /**
+     * When the store is full, the oldest elements are evicted to make room.
+     */
+    public void testPut_EvictsOldest()
+        throws Exception
+    {
+        // SETUP
+        OffHeapStore<String, String> store = new OffHeapStore<String, String>( 16 * 1024, 1024, 4096 );
+
+        // DO WORK
+        int evicted = 0;
+        String firstEvicted = null;
+        for ( int i = 0; i < 100; i++ )
+        {
+            List<ICacheElement<String, String>> overflow = store.put( new CacheElement<String, String>( "region", "key" + i, "value" + i ) );
+            if ( firstEvicted == null && !overflow.isEmpty() )
+            {
+                firstEvicted = overflow.get( 0 ).getKey();
+            }
+            evicted += overflow.size();
+        }
+
+        // VERIFY
+        assertEquals( "Oldest should go first", "key0", firstEvicted );
+        assertEquals( "Every element is held or evicted", 100, evicted + store.size() );
+        assertEquals( "Wrong eviction count", evicted, store.getEvictionCount() );
+        assertTrue( "Should not allocate more than the max", store.getAllocatedBytes() <= 16 * 1024 );
+        assertNotNull( "Newest should be held", store.peek( "key99" ) );
+        assertNull( "Oldest should be gone", store.peek( "key0" ) );
+    }
+
+    /**
+     * An element larger than the whole store is handed back, and replacing an element frees the
+     * blocks of the old one.
+     */
+    public void testPut_TooLargeAndReplace()
+        throws Exception
+    {
+        // SETUP
+        OffHeapStore<String, String> store = new OffHeapStore<String, String>( 2 * 1024, 1024, 1024 );
+        StringBuilder value = new StringBuilder();
+        for ( int i = 0; i < 4096; i++ )
+        {
+            value.append( 'x' );
+        }
+        ICacheElement<String, String> large = new CacheElement<String, String>( "region", "large", value.toString() );
+
+        // DO WORK
+        List<ICacheElement<String, String>> rejected = store.put( large );
+        store.put( new CacheElement<String, String>( "region", "key", "one" ) );
+        int blocks = store.getBlocksInUse();
+        store.put( new CacheElement<String, String>( "region", "key", "two" ) );
+
+        // VERIFY
+        assertEquals( "Should be handed back", 1, rejected.size() );
+        assertSame( "Should be the element itself", large, rejected.get( 0 ) );
+        assertEquals( "Wrong rejected count", 1, store.getRejectedCount() );
+        assertEquals( "Wrong size", 1, store.size() );
+        assertEquals( "Old blocks should be reused", blocks, store.getBlocksInUse() );
+        assertEquals( "Wrong value", "two", store.peek( "key" ).getVal() );
+    }
+}
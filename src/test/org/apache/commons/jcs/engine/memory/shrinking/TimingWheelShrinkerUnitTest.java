@@ -0,0 +1,109 @@
+package org.apache.commons.jcs.engine.memory.shrinking;
+
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+import junit.framework.TestCase;
+
+import org.apache.commons.jcs.engine.CacheElement;
+import org.apache.commons.jcs.engine.CompositeCacheAttributes;
+import org.apache.commons.jcs.engine.ElementAttributes;
+import org.apache.commons.jcs.engine.behavior.ICacheElement;
+import org.apache.commons.jcs.engine.memory.MockMemoryCache;
+
+/**
+ * Tests for the shrinker that works off the timing wheel.
+ */
+public class TimingWheelShrinkerUnitTest
+    extends TestCase
+{
+    /**
+     * Expired elements should be removed, idle elements spooled, and fresh elements kept indexed.
+     * <p>
+     * @throws Exception
+     */
+    public void testShrink_OnlyDueElements()
+        throws Exception
+    {
+        // SETUP
+        MockMemoryCache<String, String> memory = new MockMemoryCache<String, String>();
+        CompositeCacheAttributes cacheAttr = new CompositeCacheAttributes();
+        cacheAttr.setMaxMemoryIdleTimeSeconds( 10 );
+        memory.setCacheAttributes( cacheAttr );
+
+        TimingWheelShrinker<String, String> shrinker = new TimingWheelShrinker<String, String>( memory );
+
+        ElementAttributes expiredAttr = new ElementAttributes();
+        expiredAttr.setIsEternal( false );
+        expiredAttr.setMaxLifeSeconds( 1 );
+        expiredAttr.createTime = System.currentTimeMillis() - 2000;
+        ICacheElement<String, String> expired = new CacheElement<String, String>( "testRegion", "expired", "value" );
+        expired.setElementAttributes( expiredAttr );
+
+        ElementAttributes idleAttr = new ElementAttributes();
+        idleAttr.lastAccessTime = System.currentTimeMillis() - 20000;
+        ICacheElement<String, String> idle = new CacheElement<String, String>( "testRegion", "idle", "value" );
+        idle.setElementAttributes( idleAttr );
+
+        ICacheElement<String, String> fresh = new CacheElement<String, String>( "testRegion", "fresh", "value" );
+        fresh.setElementAttributes( new ElementAttributes() );
+
+        memory.update( expired );
+        shrinker.schedule( expired );
+        memory.update( idle );
+        shrinker.schedule( idle );
+        memory.update( fresh );
+        shrinker.schedule( fresh );
+        assertEquals( "Wrong number of indexed keys", 3, shrinker.getIndexedKeyCount() );
+
+        // DO WORK
+        Thread.sleep( TimingWheelShrinker.DEFAULT_TICK_MILLIS + 100 );
+        shrinker.shrink();
+
+        // VERIFY
+        assertNull( "Expired element should be removed", memory.getQuiet( "expired" ) );
+        assertNull( "Idle element should be removed", memory.getQuiet( "idle" ) );
+        assertEquals( "Idle element should be spooled", 1, memory.waterfallCallCount );
+        assertNotNull( "Fresh element should be kept", memory.getQuiet( "fresh" ) );
+        assertEquals( "Fresh element should stay indexed", 1, shrinker.getIndexedKeyCount() );
+    }
+
+    /**
+     * Elements that never expire and are never spooled should not be indexed.
+     */
+    public void testSchedule_NoDeadline()
+    {
+        // SETUP
+        MockMemoryCache<String, String> memory = new MockMemoryCache<String, String>();
+        CompositeCacheAttributes cacheAttr = new CompositeCacheAttributes();
+        cacheAttr.setMaxMemoryIdleTimeSeconds( -1 );
+        memory.setCacheAttributes( cacheAttr );
+
+        TimingWheelShrinker<String, String> shrinker = new TimingWheelShrinker<String, String>( memory );
+
+        ICacheElement<String, String> element = new CacheElement<String, String>( "testRegion", "key", "value" );
+        element.setElementAttributes( new ElementAttributes() );
+
+        // DO WORK
+        shrinker.schedule( element );
+
+        // VERIFY
+        assertEquals( "Eternal element should not be indexed", 0, shrinker.getIndexedKeyCount() );
+    }
+}
@@ -0,0 +1,123 @@
+package org.apache.commons.jcs.engine.memory.shrinking;
+
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+import junit.framework.TestCase;
+
+/**
+ * Tests for the timing wheel used as expiration index.
+ */
+public class TimingWheelUnitTest
+    extends TestCase
+{
+    /**
+     * Keys should come due in the tick after their deadline, not before.
+     */
+    public void testAdvance_ReturnsOnlyDueKeys()
+    {
+        // SETUP
+        TimingWheel<String> wheel = new TimingWheel<String>( 10, 8, 0 );
+        wheel.schedule( "early", 25 );
+        wheel.schedule( "late", 55 );
+
+        // DO WORK & VERIFY
+        assertTrue( "Nothing should be due yet", wheel.advance( 20 ).isEmpty() );
+
+        List<String> due = wheel.advance( 30 );
+        assertEquals( "Wrong due keys", 1, due.size() );
+        assertEquals( "Wrong due key", "early", due.get( 0 ) );
+        assertEquals( "Wrong size", 1, wheel.size() );
+
+        assertTrue( "Late key is not due yet", wheel.advance( 55 ).isEmpty() );
+        assertEquals( "Late key should be due", "late", wheel.advance( 60 ).get( 0 ) );
+        assertEquals( "Wheel should be empty", 0, wheel.size() );
+    }
+
+    /**
+     * Deadlines beyond one revolution of the first level should be cascaded down and come due on
+     * time.
+     */
+    public void testAdvance_CascadesFromHigherLevels()
+    {
+        // SETUP
+        TimingWheel<Integer> wheel = new TimingWheel<Integer>( 10, 4, 0 );
+        // the first level spans 40ms, the second 160ms, the third 640ms
+        int[] deadlines = { 5, 45, 150, 170, 600, 2500 };
+        for ( int i = 0; i < deadlines.length; i++ )
+        {
+            wheel.schedule( Integer.valueOf( i ), deadlines[i] );
+        }
+
+        // DO WORK
+        Set<Integer> seen = new HashSet<Integer>();
+        for ( long now = 0; now <= 3000; now += 10 )
+        {
+            for ( Integer key : wheel.advance( now ) )
+            {
+                // VERIFY
+                int deadline = deadlines[key.intValue()];
+                assertTrue( "Key " + key + " came due early at " + now, deadline < now );
+                assertTrue( "Key " + key + " came due late at " + now, now - deadline <= 10 );
+                assertTrue( "Key " + key + " came due twice", seen.add( key ) );
+            }
+        }
+        assertEquals( "Every key should have come due", deadlines.length, seen.size() );
+    }
+
+    /**
+     * A later deadline for a key that is already held is ignored, an earlier one replaces it.
+     */
+    public void testSchedule_KeepsEarliestDeadline()
+    {
+        // SETUP
+        TimingWheel<String> wheel = new TimingWheel<String>( 10, 8, 0 );
+
+        // DO WORK
+        wheel.schedule( "key", 50 );
+        wheel.schedule( "key", 70 );
+        wheel.schedule( "key", 15 );
+
+        // VERIFY
+        assertEquals( "Wrong size", 1, wheel.size() );
+        assertEquals( "Earliest deadline should win", "key", wheel.advance( 20 ).get( 0 ) );
+        assertTrue( "Outdated entries should not come due", wheel.advance( 100 ).isEmpty() );
+    }
+
+    /**
+     * Advancing an empty wheel over a long gap should not leave it behind.
+     */
+    public void testAdvance_EmptyWheelSkipsIdleTime()
+    {
+        // SETUP
+        TimingWheel<String> wheel = new TimingWheel<String>( 10, 8, 0 );
+
+        // DO WORK
+        wheel.advance( 1000000 );
+        wheel.schedule( "key", 1000015 );
+
+        // VERIFY
+        assertTrue( "Key is not due yet", wheel.advance( 1000010 ).isEmpty() );
+        assertEquals( "Key should be due", "key", wheel.advance( 1000020 ).get( 0 ) );
+    }
+}
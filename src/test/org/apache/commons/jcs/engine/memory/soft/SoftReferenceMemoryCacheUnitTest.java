@@ -0,0 +1,162 @@
+package org.apache.commons.jcs.engine.memory.soft;
+
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+import java.io.IOException;
+import java.lang.ref.Reference;
+
+import junit.framework.TestCase;
+
+import org.apache.commons.jcs.auxiliary.AuxiliaryCache;
+import org.apache.commons.jcs.auxiliary.MockAuxiliaryCache;
+import org.apache.commons.jcs.engine.CacheElement;
+import org.apache.commons.jcs.engine.CompositeCacheAttributes;
+import org.apache.commons.jcs.engine.ElementAttributes;
+import org.apache.commons.jcs.engine.behavior.ICacheElement;
+import org.apache.commons.jcs.engine.behavior.ICompositeCacheAttributes;
+import org.apache.commons.jcs.engine.control.CompositeCache;
+
+/**
+ * Tests for the SoftReferenceMemoryCache.
+ */
+public class SoftReferenceMemoryCacheUnitTest
+    extends TestCase
+{
+    /** Max objects in the LRU */
+    private static final int MAX_OBJECTS = 10;
+
+    /** The composite cache */
+    private CompositeCache<String, String> cache;
+
+    /** Records what is spooled to disk */
+    private MockAuxiliaryCache<String, String> disk;
+
+    /**
+     * Creates a region with the soft reference memory cache and a disk auxiliary.
+     * <p>
+     * @return the memory cache
+     */
+    @SuppressWarnings("unchecked")
+    private SoftReferenceMemoryCache<String, String> createCache()
+    {
+        ICompositeCacheAttributes cattr = new CompositeCacheAttributes();
+        cattr.setMemoryCacheName( SoftReferenceMemoryCache.class.getName() );
+        cattr.setMaxObjects( MAX_OBJECTS );
+
+        cache = new CompositeCache<String, String>( "testSoft", cattr, new ElementAttributes() );
+        disk = new MockAuxiliaryCache<String, String>();
+        cache.setAuxCaches( new AuxiliaryCache[] { disk } );
+
+        return (SoftReferenceMemoryCache<String, String>) cache.getMemoryCache();
+    }
+
+    /**
+     * Puts the keys from start to end, exclusive.
+     * <p>
+     * @param start
+     * @param end
+     * @throws IOException
+     */
+    private void put( int start, int end )
+        throws IOException
+    {
+        for ( int i = start; i < end; i++ )
+        {
+            cache.update( new CacheElement<String, String>( "testSoft", "key" + i, "data" + i ) );
+        }
+    }
+
+    /**
+     * Spooled elements still go to disk, and a get finds them in the victim tier without asking
+     * the disk.
+     * <p>
+     * @throws Exception
+     */
+    public void testGet_FromVictims()
+        throws Exception
+    {
+        // SETUP
+        SoftReferenceMemoryCache<String, String> mem = createCache();
+        put( 0, 30 );
+
+        // DO WORK
+        int victimsAfterPut = mem.getVictimSize();
+        int spooledAfterPut = disk.updatedElements.size();
+        ICacheElement<String, String> ce = cache.get( "key0" );
+
+        // VERIFY
+        assertEquals( "Spooled elements should go to disk", 30 - MAX_OBJECTS, spooledAfterPut );
+        assertEquals( "Spooled elements should be kept softly", 30 - MAX_OBJECTS, victimsAfterPut );
+        assertNotNull( "Should find the victim", ce );
+        assertEquals( "Wrong value", "data0", ce.getVal() );
+        assertEquals( "Should not read the disk", 0, disk.getCallCount );
+        assertNotNull( "Should be back in the LRU", mem.map.get( "key0" ) );
+        assertTrue( "LRU should stay within its limit", mem.getSize() <= MAX_OBJECTS );
+    }
+
+    /**
+     * An update drops the victim, so a later miss cannot return the old value, and removal
+     * reaches the victims.
+     * <p>
+     * @throws Exception
+     */
+    public void testUpdateAndRemove_DropVictims()
+        throws Exception
+    {
+        // SETUP
+        SoftReferenceMemoryCache<String, String> mem = createCache();
+        put( 0, 20 );
+
+        // DO WORK
+        cache.update( new CacheElement<String, String>( "testSoft", "key0", "updated" ) );
+        boolean removed = mem.remove( "key1" );
+
+        // VERIFY
+        assertNull( "Old value should be dropped", mem.getVictims().peek( "key0" ) );
+        assertEquals( "Wrong value", "updated", mem.getQuiet( "key0" ).getVal() );
+        assertTrue( "Should remove the victim", removed );
+        assertNull( "Should be gone", mem.getQuiet( "key1" ) );
+    }
+
+    /**
+     * References cleared by the collector are removed from the index.
+     * <p>
+     * @throws Exception
+     */
+    public void testCleanUp_ClearedReferences()
+        throws Exception
+    {
+        // SETUP
+        SoftReferenceMemoryCache<String, String> mem = createCache();
+        put( 0, 20 );
+        SoftReferenceStore<String, String> victims = mem.getVictims();
+
+        // DO WORK
+        // stand in for the collector
+        Reference<ICacheElement<String, String>> ref = victims.getReference( "key0" );
+        ref.clear();
+        ref.enqueue();
+
+        // VERIFY
+        assertNull( "Should miss", mem.get( "key0" ) );
+        assertEquals( "Entry should be cleaned up", 20 - MAX_OBJECTS - 1, victims.size() );
+        assertEquals( "Wrong cleared count", 1, victims.getClearedCount() );
+    }
+}
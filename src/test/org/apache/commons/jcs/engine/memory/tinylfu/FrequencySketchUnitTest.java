@@ -0,0 +1,60 @@
+package org.apache.commons.jcs.engine.memory.tinylfu;
+
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+import junit.framework.TestCase;
+
+/** Unit tests for the frequency sketch. */
+public class FrequencySketchUnitTest
+    extends TestCase
+{
+    /** Verify counts grow with use and stop at 15. */
+    public void testIncrement_Saturates()
+    {
+        FrequencySketch sketch = new FrequencySketch( 100 );
+        assertEquals( "Unused key should have no count", 0, sketch.frequency( "key" ) );
+
+        for ( int i = 0; i < 5; i++ )
+        {
+            sketch.increment( "key" );
+        }
+        assertEquals( "Wrong count", 5, sketch.frequency( "key" ) );
+
+        for ( int i = 0; i < 20; i++ )
+        {
+            sketch.increment( "key" );
+        }
+        assertEquals( "Count should saturate", 15, sketch.frequency( "key" ) );
+    }
+
+    /** Verify the counters are halved after the sample size is reached. */
+    public void testReset_Halves()
+    {
+        FrequencySketch sketch = new FrequencySketch( 16 );
+        for ( int i = 0; i < 8; i++ )
+        {
+            sketch.increment( "key" );
+        }
+
+        sketch.reset();
+
+        assertEquals( "Count should be halved", 4, sketch.frequency( "key" ) );
+    }
+}
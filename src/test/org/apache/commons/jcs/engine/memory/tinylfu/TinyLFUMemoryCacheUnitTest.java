@@ -0,0 +1,167 @@
+package org.apache.commons.jcs.engine.memory.tinylfu;
+
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+import java.io.IOException;
+
+import junit.framework.TestCase;
+
+import org.apache.commons.jcs.engine.CacheElement;
+import org.apache.commons.jcs.engine.CompositeCacheAttributes;
+import org.apache.commons.jcs.engine.ElementAttributes;
+import org.apache.commons.jcs.engine.behavior.ICompositeCacheAttributes;
+import org.apache.commons.jcs.engine.control.CompositeCache;
+
+/** Unit tests for the W-TinyLFU memory cache. */
+public class TinyLFUMemoryCacheUnitTest
+    extends TestCase
+{
+    /**
+     * Creates a memory cache for a region without auxiliaries.
+     * <p>
+     * @param cacheName
+     * @param maxObjects
+     * @return the initialized memory cache
+     */
+    private TinyLFUMemoryCache<String, String> createCache( String cacheName, int maxObjects )
+    {
+        ICompositeCacheAttributes attributes = new CompositeCacheAttributes();
+        attributes.setMaxObjects( maxObjects );
+
+        TinyLFUMemoryCache<String, String> cache = new TinyLFUMemoryCache<String, String>();
+        cache.initialize( new CompositeCache<String, String>( cacheName, attributes, new ElementAttributes() ) );
+        return cache;
+    }
+
+    /**
+     * Verify the cache never holds more than max objects.
+     * <p>
+     * @throws IOException
+     */
+    public void testUpdate_Bounded()
+        throws IOException
+    {
+        // SETUP
+        int maxObjects = 50;
+        String cacheName = "testUpdate_Bounded";
+        TinyLFUMemoryCache<String, String> cache = createCache( cacheName, maxObjects );
+
+        // DO WORK
+        for ( int i = 0; i < maxObjects * 3; i++ )
+        {
+            cache.update( new CacheElement<String, String>( cacheName, "key" + i, "value" + i ) );
+        }
+
+        // VERIFY
+        assertEquals( "Should have max elements", maxObjects, cache.getSize() );
+        assertEquals( "Map and key set should agree", cache.getSize(), cache.getKeySet().size() );
+    }
+
+    /**
+     * Verify that a scan of keys used once does not push out keys that are used often.
+     * <p>
+     * @throws IOException
+     */
+    public void testScanResistance()
+        throws IOException
+    {
+        // SETUP
+        int maxObjects = 100;
+        int hot = 50;
+        String cacheName = "testScanResistance";
+        TinyLFUMemoryCache<String, String> cache = createCache( cacheName, maxObjects );
+
+        for ( int i = 0; i < hot; i++ )
+        {
+            cache.update( new CacheElement<String, String>( cacheName, "hot" + i, "value" + i ) );
+        }
+        for ( int round = 0; round < 10; round++ )
+        {
+            for ( int i = 0; i < hot; i++ )
+            {
+                assertNotNull( "Hot key should be cached", cache.get( "hot" + i ) );
+            }
+        }
+
+        // DO WORK
+        for ( int i = 0; i < maxObjects * 5; i++ )
+        {
+            cache.update( new CacheElement<String, String>( cacheName, "scan" + i, "value" + i ) );
+        }
+
+        // VERIFY
+        assertEquals( "Should have max elements", maxObjects, cache.getSize() );
+        for ( int i = 0; i < hot; i++ )
+        {
+            assertNotNull( "Hot key should have survived the scan: hot" + i, cache.getQuiet( "hot" + i ) );
+        }
+    }
+
+    /**
+     * Verify a put for a cached key replaces the value without changing the size.
+     * <p>
+     * @throws IOException
+     */
+    public void testUpdate_Replace()
+        throws IOException
+    {
+        // SETUP
+        String cacheName = "testUpdate_Replace";
+        TinyLFUMemoryCache<String, String> cache = createCache( cacheName, 10 );
+        cache.update( new CacheElement<String, String>( cacheName, "key", "first" ) );
+        cache.get( "key" );
+
+        // DO WORK
+        cache.update( new CacheElement<String, String>( cacheName, "key", "second" ) );
+
+        // VERIFY
+        assertEquals( "Wrong size", 1, cache.getSize() );
+        assertEquals( "Wrong value", "second", cache.get( "key" ).getVal() );
+    }
+
+    /**
+     * Verify remove and freeElements keep the segments consistent with the map.
+     * <p>
+     * @throws IOException
+     */
+    public void testRemoveAndFree()
+        throws IOException
+    {
+        // SETUP
+        int maxObjects = 20;
+        String cacheName = "testRemoveAndFree";
+        TinyLFUMemoryCache<String, String> cache = createCache( cacheName, maxObjects );
+        for ( int i = 0; i < maxObjects; i++ )
+        {
+            cache.update( new CacheElement<String, String>( cacheName, "key:" + i, "value" + i ) );
+            cache.get( "key:" + i );
+        }
+
+        // DO WORK
+        assertTrue( "Should remove", cache.remove( "key:0" ) );
+        int freed = cache.freeElements( maxObjects );
+
+        // VERIFY
+        assertEquals( "Wrong number freed", maxObjects - 1, freed );
+        assertEquals( "Should be empty", 0, cache.getSize() );
+        assertEquals( "Protected segment should be empty", 0, cache.getProtectedSize() );
+        assertEquals( "Window should be empty", 0, cache.getWindowSize() );
+    }
+}
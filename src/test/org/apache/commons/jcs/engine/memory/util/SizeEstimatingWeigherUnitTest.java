@@ -0,0 +1,114 @@
+package org.apache.commons.jcs.engine.memory.util;
+
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import junit.framework.TestCase;
+
+import org.apache.commons.jcs.engine.CacheElement;
+
+/** Unit tests for the default element weigher. */
+public class SizeEstimatingWeigherUnitTest
+    extends TestCase
+{
+    /** The weigher under test */
+    private final SizeEstimatingWeigher<String, Serializable> weigher =
+        new SizeEstimatingWeigher<String, Serializable>();
+
+    /**
+     * @param value
+     * @return the weight of an element with a fixed key and the value
+     */
+    private long weigh( Serializable value )
+    {
+        return weigher.weigh( new CacheElement<String, Serializable>( "region", "key", value ) );
+    }
+
+    /** Verify strings and arrays weigh in proportion to their length. */
+    public void testWeigh_Length()
+    {
+        long empty = weigh( "" );
+        long text = weigh( "0123456789012345678901234567890123456789" );
+        long bytes = weigh( new byte[10000] );
+        long longs = weigh( new long[10000] );
+
+        assertTrue( "Null value should only carry the overhead", weigh( null ) < empty );
+        assertEquals( "Strings should weigh two bytes per char", 80, text - empty );
+        assertTrue( "Byte array should weigh its length: " + bytes, bytes >= 10000 && bytes < 10000 + 512 );
+        assertTrue( "Long array should weigh eight times its length: " + longs,
+                    longs >= 80000 && longs < 80000 + 512 );
+    }
+
+    /** Verify collections and maps weigh what they hold. */
+    public void testWeigh_Containers()
+    {
+        ArrayList<String> small = new ArrayList<String>();
+        ArrayList<String> large = new ArrayList<String>();
+        for ( int i = 0; i < 1000; i++ )
+        {
+            if ( i < 10 )
+            {
+                small.add( "value" + i );
+            }
+            large.add( "value" + i );
+        }
+
+        HashMap<String, byte[]> map = new HashMap<String, byte[]>();
+        map.put( "a", new byte[1000] );
+        map.put( "b", new byte[1000] );
+
+        assertTrue( "Larger list should weigh more", weigh( large ) > weigh( small ) * 50 );
+        assertTrue( "Map should weigh its values", weigh( map ) > 2000 );
+    }
+
+    /** Verify other objects are weighed by their own fields, without following them. */
+    public void testWeigh_Shallow()
+    {
+        Holder holder = new Holder();
+        holder.data = new byte[100000];
+
+        long weight = weigh( holder );
+
+        assertTrue( "Should count the fields only: " + weight, weight < 1000 );
+        assertTrue( "Should count more than the overhead", weight > weigh( null ) );
+    }
+
+    /** A value with a reference the weigher does not follow. */
+    private static class Holder
+        implements Serializable
+    {
+        /** Don't change */
+        private static final long serialVersionUID = 1L;
+
+        /** not followed */
+        byte[] data;
+
+        /** a primitive field */
+        long counter;
+
+        /** another reference */
+        List<Map<String, String>> more;
+    }
+}
@@ -0,0 +1,124 @@
+package org.apache.commons.jcs.utils.struct;
+
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+
+import junit.framework.TestCase;
+
+/** Unit tests for the primitive long key map. */
+public class LongKeyMapUnitTest
+    extends TestCase
+{
+    /**
+     * Put, replace and remove many keys, so that removed slots are reused and the table is rebuilt,
+     * and compare with a hash map.
+     */
+    public void testPutGetRemove_MatchesHashMap()
+    {
+        // SETUP
+        LongKeyMap<String> map = new LongKeyMap<String>();
+        Map<Long, String> expected = new HashMap<Long, String>();
+
+        // DO WORK
+        for ( long i = 0; i < 5000; i++ )
+        {
+            long key = i * 1024 - 100;
+            map.put( key, "data:" + i );
+            expected.put( Long.valueOf( key ), "data:" + i );
+            if ( i % 3 == 0 )
+            {
+                long old = ( i / 2 ) * 1024 - 100;
+                assertEquals( "Wrong removed value", expected.remove( Long.valueOf( old ) ), map.remove( old ) );
+            }
+        }
+        assertEquals( "Wrong old value", expected.put( Long.valueOf( -100 ), "new" ), map.put( -100L, "new" ) );
+
+        // VERIFY
+        assertEquals( "Wrong size", expected.size(), map.size() );
+        assertEquals( "Maps should be equal", expected, map );
+        assertNull( "Missing key should not be found", map.get( 7L ) );
+        assertFalse( "Missing key should not be found", map.containsKey( 7L ) );
+        assertNull( "Other key types should not be found", map.get( "-100" ) );
+    }
+
+    /**
+     * Verify that a bounded map removes the least recently used key and reports it.
+     */
+    public void testPut_EvictsLeastRecentlyUsed()
+    {
+        // SETUP
+        final List<Long> removed = new ArrayList<Long>();
+        LongKeyMap<String> map = new LongKeyMap<String>( 3 )
+        {
+            @Override
+            protected void processRemovedLRU( long key, String value )
+            {
+                removed.add( Long.valueOf( key ) );
+            }
+        };
+        map.put( 1L, "one" );
+        map.put( 2L, "two" );
+        map.put( 3L, "three" );
+
+        // DO WORK
+        map.get( 1L );
+        map.put( 4L, "four" );
+
+        // VERIFY
+        assertEquals( "Wrong size", 3, map.size() );
+        assertEquals( "Wrong key removed", 1, removed.size() );
+        assertEquals( "Wrong key removed", Long.valueOf( 2 ), removed.get( 0 ) );
+        assertTrue( "Used key should be kept", map.containsKey( 1L ) );
+        assertEquals( "Wrong order", "[3, 1, 4]", map.keySet().toString() );
+    }
+
+    /**
+     * Verify that entries can be removed through the iterator.
+     */
+    public void testIterator_Remove()
+    {
+        // SETUP
+        LongKeyMap<String> map = new LongKeyMap<String>();
+        for ( long i = 0; i < 10; i++ )
+        {
+            map.put( i, "data:" + i );
+        }
+
+        // DO WORK
+        Iterator<Map.Entry<Long, String>> it = map.entrySet().iterator();
+        while ( it.hasNext() )
+        {
+            if ( it.next().getKey().longValue() % 2 == 0 )
+            {
+                it.remove();
+            }
+        }
+
+        // VERIFY
+        assertEquals( "Wrong size", 5, map.size() );
+        assertEquals( "Wrong keys", "[1, 3, 5, 7, 9]", map.keySet().toString() );
+        assertEquals( "Wrong value", "data:7", map.get( 7L ) );
+    }
+}